@@ -0,0 +1,95 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the cost of building request URLs and headers with String.format 
+ * (as the client used to) against the pre-compiled endpoint templates and 
+ * shared header instances.  Run with the GC profiler (which the jmh task is 
+ * configured with) and compare the <code>gc.alloc.rate.norm</code> (bytes 
+ * allocated per operation) of each pair of benchmarks:
+ * 
+ * <pre>./gradlew jmh</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestConstructionBenchmark {
+	private static final Header CONTENT_TYPE_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, Constants.HEADER_VALUE_JSON_APPLICATION);
+	private static final Header ACCEPT_ENCODING_HEADER = new BasicHeader(HttpHeaders.ACCEPT_ENCODING, Constants.HEADER_VALUE_ACCEPT_ENCODING);
+
+	private final Region region = Region.PARIS1;
+	private final String computeUrl = String.format(Constants.COMPUTE_URL, region);
+	private final String accessToken = "00000000-1111-2222-3333-444444444444";
+	private final Header authTokenHeader = new BasicHeader(Constants.HEADER_KEY_AUTH_TOKEN, accessToken);
+
+	private String serverId = "5cbb7c6a-3e7b-4ef2-bf4d-2ec7e1c3a7c3";
+	private int numPage = 3;
+	private int numPerPage = 100;
+
+	@Benchmark
+	public String formatServerActionUrl() {
+		return(new StringBuilder(computeUrl).append(String.format(Constants.PATH_SERVERS_SLASH_ACTION, serverId)).toString());
+	}
+
+	@Benchmark
+	public String templateServerActionUrl() {
+		return(Endpoint.SERVERS_SLASH_ACTION.url(region, serverId));
+	}
+
+	@Benchmark
+	public String formatServersPagingUrl() {
+		return(new StringBuilder(computeUrl).append(String.format(Constants.PATH_SERVERS_PAGING, numPage, numPerPage)).toString());
+	}
+
+	@Benchmark
+	public String templateServersPagingUrl() {
+		return(Endpoint.SERVERS_PAGING.url(region, numPage, numPerPage));
+	}
+
+	@Benchmark
+	public HttpRequestBase formatRequest() {
+		HttpGet request = new HttpGet(new StringBuilder(computeUrl).append(String.format(Constants.PATH_SERVERS_SLASH, serverId)).toString());
+		request.setHeader(Constants.HEADER_KEY_AUTH_TOKEN, accessToken);
+		request.setHeader(HttpHeaders.CONTENT_TYPE, Constants.HEADER_VALUE_JSON_APPLICATION);
+		request.setHeader(HttpHeaders.ACCEPT_ENCODING, Constants.HEADER_VALUE_ACCEPT_ENCODING);
+		return(request);
+	}
+
+	@Benchmark
+	public HttpRequestBase templateRequest() {
+		HttpGet request = new HttpGet(Endpoint.SERVERS_SLASH.url(region, serverId));
+		request.setHeader(authTokenHeader);
+		request.setHeader(CONTENT_TYPE_HEADER);
+		request.setHeader(ACCEPT_ENCODING_HEADER);
+		return(request);
+	}
+}
@@ -32,8 +32,15 @@ public class Constants {
 	//
 	public static final String HEADER_KEY_AUTH_TOKEN = "X-Auth-Token";
 	public static final String HEADER_VALUE_JSON_APPLICATION = "application/json";
+	public static final String HEADER_VALUE_ACCEPT_ENCODING = "gzip, deflate";
 	public static final String USER_AGENT = "synapticloop-scaleway-java-api";
 
+	//
+	// Connection pool sizes (the http client default of 2 connections per route
+	// would serialise any parallel paging)
+	//
+	public static final int MAX_CONNECTIONS_PER_ROUTE = 16;
+	public static final int MAX_CONNECTIONS_TOTAL = 32;
 
 	//
 	// HTTP Method constants
@@ -50,7 +57,7 @@ public class Constants {
 	public static final String PATH_IMAGES_PAGING = "/images?page=%d&per_page=%d";
 	public static final String PATH_IMAGES_SLASH = "/images/%s";
 
-	public static final Object PATH_IPS = "/ips";
+	public static final String PATH_IPS = "/ips";
 	public static final String PATH_IPS_PAGING = "/ips?page=%d&per_page=%d";
 	public static final String PATH_IPS_SLASH = "/ips/%s";
 
@@ -65,6 +72,7 @@ public class Constants {
 	public static final String PATH_SECURITY_GROUPS_RULES_SLASH = "/security_groups/%s/rules/%s";
 
 	public static final String PATH_SERVERS = "/servers";
+	public static final String PATH_SERVERS_PAGING = "/servers?page=%d&per_page=%d";
 	public static final String PATH_SERVERS_SLASH = "/servers/%s";
 	public static final String PATH_SERVERS_SLASH_ACTION = "/servers/%s/action";
 
@@ -0,0 +1,98 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * The endpoints of the Scaleway API, with their URL templates compiled once 
+ * for every region, with the account or compute URL for that region already
+ * prepended.
+ */
+public enum Endpoint {
+	ORGANIZATIONS(true, Constants.PATH_ORGANIZATIONS),
+	USERS_SLASH(true, Constants.PATH_USERS_SLASH),
+
+	TOKENS(true, Constants.PATH_TOKENS),
+	TOKENS_PAGING(true, Constants.PATH_TOKENS_PAGING),
+	TOKENS_SLASH(true, Constants.PATH_TOKENS_SLASH),
+
+	IMAGES_PAGING(false, Constants.PATH_IMAGES_PAGING),
+	IMAGES_SLASH(false, Constants.PATH_IMAGES_SLASH),
+
+	IPS(false, Constants.PATH_IPS),
+	IPS_PAGING(false, Constants.PATH_IPS_PAGING),
+	IPS_SLASH(false, Constants.PATH_IPS_SLASH),
+
+	SECURITY_GROUPS(false, Constants.PATH_SECURITY_GROUPS),
+	SECURITY_GROUPS_PAGING(false, Constants.PATH_SECURITY_GROUPS_PAGING),
+	SECURITY_GROUPS_SLASH(false, Constants.PATH_SECURITY_GROUPS_SLASH),
+
+	SECURITY_GROUPS_RULES(false, Constants.PATH_SECURITY_GROUPS_RULES),
+	SECURITY_GROUPS_RULES_PAGING(false, Constants.PATH_SECURITY_GROUPS_RULES_PAGING),
+	SECURITY_GROUPS_RULES_SLASH(false, Constants.PATH_SECURITY_GROUPS_RULES_SLASH),
+
+	SERVERS(false, Constants.PATH_SERVERS),
+	SERVERS_PAGING(false, Constants.PATH_SERVERS_PAGING),
+	SERVERS_SLASH(false, Constants.PATH_SERVERS_SLASH),
+	SERVERS_SLASH_ACTION(false, Constants.PATH_SERVERS_SLASH_ACTION),
+
+	TASKS_SLASH(false, Constants.PATH_TASKS_SLASH),
+
+	VOLUMES(false, Constants.PATH_VOLUMES),
+	VOLUMES_PAGING(false, Constants.PATH_VOLUMES_PAGING),
+	VOLUMES_SLASH(false, Constants.PATH_VOLUMES_SLASH);
+
+	private final boolean isAccountEndpoint;
+	private final PathTemplate[] regionPathTemplates;
+
+	Endpoint(boolean isAccountEndpoint, String path) {
+		this.isAccountEndpoint = isAccountEndpoint;
+
+		Region[] regions = Region.values();
+		this.regionPathTemplates = new PathTemplate[regions.length];
+		for (Region region : regions) {
+			String baseUrl = isAccountEndpoint ? Constants.ACCOUNT_URL : String.format(Constants.COMPUTE_URL, region);
+			regionPathTemplates[region.ordinal()] = new PathTemplate(baseUrl + path);
+		}
+	}
+
+	/**
+	 * Whether this endpoint is on the (region independent) account URL, rather
+	 * than the compute URL for a region
+	 * 
+	 * @return whether this endpoint is on the account URL
+	 */
+	public boolean getIsAccountEndpoint() { return(isAccountEndpoint); }
+
+	/**
+	 * Return the compiled URL template for this endpoint in the region
+	 * 
+	 * @param region The region
+	 * 
+	 * @return the compiled URL template
+	 */
+	public PathTemplate getPathTemplate(Region region) { return(regionPathTemplates[region.ordinal()]); }
+
+	public String url(Region region) { return(getPathTemplate(region).expand()); }
+
+	public String url(Region region, String id) { return(getPathTemplate(region).expand(id)); }
+
+	public String url(Region region, String parentId, String id) { return(getPathTemplate(region).expand(parentId, id)); }
+
+	public String url(Region region, int numPage, int numPerPage) { return(getPathTemplate(region).expand(numPage, numPerPage)); }
+
+	public String url(Region region, String parentId, int numPage, int numPerPage) { return(getPathTemplate(region).expand(parentId, numPage, numPerPage)); }
+}
@@ -0,0 +1,615 @@
+package synapticloop.scaleway.api;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import synapticloop.scaleway.api.auth.StaticTokenProvider;
+import synapticloop.scaleway.api.auth.TokenProvider;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * A client over every region at once, so that a global view of the account 
+ * takes as long as the slowest region, rather than the sum of the regions.
+ * 
+ * The list and get calls are sent to every region in parallel, and the 
+ * results are merged, annotated with the region that each came from.  The 
+ * calls on an existing resource are routed to the region that the resource is
+ * in, which is remembered from every resource that has been seen through the
+ * clients, (and looked up in every region in parallel otherwise).  Resources
+ * are created through the client for the region that they are to be created
+ * in, see {@link #getClient(Region)}.
+ * 
+ * The clients for the regions share one connection pool, and every request 
+ * that is sent by the clients, (in any region, including each page of a 
+ * listing and the requests through {@link #getClient(Region)}), takes a 
+ * permit from one shared rate limiter.
+ */
+public class MultiRegionScalewayClient implements Closeable {
+	public static final double DEFAULT_CALLS_PER_SECOND = 20.0d;
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new NamedThreadFactory("scaleway-region"));
+
+	/**
+	 * A call against the client for a single region
+	 *
+	 * @param <T> The type of the result of the call
+	 */
+	private interface RegionCall<T> {
+		T call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException;
+	}
+
+	/**
+	 * Return the ID of a resource
+	 *
+	 * @param <T> The type of the resource
+	 */
+	private interface IdGetter<T> {
+		String getId(T resource);
+	}
+
+	private final CloseableHttpClient httpclient;
+	private final RateLimiter rateLimiter;
+	private final Executor executor;
+	private final Map<Region, ScalewayApiClient> scalewayApiClients = new EnumMap<Region, ScalewayApiClient>(Region.class);
+	private final Map<ResourceType, ConcurrentMap<String, Region>> resourceRegions = new EnumMap<ResourceType, ConcurrentMap<String, Region>>(ResourceType.class);
+
+	/**
+	 * Create a new client over every region, with a shared limit of 20 calls 
+	 * per second
+	 * 
+	 * @param accessToken the access token
+	 */
+	public MultiRegionScalewayClient(String accessToken) {
+		this(new StaticTokenProvider(accessToken), new RateLimiter(DEFAULT_CALLS_PER_SECOND), Region.values());
+	}
+
+	/**
+	 * Create a new client over the regions
+	 * 
+	 * @param tokenProvider the provider of the authentication token, which is 
+	 *     shared by the clients for the regions
+	 * @param rateLimiter the rate limiter for the calls in all of the regions
+	 * @param regions the regions to fan out to
+	 */
+	public MultiRegionScalewayClient(TokenProvider tokenProvider, RateLimiter rateLimiter, Region... regions) {
+		if(regions.length == 0) {
+			throw new IllegalArgumentException("There must be at least one region");
+		}
+
+		this.httpclient = ScalewayApiClient.createHttpClient();
+		this.rateLimiter = rateLimiter;
+		this.executor = DEFAULT_EXECUTOR;
+		for (ResourceType resourceType : ResourceType.values()) {
+			resourceRegions.put(resourceType, new ConcurrentHashMap<String, Region>());
+		}
+
+		for (final Region region : regions) {
+			ScalewayApiClient scalewayApiClient = new ScalewayApiClient(tokenProvider, region, httpclient, rateLimiter);
+			scalewayApiClient.addResourceListener(new ResourceListener() {
+				@Override
+				public void onResourceUpdated(ResourceType resourceType, String id, Object resource) {
+					resourceRegions.get(resourceType).put(id, region);
+				}
+
+				@Override
+				public void onResourceInvalidated(ResourceType resourceType, String id) {
+					// a resource never moves between regions
+				}
+
+				@Override
+				public void onResourceDeleted(ResourceType resourceType, String id) {
+					resourceRegions.get(resourceType).remove(id);
+				}
+			});
+			scalewayApiClients.put(region, scalewayApiClient);
+		}
+	}
+
+	/**
+	 * Return the client for a single region, (e.g. to create resources in 
+	 * that region), which shares the connection pool and the rate limiter of 
+	 * this client
+	 * 
+	 * @param region the region
+	 * 
+	 * @return the client for the region
+	 */
+	public ScalewayApiClient getClient(Region region) {
+		ScalewayApiClient scalewayApiClient = scalewayApiClients.get(region);
+		if(null == scalewayApiClient) {
+			throw new IllegalArgumentException("The region '" + region + "' is not one of the regions of this client " + scalewayApiClients.keySet());
+		}
+		return(scalewayApiClient);
+	}
+
+	/**
+	 * Return the regions that this client fans out to
+	 * 
+	 * @return the regions
+	 */
+	public Set<Region> getRegions() { return(Collections.unmodifiableSet(scalewayApiClients.keySet())); }
+
+	/**
+	 * Return the rate limiter that every request of the clients for the regions
+	 * takes a permit from
+	 * 
+	 * @return the shared rate limiter
+	 */
+	public RateLimiter getRateLimiter() { return(rateLimiter); }
+
+	/**
+	 * Return the region that the resource is known to be in, without making 
+	 * any API calls
+	 * 
+	 * @param resourceType the type of the resource
+	 * @param id the ID of the resource
+	 * 
+	 * @return the region of the resource, or null if it has not been seen
+	 */
+	public Region getRegion(ResourceType resourceType, String id) {
+		return(resourceRegions.get(resourceType).get(id));
+	}
+
+	/**
+	 * Get all of the servers in all of the regions
+	 * 
+	 * @return All of the servers, annotated with their region
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call in 
+	 *     any of the regions
+	 */
+	public List<Regional<Server>> getAllServers() throws ScalewayApiException {
+		return(listAll(ResourceType.SERVER, new RegionCall<List<Server>>() {
+			@Override
+			public List<Server> call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.servers(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, new IdGetter<Server>() {
+			@Override
+			public String getId(Server server) {
+				return(server.getId());
+			}
+		}));
+	}
+
+	/**
+	 * Get all of the volumes in all of the regions
+	 * 
+	 * @return All of the volumes, annotated with their region
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call in 
+	 *     any of the regions
+	 */
+	public List<Regional<Volume>> getAllVolumes() throws ScalewayApiException {
+		return(listAll(ResourceType.VOLUME, new RegionCall<List<Volume>>() {
+			@Override
+			public List<Volume> call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.volumes(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, new IdGetter<Volume>() {
+			@Override
+			public String getId(Volume volume) {
+				return(volume.getId());
+			}
+		}));
+	}
+
+	/**
+	 * Get all of the reserved IP addresses in all of the regions
+	 * 
+	 * @return All of the reserved IP addresses, annotated with their region
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call in 
+	 *     any of the regions
+	 */
+	public List<Regional<IP>> getAllIPs() throws ScalewayApiException {
+		return(listAll(ResourceType.IP, new RegionCall<List<IP>>() {
+			@Override
+			public List<IP> call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.ips(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, new IdGetter<IP>() {
+			@Override
+			public String getId(IP ip) {
+				return(ip.getId());
+			}
+		}));
+	}
+
+	/**
+	 * Get all of the security groups in all of the regions
+	 * 
+	 * @return All of the security groups, annotated with their region
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call in 
+	 *     any of the regions
+	 */
+	public List<Regional<SecurityGroup>> getAllSecurityGroups() throws ScalewayApiException {
+		return(listAll(ResourceType.SECURITY_GROUP, new RegionCall<List<SecurityGroup>>() {
+			@Override
+			public List<SecurityGroup> call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.securityGroups(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, new IdGetter<SecurityGroup>() {
+			@Override
+			public String getId(SecurityGroup securityGroup) {
+				return(securityGroup.getId());
+			}
+		}));
+	}
+
+	/**
+	 * Get all of the images in all of the regions
+	 * 
+	 * @return All of the images, annotated with their region
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call in 
+	 *     any of the regions
+	 */
+	public List<Regional<Image>> getAllImages() throws ScalewayApiException {
+		return(listAll(null, new RegionCall<List<Image>>() {
+			@Override
+			public List<Image> call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.images(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, null));
+	}
+
+	/**
+	 * Get the server, from whichever region it is in
+	 * 
+	 * @param serverId The ID of the server
+	 * 
+	 * @return The server, annotated with its region
+	 * 
+	 * @throws ScalewayApiException If the server is not in any of the regions,
+	 *     or there was an error with the API call
+	 */
+	public Regional<Server> getServer(final String serverId) throws ScalewayApiException {
+		return(get(ResourceType.SERVER, serverId, new RegionCall<Server>() {
+			@Override
+			public Server call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.getServer(serverId));
+			}
+		}));
+	}
+
+	/**
+	 * Get the volume, from whichever region it is in
+	 * 
+	 * @param volumeId The ID of the volume
+	 * 
+	 * @return The volume, annotated with its region
+	 * 
+	 * @throws ScalewayApiException If the volume is not in any of the regions,
+	 *     or there was an error with the API call
+	 */
+	public Regional<Volume> getVolume(final String volumeId) throws ScalewayApiException {
+		return(get(ResourceType.VOLUME, volumeId, new RegionCall<Volume>() {
+			@Override
+			public Volume call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.getVolume(volumeId));
+			}
+		}));
+	}
+
+	/**
+	 * Get the reserved IP address, from whichever region it is in
+	 * 
+	 * @param ipId The ID of the reserved IP address
+	 * 
+	 * @return The reserved IP address, annotated with its region
+	 * 
+	 * @throws ScalewayApiException If the IP address is not in any of the 
+	 *     regions, or there was an error with the API call
+	 */
+	public Regional<IP> getIP(final String ipId) throws ScalewayApiException {
+		return(get(ResourceType.IP, ipId, new RegionCall<IP>() {
+			@Override
+			public IP call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.getIP(ipId));
+			}
+		}));
+	}
+
+	/**
+	 * Get the security group, from whichever region it is in
+	 * 
+	 * @param securityGroupId The ID of the security group
+	 * 
+	 * @return The security group, annotated with its region
+	 * 
+	 * @throws ScalewayApiException If the security group is not in any of the
+	 *     regions, or there was an error with the API call
+	 */
+	public Regional<SecurityGroup> getSecurityGroup(final String securityGroupId) throws ScalewayApiException {
+		return(get(ResourceType.SECURITY_GROUP, securityGroupId, new RegionCall<SecurityGroup>() {
+			@Override
+			public SecurityGroup call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.getSecurityGroup(securityGroupId));
+			}
+		}));
+	}
+
+	/**
+	 * Get the image, from whichever region it is in
+	 * 
+	 * @param imageId The ID of the image
+	 * 
+	 * @return The image, annotated with its region
+	 * 
+	 * @throws ScalewayApiException If the image is not in any of the regions,
+	 *     or there was an error with the API call
+	 */
+	public Regional<Image> getImage(final String imageId) throws ScalewayApiException {
+		return(get(null, imageId, new RegionCall<Image>() {
+			@Override
+			public Image call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.getImage(imageId));
+			}
+		}));
+	}
+
+	/**
+	 * Execute the server action in the region that the server is in
+	 * 
+	 * @param serverId The ID of the server to execute the action on
+	 * @param serverAction the server action to perform
+	 * 
+	 * @return The task associated with the action
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public ServerTask executeServerAction(final String serverId, final ServerAction serverAction) throws ScalewayApiException {
+		return(callInRegion(routeTo(ResourceType.SERVER, serverId), new RegionCall<ServerTask>() {
+			@Override
+			public ServerTask call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				return(scalewayApiClient.executeServerAction(serverId, serverAction));
+			}
+		}));
+	}
+
+	/**
+	 * Delete the server in the region that it is in
+	 * 
+	 * @param serverId The ID of the server to delete
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public void deleteServer(final String serverId) throws ScalewayApiException {
+		callInRegion(routeTo(ResourceType.SERVER, serverId), new RegionCall<Void>() {
+			@Override
+			public Void call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				scalewayApiClient.deleteServer(serverId);
+				return(null);
+			}
+		});
+	}
+
+	/**
+	 * Delete the volume in the region that it is in
+	 * 
+	 * @param volumeId The ID of the volume to delete
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public void deleteVolume(final String volumeId) throws ScalewayApiException {
+		callInRegion(routeTo(ResourceType.VOLUME, volumeId), new RegionCall<Void>() {
+			@Override
+			public Void call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				scalewayApiClient.deleteVolume(volumeId);
+				return(null);
+			}
+		});
+	}
+
+	/**
+	 * Delete the reserved IP address in the region that it is in
+	 * 
+	 * @param ipId The ID of the reserved IP address to delete
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public void deleteIP(final String ipId) throws ScalewayApiException {
+		callInRegion(routeTo(ResourceType.IP, ipId), new RegionCall<Void>() {
+			@Override
+			public Void call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				scalewayApiClient.deleteIP(ipId);
+				return(null);
+			}
+		});
+	}
+
+	/**
+	 * Delete the security group in the region that it is in
+	 * 
+	 * @param securityGroupId The ID of the security group to delete
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public void deleteSecurityGroup(final String securityGroupId) throws ScalewayApiException {
+		callInRegion(routeTo(ResourceType.SECURITY_GROUP, securityGroupId), new RegionCall<Void>() {
+			@Override
+			public Void call(ScalewayApiClient scalewayApiClient) throws ScalewayApiException {
+				scalewayApiClient.deleteSecurityGroup(securityGroupId);
+				return(null);
+			}
+		});
+	}
+
+	/**
+	 * Close the connection pool that is shared by the clients for the regions
+	 */
+	@Override
+	public void close() throws IOException {
+		httpclient.close();
+	}
+
+	/**
+	 * Return the region that the resource is in, looking it up in every region
+	 * if it has not been seen before
+	 */
+	private Region routeTo(ResourceType resourceType, String id) throws ScalewayApiException {
+		Region region = getRegion(resourceType, id);
+		if(null != region) {
+			return(region);
+		}
+
+		switch (resourceType) {
+		case SERVER:
+			return(getServer(id).getRegion());
+		case VOLUME:
+			return(getVolume(id).getRegion());
+		case IP:
+			return(getIP(id).getRegion());
+		case SECURITY_GROUP:
+			return(getSecurityGroup(id).getRegion());
+		default:
+			throw new IllegalArgumentException("Resources of type '" + resourceType + "' can not be routed to their region");
+		}
+	}
+
+	private <T> List<Regional<T>> listAll(ResourceType resourceType, RegionCall<List<T>> regionCall, IdGetter<T> idGetter) throws ScalewayApiException {
+		List<Regional<T>> results = new ArrayList<Regional<T>>();
+		for (Map.Entry<Region, List<T>> entry : fanOut(regionCall, false).entrySet()) {
+			Region region = entry.getKey();
+			for (T resource : entry.getValue()) {
+				if(null != resourceType) {
+					resourceRegions.get(resourceType).put(idGetter.getId(resource), region);
+				}
+				results.add(new Regional<T>(region, resource));
+			}
+		}
+		return(results);
+	}
+
+	private <T> Regional<T> get(ResourceType resourceType, String id, RegionCall<T> regionCall) throws ScalewayApiException {
+		Region region = null == resourceType ? null : getRegion(resourceType, id);
+		if(null != region) {
+			return(new Regional<T>(region, callInRegion(region, regionCall)));
+		}
+
+		Map<Region, T> found = fanOut(regionCall, true);
+		if(found.isEmpty()) {
+			throw new NotFoundException("Could not find the resource with id '" + id + "' in any of the regions " + scalewayApiClients.keySet(), 404, null, null, ScalewayApiException.NO_RETRY_AFTER, true);
+		}
+
+		Map.Entry<Region, T> entry = found.entrySet().iterator().next();
+		return(new Regional<T>(entry.getKey(), entry.getValue()));
+	}
+
+	private <T> T callInRegion(Region region, RegionCall<T> regionCall) throws ScalewayApiException {
+		return(regionCall.call(getClient(region)));
+	}
+
+	/**
+	 * Make the call in every region in parallel, returning the results in 
+	 * region order - the first error is thrown once all of the calls have 
+	 * finished, with the errors from the other regions suppressed
+	 */
+	private <T> Map<Region, T> fanOut(final RegionCall<T> regionCall, boolean ignoreNotFound) throws ScalewayApiException {
+		Map<Region, CompletableFuture<T>> futures = new EnumMap<Region, CompletableFuture<T>>(Region.class);
+		for (final Map.Entry<Region, ScalewayApiClient> entry : scalewayApiClients.entrySet()) {
+			futures.put(entry.getKey(), CompletableFuture.supplyAsync(new Supplier<T>() {
+				@Override
+				public T get() {
+					try {
+						return(regionCall.call(entry.getValue()));
+					} catch (ScalewayApiException ex) {
+						throw new CompletionException(ex);
+					}
+				}
+			}, executor));
+		}
+
+		Map<Region, T> results = new EnumMap<Region, T>(Region.class);
+		ScalewayApiException error = null;
+		try {
+			for (Map.Entry<Region, CompletableFuture<T>> entry : futures.entrySet()) {
+				try {
+					results.put(entry.getKey(), entry.getValue().get());
+				} catch (ExecutionException ex) {
+					ScalewayApiException cause = toApiException(ex.getCause());
+					if(ignoreNotFound && cause instanceof NotFoundException) {
+						continue;
+					}
+
+					if(null == error) {
+						error = cause;
+					} else {
+						error.addSuppressed(cause);
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ScalewayApiException("Interrupted whilst waiting for the regions", ex);
+		} finally {
+			for (CompletableFuture<T> future : futures.values()) {
+				future.cancel(true);
+			}
+		}
+
+		if(null != error) {
+			throw error;
+		}
+		return(results);
+	}
+
+	private static ScalewayApiException toApiException(Throwable throwable) {
+		Throwable cause = throwable;
+		while(cause instanceof CompletionException && null != cause.getCause()) {
+			cause = cause.getCause();
+		}
+
+		if(cause instanceof ScalewayApiException) {
+			return((ScalewayApiException)cause);
+		}
+		return(new ScalewayApiException(cause));
+	}
+}
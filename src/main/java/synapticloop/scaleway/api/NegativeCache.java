@@ -0,0 +1,140 @@
+package synapticloop.scaleway.api;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+/**
+ * A short lived cache of the resource IDs that the API returned a 404 for, so
+ * that repeated requests for a resource which is known to be missing fail 
+ * straight away, without a round trip.  The cached exception has no stack 
+ * trace, so the same instance is re-thrown for every hit.
+ */
+class NegativeCache {
+	private static final int MAX_NUM_ENTRIES = 10000;
+
+	private final long ttlNanos;
+	private final Map<ResourceType, ConcurrentMap<String, Entry>> entries = new EnumMap<ResourceType, ConcurrentMap<String, Entry>>(ResourceType.class);
+
+	NegativeCache(long ttlMillis) {
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		for (ResourceType resourceType : ResourceType.values()) {
+			entries.put(resourceType, new ConcurrentHashMap<String, Entry>());
+		}
+	}
+
+	/**
+	 * Get the cached not found exception for the resource
+	 * 
+	 * @param resourceType the type of the resource
+	 * @param id the ID of the resource
+	 * 
+	 * @return the exception to throw, or null if the resource is not known to be
+	 *     missing
+	 */
+	NotFoundException get(ResourceType resourceType, String id) {
+		ConcurrentMap<String, Entry> typeEntries = entries.get(resourceType);
+		Entry entry = typeEntries.get(id);
+		if(null == entry) {
+			return(null);
+		}
+
+		if(System.nanoTime() - entry.expiresAtNanos >= 0) {
+			typeEntries.remove(id, entry);
+			return(null);
+		}
+		return(entry.notFoundException);
+	}
+
+	/**
+	 * Remember that the resource is missing
+	 * 
+	 * @param resourceType the type of the resource
+	 * @param id the ID of the resource
+	 * @param notFoundException the exception that the API call threw
+	 */
+	void put(ResourceType resourceType, String id, NotFoundException notFoundException) {
+		ConcurrentMap<String, Entry> typeEntries = entries.get(resourceType);
+		if(typeEntries.size() >= MAX_NUM_ENTRIES) {
+			purgeExpired(typeEntries);
+		}
+
+		typeEntries.put(id, new Entry(stackless(notFoundException), System.nanoTime() + ttlNanos));
+	}
+
+	/**
+	 * Forget that the resource is missing (e.g. as it has been created, or has 
+	 * been seen in a listing)
+	 * 
+	 * @param resourceType the type of the resource
+	 * @param id the ID of the resource
+	 */
+	void remove(ResourceType resourceType, String id) {
+		ConcurrentMap<String, Entry> typeEntries = entries.get(resourceType);
+		if(!typeEntries.isEmpty()) {
+			typeEntries.remove(id);
+		}
+	}
+
+	private static void purgeExpired(ConcurrentMap<String, Entry> typeEntries) {
+		long nowNanos = System.nanoTime();
+		Iterator<Entry> iterator = typeEntries.values().iterator();
+		while(iterator.hasNext()) {
+			if(nowNanos - iterator.next().expiresAtNanos >= 0) {
+				iterator.remove();
+			}
+		}
+
+		if(typeEntries.size() >= MAX_NUM_ENTRIES) {
+			// everything is still live - rather than grow without bound, start again
+			typeEntries.clear();
+		}
+	}
+
+	/**
+	 * @return an immutable copy of the exception, (without a stack trace, or 
+	 *     suppressed exceptions), as the one instance is thrown to every caller
+	 */
+	private static NotFoundException stackless(NotFoundException notFoundException) {
+		return(new NotFoundException(notFoundException.getMessage(), 
+				notFoundException.getStatusCode(), 
+				notFoundException.getErrorType(), 
+				notFoundException.getErrorMessage(), 
+				ScalewayApiException.NO_RETRY_AFTER, 
+				false, 
+				false));
+	}
+
+	private static final class Entry {
+		private final NotFoundException notFoundException;
+		private final long expiresAtNanos;
+
+		private Entry(NotFoundException notFoundException, long expiresAtNanos) {
+			this.notFoundException = notFoundException;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+	}
+}
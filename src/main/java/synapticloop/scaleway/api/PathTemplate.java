@@ -0,0 +1,169 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A URL template compiled from a format string with <code>%s</code> and 
+ * <code>%d</code> placeholders (as used by the paths in {@link Constants}).  
+ * The literal segments are split out once, so that expanding the template is
+ * just appending the segments and the arguments to a correctly sized 
+ * StringBuilder - with none of the parsing and boxing of String.format.
+ */
+public final class PathTemplate {
+	private static final int ESTIMATED_ARGUMENT_LENGTH = 40;
+
+	private final String template;
+	private final String[] segments;
+	private final int literalLength;
+
+	/**
+	 * Compile a template
+	 * 
+	 * @param template the template with the '%s' and '%d' placeholders
+	 */
+	public PathTemplate(String template) {
+		this.template = template;
+
+		List<String> segmentList = new ArrayList<String>();
+		int start = 0;
+		int index = 0;
+		while(index < template.length() - 1) {
+			char next = template.charAt(index + 1);
+			if(template.charAt(index) == '%' && (next == 's' || next == 'd')) {
+				segmentList.add(template.substring(start, index));
+				index += 2;
+				start = index;
+			} else {
+				index++;
+			}
+		}
+		segmentList.add(template.substring(start));
+
+		this.segments = segmentList.toArray(new String[segmentList.size()]);
+		int length = 0;
+		for (String segment : segments) {
+			length += segment.length();
+		}
+		this.literalLength = length;
+	}
+
+	/**
+	 * Return the number of placeholders in this template
+	 * 
+	 * @return the number of placeholders in this template
+	 */
+	public int getNumPlaceholders() { return(segments.length - 1); }
+
+	/**
+	 * Expand a template without any placeholders - which returns the same 
+	 * pre-computed String on every call
+	 * 
+	 * @return The expanded template
+	 */
+	public String expand() {
+		checkNumArguments(0);
+		return(segments[0]);
+	}
+
+	/**
+	 * Expand a template with one placeholder (e.g. an ID)
+	 * 
+	 * @param first the first argument
+	 * 
+	 * @return The expanded template
+	 */
+	public String expand(String first) {
+		checkNumArguments(1);
+		return(newBuilder()
+				.append(segments[0]).append(first)
+				.append(segments[1])
+				.toString());
+	}
+
+	/**
+	 * Expand a template with two placeholders (e.g. a parent and a child ID)
+	 * 
+	 * @param first the first argument
+	 * @param second the second argument
+	 * 
+	 * @return The expanded template
+	 */
+	public String expand(String first, String second) {
+		checkNumArguments(2);
+		return(newBuilder()
+				.append(segments[0]).append(first)
+				.append(segments[1]).append(second)
+				.append(segments[2])
+				.toString());
+	}
+
+	/**
+	 * Expand a template with two numeric placeholders (i.e. the page number and
+	 * the number of results per page)
+	 * 
+	 * @param numPage the page number
+	 * @param numPerPage the number of results per page
+	 * 
+	 * @return The expanded template
+	 */
+	public String expand(int numPage, int numPerPage) {
+		checkNumArguments(2);
+		return(newBuilder()
+				.append(segments[0]).append(numPage)
+				.append(segments[1]).append(numPerPage)
+				.append(segments[2])
+				.toString());
+	}
+
+	/**
+	 * Expand a template with an ID followed by two numeric placeholders (i.e. 
+	 * the page number and the number of results per page)
+	 * 
+	 * @param first the first argument
+	 * @param numPage the page number
+	 * @param numPerPage the number of results per page
+	 * 
+	 * @return The expanded template
+	 */
+	public String expand(String first, int numPage, int numPerPage) {
+		checkNumArguments(3);
+		return(newBuilder()
+				.append(segments[0]).append(first)
+				.append(segments[1]).append(numPage)
+				.append(segments[2]).append(numPerPage)
+				.append(segments[3])
+				.toString());
+	}
+
+	private StringBuilder newBuilder() {
+		return(new StringBuilder(literalLength + (segments.length - 1) * ESTIMATED_ARGUMENT_LENGTH));
+	}
+
+	private void checkNumArguments(int numArguments) {
+		if(numArguments != segments.length - 1) {
+			throw new IllegalArgumentException("Template '" + template + "' has " + (segments.length - 1) + " placeholder(s), but was expanded with " + numArguments + " argument(s).");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return(template);
+	}
+}
@@ -0,0 +1,58 @@
+package synapticloop.scaleway.api;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * A resource, annotated with the region that it was retrieved from.
+ *
+ * @param <T> The type of the resource
+ */
+public class Regional<T> {
+	private final Region region;
+	private final T resource;
+
+	/**
+	 * Annotate the resource with its region
+	 * 
+	 * @param region the region that the resource was retrieved from
+	 * @param resource the resource
+	 */
+	public Regional(Region region, T resource) {
+		this.region = region;
+		this.resource = resource;
+	}
+
+	/**
+	 * Return the region that the resource was retrieved from
+	 * 
+	 * @return the region
+	 */
+	public Region getRegion() { return(region); }
+
+	/**
+	 * Return the resource
+	 * 
+	 * @return the resource
+	 */
+	public T getResource() { return(resource); }
+
+	@Override
+	public String toString() {
+		return("Regional [region=" + region + ", resource=" + resource + "]");
+	}
+}
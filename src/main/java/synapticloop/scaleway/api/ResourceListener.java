@@ -0,0 +1,58 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * A listener which is notified by the Scaleway API client of every resource 
+ * that it has created, updated, read or deleted, so that local copies of the 
+ * resources can be kept up to date (write-through) without any further API 
+ * calls.
+ * 
+ * The listener is called synchronously on the thread that made the API call,
+ * after the call has succeeded, so must return quickly and must not throw.
+ */
+public interface ResourceListener {
+
+	/**
+	 * The resource has been created, updated or read, and this is its current
+	 * state.
+	 * 
+	 * @param resourceType The type of the resource
+	 * @param id The ID of the resource
+	 * @param resource The resource (e.g. the Server, Volume, IP, SecurityGroup 
+	 *     or Rule)
+	 */
+	void onResourceUpdated(ResourceType resourceType, String id, Object resource);
+
+	/**
+	 * The resource has been changed, but its new state is not known (e.g. an 
+	 * action has been executed on a server, or an IP address attached to it),
+	 * so any local copy is out of date.
+	 * 
+	 * @param resourceType The type of the resource
+	 * @param id The ID of the resource
+	 */
+	void onResourceInvalidated(ResourceType resourceType, String id);
+
+	/**
+	 * The resource has been deleted.
+	 * 
+	 * @param resourceType The type of the resource
+	 * @param id The ID of the resource
+	 */
+	void onResourceDeleted(ResourceType resourceType, String id);
+}
@@ -0,0 +1,29 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * The types of resources that the client notifies {@link ResourceListener}s
+ * about.
+ */
+public enum ResourceType {
+	SERVER,
+	VOLUME,
+	IP,
+	SECURITY_GROUP,
+	RULE;
+}
@@ -0,0 +1,156 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.entity.ContentType;
+
+import synapticloop.scaleway.api.util.MeteredInputStream;
+
+/**
+ * The content of a response entity, decompressed as it is streamed according
+ * to the <code>Content-Encoding</code> header.  The content encoding (how the
+ * bytes were compressed on the wire) is kept strictly separate from the 
+ * charset (how the decompressed bytes map to characters), which is only ever
+ * taken from the <code>Content-Type</code> header.
+ * 
+ * Closing the content records the bytes on the wire, the decoded bytes, and
+ * the time spent decompressing in the metrics.
+ */
+class ResponseContent implements Closeable {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String ENCODING_GZIP = "gzip";
+	private static final String ENCODING_X_GZIP = "x-gzip";
+	private static final String ENCODING_DEFLATE = "deflate";
+	private static final String ENCODING_IDENTITY = "identity";
+
+	private final ScalewayApiMetrics scalewayApiMetrics;
+	private final MeteredInputStream wireInputStream;
+	private final MeteredInputStream decodedInputStream;
+	private final boolean isCompressed;
+	private final Charset charset;
+	private boolean isClosed = false;
+
+	/**
+	 * Open the content of the response entity for streaming
+	 * 
+	 * @param entity the response entity
+	 * @param scalewayApiMetrics the metrics to record the content to
+	 * 
+	 * @throws IOException if the content could not be opened, or it has an 
+	 *     unsupported content encoding
+	 */
+	ResponseContent(HttpEntity entity, ScalewayApiMetrics scalewayApiMetrics) throws IOException {
+		this.scalewayApiMetrics = scalewayApiMetrics;
+		this.wireInputStream = new MeteredInputStream(entity.getContent());
+
+		String contentEncoding = getContentEncoding(entity);
+		InputStream inputStream;
+		switch(contentEncoding) {
+		case ENCODING_GZIP:
+		case ENCODING_X_GZIP:
+			inputStream = new GZIPInputStream(wireInputStream);
+			isCompressed = true;
+			break;
+		case ENCODING_DEFLATE:
+			inputStream = new DeflateInputStream(wireInputStream);
+			isCompressed = true;
+			break;
+		case ENCODING_IDENTITY:
+			inputStream = wireInputStream;
+			isCompressed = false;
+			break;
+		default:
+			wireInputStream.close();
+			throw new IOException("Unsupported Content-Encoding of '" + contentEncoding + "' received.");
+		}
+
+		this.decodedInputStream = new MeteredInputStream(inputStream);
+
+		ContentType contentType = ContentType.get(entity);
+		if(null != contentType && null != contentType.getCharset()) {
+			this.charset = contentType.getCharset();
+		} else {
+			// JSON defaults to UTF-8
+			this.charset = UTF_8;
+		}
+	}
+
+	private static String getContentEncoding(HttpEntity entity) {
+		Header contentEncoding = entity.getContentEncoding();
+		if(null == contentEncoding || null == contentEncoding.getValue() || contentEncoding.getValue().trim().isEmpty()) {
+			return(ENCODING_IDENTITY);
+		}
+		return(contentEncoding.getValue().trim().toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Whether the decoded content is UTF-8 - in which case the bytes can be 
+	 * handed directly to the JSON parser without decoding them to characters 
+	 * first
+	 * 
+	 * @return whether the decoded content is UTF-8
+	 */
+	boolean isUtf8() { return(UTF_8.equals(charset)); }
+
+	/**
+	 * Return the decompressed content as bytes
+	 * 
+	 * @return the decompressed content as bytes
+	 */
+	InputStream getInputStream() { return(decodedInputStream); }
+
+	/**
+	 * Return the decompressed content as characters, decoded with the charset
+	 * from the Content-Type header
+	 * 
+	 * @return the decompressed content as characters
+	 */
+	Reader getReader() { return(new InputStreamReader(decodedInputStream, charset)); }
+
+	@Override
+	public void close() throws IOException {
+		if(isClosed) {
+			return;
+		}
+		isClosed = true;
+
+		try {
+			decodedInputStream.close();
+		} finally {
+			long decompressionNanos = 0L;
+			if(isCompressed) {
+				// time spent in the decompressing stream less the time spent waiting
+				// for bytes from the connection
+				decompressionNanos = Math.max(0L, decodedInputStream.getReadNanos() - wireInputStream.getReadNanos());
+			}
+			scalewayApiMetrics.recordResponse(isCompressed, wireInputStream.getByteCount(), decodedInputStream.getByteCount(), decompressionNanos);
+		}
+	}
+}
@@ -17,9 +17,15 @@ package synapticloop.scaleway.api;
  */
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
@@ -33,29 +39,51 @@ import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import synapticloop.scaleway.api.auth.StaticTokenProvider;
+import synapticloop.scaleway.api.auth.TokenProvider;
+import synapticloop.scaleway.api.exception.ConflictException;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.RateLimitedException;
 import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.exception.ServerErrorException;
+import synapticloop.scaleway.api.exception.TransportException;
+import synapticloop.scaleway.api.exception.UnauthorizedException;
+import synapticloop.scaleway.api.fleet.FailoverResult;
+import synapticloop.scaleway.api.fleet.FleetProvisioner;
+import synapticloop.scaleway.api.fleet.FleetTeardown;
+import synapticloop.scaleway.api.fleet.IPFailover;
+import synapticloop.scaleway.api.fleet.ProvisioningResult;
+import synapticloop.scaleway.api.fleet.RollingAction;
+import synapticloop.scaleway.api.fleet.RollingActionResult;
+import synapticloop.scaleway.api.fleet.RuleSyncResult;
+import synapticloop.scaleway.api.fleet.RuleSynchronizer;
+import synapticloop.scaleway.api.fleet.ServerActionQueue;
+import synapticloop.scaleway.api.fleet.TeardownReport;
 import synapticloop.scaleway.api.model.IP;
 import synapticloop.scaleway.api.model.Image;
 import synapticloop.scaleway.api.model.Organization;
 import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.RuleDefinition;
 import synapticloop.scaleway.api.model.SecurityGroup;
 import synapticloop.scaleway.api.model.Server;
 import synapticloop.scaleway.api.model.ServerAction;
 import synapticloop.scaleway.api.model.ServerDefinition;
 import synapticloop.scaleway.api.model.ServerTask;
 import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
 import synapticloop.scaleway.api.model.Token;
 import synapticloop.scaleway.api.model.User;
 import synapticloop.scaleway.api.model.Volume;
@@ -63,11 +91,15 @@ import synapticloop.scaleway.api.model.VolumeType;
 import synapticloop.scaleway.api.request.ActionRequest;
 import synapticloop.scaleway.api.request.IPPutRequest;
 import synapticloop.scaleway.api.request.IPRequest;
+import synapticloop.scaleway.api.request.JsonEntity;
 import synapticloop.scaleway.api.request.RuleRequest;
 import synapticloop.scaleway.api.request.SecurityGroupRequest;
+import synapticloop.scaleway.api.request.ServerPatchRequest;
 import synapticloop.scaleway.api.request.TokenPatchRequest;
 import synapticloop.scaleway.api.request.TokenRequest;
 import synapticloop.scaleway.api.request.VolumeRequest;
+import synapticloop.scaleway.api.response.BasePaginationResponse;
+import synapticloop.scaleway.api.response.ErrorResponse;
 import synapticloop.scaleway.api.response.IPResponse;
 import synapticloop.scaleway.api.response.IPsResponse;
 import synapticloop.scaleway.api.response.ImageResponse;
@@ -86,6 +118,13 @@ import synapticloop.scaleway.api.response.TokensResponse;
 import synapticloop.scaleway.api.response.UserResponse;
 import synapticloop.scaleway.api.response.VolumeResponse;
 import synapticloop.scaleway.api.response.VolumesResponse;
+import synapticloop.scaleway.api.task.ServerFetcher;
+import synapticloop.scaleway.api.task.ServerStateFuture;
+import synapticloop.scaleway.api.task.ServerStateWaiter;
+import synapticloop.scaleway.api.task.TaskFetcher;
+import synapticloop.scaleway.api.task.TaskListener;
+import synapticloop.scaleway.api.task.TaskTracker;
+import synapticloop.scaleway.api.util.RateLimiter;
 
 /**
  * This is the Scaleway API client to interact with the cloud provider
@@ -96,10 +135,37 @@ import synapticloop.scaleway.api.response.VolumesResponse;
 public class ScalewayApiClient {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ScalewayApiClient.class);
 
-	private final String accessToken;
+	private static final ObjectMapper OBJECT_MAPPER = initializeObjectMapperJson();
+	// the token patch request never changes, so is only serialized once
+	private static final JsonEntity TOKEN_PATCH_ENTITY = initializeTokenPatchEntity();
+
+	private static final Header CONTENT_TYPE_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, Constants.HEADER_VALUE_JSON_APPLICATION);
+	private static final Header ACCEPT_ENCODING_HEADER = new BasicHeader(HttpHeaders.ACCEPT_ENCODING, Constants.HEADER_VALUE_ACCEPT_ENCODING);
+
+	private final TokenProvider tokenProvider;
 	private final Region region;
-	private final String computeUrl;
 	private final CloseableHttpClient httpclient;
+	private final RateLimiter rateLimiter;
+	private final ScalewayApiMetrics scalewayApiMetrics = new ScalewayApiMetrics();
+	private volatile boolean captureStackTraces = true;
+	private volatile NegativeCache negativeCache = null;
+	private volatile ConcurrentMap<String, ConditionalResponse> conditionalResponses = null;
+	private final List<ResourceListener> resourceListeners = new CopyOnWriteArrayList<ResourceListener>();
+	private final TaskFetcher taskFetcher = new TaskFetcher() {
+		@Override
+		public ServerTask fetchTask(String taskId) throws ScalewayApiException {
+			return(getTaskStatus(taskId));
+		}
+	};
+	private final TaskTracker taskTracker = new TaskTracker(taskFetcher);
+	private volatile IPFailover ipFailover = null;
+	private final ServerActionQueue serverActionQueue = new ServerActionQueue(this);
+	private final ServerStateWaiter serverStateWaiter = new ServerStateWaiter(new ServerFetcher() {
+		@Override
+		public Server fetchServer(String serverId) throws ScalewayApiException {
+			return(getServer(serverId));
+		}
+	}, taskFetcher);
 
 	/**
 	 * Instantiate a new API Client for the Scaleway API Provider
@@ -108,13 +174,73 @@ public class ScalewayApiClient {
 	 * @param region the region that this should point to
 	 */
 	public ScalewayApiClient(String accessToken, Region region) {
-		this.accessToken = accessToken;
+		this(new StaticTokenProvider(accessToken), region);
+	}
+
+	/**
+	 * Instantiate a new API Client for the Scaleway API Provider, which gets the
+	 * authentication token for each request from the token provider (e.g. a 
+	 * RenewingTokenProvider for expiring tokens)
+	 * 
+	 * @param tokenProvider the provider of the authentication token
+	 * @param region the region that this should point to
+	 */
+	public ScalewayApiClient(TokenProvider tokenProvider, Region region) {
+		this(tokenProvider, region, createHttpClient());
+	}
+
+	/**
+	 * Instantiate a new API Client for the Scaleway API Provider, sending the 
+	 * requests through the passed in HTTP client, so that one connection pool
+	 * may be shared between the clients for different regions, (see 
+	 * {@link #createHttpClient()} for a suitably configured HTTP client)
+	 * 
+	 * @param tokenProvider the provider of the authentication token
+	 * @param region the region that this should point to
+	 * @param httpclient the HTTP client to send the requests with, which must 
+	 *     not decode the content compression
+	 */
+	public ScalewayApiClient(TokenProvider tokenProvider, Region region, CloseableHttpClient httpclient) {
+		this(tokenProvider, region, httpclient, null);
+	}
+
+	/**
+	 * Instantiate a new API Client for the Scaleway API Provider, sending the 
+	 * requests through the passed in HTTP client, with every request, (including
+	 * each page of a listing), taking a permit from the rate limiter first, so 
+	 * that one limit may be shared between the clients for different regions
+	 * 
+	 * @param tokenProvider the provider of the authentication token
+	 * @param region the region that this should point to
+	 * @param httpclient the HTTP client to send the requests with, which must 
+	 *     not decode the content compression
+	 * @param rateLimiter the rate limiter for every request, or null for no 
+	 *     limit
+	 */
+	public ScalewayApiClient(TokenProvider tokenProvider, Region region, CloseableHttpClient httpclient, RateLimiter rateLimiter) {
+		this.tokenProvider = tokenProvider;
 		this.region = region;
-		this.computeUrl = String.format(Constants.COMPUTE_URL, region);
+		this.httpclient = httpclient;
+		this.rateLimiter = rateLimiter;
+	}
 
+	/**
+	 * Create a new HTTP client, configured as the Scaleway API client expects,
+	 * with a connection pool of up to 16 connections per region, and 32 in 
+	 * total
+	 * 
+	 * @return the new HTTP client
+	 */
+	public static CloseableHttpClient createHttpClient() {
 		HttpClientBuilder httpBuilder = HttpClients.custom();
 		httpBuilder.setUserAgent(Constants.USER_AGENT);
-		this.httpclient = httpBuilder.build();
+		// compression is negotiated and decoded by this client (rather than by the 
+		// http client) so that the response can be streamed straight into the 
+		// JSON parser, and the bytes on the wire can be recorded in the metrics
+		httpBuilder.disableContentCompression();
+		httpBuilder.setMaxConnPerRoute(Constants.MAX_CONNECTIONS_PER_ROUTE);
+		httpBuilder.setMaxConnTotal(Constants.MAX_CONNECTIONS_TOTAL);
+		return(httpBuilder.build());
 	}
 
 	/**
@@ -126,6 +252,97 @@ public class ScalewayApiClient {
 		return region;
 	}
 
+	/**
+	 * Set whether the exceptions thrown for error responses capture their stack
+	 * traces (the default).  Not capturing them makes the exceptions far 
+	 * cheaper to create, which is worthwhile where failures are frequent and 
+	 * expected (e.g. probing whether resources still exist).
+	 * 
+	 * @param captureStackTraces whether to capture the stack traces
+	 */
+	public void setCaptureStackTraces(boolean captureStackTraces) {
+		this.captureStackTraces = captureStackTraces;
+	}
+
+	/**
+	 * Set how long a 404 for a server, volume or IP is remembered for, so that 
+	 * a repeated get for an ID which is known to be missing fails straight away
+	 * with a NotFoundException, without an API call.  An entry is forgotten as
+	 * soon as this client creates, retrieves or lists a resource with that ID.
+	 * The default is 0, which disables the negative cache.
+	 * 
+	 * @param ttlMillis how long to remember that a resource is missing, or 0 to
+	 *     disable the negative cache
+	 */
+	public void setNegativeCacheTtl(long ttlMillis) {
+		if(ttlMillis > 0) {
+			this.negativeCache = new NegativeCache(ttlMillis);
+		} else {
+			this.negativeCache = null;
+		}
+	}
+
+	/**
+	 * Set whether the paginated list calls (e.g. getAllServers) are made as 
+	 * conditional requests.  When enabled, the ETag of each page is remembered, 
+	 * and sent back as If-None-Match the next time the same page is requested,
+	 * so that the API may answer with a 304 and no body, in which case the 
+	 * previously parsed page is returned.  Where the API does not send an ETag
+	 * this has no effect.  The default is disabled.
+	 * 
+	 * Note that the remembered page objects are returned to every caller, so 
+	 * must not be modified.
+	 * 
+	 * @param isEnabled whether to make conditional requests
+	 */
+	public void setConditionalRequests(boolean isEnabled) {
+		if(isEnabled) {
+			if(null == conditionalResponses) {
+				this.conditionalResponses = new ConcurrentHashMap<String, ConditionalResponse>();
+			}
+		} else {
+			this.conditionalResponses = null;
+		}
+	}
+
+	/**
+	 * Get the rate limiter that every request of this client takes a permit 
+	 * from
+	 * 
+	 * @return the rate limiter, or null if the requests are not limited
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Get the metrics for the responses that this client has received
+	 * 
+	 * @return the metrics for the responses that this client has received
+	 */
+	public ScalewayApiMetrics getMetrics() {
+		return scalewayApiMetrics;
+	}
+
+	/**
+	 * Add a listener which will be notified of every resource that this client 
+	 * has retrieved, changed or deleted, after the API call has succeeded
+	 * 
+	 * @param resourceListener the listener to add
+	 */
+	public void addResourceListener(ResourceListener resourceListener) {
+		resourceListeners.add(resourceListener);
+	}
+
+	/**
+	 * Remove a previously added resource listener
+	 * 
+	 * @param resourceListener the listener to remove
+	 */
+	public void removeResourceListener(ResourceListener resourceListener) {
+		resourceListeners.remove(resourceListener);
+	}
+
 
 	/**
 	 * List all of the organizations 
@@ -136,8 +353,7 @@ public class ScalewayApiClient {
 	 */
 	public List<Organization> getAllOrganizations() throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				Constants.ACCOUNT_URL, 
-				Constants.PATH_ORGANIZATIONS,
+				Endpoint.ORGANIZATIONS.url(region),
 				200, 
 				OrganizationsResponse.class).getOrganizations());
 	}
@@ -153,8 +369,7 @@ public class ScalewayApiClient {
 	 */
 	public User getUser(String userId) throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				Constants.ACCOUNT_URL, 
-				String.format(Constants.PATH_USERS_SLASH, userId),
+				Endpoint.USERS_SLASH.url(region, userId),
 				200, 
 				UserResponse.class).getUser());
 	}
@@ -196,10 +411,66 @@ public class ScalewayApiClient {
 	 */
 	public Server createServer(ServerDefinition serverDefinition) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(Constants.PATH_SERVERS).toString(), 
+				Endpoint.SERVERS.url(region), 
 				serverDefinition);
 
-		return(executeAndGetResponse(request, 201, ServerResponse.class).getServer());
+		Server server = executeAndGetResponse(request, 201, ServerResponse.class).getServer();
+		notifyResourceUpdated(ResourceType.SERVER, server.getId(), server);
+		return(server);
+	}
+
+	/**
+	 * Create a server from an already serialized server definition, (see 
+	 * {@link JsonEntity#fromObject(Object)}), so that the same body may be sent
+	 * again without being serialized again
+	 * 
+	 * @param serverDefinitionEntity The serialized server definition to create
+	 * 
+	 * @return The created server
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Server createServer(JsonEntity serverDefinitionEntity) throws ScalewayApiException {
+		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
+				Endpoint.SERVERS.url(region), 
+				serverDefinitionEntity);
+
+		Server server = executeAndGetResponse(request, 201, ServerResponse.class).getServer();
+		notifyResourceUpdated(ResourceType.SERVER, server.getId(), server);
+		return(server);
+	}
+
+	/**
+	 * Create many servers in parallel, with at most <code>parallelism</code> 
+	 * creations in flight at once.  One failure does not abort the rest - the 
+	 * result maps the position of each definition to its created server, or to
+	 * its error, (so the same definition may be passed in more than once).
+	 * 
+	 * @param serverDefinitions The server definitions to create
+	 * @param parallelism the maximum number of creations in flight at once
+	 * 
+	 * @return The result of the creations
+	 * 
+	 * @see FleetProvisioner
+	 */
+	public ProvisioningResult createServers(List<ServerDefinition> serverDefinitions, int parallelism) {
+		return(new FleetProvisioner(this, parallelism).createServers(serverDefinitions));
+	}
+
+	/**
+	 * Tear down the servers - powering off any that are running, and then 
+	 * deleting each server followed by its volumes and reserved IP address - in
+	 * parallel.  One failure does not abort the rest, and the report lists 
+	 * exactly what was removed.
+	 * 
+	 * @param serverIds The IDs of the servers to tear down
+	 * 
+	 * @return The report of what was removed, and what could not be
+	 * 
+	 * @see FleetTeardown
+	 */
+	public TeardownReport teardown(Collection<String> serverIds) {
+		return(new FleetTeardown(this, FleetTeardown.DEFAULT_PARALLELISM).teardown(serverIds));
 	}
 
 	/**
@@ -212,11 +483,18 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public Server getServer(String serverId) throws ScalewayApiException {
-		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_SERVERS_SLASH, serverId), 
-				200, 
-				ServerResponse.class).getServer());
+		checkNegativeCache(ResourceType.SERVER, serverId);
+		Server server;
+		try {
+			server = execute(Constants.HTTP_METHOD_GET, 
+					Endpoint.SERVERS_SLASH.url(region, serverId), 
+					200, 
+					ServerResponse.class).getServer();
+		} catch (NotFoundException ex) {
+			throw rememberNotFound(ResourceType.SERVER, serverId, ex);
+		}
+		notifyResourceUpdated(ResourceType.SERVER, server.getId(), server);
+		return(server);
 	}
 
 	/**
@@ -231,20 +509,36 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public ServersResponse getAllServers(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, new StringBuilder(computeUrl).append(String.format(Constants.PATH_SERVERS, numPage, numPerPage)).toString());
-		HttpResponse response = executeRequest(request);
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			ServersResponse serversResponse = parseResponse(response, ServersResponse.class);
-			serversResponse.parsePaginationHeaders(allHeaders);
-			return(serversResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
+		ServersResponse serversResponse = executePaged(Endpoint.SERVERS_PAGING.url(region, numPage, numPerPage), ServersResponse.class);
+		NegativeCache currentNegativeCache = negativeCache;
+		if(null != currentNegativeCache && null != serversResponse.getServers()) {
+			for (Server server : serversResponse.getServers()) {
+				currentNegativeCache.remove(ResourceType.SERVER, server.getId());
 			}
 		}
+		return(serversResponse);
+	}
+
+	/**
+	 * Rename and/or retag a server, leaving the rest of the server unchanged
+	 * 
+	 * @param serverId The ID of the server to update
+	 * @param name The new name, or null to leave the name unchanged
+	 * @param tags The new tags, which replace all of the existing tags, or null
+	 *     to leave the tags unchanged
+	 * 
+	 * @return The updated server
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Server updateServer(String serverId, String name, List<String> tags) throws ScalewayApiException {
+		HttpPatch request = (HttpPatch) buildRequest(Constants.HTTP_METHOD_PATCH, 
+				Endpoint.SERVERS_SLASH.url(region, serverId), 
+				new ServerPatchRequest(name, tags));
+
+		Server server = executeAndGetResponse(request, 200, ServerResponse.class).getServer();
+		notifyResourceUpdated(ResourceType.SERVER, server.getId(), server);
+		return(server);
 	}
 
 	/*
@@ -257,7 +551,7 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there ws an error with the lAPI call
 	 *
 	public Server updateServer(Server server) throws ScalewayApiException {
-		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, computeUrl, String.format(PATH_SERVERS_SLASH, server.getId()));
+		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, Endpoint.SERVERS_SLASH.url(region, server.getId()));
 
 		try {
 			StringEntity entity = new StringEntity(serializeObject(server));
@@ -281,20 +575,7 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the call
 	 */
 	public ImagesResponse getAllImages(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, new StringBuilder(computeUrl).append(String.format(Constants.PATH_IMAGES_PAGING, numPage, numPerPage)).toString());
-		HttpResponse response = executeRequest(request);
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			ImagesResponse imagesResponse = parseResponse(response, ImagesResponse.class);
-			imagesResponse.parsePaginationHeaders(allHeaders);
-			return(imagesResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
-			}
-		}
+		return(executePaged(Endpoint.IMAGES_PAGING.url(region, numPage, numPerPage), ImagesResponse.class));
 	}
 
 	/**
@@ -308,8 +589,7 @@ public class ScalewayApiClient {
 	 */
 	public Image getImage(String imageId) throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_IMAGES_SLASH, imageId), 
+				Endpoint.IMAGES_SLASH.url(region, imageId), 
 				200, 
 				ImageResponse.class).getImage());
 	}
@@ -329,10 +609,10 @@ public class ScalewayApiClient {
 	 */
 	public void deleteServer(String serverId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				computeUrl, 
-				String.format(Constants.PATH_SERVERS_SLASH, serverId), 
+				Endpoint.SERVERS_SLASH.url(region, serverId), 
 				204, 
 				null);
+		notifyResourceDeleted(ResourceType.SERVER, serverId);
 	}
 
 	/**
@@ -346,8 +626,7 @@ public class ScalewayApiClient {
 	 */
 	public List<ServerAction> getServerActions(String serverId) throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_SERVERS_SLASH_ACTION, serverId),
+				Endpoint.SERVERS_SLASH_ACTION.url(region, serverId),
 				200, 
 				ServerActionsResponse.class).getServerActions());
 	}
@@ -367,10 +646,12 @@ public class ScalewayApiClient {
 	 */
 	public Volume createVolume(String name, String organizationId, long size, VolumeType volumeType) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(Constants.PATH_VOLUMES).toString(),
+				Endpoint.VOLUMES.url(region),
 				new VolumeRequest(name, organizationId, size, volumeType));
 
-		return(executeAndGetResponse(request, 201, VolumeResponse.class).getVolume());
+		Volume volume = executeAndGetResponse(request, 201, VolumeResponse.class).getVolume();
+		notifyResourceUpdated(ResourceType.VOLUME, volume.getId(), volume);
+		return(volume);
 	}
 
 	/**
@@ -385,22 +666,14 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the call
 	 */
 	public VolumesResponse getAllVolumes(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, new StringBuilder(computeUrl).append(String.format(Constants.PATH_VOLUMES_PAGING, numPage, numPerPage)).toString());
-		HttpResponse response = executeRequest(request);
-
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			VolumesResponse volumesResponse = parseResponse(response, VolumesResponse.class);
-			volumesResponse.parsePaginationHeaders(allHeaders);
-			return(volumesResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
+		VolumesResponse volumesResponse = executePaged(Endpoint.VOLUMES_PAGING.url(region, numPage, numPerPage), VolumesResponse.class);
+		NegativeCache currentNegativeCache = negativeCache;
+		if(null != currentNegativeCache && null != volumesResponse.getVolumes()) {
+			for (Volume volume : volumesResponse.getVolumes()) {
+				currentNegativeCache.remove(ResourceType.VOLUME, volume.getId());
 			}
 		}
-
+		return(volumesResponse);
 	}
 
 	/**
@@ -413,12 +686,18 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public Volume getVolume(String volumeId) throws ScalewayApiException {
-		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_VOLUMES_SLASH, volumeId), 
-				200, 
-				VolumeResponse.class).getVolume());
-
+		checkNegativeCache(ResourceType.VOLUME, volumeId);
+		Volume volume;
+		try {
+			volume = execute(Constants.HTTP_METHOD_GET, 
+					Endpoint.VOLUMES_SLASH.url(region, volumeId), 
+					200, 
+					VolumeResponse.class).getVolume();
+		} catch (NotFoundException ex) {
+			throw rememberNotFound(ResourceType.VOLUME, volumeId, ex);
+		}
+		notifyResourceUpdated(ResourceType.VOLUME, volumeId, volume);
+		return(volume);
 	}
 
 	/**
@@ -430,10 +709,10 @@ public class ScalewayApiClient {
 	 */
 	public void deleteVolume(String volumeId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				computeUrl, 
-				String.format(Constants.PATH_VOLUMES_SLASH, volumeId), 
+				Endpoint.VOLUMES_SLASH.url(region, volumeId), 
 				204, 
 				null);
+		notifyResourceDeleted(ResourceType.VOLUME, volumeId);
 	}
 
 
@@ -451,10 +730,48 @@ public class ScalewayApiClient {
 	public ServerTask executeServerAction(String serverId, ServerAction serverAction) throws ScalewayApiException {
 
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SERVERS_SLASH_ACTION, serverId)).toString(),
+				Endpoint.SERVERS_SLASH_ACTION.url(region, serverId),
 				new ActionRequest(serverAction));
 
-		return(executeAndGetResponse(request, 202, TaskResponse.class).getServerTask());
+		ServerTask serverTask = executeAndGetResponse(request, 202, TaskResponse.class).getServerTask();
+		// the state of the server is about to change
+		notifyResourceInvalidated(ResourceType.SERVER, serverId);
+		return(serverTask);
+	}
+
+	/**
+	 * Queue the server action, so that it is only executed once the actions 
+	 * queued before it on the same server have finished - redundant actions 
+	 * are coalesced, (e.g. a second REBOOT that is still waiting is collapsed
+	 * into the first).
+	 * 
+	 * @param serverId The ID of the server to execute the action on
+	 * @param serverAction the server action to perform
+	 * 
+	 * @return The future which completes with the finished task of the action
+	 * 
+	 * @see ServerActionQueue
+	 */
+	public CompletableFuture<ServerTask> queueServerAction(String serverId, ServerAction serverAction) {
+		return(serverActionQueue.submit(serverId, serverAction));
+	}
+
+	/**
+	 * Execute the action on the servers, with at most <code>windowSize</code> 
+	 * servers having the action in flight at once - the next server is started
+	 * as soon as the action on a server has finished.  The first failure aborts 
+	 * the rolling action, (the actions in flight are left to finish).
+	 * 
+	 * @param serverIds The IDs of the servers to execute the action on, in order
+	 * @param serverAction The action to execute
+	 * @param windowSize The maximum number of servers with the action in flight
+	 * 
+	 * @return The result of the rolling action
+	 * 
+	 * @see RollingAction for health gates, failure ratios and progress events
+	 */
+	public RollingActionResult rollingAction(List<String> serverIds, ServerAction serverAction, int windowSize) {
+		return(new RollingAction(this, windowSize).execute(serverIds, serverAction));
 	}
 
 	/**
@@ -468,12 +785,103 @@ public class ScalewayApiClient {
 	 */
 	public ServerTask getTaskStatus(String taskId) throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_TASKS_SLASH, taskId),
+				Endpoint.TASKS_SLASH.url(region, taskId),
 				200, 
 				TaskResponse.class).getServerTask());
 	}
 
+	/**
+	 * Wait for a task to finish, without blocking the calling thread - the 
+	 * status of the task is polled on a shared timer wheel, quickly at first 
+	 * and then backing off to every 10 seconds, timing out after 10 minutes.
+	 * The polls for all of the outstanding tasks share a budget of 20 polls per
+	 * second.
+	 * 
+	 * Cancelling the returned future stops the polling.
+	 * 
+	 * @param taskId The id of the task
+	 * 
+	 * @return the future which completes with the task when it has succeeded, or
+	 *     exceptionally if the task failed or did not finish in time
+	 */
+	public CompletableFuture<ServerTask> awaitTask(String taskId) {
+		return(taskTracker.awaitTask(taskId));
+	}
+
+	/**
+	 * Wait for a task to finish, without blocking the calling thread.
+	 * 
+	 * @param taskId The id of the task
+	 * @param timeoutMillis the number of milliseconds to wait for the task to 
+	 *     finish
+	 * 
+	 * @return the future which completes with the task when it has succeeded, or
+	 *     exceptionally if the task failed or did not finish in time
+	 * 
+	 * @see #awaitTask(String)
+	 */
+	public CompletableFuture<ServerTask> awaitTask(String taskId, long timeoutMillis) {
+		return(taskTracker.awaitTask(taskId, timeoutMillis));
+	}
+
+	/**
+	 * Wait for a task to finish, without blocking the calling thread, calling 
+	 * the listener on every change of status of the task.
+	 * 
+	 * @param taskId The id of the task
+	 * @param timeoutMillis the number of milliseconds to wait for the task to 
+	 *     finish
+	 * @param taskListener the listener to call on every change of status
+	 * 
+	 * @return the future which completes with the task when it has succeeded, or
+	 *     exceptionally if the task failed or did not finish in time
+	 * 
+	 * @see #awaitTask(String)
+	 */
+	public CompletableFuture<ServerTask> awaitTask(String taskId, long timeoutMillis, TaskListener taskListener) {
+		return(taskTracker.awaitTask(taskId, timeoutMillis, taskListener));
+	}
+
+	/**
+	 * Wait for the server to reach one of the states, (e.g. running, or 
+	 * stopped), without blocking the calling thread, timing out after 10 
+	 * minutes.  The server is polled rarely whilst it is not expected to have 
+	 * reached the state, and densely around the time that it is expected, 
+	 * based on how long the same transition has taken before for the server 
+	 * type - the returned future exposes the estimated time remaining.
+	 * 
+	 * @param serverId The ID of the server
+	 * @param states the states to wait for
+	 * 
+	 * @return the future which completes with the server once it has reached 
+	 *     one of the states
+	 */
+	public ServerStateFuture waitForState(String serverId, State... states) {
+		return(serverStateWaiter.waitForState(serverId, states));
+	}
+
+	/**
+	 * Wait for the server to reach one of the states, without blocking the 
+	 * calling thread.  The task that caused the transition, (e.g. from 
+	 * executing a server action), is polled until it has finished, with its 
+	 * progress used to estimate the time remaining, before the server is 
+	 * polled.
+	 * 
+	 * @param serverId The ID of the server
+	 * @param serverTask the task that caused the transition, (may be null)
+	 * @param timeoutMillis the number of milliseconds to wait for the server to
+	 *     reach the state
+	 * @param states the states to wait for
+	 * 
+	 * @return the future which completes with the server once it has reached 
+	 *     one of the states
+	 * 
+	 * @see #waitForState(String, State...)
+	 */
+	public ServerStateFuture waitForState(String serverId, ServerTask serverTask, long timeoutMillis, State... states) {
+		return(serverStateWaiter.waitForState(serverId, serverTask, timeoutMillis, states));
+	}
+
 	/**
 	 * Create an access token for the Scaleway API
 	 * 
@@ -486,7 +894,7 @@ public class ScalewayApiClient {
 	 */
 	public Token createToken(String emailAddress, String password, boolean expires) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(Constants.ACCOUNT_URL).append(Constants.PATH_TOKENS).toString(), 
+				Endpoint.TOKENS.url(region), 
 				new TokenRequest(emailAddress, password, expires));
 
 		return(executeAndGetResponse(request, 201, TokenResponse.class).getToken());
@@ -503,8 +911,7 @@ public class ScalewayApiClient {
 	 */
 	public Token getToken(String tokenId) throws ScalewayApiException {
 		return(execute(Constants.HTTP_METHOD_GET, 
-				Constants.ACCOUNT_URL, 
-				String.format(Constants.PATH_TOKENS_SLASH, tokenId),
+				Endpoint.TOKENS_SLASH.url(region, tokenId),
 				200, 
 				TokenResponse.class).getToken());
 	}
@@ -518,8 +925,7 @@ public class ScalewayApiClient {
 	 */
 	public void deleteToken(String tokenId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				Constants.ACCOUNT_URL, 
-				String.format(Constants.PATH_TOKENS_SLASH, tokenId), 
+				Endpoint.TOKENS_SLASH.url(region, tokenId), 
 				204, 
 				null);
 	}
@@ -534,8 +940,8 @@ public class ScalewayApiClient {
 	 */
 	public Token updateToken(String tokenId) throws ScalewayApiException {
 		HttpPatch request = (HttpPatch) buildRequest(Constants.HTTP_METHOD_PATCH, 
-				new StringBuilder(Constants.ACCOUNT_URL).append(String.format(Constants.PATH_TOKENS_SLASH, tokenId)).toString(), 
-				new TokenPatchRequest());
+				Endpoint.TOKENS_SLASH.url(region, tokenId), 
+				TOKEN_PATCH_ENTITY);
 
 		return(executeAndGetResponse(request, 200, TokenResponse.class).getToken());
 	}
@@ -557,23 +963,7 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public TokensResponse getAllTokens(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, 
-				new StringBuilder(Constants.ACCOUNT_URL).append(String.format(Constants.PATH_TOKENS_PAGING, numPage, numPerPage)).toString());
-
-		HttpResponse response = executeRequest(request);
-
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			TokensResponse tokensResponse = parseResponse(response, TokensResponse.class);
-			tokensResponse.parsePaginationHeaders(allHeaders);
-			return(tokensResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
-			}
-		}
+		return(executePaged(Endpoint.TOKENS_PAGING.url(region, numPage, numPerPage), TokensResponse.class));
 	}
 
 	/**
@@ -587,11 +977,12 @@ public class ScalewayApiClient {
 	 */
 	public IP createIP(String organizationId) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(Constants.PATH_IPS).toString(),
+				Endpoint.IPS.url(region),
 				new IPRequest(organizationId));
 
-		return(executeAndGetResponse(request, 201, IPResponse.class).getIP());
-
+		IP ip = executeAndGetResponse(request, 201, IPResponse.class).getIP();
+		notifyResourceUpdated(ResourceType.IP, ip.getId(), ip);
+		return(ip);
 	}
 
 	/**
@@ -606,23 +997,18 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public IPsResponse getAllIPs(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_IPS_PAGING, numPage, numPerPage)).toString());
-
-		HttpResponse response = executeRequest(request);
-
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			IPsResponse ipsResponse = parseResponse(response, IPsResponse.class);
-			ipsResponse.parsePaginationHeaders(allHeaders);
-			return(ipsResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
+		IPsResponse ipsResponse = executePaged(Endpoint.IPS_PAGING.url(region, numPage, numPerPage), IPsResponse.class);
+		if(null != ipsResponse.getIPs()) {
+			NegativeCache currentNegativeCache = negativeCache;
+			for (IP ip : ipsResponse.getIPs()) {
+				if(null != currentNegativeCache) {
+					currentNegativeCache.remove(ResourceType.IP, ip.getId());
+				}
+				// the listed IP addresses are remembered for failovers
+				notifyResourceUpdated(ResourceType.IP, ip.getId(), ip);
 			}
 		}
+		return(ipsResponse);
 	}
 
 	/**
@@ -635,11 +1021,18 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public IP getIP(String ipId) throws ScalewayApiException {
-		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_IPS_SLASH, ipId),
-				200, 
-				IPResponse.class).getIP());
+		checkNegativeCache(ResourceType.IP, ipId);
+		IP ip;
+		try {
+			ip = execute(Constants.HTTP_METHOD_GET, 
+					Endpoint.IPS_SLASH.url(region, ipId),
+					200, 
+					IPResponse.class).getIP();
+		} catch (NotFoundException ex) {
+			throw rememberNotFound(ResourceType.IP, ipId, ex);
+		}
+		notifyResourceUpdated(ResourceType.IP, ipId, ip);
+		return(ip);
 	}
 
 	/**
@@ -655,12 +1048,63 @@ public class ScalewayApiClient {
 	 */
 	public IP attachIP(String ipId, String organizationId, String ipAddress, String serverId) throws ScalewayApiException {
 		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_IPS_SLASH, ipId)).toString(), 
+				Endpoint.IPS_SLASH.url(region, ipId), 
 				new IPPutRequest(ipAddress, ipId, serverId, organizationId));
 
-		return(executeAndGetResponse(request, 200, IPResponse.class).getIP());
+		IP ip = executeAndGetResponse(request, 200, IPResponse.class).getIP();
+		notifyResourceUpdated(ResourceType.IP, ipId, ip);
+		// the server now has a different public IP address
+		notifyResourceInvalidated(ResourceType.SERVER, serverId);
+		return(ip);
+	}
+
+
+	/**
+	 * Read all of the reserved IP addresses of the account ahead of a failover,
+	 * so that none of them have to be read before they are moved.  From then on
+	 * the IP addresses seen through this client, (including those in the 
+	 * listings), are remembered for failovers.
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 * 
+	 * @see IPFailover#load()
+	 */
+	public void primeFailover() throws ScalewayApiException {
+		getIPFailover().load();
 	}
 
+	/**
+	 * Move the reserved IP addresses to their target servers, all at once - the
+	 * IP addresses that have already been seen by this client since the first
+	 * failover, (or {@link #primeFailover()}), are moved without being read 
+	 * first.
+	 * 
+	 * @param targetServerIds The ID of the server to move each IP address to, 
+	 *     keyed on the ID of the IP address
+	 * 
+	 * @return The result of the failover, with the latency of each IP address
+	 * 
+	 * @see IPFailover
+	 */
+	public FailoverResult failover(Map<String, String> targetServerIds) {
+		return(getIPFailover().failover(targetServerIds));
+	}
+
+	private IPFailover getIPFailover() {
+		IPFailover currentIPFailover = ipFailover;
+		if(null == currentIPFailover) {
+			synchronized(this) {
+				currentIPFailover = ipFailover;
+				if(null == currentIPFailover) {
+					currentIPFailover = new IPFailover(this);
+					// the IP addresses seen through this client are remembered for failovers
+					resourceListeners.add(currentIPFailover);
+					ipFailover = currentIPFailover;
+				}
+			}
+		}
+		return(currentIPFailover);
+	}
 
 	/**
 	 * Delete an IP with the associated IP unique identifier
@@ -671,10 +1115,10 @@ public class ScalewayApiClient {
 	 */
 	public void deleteIP(String ipId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				computeUrl, 
-				String.format(Constants.PATH_IPS_SLASH, ipId), 
+				Endpoint.IPS_SLASH.url(region, ipId), 
 				204, 
 				null);
+		notifyResourceDeleted(ResourceType.IP, ipId);
 	}
 
 
@@ -691,10 +1135,12 @@ public class ScalewayApiClient {
 	 */
 	public SecurityGroup createSecurityGroup(String organizationId, String name, String description) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(Constants.PATH_SECURITY_GROUPS).toString(),
+				Endpoint.SECURITY_GROUPS.url(region),
 				new SecurityGroupRequest(organizationId, name, description));
 
-		return(executeAndGetResponse(request, 201, SecurityGroupResponse.class).getSecurityGroup());
+		SecurityGroup securityGroup = executeAndGetResponse(request, 201, SecurityGroupResponse.class).getSecurityGroup();
+		notifyResourceUpdated(ResourceType.SECURITY_GROUP, securityGroup.getId(), securityGroup);
+		return(securityGroup);
 	}
 
 	/**
@@ -706,10 +1152,10 @@ public class ScalewayApiClient {
 	 */
 	public void deleteSecurityGroup(String securityGroupId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				computeUrl, 
-				String.format(Constants.PATH_SECURITY_GROUPS_SLASH, securityGroupId), 
+				Endpoint.SECURITY_GROUPS_SLASH.url(region, securityGroupId), 
 				204, 
 				null);
+		notifyResourceDeleted(ResourceType.SECURITY_GROUP, securityGroupId);
 	}
 
 	/**
@@ -723,23 +1169,7 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public SecurityGroupsResponse getAllSecurityGroups(int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SECURITY_GROUPS_PAGING, numPage, numPerPage)).toString());
-
-		HttpResponse response = executeRequest(request);
-
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			SecurityGroupsResponse securityGroupsResponse = parseResponse(response, SecurityGroupsResponse.class);
-			securityGroupsResponse.parsePaginationHeaders(allHeaders);
-			return(securityGroupsResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
-			}
-		}
+		return(executePaged(Endpoint.SECURITY_GROUPS_PAGING.url(region, numPage, numPerPage), SecurityGroupsResponse.class));
 	}
 
 	/**
@@ -752,11 +1182,12 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public SecurityGroup getSecurityGroup(String securityGroupId) throws ScalewayApiException {
-		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_SECURITY_GROUPS_SLASH, securityGroupId),
+		SecurityGroup securityGroup = execute(Constants.HTTP_METHOD_GET, 
+				Endpoint.SECURITY_GROUPS_SLASH.url(region, securityGroupId),
 				200, 
-				SecurityGroupResponse.class).getSecurityGroup());
+				SecurityGroupResponse.class).getSecurityGroup();
+		notifyResourceUpdated(ResourceType.SECURITY_GROUP, securityGroupId, securityGroup);
+		return(securityGroup);
 	}
 
 	/**
@@ -773,10 +1204,12 @@ public class ScalewayApiClient {
 	 */
 	public SecurityGroup updateSecurityGroup(String securityGroupId, String organizationId, String name, String description) throws ScalewayApiException {
 		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SECURITY_GROUPS_SLASH, securityGroupId)).toString(), 
+				Endpoint.SECURITY_GROUPS_SLASH.url(region, securityGroupId), 
 				new SecurityGroupRequest(organizationId, name, description));
 
-		return(executeAndGetResponse(request, 200, SecurityGroupResponse.class).getSecurityGroup());
+		SecurityGroup securityGroup = executeAndGetResponse(request, 200, SecurityGroupResponse.class).getSecurityGroup();
+		notifyResourceUpdated(ResourceType.SECURITY_GROUP, securityGroupId, securityGroup);
+		return(securityGroup);
 	}
 
 	/**
@@ -796,10 +1229,32 @@ public class ScalewayApiClient {
 	 */
 	public Rule createRule(String securityGroupId, RuleAction ruleAction, RuleDirection ruleDirection, String ipRange, RuleProtocol ruleProtocol, int destPortFrom) throws ScalewayApiException {
 		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SECURITY_GROUPS_RULES, securityGroupId)).toString(),
+				Endpoint.SECURITY_GROUPS_RULES.url(region, securityGroupId),
 				new RuleRequest(ruleAction, ruleDirection, ipRange, ruleProtocol, destPortFrom));
 
-		return(executeAndGetResponse(request, 201, RuleResponse.class).getRule());
+		Rule rule = executeAndGetResponse(request, 201, RuleResponse.class).getRule();
+		notifyResourceUpdated(ResourceType.RULE, rule.getId(), rule);
+		return(rule);
+	}
+
+	/**
+	 * Create a new rule from the definition
+	 * 
+	 * @param securityGroupId The security group that this rule will be attached to
+	 * @param ruleDefinition The definition of the rule
+	 * 
+	 * @return The newly created rule
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Rule createRule(String securityGroupId, RuleDefinition ruleDefinition) throws ScalewayApiException {
+		HttpPost request = (HttpPost) buildRequest(Constants.HTTP_METHOD_POST, 
+				Endpoint.SECURITY_GROUPS_RULES.url(region, securityGroupId),
+				ruleDefinition);
+
+		Rule rule = executeAndGetResponse(request, 201, RuleResponse.class).getRule();
+		notifyResourceUpdated(ResourceType.RULE, rule.getId(), rule);
+		return(rule);
 	}
 
 	/**
@@ -812,10 +1267,10 @@ public class ScalewayApiClient {
 	 */
 	public void deleteRule(String securityGroupId, String ruleId) throws ScalewayApiException {
 		execute(Constants.HTTP_METHOD_DELETE, 
-				computeUrl, 
-				String.format(Constants.PATH_SECURITY_GROUPS_RULES_SLASH, securityGroupId, ruleId), 
+				Endpoint.SECURITY_GROUPS_RULES_SLASH.url(region, securityGroupId, ruleId), 
 				204, 
 				null);
+		notifyResourceDeleted(ResourceType.RULE, ruleId);
 	}
 
 	/**
@@ -830,23 +1285,7 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public RulesResponse getAllRules(String securityGroupId, int numPage, int numPerPage) throws ScalewayApiException {
-		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SECURITY_GROUPS_RULES_PAGING, securityGroupId, numPage, numPerPage)).toString());
-
-		HttpResponse response = executeRequest(request);
-
-		if(response.getStatusLine().getStatusCode() == 200) {
-			Header[] allHeaders = response.getAllHeaders();
-			RulesResponse rulesResponse = parseResponse(response, RulesResponse.class);
-			rulesResponse.parsePaginationHeaders(allHeaders);
-			return(rulesResponse);
-		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
-			}
-		}
+		return(executePaged(Endpoint.SECURITY_GROUPS_RULES_PAGING.url(region, securityGroupId, numPage, numPerPage), RulesResponse.class));
 	}
 
 
@@ -861,11 +1300,12 @@ public class ScalewayApiClient {
 	 * @throws ScalewayApiException If there was an error with the API call
 	 */
 	public Rule getRule(String securityGroupId, String ruleId) throws ScalewayApiException {
-		return(execute(Constants.HTTP_METHOD_GET, 
-				computeUrl, 
-				String.format(Constants.PATH_SECURITY_GROUPS_RULES_SLASH, securityGroupId, ruleId),
+		Rule rule = execute(Constants.HTTP_METHOD_GET, 
+				Endpoint.SECURITY_GROUPS_RULES_SLASH.url(region, securityGroupId, ruleId),
 				200, 
-				RuleResponse.class).getRule());
+				RuleResponse.class).getRule();
+		notifyResourceUpdated(ResourceType.RULE, ruleId, rule);
+		return(rule);
 	}
 
 	/**
@@ -885,10 +1325,54 @@ public class ScalewayApiClient {
 	 */
 	public Rule updateRule(String securityGroupId, String ruleId, RuleAction ruleAction, RuleDirection ruleDirection, String ipRange, RuleProtocol ruleProtocol, int destPortFrom) throws ScalewayApiException {
 		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, 
-				new StringBuilder(computeUrl).append(String.format(Constants.PATH_SECURITY_GROUPS_RULES_SLASH, securityGroupId, ruleId)).toString(), 
+				Endpoint.SECURITY_GROUPS_RULES_SLASH.url(region, securityGroupId, ruleId), 
 				new RuleRequest(ruleAction, ruleDirection, ipRange, ruleProtocol, destPortFrom));
 
-		return(executeAndGetResponse(request, 200, RuleResponse.class).getRule());
+		Rule rule = executeAndGetResponse(request, 200, RuleResponse.class).getRule();
+		notifyResourceUpdated(ResourceType.RULE, ruleId, rule);
+		return(rule);
+	}
+
+	/**
+	 * Update a rule to the definition
+	 * 
+	 * @param securityGroupId The security group that this rule is attached to
+	 * @param ruleId The ID of the rule to update
+	 * @param ruleDefinition The new definition of the rule
+	 * 
+	 * @return The updated rule
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Rule updateRule(String securityGroupId, String ruleId, RuleDefinition ruleDefinition) throws ScalewayApiException {
+		HttpPut request = (HttpPut) buildRequest(Constants.HTTP_METHOD_PUT, 
+				Endpoint.SECURITY_GROUPS_RULES_SLASH.url(region, securityGroupId, ruleId), 
+				ruleDefinition);
+
+		Rule rule = executeAndGetResponse(request, 200, RuleResponse.class).getRule();
+		notifyResourceUpdated(ResourceType.RULE, ruleId, rule);
+		return(rule);
+	}
+
+	/**
+	 * Synchronise the rules of the security group to the desired rules - the 
+	 * current rules are fetched once, rules which already match the desired 
+	 * rule at the same position are left untouched, and only the differences 
+	 * are applied (concurrently, where the order does not matter).
+	 * 
+	 * @param securityGroupId The security group to synchronise the rules of
+	 * @param desiredRules The rules that the security group should have, in 
+	 *     order
+	 * 
+	 * @return The edits that were applied
+	 * 
+	 * @throws ScalewayApiException If there was an error with any of the API 
+	 *     calls
+	 * 
+	 * @see RuleSynchronizer
+	 */
+	public RuleSyncResult syncRules(String securityGroupId, List<RuleDefinition> desiredRules) throws ScalewayApiException {
+		return(new RuleSynchronizer(this, RuleSynchronizer.DEFAULT_PARALLELISM).syncRules(securityGroupId, desiredRules));
 	}
 
 
@@ -905,26 +1389,27 @@ public class ScalewayApiClient {
 
 
 	/**
-	 * Serialize an object to JSON
+	 * Serialize an object to a JSON request entity - objects that are already a
+	 * JsonEntity (i.e. have been serialized once already) are used as is.
 	 * 
 	 * @param object The object to serialize
 	 * 
-	 * @return The object serialized as a JSON String
+	 * @return The object serialized as a JSON request entity
 	 * 
 	 * @throws JsonProcessingException if there was an error serializing
 	 */
-	private String serializeObject(Object object) throws JsonProcessingException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		objectMapper.setSerializationInclusion(Include.NON_NULL);
-		return(objectMapper.writeValueAsString(object));
+	private JsonEntity serializeObject(Object object) throws JsonProcessingException {
+		if(object instanceof JsonEntity) {
+			return((JsonEntity)object);
+		}
+		return(JsonEntity.fromObject(object));
 	}
 
 	/**
 	 * Execute the request, returning the parsed response object
 	 * 
 	 * @param httpMethod The HTTP method to execute (GET/POST/PATCH/DELETE/PUT)
-	 * @param url The URL to hit
-	 * @param path the path to request
+	 * @param requestPath The full URL to request
 	 * @param allowableStatusCode the allowable return HTTP status code
 	 * @param returnClass the return class type
 	 * 
@@ -932,21 +1417,11 @@ public class ScalewayApiClient {
 	 * 
 	 * @throws ScalewayApiException If there was an error calling the api
 	 */
-	private <T> T execute(String httpMethod, String url, String path, int allowableStatusCode, Class<T> returnClass) throws ScalewayApiException {
-		String requestPath = new StringBuilder(url).append(path).toString();
-
+	private <T> T execute(String httpMethod, String requestPath, int allowableStatusCode, Class<T> returnClass) throws ScalewayApiException {
 		HttpRequestBase request = buildRequest(httpMethod, requestPath);
 
-		request.setHeader(Constants.HEADER_KEY_AUTH_TOKEN, accessToken);
-		request.setHeader(HttpHeaders.CONTENT_TYPE, Constants.HEADER_VALUE_JSON_APPLICATION);
-
-		HttpResponse response;
-		try {
-			LOGGER.debug("Executing '{}' for url '{}'", httpMethod, requestPath);
-			response = httpclient.execute(request);
-		} catch (IOException ex) {
-			throw new ScalewayApiException(ex);
-		}
+		LOGGER.debug("Executing '{}' for url '{}'", httpMethod, requestPath);
+		HttpResponse response = executeRequest(request);
 
 		int statusCode = response.getStatusLine().getStatusCode();
 
@@ -959,11 +1434,54 @@ public class ScalewayApiClient {
 			}
 		} else {
 			LOGGER.error("Invalid status code received: {}, wanted: {}.", statusCode, allowableStatusCode);
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
+			throw createApiException(response);
+		}
+	}
+
+	/**
+	 * Execute a GET request for a paginated response, parsing the pagination 
+	 * headers into the returned response
+	 * 
+	 * @param requestPath The full URL to request
+	 * @param returnClass the return class type
+	 * 
+	 * @return The returned and parsed response
+	 * 
+	 * @throws ScalewayApiException If there was an error calling the api
+	 */
+	private <T extends BasePaginationResponse> T executePaged(String requestPath, Class<T> returnClass) throws ScalewayApiException {
+		HttpRequestBase request = buildRequest(Constants.HTTP_METHOD_GET, requestPath);
+
+		ConcurrentMap<String, ConditionalResponse> currentConditionalResponses = conditionalResponses;
+		ConditionalResponse conditionalResponse = null;
+		if(null != currentConditionalResponses) {
+			conditionalResponse = currentConditionalResponses.get(requestPath);
+			if(null != conditionalResponse && returnClass.isInstance(conditionalResponse.response)) {
+				request.setHeader(HttpHeaders.IF_NONE_MATCH, conditionalResponse.eTag);
+			} else {
+				conditionalResponse = null;
+			}
+		}
+
+		HttpResponse response = executeRequest(request);
+
+		int statusCode = response.getStatusLine().getStatusCode();
+		if(statusCode == 304 && null != conditionalResponse) {
+			EntityUtils.consumeQuietly(response.getEntity());
+			scalewayApiMetrics.recordNotModified();
+			return(returnClass.cast(conditionalResponse.response));
+		} else if(statusCode == 200) {
+			Header[] allHeaders = response.getAllHeaders();
+			T paginationResponse = parseResponse(response, returnClass);
+			paginationResponse.parsePaginationHeaders(allHeaders);
+
+			Header eTagHeader = response.getFirstHeader(HttpHeaders.ETAG);
+			if(null != currentConditionalResponses && null != eTagHeader) {
+				currentConditionalResponses.put(requestPath, new ConditionalResponse(eTagHeader.getValue(), paginationResponse));
 			}
+			return(paginationResponse);
+		} else {
+			throw createApiException(response);
 		}
 	}
 
@@ -1003,15 +1521,16 @@ public class ScalewayApiClient {
 			break;
 		}
 
-		request.setHeader(Constants.HEADER_KEY_AUTH_TOKEN, accessToken);
-		request.setHeader(HttpHeaders.CONTENT_TYPE, Constants.HEADER_VALUE_JSON_APPLICATION);
+		// the header instances are immutable, so are shared across all requests
+		request.setHeader(tokenProvider.getAuthTokenHeader());
+		request.setHeader(CONTENT_TYPE_HEADER);
+		request.setHeader(ACCEPT_ENCODING_HEADER);
 
 		if(null != entityContent) {
 			if(request instanceof HttpEntityEnclosingRequestBase) {
 				try {
-					StringEntity entity = new StringEntity(serializeObject(entityContent));
-					((HttpEntityEnclosingRequestBase)request).setEntity(entity);
-				} catch (UnsupportedEncodingException | JsonProcessingException ex) {
+					((HttpEntityEnclosingRequestBase)request).setEntity(serializeObject(entityContent));
+				} catch (JsonProcessingException ex) {
 					throw new ScalewayApiException(ex);
 				}
 			} else {
@@ -1030,31 +1549,128 @@ public class ScalewayApiClient {
 				return(null);
 			}
 		} else {
-			try {
-				throw new ScalewayApiException(IOUtils.toString(response.getEntity().getContent()));
-			} catch (UnsupportedOperationException | IOException ex) {
-				throw new ScalewayApiException(ex);
-			}
+			throw createApiException(response);
 		}
 	}
 
 	private HttpResponse executeRequest(HttpRequestBase request) throws ScalewayApiException {
+		if(null != rateLimiter) {
+			try {
+				rateLimiter.acquire();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new ScalewayApiException("Interrupted whilst waiting for a permit", ex);
+			}
+		}
+
+		HttpResponse response;
 		try {
-			return httpclient.execute(request);
+			response = httpclient.execute(request);
 		} catch (IOException ex) {
-			throw new ScalewayApiException(ex);
+			throw new TransportException(ex);
+		}
+
+		if(response.getStatusLine().getStatusCode() == 401) {
+			tokenProvider.onUnauthorized(request.getFirstHeader(Constants.HEADER_KEY_AUTH_TOKEN));
 		}
+		return(response);
 	}
 
 	private <T> T parseResponse(HttpResponse response, Class<T> entityClass) throws ScalewayApiException {
 		try {
 			return parseJson(response.getEntity(), entityClass);
-		} catch (IOException ex) {
+		} catch (JsonProcessingException ex) {
 			throw new ScalewayApiException(ex);
+		} catch (IOException ex) {
+			throw new TransportException(ex);
 		}
 	}
 
-	private ObjectMapper initializeObjectMapperJson() {
+	/**
+	 * Create the exception for an error response, reading the body and parsing
+	 * the Scaleway error type and message from it, and choosing the exception
+	 * class from the status code.
+	 * 
+	 * @param response The error response
+	 * 
+	 * @return The exception to throw
+	 */
+	private ScalewayApiException createApiException(HttpResponse response) {
+		int statusCode = response.getStatusLine().getStatusCode();
+
+		String content;
+		try {
+			content = readContent(response.getEntity());
+		} catch (IOException ex) {
+			return(new TransportException(ex));
+		}
+
+		String errorType = null;
+		String errorMessage = null;
+		if(!content.isEmpty()) {
+			try {
+				ErrorResponse errorResponse = OBJECT_MAPPER.readValue(content, ErrorResponse.class);
+				errorType = errorResponse.getType();
+				errorMessage = errorResponse.getMessage();
+			} catch (IOException ex) {
+				LOGGER.debug("Error response with status code {} was not a JSON error object: {}", statusCode, content);
+			}
+		}
+
+		long retryAfterMillis = parseRetryAfter(response.getFirstHeader(HttpHeaders.RETRY_AFTER));
+
+		switch(statusCode) {
+		case 401:
+		case 403:
+			return(new UnauthorizedException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+		case 404:
+			return(new NotFoundException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+		case 409:
+			return(new ConflictException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+		case 429:
+			return(new RateLimitedException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+		default:
+			if(statusCode >= 500) {
+				return(new ServerErrorException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+			}
+			return(new ScalewayApiException(content, statusCode, errorType, errorMessage, retryAfterMillis, captureStackTraces));
+		}
+	}
+
+	/**
+	 * Parse the Retry-After header, which is either a number of seconds, or an
+	 * HTTP date
+	 * 
+	 * @param retryAfterHeader the header (may be null)
+	 * 
+	 * @return the number of milliseconds to wait, or NO_RETRY_AFTER
+	 */
+	private static long parseRetryAfter(Header retryAfterHeader) {
+		if(null == retryAfterHeader || null == retryAfterHeader.getValue()) {
+			return(ScalewayApiException.NO_RETRY_AFTER);
+		}
+
+		String value = retryAfterHeader.getValue().trim();
+		try {
+			return(Math.max(0L, Long.parseLong(value) * 1000L));
+		} catch (NumberFormatException ex) {
+			Date retryAfterDate = DateUtils.parseDate(value);
+			if(null == retryAfterDate) {
+				return(ScalewayApiException.NO_RETRY_AFTER);
+			}
+			return(Math.max(0L, retryAfterDate.getTime() - System.currentTimeMillis()));
+		}
+	}
+
+	private static JsonEntity initializeTokenPatchEntity() {
+		try {
+			return(JsonEntity.fromObject(new TokenPatchRequest()));
+		} catch (JsonProcessingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static ObjectMapper initializeObjectMapperJson() {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT);
 		mapper.enable(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
@@ -1063,14 +1679,123 @@ public class ScalewayApiClient {
 		return mapper;
 	}
 
+	/**
+	 * Parse the JSON response entity, decompressing and streaming it straight 
+	 * into the parser - UTF-8 content is handed to the parser as bytes, any 
+	 * other charset (from the Content-Type header) is decoded first.
+	 * 
+	 * @param responseEntity The entity to parse
+	 * @param type the class of the object to parse the entity to
+	 * 
+	 * @return the parsed object
+	 * 
+	 * @throws IOException If there was an error reading or parsing the entity
+	 */
 	private <T> T parseJson(HttpEntity responseEntity, Class<T> type) throws IOException {
-		String encoding = responseEntity.getContentEncoding() != null ? responseEntity.getContentEncoding().getValue() : "UTF-8";
-		String jsonString = IOUtils.toString(responseEntity.getContent(), encoding);
-		try {
-			return initializeObjectMapperJson().readValue(jsonString, type);
-		} catch (Exception ex) {
-			LOGGER.error("%s", jsonString);
+		try (ResponseContent responseContent = new ResponseContent(responseEntity, scalewayApiMetrics)) {
+			if(responseContent.isUtf8()) {
+				return OBJECT_MAPPER.readValue(responseContent.getInputStream(), type);
+			} else {
+				return OBJECT_MAPPER.readValue(responseContent.getReader(), type);
+			}
+		} catch (IOException ex) {
+			LOGGER.error("Could not parse the response to '{}', message was: {}", type.getSimpleName(), ex.getMessage());
 			throw ex;
 		}
 	}
+
+	/**
+	 * Read the (decompressed) content of a response entity as a String, for 
+	 * error responses.
+	 * 
+	 * @param responseEntity the entity to read
+	 * 
+	 * @return the content of the entity
+	 * 
+	 * @throws IOException If there was an error reading the entity
+	 */
+	private String readContent(HttpEntity responseEntity) throws IOException {
+		if(null == responseEntity) {
+			return("");
+		}
+
+		try (ResponseContent responseContent = new ResponseContent(responseEntity, scalewayApiMetrics)) {
+			return(IOUtils.toString(responseContent.getReader()));
+		}
+	}
+
+	private void checkNegativeCache(ResourceType resourceType, String id) throws NotFoundException {
+		NegativeCache currentNegativeCache = negativeCache;
+		if(null != currentNegativeCache) {
+			NotFoundException notFoundException = currentNegativeCache.get(resourceType, id);
+			if(null != notFoundException) {
+				throw notFoundException;
+			}
+		}
+	}
+
+	private NotFoundException rememberNotFound(ResourceType resourceType, String id, NotFoundException notFoundException) {
+		NegativeCache currentNegativeCache = negativeCache;
+		if(null != currentNegativeCache) {
+			currentNegativeCache.put(resourceType, id, notFoundException);
+		}
+		return(notFoundException);
+	}
+
+	private void notifyResourceUpdated(ResourceType resourceType, String id, Object resource) {
+		NegativeCache currentNegativeCache = negativeCache;
+		if(null != currentNegativeCache && null != id) {
+			currentNegativeCache.remove(resourceType, id);
+		}
+
+		if(resourceListeners.isEmpty() || null == id) {
+			return;
+		}
+		for (ResourceListener resourceListener : resourceListeners) {
+			try {
+				resourceListener.onResourceUpdated(resourceType, id, resource);
+			} catch (RuntimeException ex) {
+				LOGGER.warn("Resource listener threw an exception for {} '{}'", resourceType, id, ex);
+			}
+		}
+	}
+
+	private void notifyResourceInvalidated(ResourceType resourceType, String id) {
+		if(resourceListeners.isEmpty() || null == id) {
+			return;
+		}
+		for (ResourceListener resourceListener : resourceListeners) {
+			try {
+				resourceListener.onResourceInvalidated(resourceType, id);
+			} catch (RuntimeException ex) {
+				LOGGER.warn("Resource listener threw an exception for {} '{}'", resourceType, id, ex);
+			}
+		}
+	}
+
+	private void notifyResourceDeleted(ResourceType resourceType, String id) {
+		if(resourceListeners.isEmpty() || null == id) {
+			return;
+		}
+		for (ResourceListener resourceListener : resourceListeners) {
+			try {
+				resourceListener.onResourceDeleted(resourceType, id);
+			} catch (RuntimeException ex) {
+				LOGGER.warn("Resource listener threw an exception for {} '{}'", resourceType, id, ex);
+			}
+		}
+	}
+
+	/**
+	 * A parsed page, and the ETag that it was returned with
+	 */
+	private static final class ConditionalResponse {
+		private final String eTag;
+		private final BasePaginationResponse response;
+
+		private ConditionalResponse(String eTag, BasePaginationResponse response) {
+			this.eTag = eTag;
+			this.response = response;
+		}
+	}
 }
@@ -0,0 +1,122 @@
+package synapticloop.scaleway.api;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics for the responses received by a Scaleway API client, so that the
+ * bytes saved on the wire by response compression can be weighed against the
+ * CPU time spent decompressing them.
+ */
+public class ScalewayApiMetrics {
+	private final AtomicLong numResponses = new AtomicLong();
+	private final AtomicLong numCompressedResponses = new AtomicLong();
+	private final AtomicLong wireBytes = new AtomicLong();
+	private final AtomicLong decodedBytes = new AtomicLong();
+	private final AtomicLong decompressionNanos = new AtomicLong();
+	private final AtomicLong numNotModifiedResponses = new AtomicLong();
+
+	/**
+	 * Record the content of a response that has been read
+	 * 
+	 * @param isCompressed whether the content was sent with a content encoding
+	 * @param numWireBytes the number of bytes read from the connection
+	 * @param numDecodedBytes the number of bytes after decoding the content
+	 * @param numDecompressionNanos the number of nanoseconds spent decompressing
+	 */
+	void recordResponse(boolean isCompressed, long numWireBytes, long numDecodedBytes, long numDecompressionNanos) {
+		numResponses.incrementAndGet();
+		if(isCompressed) {
+			numCompressedResponses.incrementAndGet();
+			decompressionNanos.addAndGet(numDecompressionNanos);
+		}
+		wireBytes.addAndGet(numWireBytes);
+		decodedBytes.addAndGet(numDecodedBytes);
+	}
+
+	/**
+	 * Record a response to a conditional request which was not modified (and so
+	 * had no body to read)
+	 */
+	void recordNotModified() {
+		numNotModifiedResponses.incrementAndGet();
+	}
+
+	/**
+	 * Return the number of response bodies that have been read
+	 * 
+	 * @return the number of response bodies that have been read
+	 */
+	public long getNumResponses() { return this.numResponses.get(); }
+
+	/**
+	 * Return the number of conditional requests that were not modified
+	 * 
+	 * @return the number of conditional requests that were not modified
+	 */
+	public long getNumNotModifiedResponses() { return this.numNotModifiedResponses.get(); }
+
+	/**
+	 * Return the number of response bodies that were received compressed
+	 * 
+	 * @return the number of response bodies that were received compressed
+	 */
+	public long getNumCompressedResponses() { return this.numCompressedResponses.get(); }
+
+	/**
+	 * Return the number of bytes of response content read from the wire
+	 * 
+	 * @return the number of bytes of response content read from the wire
+	 */
+	public long getWireBytes() { return this.wireBytes.get(); }
+
+	/**
+	 * Return the number of bytes of response content after decompression
+	 * 
+	 * @return the number of bytes of response content after decompression
+	 */
+	public long getDecodedBytes() { return this.decodedBytes.get(); }
+
+	/**
+	 * Return the total number of nanoseconds spent decompressing response
+	 * content, excluding the time spent waiting on the connection
+	 * 
+	 * @return the total number of nanoseconds spent decompressing
+	 */
+	public long getDecompressionNanos() { return this.decompressionNanos.get(); }
+
+	/**
+	 * Return the ratio of wire bytes to decoded bytes (i.e. 0.2 means that only
+	 * a fifth of the content was sent over the wire), or 1.0 if nothing has
+	 * been received yet
+	 * 
+	 * @return the ratio of wire bytes to decoded bytes
+	 */
+	public double getCompressionRatio() {
+		long decoded = decodedBytes.get();
+		if(decoded == 0) {
+			return(1.0d);
+		}
+		return((double)wireBytes.get() / (double)decoded);
+	}
+
+	@Override
+	public String toString() {
+		return "ScalewayApiMetrics [numResponses=" + this.numResponses + ", numCompressedResponses=" + this.numCompressedResponses + ", wireBytes=" + this.wireBytes + ", decodedBytes=" + this.decodedBytes + ", decompressionNanos=" + this.decompressionNanos + ", numNotModifiedResponses=" + this.numNotModifiedResponses + "]";
+	}
+}
@@ -0,0 +1,283 @@
+package synapticloop.scaleway.api.auth;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.Constants;
+import synapticloop.scaleway.api.Region;
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.exception.UnauthorizedException;
+import synapticloop.scaleway.api.model.Token;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * A token provider for an expiring token, which renews the token (with 
+ * <code>updateToken</code>) ahead of its expiry date.  If the token has 
+ * already lapsed, and the credentials are known, a new token is created and 
+ * the header is swapped atomically.
+ * 
+ * Renewal only ever happens on a single background thread, one renewal at a
+ * time, so request threads never block on it, and any number of requests that
+ * are rejected as unauthorized at the same time cause a single renewal, rather
+ * than a renewal each.
+ */
+public class RenewingTokenProvider implements TokenProvider, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RenewingTokenProvider.class);
+
+	public static final long DEFAULT_RENEW_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private static final long MIN_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+	private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private final String emailAddress;
+	private final String password;
+	private final long renewAheadMillis;
+	private final ScalewayApiClient renewalClient;
+
+	private final AtomicReference<TokenState> current = new AtomicReference<TokenState>();
+	private final AtomicBoolean isRenewing = new AtomicBoolean(false);
+	private final AtomicReference<ScheduledFuture<?>> nextRenewal = new AtomicReference<ScheduledFuture<?>>();
+	private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("scaleway-token"));
+
+	// only ever accessed on the renewal thread
+	private long retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+
+	/**
+	 * Create a token provider for an existing token, which will be renewed ahead
+	 * of its expiry.  If the token lapses (e.g. the renewals fail for longer 
+	 * than the renew ahead time), it cannot be replaced.
+	 * 
+	 * @param token the token (from createToken)
+	 * @param region the region to renew the token in
+	 * @param renewAheadMillis how long before the token expires to renew it
+	 */
+	public RenewingTokenProvider(Token token, Region region, long renewAheadMillis) {
+		this(null, null, region, renewAheadMillis, token);
+	}
+
+	/**
+	 * Create a token provider which creates an expiring token from the 
+	 * credentials, renews it ahead of its expiry, and creates a new token if it
+	 * ever lapses.
+	 * 
+	 * @param emailAddress the email address of the account
+	 * @param password the password of the account
+	 * @param region the region to create and renew the token in
+	 * @param renewAheadMillis how long before the token expires to renew it
+	 * 
+	 * @throws ScalewayApiException if the initial token could not be created
+	 */
+	public RenewingTokenProvider(String emailAddress, String password, Region region, long renewAheadMillis) throws ScalewayApiException {
+		this(emailAddress, password, region, renewAheadMillis, null);
+		Token token = renewalClient.createToken(emailAddress, password, true);
+		swap(token);
+		schedule(renewalDelayMillis(token));
+	}
+
+	private RenewingTokenProvider(String emailAddress, String password, Region region, long renewAheadMillis, Token token) {
+		this.emailAddress = emailAddress;
+		this.password = password;
+		this.renewAheadMillis = renewAheadMillis;
+		// the renewal client authenticates with the current token from this provider
+		this.renewalClient = new ScalewayApiClient(this, region);
+		if(null != token) {
+			swap(token);
+			schedule(renewalDelayMillis(token));
+		}
+	}
+
+	@Override
+	public Header getAuthTokenHeader() {
+		TokenState tokenState = current.get();
+		if(null == tokenState) {
+			return(null);
+		}
+		return(tokenState.authTokenHeader);
+	}
+
+	@Override
+	public void onUnauthorized(Header rejectedAuthTokenHeader) {
+		TokenState tokenState = current.get();
+		// only renew if the rejected header is still the current one, otherwise it
+		// has already been renewed
+		if(null != tokenState && tokenState.authTokenHeader == rejectedAuthTokenHeader) {
+			renewNow();
+		}
+	}
+
+	/**
+	 * Get the current token
+	 * 
+	 * @return the current token
+	 */
+	public Token getToken() {
+		TokenState tokenState = current.get();
+		if(null == tokenState) {
+			return(null);
+		}
+		return(tokenState.token);
+	}
+
+	/**
+	 * Whether the current token has passed its expiry date - this is checked 
+	 * locally against the last known expiry date, without calling the API
+	 * 
+	 * @return whether the current token has expired
+	 */
+	public boolean isExpired() {
+		Token token = getToken();
+		return(null == token || isExpired(token, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Stop renewing the token
+	 */
+	@Override
+	public void close() {
+		scheduledExecutorService.shutdownNow();
+	}
+
+	/**
+	 * Start a renewal on the background thread, unless one is already in flight
+	 */
+	private void renewNow() {
+		if(isRenewing.compareAndSet(false, true)) {
+			try {
+				scheduledExecutorService.execute(new Runnable() {
+					@Override
+					public void run() {
+						renew();
+					}
+				});
+			} catch (RuntimeException ex) {
+				// the provider has been closed
+				isRenewing.set(false);
+			}
+		}
+	}
+
+	private void renew() {
+		long nextDelayMillis;
+		try {
+			Token token = getToken();
+			Token renewed = null;
+			if(null != token && !isExpired(token, System.currentTimeMillis())) {
+				try {
+					renewed = renewalClient.updateToken(token.getId());
+				} catch (UnauthorizedException | NotFoundException ex) {
+					if(null == emailAddress) {
+						throw ex;
+					}
+					LOGGER.info("Token '{}' could not be renewed, creating a new token.", token.getId());
+				}
+			}
+
+			if(null == renewed) {
+				if(null == emailAddress) {
+					throw new ScalewayApiException("The token has expired, and there are no credentials to create a new one.");
+				}
+				renewed = renewalClient.createToken(emailAddress, password, true);
+			}
+
+			swap(renewed);
+			retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+			nextDelayMillis = renewalDelayMillis(renewed);
+		} catch (ScalewayApiException | RuntimeException ex) {
+			LOGGER.warn("Could not renew the token, retrying in {}ms, message was: {}", retryDelayMillis, ex.getMessage());
+			nextDelayMillis = retryDelayMillis;
+			retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+		} finally {
+			isRenewing.set(false);
+		}
+
+		schedule(nextDelayMillis);
+	}
+
+	private void swap(Token token) {
+		current.set(new TokenState(token));
+		LOGGER.debug("Using token '{}', which expires at {}", token.getId(), token.getExpiresDate());
+	}
+
+	/**
+	 * Schedule the next renewal, replacing any renewal that is still pending, 
+	 * (e.g. when an unauthorized response renewed the token early), so that 
+	 * there is only ever one renewal scheduled
+	 */
+	private void schedule(long delayMillis) {
+		ScheduledFuture<?> scheduledRenewal = null;
+		if(delayMillis >= 0) {
+			try {
+				scheduledRenewal = scheduledExecutorService.schedule(new Runnable() {
+					@Override
+					public void run() {
+						renewNow();
+					}
+				}, delayMillis, TimeUnit.MILLISECONDS);
+			} catch (RuntimeException ex) {
+				// the provider has been closed
+			}
+		}
+
+		ScheduledFuture<?> previousRenewal = nextRenewal.getAndSet(scheduledRenewal);
+		if(null != previousRenewal) {
+			previousRenewal.cancel(false);
+		}
+	}
+
+	/**
+	 * @return the delay until the token should be renewed, or -1 if it never 
+	 *     expires
+	 */
+	private long renewalDelayMillis(Token token) {
+		Date expiresDate = token.getExpiresDate();
+		if(null == expiresDate) {
+			return(-1L);
+		}
+		return(Math.max(0L, expiresDate.getTime() - renewAheadMillis - System.currentTimeMillis()));
+	}
+
+	private static boolean isExpired(Token token, long nowMillis) {
+		Date expiresDate = token.getExpiresDate();
+		return(null != expiresDate && expiresDate.getTime() <= nowMillis);
+	}
+
+	private static final class TokenState {
+		private final Token token;
+		private final Header authTokenHeader;
+
+		private TokenState(Token token) {
+			this.token = token;
+			this.authTokenHeader = new BasicHeader(Constants.HEADER_KEY_AUTH_TOKEN, token.getId());
+		}
+	}
+}
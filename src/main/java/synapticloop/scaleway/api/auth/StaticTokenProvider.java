@@ -0,0 +1,50 @@
+package synapticloop.scaleway.api.auth;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+import synapticloop.scaleway.api.Constants;
+
+/**
+ * A token provider for a single access token which never changes, (e.g. a 
+ * token that was created without an expiry).
+ */
+public class StaticTokenProvider implements TokenProvider {
+	private final Header authTokenHeader;
+
+	/**
+	 * Create a new token provider for the access token
+	 * 
+	 * @param accessToken the access token
+	 */
+	public StaticTokenProvider(String accessToken) {
+		this.authTokenHeader = new BasicHeader(Constants.HEADER_KEY_AUTH_TOKEN, accessToken);
+	}
+
+	@Override
+	public Header getAuthTokenHeader() {
+		return(authTokenHeader);
+	}
+
+	@Override
+	public void onUnauthorized(Header rejectedAuthTokenHeader) {
+		// nothing that can be done
+	}
+}
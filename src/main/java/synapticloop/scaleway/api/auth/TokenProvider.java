@@ -0,0 +1,44 @@
+package synapticloop.scaleway.api.auth;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import org.apache.http.Header;
+
+/**
+ * Provides the authentication token header for each request that the Scaleway
+ * API client makes.  Implementations must never block, as this is called on 
+ * every request thread.
+ */
+public interface TokenProvider {
+
+	/**
+	 * Get the current authentication token header to send with the request
+	 * 
+	 * @return the current authentication token header
+	 */
+	Header getAuthTokenHeader();
+
+	/**
+	 * Called by the client when a request was rejected as unauthorized, so that
+	 * the provider may renew the token.  This must not block either.
+	 * 
+	 * @param rejectedAuthTokenHeader the header that the rejected request was 
+	 *     sent with
+	 */
+	void onUnauthorized(Header rejectedAuthTokenHeader);
+}
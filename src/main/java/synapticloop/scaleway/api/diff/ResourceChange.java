@@ -0,0 +1,79 @@
+package synapticloop.scaleway.api.diff;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Collections;
+import java.util.Set;
+
+import synapticloop.scaleway.api.ResourceType;
+
+/**
+ * A single change to a resource between two listings.
+ *
+ * @param <T> The type of the resource that changed
+ */
+public class ResourceChange<T> {
+	private final ChangeType changeType;
+	private final ResourceType resourceType;
+	private final String id;
+	private final T previous;
+	private final T current;
+	private final Set<String> changedFields;
+
+	public ResourceChange(ChangeType changeType, ResourceType resourceType, String id, T previous, T current, Set<String> changedFields) {
+		this.changeType = changeType;
+		this.resourceType = resourceType;
+		this.id = id;
+		this.previous = previous;
+		this.current = current;
+		this.changedFields = Collections.unmodifiableSet(changedFields);
+	}
+
+	public ChangeType getChangeType() { return this.changeType; }
+
+	public ResourceType getResourceType() { return this.resourceType; }
+
+	public String getId() { return this.id; }
+
+	/**
+	 * Get the resource as it was in the previous listing
+	 * 
+	 * @return the previous resource, or null if the resource was added
+	 */
+	public T getPrevious() { return this.previous; }
+
+	/**
+	 * Get the resource as it is in the current listing
+	 * 
+	 * @return the current resource, or null if the resource was removed
+	 */
+	public T getCurrent() { return this.current; }
+
+	/**
+	 * Get the names (as per the JSON field names) of the fields that changed
+	 * 
+	 * @return the names of the changed fields, which is empty unless the 
+	 *     resource was modified
+	 */
+	public Set<String> getChangedFields() { return this.changedFields; }
+
+	@Override
+	public String toString() {
+		return "ResourceChange [changeType=" + this.changeType + ", resourceType=" + this.resourceType + ", id=" + this.id + ", changedFields=" + this.changedFields + "]";
+	}
+}
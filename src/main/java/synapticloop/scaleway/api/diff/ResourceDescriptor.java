@@ -0,0 +1,153 @@
+package synapticloop.scaleway.api.diff;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import synapticloop.scaleway.api.ResourceType;
+
+/**
+ * Describes how to compare one type of resource: its ID, its modification 
+ * date (if it has one) and the fields which are compared when the 
+ * modification date cannot be relied upon.
+ *
+ * @param <T> The type of the resource that is described
+ */
+public abstract class ResourceDescriptor<T> {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final ResourceType resourceType;
+	private final List<Field<T>> fields;
+
+	/**
+	 * Create a resource descriptor
+	 * 
+	 * @param resourceType the type of the resource
+	 * @param fields the fields to fingerprint and compare
+	 */
+	protected ResourceDescriptor(ResourceType resourceType, List<Field<T>> fields) {
+		this.resourceType = resourceType;
+		this.fields = Collections.unmodifiableList(fields);
+	}
+
+	public ResourceType getResourceType() { return this.resourceType; }
+
+	/**
+	 * Get the ID of the resource
+	 * 
+	 * @param resource the resource
+	 * 
+	 * @return the ID of the resource
+	 */
+	public abstract String getId(T resource);
+
+	/**
+	 * Get the modification date of the resource
+	 * 
+	 * @param resource the resource
+	 * 
+	 * @return the modification date, or null if the resource type does not have
+	 *     one (in which case the resources are always fingerprinted)
+	 */
+	public abstract Date getModificationDate(T resource);
+
+	/**
+	 * Compute a 64 bit fingerprint over all of the compared fields of the 
+	 * resource, so that an unchanged resource can be found without comparing 
+	 * the fields one at a time.
+	 * 
+	 * @param resource the resource
+	 * 
+	 * @return the fingerprint of the resource
+	 */
+	public long fingerprint(T resource) {
+		long fingerprint = FNV_OFFSET_BASIS;
+		for (Field<T> field : fields) {
+			fingerprint = (fingerprint ^ hash(field.get(resource))) * FNV_PRIME;
+		}
+		return(fingerprint);
+	}
+
+	/**
+	 * Compare the resources field by field
+	 * 
+	 * @param previous the previous version of the resource
+	 * @param current the current version of the resource
+	 * 
+	 * @return the names of the fields that differ (empty if none do)
+	 */
+	public Set<String> changedFields(T previous, T current) {
+		Set<String> changedFields = new LinkedHashSet<String>();
+		for (Field<T> field : fields) {
+			if(!isEqual(field.get(previous), field.get(current))) {
+				changedFields.add(field.getName());
+			}
+		}
+		return(changedFields);
+	}
+
+	private static int hash(Object value) {
+		if(null == value) {
+			return(0);
+		}
+		if(value instanceof Object[]) {
+			return(Arrays.deepHashCode((Object[])value));
+		}
+		return(value.hashCode());
+	}
+
+	private static boolean isEqual(Object value, Object other) {
+		if(value instanceof Object[] && other instanceof Object[]) {
+			return(Arrays.deepEquals((Object[])value, (Object[])other));
+		}
+		return(null == value ? null == other : value.equals(other));
+	}
+
+	/**
+	 * A single field of a resource which is compared.  The extracted value must
+	 * have a value based equals and hashCode (e.g. a String, an enum, a boxed 
+	 * primitive, a list of strings, or an array of these) - the model classes 
+	 * do not, so nested resources are compared by their ID.
+	 *
+	 * @param <T> The type of the resource
+	 */
+	public abstract static class Field<T> {
+		private final String name;
+
+		public Field(String name) {
+			this.name = name;
+		}
+
+		public String getName() { return this.name; }
+
+		/**
+		 * Extract the value of the field from the resource
+		 * 
+		 * @param resource the resource
+		 * 
+		 * @return the value of the field
+		 */
+		public abstract Object get(T resource);
+	}
+}
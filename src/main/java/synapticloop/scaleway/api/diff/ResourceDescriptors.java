@@ -0,0 +1,221 @@
+package synapticloop.scaleway.api.diff;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+
+/**
+ * The resource descriptors for the servers, volumes, IPs, security groups and
+ * rules.  The field names are the JSON field names from the API.
+ */
+public class ResourceDescriptors {
+	private ResourceDescriptors() {}
+
+	public static final ResourceDescriptor<Server> SERVER = new ResourceDescriptor<Server>(ResourceType.SERVER, Arrays.asList(
+			new ResourceDescriptor.Field<Server>("name") {
+				@Override public Object get(Server server) { return(server.getName()); }
+			},
+			new ResourceDescriptor.Field<Server>("organization") {
+				@Override public Object get(Server server) { return(server.getOrganization()); }
+			},
+			new ResourceDescriptor.Field<Server>("state") {
+				@Override public Object get(Server server) { return(server.getState()); }
+			},
+			new ResourceDescriptor.Field<Server>("state_detail") {
+				@Override public Object get(Server server) { return(server.getStateDetail()); }
+			},
+			new ResourceDescriptor.Field<Server>("commercial_type") {
+				@Override public Object get(Server server) { return(server.getServerType()); }
+			},
+			new ResourceDescriptor.Field<Server>("tags") {
+				@Override public Object get(Server server) { return(server.getTags()); }
+			},
+			new ResourceDescriptor.Field<Server>("image") {
+				@Override public Object get(Server server) { 
+					Image image = server.getImage();
+					return(null == image ? null : image.getId()); 
+				}
+			},
+			new ResourceDescriptor.Field<Server>("public_ip") {
+				@Override public Object get(Server server) { 
+					IP ip = server.getPublicIP();
+					return(null == ip ? null : ip.getIpAddress()); 
+				}
+			},
+			new ResourceDescriptor.Field<Server>("private_ip") {
+				@Override public Object get(Server server) { return(server.getPrivateIp()); }
+			},
+			new ResourceDescriptor.Field<Server>("hostname") {
+				@Override public Object get(Server server) { return(server.getHostname()); }
+			},
+			new ResourceDescriptor.Field<Server>("arch") {
+				@Override public Object get(Server server) { return(server.getArch()); }
+			},
+			new ResourceDescriptor.Field<Server>("volumes") {
+				@Override public Object get(Server server) { 
+					Map<String, Volume> volumes = server.getVolumes();
+					if(null == volumes) {
+						return(null);
+					}
+					Map<String, String> volumeIds = new TreeMap<String, String>();
+					for (Map.Entry<String, Volume> entry : volumes.entrySet()) {
+						volumeIds.put(entry.getKey(), null == entry.getValue() ? null : entry.getValue().getId());
+					}
+					return(volumeIds); 
+				}
+			},
+			new ResourceDescriptor.Field<Server>("security_group") {
+				@Override public Object get(Server server) { 
+					SecurityGroup securityGroup = server.getSecurityGroup();
+					return(null == securityGroup ? null : securityGroup.getId()); 
+				}
+			},
+			new ResourceDescriptor.Field<Server>("enable_ipv6") {
+				@Override public Object get(Server server) { return(server.isIpv6Enabled()); }
+			},
+			new ResourceDescriptor.Field<Server>("dynamic_ip_required") {
+				@Override public Object get(Server server) { return(server.isDynamicIpRequired()); }
+			})) {
+		@Override public String getId(Server server) { return(server.getId()); }
+		@Override public Date getModificationDate(Server server) { return(server.getModificationDate()); }
+	};
+
+	public static final ResourceDescriptor<Volume> VOLUME = new ResourceDescriptor<Volume>(ResourceType.VOLUME, Arrays.asList(
+			new ResourceDescriptor.Field<Volume>("name") {
+				@Override public Object get(Volume volume) { return(volume.getName()); }
+			},
+			new ResourceDescriptor.Field<Volume>("volume_type") {
+				@Override public Object get(Volume volume) { return(volume.getVolumeType()); }
+			},
+			new ResourceDescriptor.Field<Volume>("size") {
+				@Override public Object get(Volume volume) { return(volume.getSize()); }
+			},
+			new ResourceDescriptor.Field<Volume>("organization") {
+				@Override public Object get(Volume volume) { return(volume.getOrganizationId()); }
+			},
+			new ResourceDescriptor.Field<Volume>("export_uri") {
+				@Override public Object get(Volume volume) { return(volume.getExportUri()); }
+			},
+			new ResourceDescriptor.Field<Volume>("server") {
+				@Override public Object get(Volume volume) { 
+					Server server = volume.getServer();
+					return(null == server ? null : server.getId()); 
+				}
+			})) {
+		@Override public String getId(Volume volume) { return(volume.getId()); }
+		@Override public Date getModificationDate(Volume volume) { return(volume.getModificationDate()); }
+	};
+
+	public static final ResourceDescriptor<IP> IP = new ResourceDescriptor<IP>(ResourceType.IP, Arrays.asList(
+			new ResourceDescriptor.Field<IP>("address") {
+				@Override public Object get(IP ip) { return(ip.getIpAddress()); }
+			},
+			new ResourceDescriptor.Field<IP>("reverse") {
+				@Override public Object get(IP ip) { return(ip.getIpAddressReverse()); }
+			},
+			new ResourceDescriptor.Field<IP>("organization") {
+				@Override public Object get(IP ip) { return(ip.getOrganizationId()); }
+			},
+			new ResourceDescriptor.Field<IP>("server") {
+				@Override public Object get(IP ip) { 
+					Server server = ip.getServer();
+					return(null == server ? null : server.getId()); 
+				}
+			},
+			new ResourceDescriptor.Field<IP>("dynamic") {
+				@Override public Object get(IP ip) { return(ip.getIsDynamic()); }
+			})) {
+		@Override public String getId(IP ip) { return(ip.getId()); }
+		@Override public Date getModificationDate(IP ip) { return(null); }
+	};
+
+	public static final ResourceDescriptor<SecurityGroup> SECURITY_GROUP = new ResourceDescriptor<SecurityGroup>(ResourceType.SECURITY_GROUP, Arrays.asList(
+			new ResourceDescriptor.Field<SecurityGroup>("name") {
+				@Override public Object get(SecurityGroup securityGroup) { return(securityGroup.getName()); }
+			},
+			new ResourceDescriptor.Field<SecurityGroup>("description") {
+				@Override public Object get(SecurityGroup securityGroup) { return(securityGroup.getDescription()); }
+			},
+			new ResourceDescriptor.Field<SecurityGroup>("enable_default_security") {
+				@Override public Object get(SecurityGroup securityGroup) { return(securityGroup.getEnableDefaultSecurity()); }
+			},
+			new ResourceDescriptor.Field<SecurityGroup>("organization") {
+				@Override public Object get(SecurityGroup securityGroup) { return(securityGroup.getOrganizationId()); }
+			},
+			new ResourceDescriptor.Field<SecurityGroup>("organization_default") {
+				@Override public Object get(SecurityGroup securityGroup) { return(securityGroup.getOrganizationDefault()); }
+			},
+			new ResourceDescriptor.Field<SecurityGroup>("servers") {
+				@Override public Object get(SecurityGroup securityGroup) { 
+					List<Server> servers = securityGroup.getServers();
+					if(null == servers) {
+						return(null);
+					}
+					List<String> serverIds = new ArrayList<String>(servers.size());
+					for (Server server : servers) {
+						serverIds.add(server.getId());
+					}
+					return(serverIds); 
+				}
+			})) {
+		@Override public String getId(SecurityGroup securityGroup) { return(securityGroup.getId()); }
+		@Override public Date getModificationDate(SecurityGroup securityGroup) { return(null); }
+	};
+
+	public static final ResourceDescriptor<Rule> RULE = new ResourceDescriptor<Rule>(ResourceType.RULE, Arrays.asList(
+			new ResourceDescriptor.Field<Rule>("direction") {
+				@Override public Object get(Rule rule) { return(rule.getDirection()); }
+			},
+			new ResourceDescriptor.Field<Rule>("protocol") {
+				@Override public Object get(Rule rule) { return(rule.getProtocol()); }
+			},
+			new ResourceDescriptor.Field<Rule>("ip_range") {
+				@Override public Object get(Rule rule) { return(rule.getIpRange()); }
+			},
+			new ResourceDescriptor.Field<Rule>("dest_port_from") {
+				@Override public Object get(Rule rule) { return(rule.getDestPortFrom()); }
+			},
+			new ResourceDescriptor.Field<Rule>("dest_port_to") {
+				@Override public Object get(Rule rule) { return(rule.getDestPortTo()); }
+			},
+			new ResourceDescriptor.Field<Rule>("action") {
+				@Override public Object get(Rule rule) { return(rule.getAction()); }
+			},
+			new ResourceDescriptor.Field<Rule>("position") {
+				@Override public Object get(Rule rule) { return(rule.getPosition()); }
+			},
+			new ResourceDescriptor.Field<Rule>("editable") {
+				@Override public Object get(Rule rule) { return(rule.getIsEditable()); }
+			})) {
+		@Override public String getId(Rule rule) { return(rule.getId()); }
+		@Override public Date getModificationDate(Rule rule) { return(null); }
+	};
+}
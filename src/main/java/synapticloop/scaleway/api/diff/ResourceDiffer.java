@@ -0,0 +1,169 @@
+package synapticloop.scaleway.api.diff;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+
+/**
+ * Compares successive listings of one type of resource, and returns the 
+ * resources that were added, modified or removed since the previous listing.
+ * 
+ * Resources are matched by ID.  If both versions of a resource have a 
+ * modification date and the dates are the same, the resource is unchanged 
+ * without looking any further.  Otherwise the fingerprints of the compared
+ * fields are checked, and only if they differ are the fields compared one by
+ * one to find out which fields changed.  The fingerprint of a resource is 
+ * computed at most once, and only when it is needed.
+ * 
+ * The first listing that is diffed reports every resource as added.  This 
+ * class is not thread safe - each differ should be used by one poller.
+ *
+ * @param <T> The type of the resource to diff
+ */
+public class ResourceDiffer<T> {
+	private static final Set<String> NO_CHANGED_FIELDS = Collections.emptySet();
+
+	private final ResourceDescriptor<T> resourceDescriptor;
+	private Map<String, Snapshot<T>> previous = new HashMap<String, Snapshot<T>>();
+
+	/**
+	 * Create a new differ for the resource type
+	 * 
+	 * @param resourceDescriptor the descriptor of the resource type
+	 */
+	public ResourceDiffer(ResourceDescriptor<T> resourceDescriptor) {
+		this.resourceDescriptor = resourceDescriptor;
+	}
+
+	public static ResourceDiffer<Server> servers() { return(new ResourceDiffer<Server>(ResourceDescriptors.SERVER)); }
+
+	public static ResourceDiffer<Volume> volumes() { return(new ResourceDiffer<Volume>(ResourceDescriptors.VOLUME)); }
+
+	public static ResourceDiffer<IP> ips() { return(new ResourceDiffer<IP>(ResourceDescriptors.IP)); }
+
+	public static ResourceDiffer<SecurityGroup> securityGroups() { return(new ResourceDiffer<SecurityGroup>(ResourceDescriptors.SECURITY_GROUP)); }
+
+	public static ResourceDiffer<Rule> rules() { return(new ResourceDiffer<Rule>(ResourceDescriptors.RULE)); }
+
+	/**
+	 * Get the type of the resources that this differ compares
+	 * 
+	 * @return the type of the resources
+	 */
+	public ResourceType getResourceType() { return(resourceDescriptor.getResourceType()); }
+
+	/**
+	 * Get the ID of the resource
+	 * 
+	 * @param resource the resource
+	 * 
+	 * @return the ID of the resource
+	 */
+	public String getId(T resource) { return(resourceDescriptor.getId(resource)); }
+
+	/**
+	 * Diff the current listing against the previous one, and remember the 
+	 * current listing for the next diff
+	 * 
+	 * @param resources the current (complete) listing of the resources
+	 * 
+	 * @return the changes since the previous listing
+	 */
+	public List<ResourceChange<T>> diff(Collection<T> resources) {
+		List<ResourceChange<T>> changes = new ArrayList<ResourceChange<T>>();
+		Map<String, Snapshot<T>> current = new HashMap<String, Snapshot<T>>((int)(resources.size() / 0.75f) + 1);
+
+		for (T resource : resources) {
+			String id = resourceDescriptor.getId(resource);
+			Snapshot<T> snapshot = new Snapshot<T>(resource, resourceDescriptor.getModificationDate(resource));
+			current.put(id, snapshot);
+
+			Snapshot<T> previousSnapshot = previous.remove(id);
+			if(null == previousSnapshot) {
+				changes.add(new ResourceChange<T>(ChangeType.ADDED, resourceDescriptor.getResourceType(), id, null, resource, NO_CHANGED_FIELDS));
+				continue;
+			}
+
+			if(null != snapshot.modificationDate && snapshot.modificationDate.equals(previousSnapshot.modificationDate)) {
+				// unchanged - carry the fingerprint forward if it was computed
+				snapshot.fingerprint = previousSnapshot.fingerprint;
+				snapshot.isFingerprinted = previousSnapshot.isFingerprinted;
+				continue;
+			}
+
+			if(fingerprint(snapshot) == fingerprint(previousSnapshot)) {
+				continue;
+			}
+
+			Set<String> changedFields = resourceDescriptor.changedFields(previousSnapshot.resource, resource);
+			if(!changedFields.isEmpty()) {
+				changes.add(new ResourceChange<T>(ChangeType.MODIFIED, resourceDescriptor.getResourceType(), id, previousSnapshot.resource, resource, changedFields));
+			}
+		}
+
+		// anything left over from the previous listing is no longer there
+		for (Map.Entry<String, Snapshot<T>> entry : previous.entrySet()) {
+			changes.add(new ResourceChange<T>(ChangeType.REMOVED, resourceDescriptor.getResourceType(), entry.getKey(), entry.getValue().resource, null, NO_CHANGED_FIELDS));
+		}
+
+		previous = current;
+		return(changes);
+	}
+
+	/**
+	 * Forget the previous listing, so that the next diff reports every resource
+	 * as added
+	 */
+	public void reset() {
+		previous = new HashMap<String, Snapshot<T>>();
+	}
+
+	private long fingerprint(Snapshot<T> snapshot) {
+		if(!snapshot.isFingerprinted) {
+			snapshot.fingerprint = resourceDescriptor.fingerprint(snapshot.resource);
+			snapshot.isFingerprinted = true;
+		}
+		return(snapshot.fingerprint);
+	}
+
+	private static final class Snapshot<T> {
+		private final T resource;
+		private final Date modificationDate;
+		private long fingerprint;
+		private boolean isFingerprinted = false;
+
+		private Snapshot(T resource, Date modificationDate) {
+			this.resource = resource;
+			this.modificationDate = modificationDate;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package synapticloop.scaleway.api.exception;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * Thrown when the request conflicts with the current state of the resource
+ * (409), e.g. an action on a server that is already in progress.
+ */
+public class ConflictException extends ScalewayApiException {
+	private static final long serialVersionUID = 7611140240310545586L;
+
+	public ConflictException(String message, int statusCode, String errorType, String errorMessage, long retryAfterMillis, boolean writableStackTrace) {
+		super(message, statusCode, errorType, errorMessage, retryAfterMillis, writableStackTrace);
+	}
+}
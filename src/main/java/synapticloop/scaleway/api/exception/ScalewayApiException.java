@@ -16,27 +16,141 @@ package synapticloop.scaleway.api.exception;
  * this source code or binaries.
  */
 
+/**
+ * The base exception for all errors from the Scaleway API.  Where the error 
+ * came from an HTTP response, the status code, the parsed Scaleway error 
+ * <code>type</code> and <code>message</code> fields and the 
+ * <code>Retry-After</code> header value are available, and a more specific
+ * sub-class is thrown for the common cases:
+ * 
+ * <ul>
+ *   <li>{@link UnauthorizedException} - 401 and 403</li>
+ *   <li>{@link NotFoundException} - 404</li>
+ *   <li>{@link ConflictException} - 409</li>
+ *   <li>{@link RateLimitedException} - 429</li>
+ *   <li>{@link ServerErrorException} - 5xx</li>
+ *   <li>{@link TransportException} - the request could not be sent, or the 
+ *     response could not be read</li>
+ * </ul>
+ */
 public class ScalewayApiException extends Exception {
 	private static final long serialVersionUID = -7535143860328025468L;
 
+	public static final int NO_STATUS_CODE = -1;
+	public static final long NO_RETRY_AFTER = -1L;
+
+	private final int statusCode;
+	private final String errorType;
+	private final String errorMessage;
+	private final long retryAfterMillis;
+
 	public ScalewayApiException() {
 		super();
+		this.statusCode = NO_STATUS_CODE;
+		this.errorType = null;
+		this.errorMessage = null;
+		this.retryAfterMillis = NO_RETRY_AFTER;
 	}
 
 	public ScalewayApiException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
+		this.statusCode = NO_STATUS_CODE;
+		this.errorType = null;
+		this.errorMessage = null;
+		this.retryAfterMillis = NO_RETRY_AFTER;
 	}
 
 	public ScalewayApiException(String message, Throwable cause) {
-		super(message, cause);
+		this(message, cause, true, true);
 	}
 
 	public ScalewayApiException(String message) {
-		super(message);
+		this(message, null, true, true);
 	}
 
 	public ScalewayApiException(Throwable cause) {
 		super(cause);
+		this.statusCode = NO_STATUS_CODE;
+		this.errorType = null;
+		this.errorMessage = null;
+		this.retryAfterMillis = NO_RETRY_AFTER;
+	}
+
+	/**
+	 * Create an exception for an error response from the API
+	 * 
+	 * @param message The message (the raw body of the error response)
+	 * @param statusCode The HTTP status code of the response
+	 * @param errorType The Scaleway error 'type' field (may be null)
+	 * @param errorMessage The Scaleway error 'message' field (may be null)
+	 * @param retryAfterMillis The number of milliseconds from the Retry-After 
+	 *     header, or NO_RETRY_AFTER if there was none
+	 * @param writableStackTrace whether to capture the stack trace - not 
+	 *     capturing it makes the exception far cheaper to create for frequent
+	 *     and expected failures
+	 */
+	public ScalewayApiException(String message, int statusCode, String errorType, String errorMessage, long retryAfterMillis, boolean writableStackTrace) {
+		this(message, statusCode, errorType, errorMessage, retryAfterMillis, true, writableStackTrace);
 	}
-}
 
+	/**
+	 * Create an exception for an error response from the API, which may be 
+	 * immutable, (i.e. without suppressed exceptions or a stack trace), so that
+	 * one instance can safely be shared and thrown any number of times
+	 * 
+	 * @param message The message (the raw body of the error response)
+	 * @param statusCode The HTTP status code of the response
+	 * @param errorType The Scaleway error 'type' field (may be null)
+	 * @param errorMessage The Scaleway error 'message' field (may be null)
+	 * @param retryAfterMillis The number of milliseconds from the Retry-After 
+	 *     header, or NO_RETRY_AFTER if there was none
+	 * @param enableSuppression whether exceptions may be added as suppressed
+	 * @param writableStackTrace whether to capture the stack trace
+	 */
+	public ScalewayApiException(String message, int statusCode, String errorType, String errorMessage, long retryAfterMillis, boolean enableSuppression, boolean writableStackTrace) {
+		super(message, null, enableSuppression, writableStackTrace);
+		this.statusCode = statusCode;
+		this.errorType = errorType;
+		this.errorMessage = errorMessage;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * Return the HTTP status code of the error response, or NO_STATUS_CODE if 
+	 * the error did not come from a response
+	 * 
+	 * @return the HTTP status code of the error response
+	 */
+	public int getStatusCode() { return this.statusCode; }
+
+	/**
+	 * Return the Scaleway error 'type' field (e.g. 'unknown_resource'), which 
+	 * may be null
+	 * 
+	 * @return the Scaleway error type
+	 */
+	public String getErrorType() { return this.errorType; }
+
+	/**
+	 * Return the Scaleway error 'message' field, which may be null
+	 * 
+	 * @return the Scaleway error message
+	 */
+	public String getErrorMessage() { return this.errorMessage; }
+
+	/**
+	 * Return the number of milliseconds to wait before retrying as sent in the 
+	 * Retry-After header, or NO_RETRY_AFTER if there was no header
+	 * 
+	 * @return the number of milliseconds to wait before retrying
+	 */
+	public long getRetryAfterMillis() { return this.retryAfterMillis; }
+
+	/**
+	 * Whether the request that caused this exception may succeed if it is
+	 * retried - i.e. the failure was transient
+	 * 
+	 * @return whether the request may succeed if retried
+	 */
+	public boolean isRetryable() { return(false); }
+}
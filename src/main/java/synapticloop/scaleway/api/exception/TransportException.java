@@ -0,0 +1,32 @@
+package synapticloop.scaleway.api.exception;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * Thrown when the request could not be sent, or the response could not be 
+ * read - i.e. there is no (complete) response from the API.
+ */
+public class TransportException extends ScalewayApiException {
+	private static final long serialVersionUID = 7780467846887985880L;
+
+	public TransportException(Throwable cause) {
+		super(cause);
+	}
+
+	@Override
+	public boolean isRetryable() { return(true); }
+}
@@ -0,0 +1,29 @@
+package synapticloop.scaleway.api.exception;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * Thrown when the token is missing, invalid, expired (401) or lacks the
+ * permission (403) for the request.
+ */
+public class UnauthorizedException extends ScalewayApiException {
+	private static final long serialVersionUID = 382840200231331240L;
+
+	public UnauthorizedException(String message, int statusCode, String errorType, String errorMessage, long retryAfterMillis, boolean writableStackTrace) {
+		super(message, statusCode, errorType, errorMessage, retryAfterMillis, writableStackTrace);
+	}
+}
@@ -0,0 +1,123 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import synapticloop.scaleway.api.exception.RateLimitedException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Helpers for making API calls as part of a batch, held to a rate limit and 
+ * retried with back-off on retryable errors.
+ */
+class ApiCalls {
+	static final int MAX_ATTEMPTS = 5;
+	static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+	private ApiCalls() {}
+
+	/**
+	 * A single idempotent API call
+	 *
+	 * @param <T> The type of the result of the call
+	 */
+	interface ApiCall<T> {
+		T call() throws ScalewayApiException;
+	}
+
+	/**
+	 * Make the idempotent API call, retrying retryable errors up to 5 times in
+	 * total
+	 * 
+	 * @param apiCall the call to make
+	 * @param rateLimiter the rate limiter to acquire a permit from before each
+	 *     attempt
+	 * 
+	 * @return the result of the call
+	 * 
+	 * @throws ScalewayApiException the error from the last attempt, or if the 
+	 *     thread was interrupted whilst waiting
+	 */
+	static <T> T callWithRetries(ApiCall<T> apiCall, RateLimiter rateLimiter) throws ScalewayApiException {
+		return(callWithRetries(apiCall, rateLimiter, true));
+	}
+
+	/**
+	 * Make the API call, retrying up to 5 times in total.  A call which is not
+	 * idempotent, (i.e. a creation), is only retried when it was rate limited,
+	 * as the request was then rejected before anything was created - a server
+	 * error may have come after the resource was created.
+	 * 
+	 * @param apiCall the call to make
+	 * @param rateLimiter the rate limiter to acquire a permit from before each
+	 *     attempt
+	 * @param isIdempotent whether the call may be safely repeated
+	 * 
+	 * @return the result of the call
+	 * 
+	 * @throws ScalewayApiException the error from the last attempt, or if the 
+	 *     thread was interrupted whilst waiting
+	 */
+	static <T> T callWithRetries(ApiCall<T> apiCall, RateLimiter rateLimiter, boolean isIdempotent) throws ScalewayApiException {
+		long backoffMillis = INITIAL_BACKOFF_MILLIS;
+		try {
+			for (int attempt = 1; ; attempt++) {
+				rateLimiter.acquire();
+				try {
+					return(apiCall.call());
+				} catch (ScalewayApiException ex) {
+					boolean isRetryable = (isIdempotent ? ex.isRetryable() : ex instanceof RateLimitedException);
+					if(!isRetryable || attempt >= MAX_ATTEMPTS) {
+						throw ex;
+					}
+					Thread.sleep(Math.max(backoffMillis, ex.getRetryAfterMillis()));
+					backoffMillis = backoffMillis * 2;
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ScalewayApiException("Interrupted whilst waiting to call the API", ex);
+		}
+	}
+
+	/**
+	 * Turn the cause of a failed future into a ScalewayApiException
+	 * 
+	 * @param throwable the throwable that the future failed with
+	 * 
+	 * @return the API exception
+	 */
+	static ScalewayApiException toApiException(Throwable throwable) {
+		Throwable cause = throwable;
+		while((cause instanceof CompletionException || cause instanceof ExecutionException) && null != cause.getCause()) {
+			cause = cause.getCause();
+		}
+
+		if(cause instanceof ScalewayApiException) {
+			return((ScalewayApiException)cause);
+		} else if(cause instanceof TimeoutException) {
+			return(new ScalewayApiException("Timed out waiting for the server", cause));
+		}
+		return(new ScalewayApiException(cause));
+	}
+}
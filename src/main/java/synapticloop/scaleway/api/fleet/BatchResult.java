@@ -0,0 +1,109 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+/**
+ * The result of a batch of API calls, mapping each input of the batch to 
+ * its result and/or the error that it failed with, in the order of the 
+ * inputs.  One failure never aborts the rest of the batch.
+ * 
+ * An input may have both a result and an error, where a resource was created
+ * but a later step for it failed (e.g. powering on a created server), so that
+ * no created resource is lost track of.
+ *
+ * @param <K> The type of the inputs of the batch
+ * @param <V> The type of the results of the batch
+ */
+public class BatchResult<K, V> {
+	private final Map<K, V> results = new LinkedHashMap<K, V>();
+	private final Map<K, ScalewayApiException> errors = new LinkedHashMap<K, ScalewayApiException>();
+
+	void addResult(K input, V result) {
+		results.put(input, result);
+	}
+
+	void addError(K input, ScalewayApiException error) {
+		errors.put(input, error);
+	}
+
+	/**
+	 * Return the results, keyed on the input that they are for
+	 * 
+	 * @return the results
+	 */
+	public Map<K, V> getResults() { return(Collections.unmodifiableMap(results)); }
+
+	/**
+	 * Return the errors, keyed on the input that they are for
+	 * 
+	 * @return the errors
+	 */
+	public Map<K, ScalewayApiException> getErrors() { return(Collections.unmodifiableMap(errors)); }
+
+	/**
+	 * Return the result for the input
+	 * 
+	 * @param input the input of the batch
+	 * 
+	 * @return the result, or null if there was none
+	 */
+	public V getResult(K input) { return(results.get(input)); }
+
+	/**
+	 * Return the error for the input
+	 * 
+	 * @param input the input of the batch
+	 * 
+	 * @return the error, or null if there was none
+	 */
+	public ScalewayApiException getError(K input) { return(errors.get(input)); }
+
+	/**
+	 * Whether the input has a result and no error
+	 * 
+	 * @param input the input of the batch
+	 * 
+	 * @return whether the input succeeded
+	 */
+	public boolean isSucceeded(K input) { return(results.containsKey(input) && !errors.containsKey(input)); }
+
+	/**
+	 * Whether every input in the batch succeeded
+	 * 
+	 * @return whether every input in the batch succeeded
+	 */
+	public boolean isAllSucceeded() { return(errors.isEmpty()); }
+
+	/**
+	 * Return the number of inputs that failed
+	 * 
+	 * @return the number of inputs that failed
+	 */
+	public int getNumFailed() { return(errors.size()); }
+
+	@Override
+	public String toString() {
+		return("BatchResult [numResults=" + results.size() + ", numErrors=" + errors.size() + "]");
+	}
+}
@@ -0,0 +1,98 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import synapticloop.scaleway.api.model.IP;
+
+/**
+ * The result of an IP address failover, mapping each IP address ID to the 
+ * attached IP address, or to its error, together with how long each IP 
+ * address took to be moved.
+ */
+public class FailoverResult extends BatchResult<String, IP> {
+	private final Map<String, Long> latenciesMillis = new LinkedHashMap<String, Long>();
+	private int numHedged = 0;
+	private int numPreReads = 0;
+	private long elapsedMillis = 0L;
+
+	void addLatency(String ipId, long latencyMillis) {
+		latenciesMillis.put(ipId, latencyMillis);
+	}
+
+	void setNumHedged(int numHedged) {
+		this.numHedged = numHedged;
+	}
+
+	void setNumPreReads(int numPreReads) {
+		this.numPreReads = numPreReads;
+	}
+
+	void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Return the number of milliseconds that each IP address took to be moved,
+	 * (or to fail), keyed on the IP address ID
+	 * 
+	 * @return the latencies in milliseconds
+	 */
+	public Map<String, Long> getLatenciesMillis() { return(Collections.unmodifiableMap(latenciesMillis)); }
+
+	/**
+	 * Return the number of milliseconds that the IP address took to be moved
+	 * 
+	 * @param ipId the ID of the IP address
+	 * 
+	 * @return the latency in milliseconds, or null if the IP address was not 
+	 *     part of the failover
+	 */
+	public Long getLatencyMillis(String ipId) { return(latenciesMillis.get(ipId)); }
+
+	/**
+	 * Return the number of IP addresses for which a second, hedged, attach 
+	 * request was sent because the first was slow
+	 * 
+	 * @return the number of hedged requests
+	 */
+	public int getNumHedged() { return(numHedged); }
+
+	/**
+	 * Return the number of IP addresses that had to be read from the API 
+	 * before they could be moved, as they were not cached
+	 * 
+	 * @return the number of IP addresses read before being moved
+	 */
+	public int getNumPreReads() { return(numPreReads); }
+
+	/**
+	 * Return the number of milliseconds that the whole failover took
+	 * 
+	 * @return the elapsed time in milliseconds
+	 */
+	public long getElapsedMillis() { return(elapsedMillis); }
+
+	@Override
+	public String toString() {
+		return("FailoverResult [numResults=" + getResults().size() + ", numErrors=" + getNumFailed() + ", numHedged=" + numHedged + ", numPreReads=" + numPreReads + ", elapsedMillis=" + elapsedMillis + "]");
+	}
+}
@@ -0,0 +1,256 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerDefinition;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.State;
+import synapticloop.scaleway.api.request.JsonEntity;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Create fleets of servers in parallel, with at most <code>parallelism</code>
+ * creations in flight at once and the creations held to a rate limit.  Each 
+ * server definition is serialized once, up front, and the serialized body is
+ * re-used if the creation has to be retried after being rate limited.
+ * 
+ * The servers may optionally be powered on, in which case the wait for them
+ * to be running is done through the server tasks on the shared task timer, 
+ * not on the creation threads, so the powering on of the earlier servers 
+ * overlaps with the creation of the later ones.
+ * 
+ * A failure to create, or power on, one server never aborts the rest - the 
+ * result maps the position of every definition to its created server and/or
+ * its error.
+ */
+public class FleetProvisioner {
+	public static final double DEFAULT_CREATIONS_PER_SECOND = 10.0d;
+	public static final long DEFAULT_READY_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	/**
+	 * Create a server from its serialized definition
+	 */
+	interface ServerCreator {
+		Server createServer(JsonEntity serverDefinitionEntity) throws ScalewayApiException;
+	}
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final ServerCreator serverCreator;
+	private final int parallelism;
+	private final RateLimiter rateLimiter;
+	private volatile boolean powerOn = false;
+	private volatile long readyTimeoutMillis = DEFAULT_READY_TIMEOUT_MILLIS;
+
+	/**
+	 * Create a new fleet provisioner, creating at most 10 servers per second
+	 * 
+	 * @param scalewayApiClient the client to create the servers with
+	 * @param parallelism the maximum number of creations in flight at once
+	 */
+	public FleetProvisioner(ScalewayApiClient scalewayApiClient, int parallelism) {
+		this(scalewayApiClient, parallelism, new RateLimiter(DEFAULT_CREATIONS_PER_SECOND));
+	}
+
+	/**
+	 * Create a new fleet provisioner
+	 * 
+	 * @param scalewayApiClient the client to create the servers with
+	 * @param parallelism the maximum number of creations in flight at once
+	 * @param rateLimiter the rate limiter for the creations, (which may be 
+	 *     shared with other work against the same account)
+	 */
+	public FleetProvisioner(final ScalewayApiClient scalewayApiClient, int parallelism, RateLimiter rateLimiter) {
+		this(scalewayApiClient, new ServerCreator() {
+			@Override
+			public Server createServer(JsonEntity serverDefinitionEntity) throws ScalewayApiException {
+				return(scalewayApiClient.createServer(serverDefinitionEntity));
+			}
+		}, parallelism, rateLimiter);
+	}
+
+	FleetProvisioner(ScalewayApiClient scalewayApiClient, ServerCreator serverCreator, int parallelism, RateLimiter rateLimiter) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, was " + parallelism);
+		}
+
+		this.scalewayApiClient = scalewayApiClient;
+		this.serverCreator = serverCreator;
+		this.parallelism = parallelism;
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Set whether the servers are powered on once they are created, in which 
+	 * case the servers in the result are the running servers
+	 * 
+	 * @param powerOn whether to power on the servers
+	 */
+	public void setPowerOn(boolean powerOn) {
+		this.powerOn = powerOn;
+	}
+
+	/**
+	 * Set how long to wait for each server to be running, once it has been
+	 * powered on, (10 minutes by default)
+	 * 
+	 * @param readyTimeoutMillis the number of milliseconds to wait
+	 */
+	public void setReadyTimeoutMillis(long readyTimeoutMillis) {
+		this.readyTimeoutMillis = readyTimeoutMillis;
+	}
+
+	/**
+	 * Create the servers, returning once every server has been created, (and 
+	 * is running if powering on), or has failed.  If the calling thread is 
+	 * interrupted, the wait carries on and the interrupt status is restored on 
+	 * return, so that no created server is lost track of.
+	 * 
+	 * @param serverDefinitions the definitions of the servers to create
+	 * 
+	 * @return the result, mapping the position of each definition to its 
+	 *     created server and/or its error
+	 */
+	public ProvisioningResult createServers(List<ServerDefinition> serverDefinitions) {
+		ProvisioningResult batchResult = new ProvisioningResult(serverDefinitions);
+		if(serverDefinitions.isEmpty()) {
+			return(batchResult);
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, serverDefinitions.size()), new NamedThreadFactory("scaleway-fleet"));
+		try {
+			List<Future<Server>> creations = new ArrayList<Future<Server>>(serverDefinitions.size());
+			for (int i = 0; i < serverDefinitions.size(); i++) {
+				final JsonEntity serverDefinitionEntity;
+				try {
+					serverDefinitionEntity = JsonEntity.fromObject(serverDefinitions.get(i));
+				} catch (JsonProcessingException ex) {
+					batchResult.addError(i, new ScalewayApiException("Could not serialize the server definition", ex));
+					creations.add(null);
+					continue;
+				}
+
+				creations.add(executorService.submit(new Callable<Server>() {
+					@Override
+					public Server call() throws ScalewayApiException {
+						return(createServer(serverDefinitionEntity));
+					}
+				}));
+			}
+
+			// start the power on of each server as soon as it has been created
+			List<CompletableFuture<Server>> readiness = new ArrayList<CompletableFuture<Server>>(serverDefinitions.size());
+			for (int i = 0; i < serverDefinitions.size(); i++) {
+				Future<Server> creation = creations.get(i);
+				CompletableFuture<Server> ready = null;
+				if(null != creation) {
+					try {
+						Server server = getUninterruptibly(creation);
+						batchResult.addResult(i, server);
+						if(powerOn) {
+							ready = powerOn(server);
+						}
+					} catch (ScalewayApiException ex) {
+						batchResult.addError(i, ex);
+					}
+				}
+				readiness.add(ready);
+			}
+
+			for (int i = 0; i < serverDefinitions.size(); i++) {
+				CompletableFuture<Server> ready = readiness.get(i);
+				if(null != ready) {
+					try {
+						batchResult.addResult(i, getUninterruptibly(ready));
+					} catch (ScalewayApiException ex) {
+						batchResult.addError(i, ex);
+					}
+				}
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		return(batchResult);
+	}
+
+	private Server createServer(final JsonEntity serverDefinitionEntity) throws ScalewayApiException {
+		// only retried when rate limited - the request was then rejected before 
+		// anything was created, so it is safe to send the same body again
+		return(ApiCalls.callWithRetries(new ApiCall<Server>() {
+			@Override
+			public Server call() throws ScalewayApiException {
+				return(serverCreator.createServer(serverDefinitionEntity));
+			}
+		}, rateLimiter, false));
+	}
+
+	private CompletableFuture<Server> powerOn(Server server) {
+		try {
+			ServerTask serverTask = scalewayApiClient.executeServerAction(server.getId(), ServerAction.POWERON);
+			return(scalewayApiClient.waitForState(server.getId(), serverTask, readyTimeoutMillis, State.RUNNING));
+		} catch (ScalewayApiException ex) {
+			CompletableFuture<Server> failed = new CompletableFuture<Server>();
+			failed.completeExceptionally(ex);
+			return(failed);
+		}
+	}
+
+	private static Server getUninterruptibly(Future<Server> future) throws ScalewayApiException {
+		boolean isInterrupted = false;
+		try {
+			while(true) {
+				try {
+					return(future.get());
+				} catch (InterruptedException ex) {
+					isInterrupted = true;
+				}
+			}
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof ScalewayApiException) {
+				throw (ScalewayApiException)cause;
+			} else if(cause instanceof TimeoutException) {
+				throw new ScalewayApiException("Timed out waiting for the server to be running", cause);
+			}
+			throw new ScalewayApiException(cause);
+		} finally {
+			if(isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
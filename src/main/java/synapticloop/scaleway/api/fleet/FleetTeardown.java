@@ -0,0 +1,331 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.State;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Tear down servers along with their volumes and reserved IP addresses, with
+ * at most <code>parallelism</code> API calls in flight at once, held to a 
+ * rate limit.
+ * 
+ * For each server, in order:
+ * 
+ * <ol>
+ *   <li>the server is powered off, (or waited for, if it is already starting
+ *     or stopping) - the wait is done through the server tasks on the shared
+ *     task timer, not on the teardown threads,</li>
+ *   <li>the stopped server is deleted,</li>
+ *   <li>its volumes, and its public IP address if it was a reserved one, are
+ *     deleted in parallel.</li>
+ * </ol>
+ * 
+ * The servers are torn down independently, so one failure never aborts the 
+ * rest - and the volumes and IP of a server that could not be deleted are 
+ * left in place rather than orphaned from it.  Retryable errors are retried 
+ * with back-off.  The servers are powered off and deleted, rather than 
+ * terminated, so that every removal is observed and reported.
+ */
+public class FleetTeardown {
+	public static final int DEFAULT_PARALLELISM = 16;
+	public static final double DEFAULT_CALLS_PER_SECOND = 10.0d;
+	public static final long DEFAULT_STOP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final int parallelism;
+	private final RateLimiter rateLimiter;
+	private volatile boolean deleteReservedIPs = true;
+	private volatile long stopTimeoutMillis = DEFAULT_STOP_TIMEOUT_MILLIS;
+
+	/**
+	 * Create a new fleet teardown, making at most 10 API calls per second
+	 * 
+	 * @param scalewayApiClient the client to tear down the servers with
+	 * @param parallelism the maximum number of API calls in flight at once
+	 */
+	public FleetTeardown(ScalewayApiClient scalewayApiClient, int parallelism) {
+		this(scalewayApiClient, parallelism, new RateLimiter(DEFAULT_CALLS_PER_SECOND));
+	}
+
+	/**
+	 * Create a new fleet teardown
+	 * 
+	 * @param scalewayApiClient the client to tear down the servers with
+	 * @param parallelism the maximum number of API calls in flight at once
+	 * @param rateLimiter the rate limiter for the API calls, (which may be 
+	 *     shared with other work against the same account)
+	 */
+	public FleetTeardown(ScalewayApiClient scalewayApiClient, int parallelism, RateLimiter rateLimiter) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, was " + parallelism);
+		}
+
+		this.scalewayApiClient = scalewayApiClient;
+		this.parallelism = parallelism;
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Set whether the reserved (i.e. not dynamic) public IP address of each 
+	 * server is deleted once the server has been deleted, (true by default)
+	 * 
+	 * @param deleteReservedIPs whether to delete the reserved IP addresses
+	 */
+	public void setDeleteReservedIPs(boolean deleteReservedIPs) {
+		this.deleteReservedIPs = deleteReservedIPs;
+	}
+
+	/**
+	 * Set how long to wait for each server to be stopped, (10 minutes by 
+	 * default)
+	 * 
+	 * @param stopTimeoutMillis the number of milliseconds to wait
+	 */
+	public void setStopTimeoutMillis(long stopTimeoutMillis) {
+		this.stopTimeoutMillis = stopTimeoutMillis;
+	}
+
+	/**
+	 * Tear down the servers, returning once everything has been removed, or 
+	 * has failed.
+	 * 
+	 * @param serverIds the IDs of the servers to tear down
+	 * 
+	 * @return the report of exactly what was removed
+	 */
+	public TeardownReport teardown(Collection<String> serverIds) {
+		TeardownReport teardownReport = new TeardownReport();
+		if(serverIds.isEmpty()) {
+			return(teardownReport);
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("scaleway-teardown"));
+		try {
+			List<CompletableFuture<Void>> teardowns = new ArrayList<CompletableFuture<Void>>(serverIds.size());
+			for (String serverId : serverIds) {
+				teardowns.add(teardownServer(serverId, teardownReport, executorService));
+			}
+
+			boolean isInterrupted = false;
+			for (CompletableFuture<Void> teardown : teardowns) {
+				while(true) {
+					try {
+						teardown.get();
+						break;
+					} catch (InterruptedException ex) {
+						isInterrupted = true;
+					} catch (ExecutionException ex) {
+						// the errors have already been recorded in the report
+						break;
+					}
+				}
+			}
+			if(isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		return(teardownReport);
+	}
+
+	private CompletableFuture<Void> teardownServer(final String serverId, final TeardownReport teardownReport, final Executor executor) {
+		return(stopServer(serverId, executor)
+				.thenComposeAsync(new Function<Server, CompletionStage<Void>>() {
+					@Override
+					public CompletionStage<Void> apply(Server server) {
+						if(null == server) {
+							teardownReport.addNotFound(serverId);
+							return(CompletableFuture.completedFuture(null));
+						}
+						return(deleteServer(server, teardownReport, executor));
+					}
+				}, executor)
+				.whenComplete(new BiConsumer<Void, Throwable>() {
+					@Override
+					public void accept(Void result, Throwable throwable) {
+						if(null != throwable) {
+							teardownReport.addError(serverId, ApiCalls.toApiException(throwable));
+						}
+					}
+				}));
+	}
+
+	/**
+	 * Stop the server, completing with the stopped server, or null if the 
+	 * server does not exist
+	 */
+	private CompletableFuture<Server> stopServer(final String serverId, final Executor executor) {
+		final CompletableFuture<Server> future = new CompletableFuture<Server>();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Server server = ApiCalls.callWithRetries(new ApiCall<Server>() {
+						@Override
+						public Server call() throws ScalewayApiException {
+							return(scalewayApiClient.getServer(serverId));
+						}
+					}, rateLimiter);
+					forward(stopServer(server, executor), future);
+				} catch (NotFoundException ex) {
+					future.complete(null);
+				} catch (ScalewayApiException | RuntimeException ex) {
+					future.completeExceptionally(ex);
+				}
+			}
+		});
+		return(future);
+	}
+
+	private CompletableFuture<Server> stopServer(final Server server, final Executor executor) throws ScalewayApiException {
+		State state = server.getState();
+		if(state == State.STOPPED) {
+			return(CompletableFuture.completedFuture(server));
+		} else if(state == State.STOPPING) {
+			return(scalewayApiClient.waitForState(server.getId(), null, stopTimeoutMillis, State.STOPPED));
+		} else if(state == State.STARTING) {
+			// a server can't be powered off until it has started
+			return(scalewayApiClient.waitForState(server.getId(), null, stopTimeoutMillis, State.RUNNING, State.STOPPED)
+					.thenComposeAsync(new Function<Server, CompletionStage<Server>>() {
+						@Override
+						public CompletionStage<Server> apply(Server startedServer) {
+							try {
+								return(stopServer(startedServer, executor));
+							} catch (ScalewayApiException ex) {
+								CompletableFuture<Server> failed = new CompletableFuture<Server>();
+								failed.completeExceptionally(ex);
+								return(failed);
+							}
+						}
+					}, executor));
+		}
+
+		ServerTask serverTask = ApiCalls.callWithRetries(new ApiCall<ServerTask>() {
+			@Override
+			public ServerTask call() throws ScalewayApiException {
+				return(scalewayApiClient.executeServerAction(server.getId(), ServerAction.POWEROFF));
+			}
+		}, rateLimiter);
+		return(scalewayApiClient.waitForState(server.getId(), serverTask, stopTimeoutMillis, State.STOPPED));
+	}
+
+	/**
+	 * Delete the stopped server, and then its volumes and reserved IP in 
+	 * parallel
+	 */
+	private CompletableFuture<Void> deleteServer(final Server server, final TeardownReport teardownReport, Executor executor) {
+		try {
+			ApiCalls.callWithRetries(new ApiCall<Void>() {
+				@Override
+				public Void call() throws ScalewayApiException {
+					scalewayApiClient.deleteServer(server.getId());
+					return(null);
+				}
+			}, rateLimiter);
+			teardownReport.addRemoved(ResourceType.SERVER, server.getId());
+		} catch (NotFoundException ex) {
+			teardownReport.addNotFound(server.getId());
+		} catch (ScalewayApiException ex) {
+			// leave the volumes and IP attached to the server that is still there
+			teardownReport.addError(server.getId(), ex);
+			return(CompletableFuture.completedFuture(null));
+		}
+
+		List<CompletableFuture<Void>> deletions = new ArrayList<CompletableFuture<Void>>();
+		if(null != server.getVolumes()) {
+			for (final Volume volume : server.getVolumes().values()) {
+				deletions.add(delete(ResourceType.VOLUME, volume.getId(), new ApiCall<Void>() {
+					@Override
+					public Void call() throws ScalewayApiException {
+						scalewayApiClient.deleteVolume(volume.getId());
+						return(null);
+					}
+				}, teardownReport, executor));
+			}
+		}
+
+		final IP publicIP = server.getPublicIP();
+		if(deleteReservedIPs && null != publicIP && null != publicIP.getId() && !publicIP.getIsDynamic()) {
+			deletions.add(delete(ResourceType.IP, publicIP.getId(), new ApiCall<Void>() {
+				@Override
+				public Void call() throws ScalewayApiException {
+					scalewayApiClient.deleteIP(publicIP.getId());
+					return(null);
+				}
+			}, teardownReport, executor));
+		}
+
+		return(CompletableFuture.allOf(deletions.toArray(new CompletableFuture<?>[deletions.size()])));
+	}
+
+	private CompletableFuture<Void> delete(final ResourceType resourceType, final String id, final ApiCall<Void> apiCall, final TeardownReport teardownReport, Executor executor) {
+		return(CompletableFuture.runAsync(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ApiCalls.callWithRetries(apiCall, rateLimiter);
+					teardownReport.addRemoved(resourceType, id);
+				} catch (NotFoundException ex) {
+					teardownReport.addNotFound(id);
+				} catch (ScalewayApiException ex) {
+					teardownReport.addError(id, ex);
+				}
+			}
+		}, executor));
+	}
+
+	private static <T> void forward(CompletableFuture<T> from, final CompletableFuture<T> to) {
+		from.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T result, Throwable throwable) {
+				if(null != throwable) {
+					to.completeExceptionally(throwable);
+				} else {
+					to.complete(result);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,44 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+/**
+ * A check that a server is healthy again after an action has been executed 
+ * on it, (e.g. that its application is answering requests after a reboot), 
+ * before a rolling action moves on to the next server.
+ * 
+ * The gate is called repeatedly, on one of the rolling action's threads, 
+ * until it passes or the gate timeout is reached, so each call should be a 
+ * single, quick, check.
+ */
+public interface HealthGate {
+
+	/**
+	 * Check whether the server is healthy
+	 * 
+	 * @param serverId the ID of the server that the action was executed on
+	 * 
+	 * @return whether the server is healthy
+	 * 
+	 * @throws ScalewayApiException if there was an error checking the server, 
+	 *     which fails the action for the server straight away
+	 */
+	boolean isHealthy(String serverId) throws ScalewayApiException;
+}
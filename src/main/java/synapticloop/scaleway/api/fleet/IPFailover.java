@@ -0,0 +1,333 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import synapticloop.scaleway.api.ResourceListener;
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.task.TaskTracker;
+import synapticloop.scaleway.api.util.HashedWheelTimer;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Move reserved IP addresses to other servers, (e.g. from failed servers to 
+ * their standbys), all at once, so that the whole failover takes about as 
+ * long as the slowest single attach.
+ * 
+ * Attaching an IP address needs its address and organization, which never 
+ * change, so these are taken from the IP addresses that this failover has 
+ * already seen - register it as a resource listener on the client, (or 
+ * {@link #load()} or {@link #addIP(IP)} the IP addresses ahead of time), so 
+ * that no IP address has to be read before it can be moved.
+ * 
+ * The attaches are sent in parallel, (bounded by the connection pool of the 
+ * client), and retried on retryable errors.  An attach that has not answered
+ * within the hedge delay is sent a second time, (attaching an IP address to
+ * the same server again is idempotent), and the first answer wins.  Every 
+ * answer is verified to have the IP address attached to the target server.
+ */
+public class IPFailover implements ResourceListener {
+	public static final double DEFAULT_CALLS_PER_SECOND = 100.0d;
+	public static final long DEFAULT_HEDGE_DELAY_MILLIS = 500L;
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new NamedThreadFactory("scaleway-failover"));
+
+	/**
+	 * Read and attach the IP addresses
+	 */
+	interface IPAttacher {
+		IP getIP(String ipId) throws ScalewayApiException;
+		IP attachIP(String ipId, String organizationId, String ipAddress, String serverId) throws ScalewayApiException;
+	}
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final IPAttacher ipAttacher;
+	private final RateLimiter rateLimiter;
+	private final Executor executor;
+	private final HashedWheelTimer hashedWheelTimer;
+	private final ConcurrentMap<String, IP> ips = new ConcurrentHashMap<String, IP>();
+
+	private volatile long hedgeDelayMillis = DEFAULT_HEDGE_DELAY_MILLIS;
+	private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	/**
+	 * Create a new IP address failover, making at most 100 calls per second, 
+	 * with the hedged attaches scheduled on the shared timer wheel of the task
+	 * trackers, (so the hedge delay is rounded up to its 100 millisecond tick)
+	 * 
+	 * @param scalewayApiClient the client to attach the IP addresses with
+	 */
+	public IPFailover(final ScalewayApiClient scalewayApiClient) {
+		this(scalewayApiClient, new IPAttacher() {
+			@Override
+			public IP getIP(String ipId) throws ScalewayApiException {
+				return(scalewayApiClient.getIP(ipId));
+			}
+
+			@Override
+			public IP attachIP(String ipId, String organizationId, String ipAddress, String serverId) throws ScalewayApiException {
+				return(scalewayApiClient.attachIP(ipId, organizationId, ipAddress, serverId));
+			}
+		}, new RateLimiter(DEFAULT_CALLS_PER_SECOND), DEFAULT_EXECUTOR, TaskTracker.getDefaultTimer());
+	}
+
+	IPFailover(ScalewayApiClient scalewayApiClient, IPAttacher ipAttacher, RateLimiter rateLimiter, Executor executor, HashedWheelTimer hashedWheelTimer) {
+		this.scalewayApiClient = scalewayApiClient;
+		this.ipAttacher = ipAttacher;
+		this.rateLimiter = rateLimiter;
+		this.executor = executor;
+		this.hashedWheelTimer = hashedWheelTimer;
+	}
+
+	/**
+	 * Set how long to wait for an attach before sending it a second time, (500
+	 * milliseconds by default)
+	 * 
+	 * @param hedgeDelayMillis the number of milliseconds to wait, or 0 to never
+	 *     send an attach a second time
+	 */
+	public void setHedgeDelayMillis(long hedgeDelayMillis) {
+		this.hedgeDelayMillis = hedgeDelayMillis;
+	}
+
+	/**
+	 * Set how long to wait for the whole failover, (30 seconds by default) 
+	 * 
+	 * @param timeoutMillis the number of milliseconds to wait
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Remember the IP address, so that it does not have to be read before it 
+	 * is moved
+	 * 
+	 * @param ip the IP address
+	 */
+	public void addIP(IP ip) {
+		ips.put(ip.getId(), ip);
+	}
+
+	/**
+	 * Read all of the reserved IP addresses of the account, so that none of 
+	 * them have to be read before they are moved
+	 * 
+	 * @throws ScalewayApiException if there was an error reading the IP 
+	 *     addresses
+	 */
+	public void load() throws ScalewayApiException {
+		for (IP ip : PageFetchers.fetchAll(PageFetchers.ips(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE)) {
+			addIP(ip);
+		}
+	}
+
+	/**
+	 * Move the IP addresses to their target servers, all at once, returning 
+	 * once every IP address has been moved, or has failed, or the timeout has
+	 * been reached.  If the calling thread is interrupted, the wait carries on
+	 * and the interrupt status is restored on return.
+	 * 
+	 * @param targetServerIds the ID of the server to move each IP address to, 
+	 *     keyed on the ID of the IP address
+	 * 
+	 * @return the result of the failover, with the latency of each IP address
+	 */
+	public FailoverResult failover(Map<String, String> targetServerIds) {
+		FailoverResult failoverResult = new FailoverResult();
+		long startNanos = System.nanoTime();
+
+		List<Move> moves = new ArrayList<Move>(targetServerIds.size());
+		for (Map.Entry<String, String> entry : targetServerIds.entrySet()) {
+			Move move = new Move(entry.getKey(), entry.getValue(), ips.get(entry.getKey()));
+			moves.add(move);
+			start(move);
+		}
+
+		long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		int numHedged = 0;
+		int numPreReads = 0;
+		boolean isInterrupted = false;
+		for (Move move : moves) {
+			while(true) {
+				try {
+					failoverResult.addResult(move.ipId, move.future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+					break;
+				} catch (InterruptedException ex) {
+					isInterrupted = true;
+				} catch (ExecutionException ex) {
+					failoverResult.addError(move.ipId, ApiCalls.toApiException(ex));
+					break;
+				} catch (TimeoutException ex) {
+					failoverResult.addError(move.ipId, new ScalewayApiException("IP address with id '" + move.ipId + "' was not moved to server with id '" + move.serverId + "' within " + timeoutMillis + "ms", ex));
+					break;
+				}
+			}
+
+			long endNanos = move.endNanos.get();
+			if(endNanos == 0L) {
+				endNanos = System.nanoTime();
+			}
+			failoverResult.addLatency(move.ipId, TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+			if(move.isHedged) {
+				numHedged++;
+			}
+			if(move.isPreRead) {
+				numPreReads++;
+			}
+		}
+		if(isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		failoverResult.setNumHedged(numHedged);
+		failoverResult.setNumPreReads(numPreReads);
+		failoverResult.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		return(failoverResult);
+	}
+
+	private void start(final Move move) {
+		sendAttach(move);
+
+		long currentHedgeDelayMillis = hedgeDelayMillis;
+		if(currentHedgeDelayMillis > 0) {
+			final HashedWheelTimer.Timeout hedge = hashedWheelTimer.newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					if(!move.future.isDone()) {
+						move.isHedged = true;
+						sendAttach(move);
+					}
+				}
+			}, currentHedgeDelayMillis);
+
+			move.future.whenComplete(new BiConsumer<IP, Throwable>() {
+				@Override
+				public void accept(IP ip, Throwable throwable) {
+					hedge.cancel();
+				}
+			});
+		}
+	}
+
+	private void sendAttach(final Move move) {
+		move.numInFlight.incrementAndGet();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					IP ip = move.ip;
+					if(null == ip) {
+						move.isPreRead = true;
+						ip = ApiCalls.callWithRetries(new ApiCall<IP>() {
+							@Override
+							public IP call() throws ScalewayApiException {
+								return(ipAttacher.getIP(move.ipId));
+							}
+						}, rateLimiter);
+						move.ip = ip;
+					}
+
+					final IP currentIP = ip;
+					IP attachedIP = ApiCalls.callWithRetries(new ApiCall<IP>() {
+						@Override
+						public IP call() throws ScalewayApiException {
+							return(ipAttacher.attachIP(move.ipId, currentIP.getOrganizationId(), currentIP.getIpAddress(), move.serverId));
+						}
+					}, rateLimiter);
+
+					if(null == attachedIP.getServer() || !move.serverId.equals(attachedIP.getServer().getId())) {
+						throw new ScalewayApiException("IP address with id '" + move.ipId + "' is not attached to server with id '" + move.serverId + "' after the attach");
+					}
+
+					addIP(attachedIP);
+					move.endNanos.compareAndSet(0L, System.nanoTime());
+					move.future.complete(attachedIP);
+				} catch (ScalewayApiException | RuntimeException ex) {
+					// a hedged attach that is still in flight may yet succeed
+					if(move.numInFlight.decrementAndGet() == 0) {
+						move.endNanos.compareAndSet(0L, System.nanoTime());
+						move.future.completeExceptionally(ex);
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public void onResourceUpdated(ResourceType resourceType, String id, Object resource) {
+		if(resourceType == ResourceType.IP) {
+			ips.put(id, (IP)resource);
+		}
+	}
+
+	@Override
+	public void onResourceInvalidated(ResourceType resourceType, String id) {
+		// the address and organization of an IP address never change
+	}
+
+	@Override
+	public void onResourceDeleted(ResourceType resourceType, String id) {
+		if(resourceType == ResourceType.IP) {
+			ips.remove(id);
+		}
+	}
+
+	/**
+	 * The move of a single IP address, which may have a hedged attach in flight
+	 * alongside the first
+	 */
+	private static final class Move {
+		private final String ipId;
+		private final String serverId;
+		private final CompletableFuture<IP> future = new CompletableFuture<IP>();
+		private final AtomicInteger numInFlight = new AtomicInteger();
+		private volatile IP ip;
+		private final AtomicLong endNanos = new AtomicLong();
+		private volatile boolean isHedged = false;
+		private volatile boolean isPreRead = false;
+
+		private Move(String ipId, String serverId, IP ip) {
+			this.ipId = ipId;
+			this.serverId = serverId;
+			this.ip = ip;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerDefinition;
+
+/**
+ * The result of provisioning a fleet of servers, mapping the position of 
+ * each server definition in the list that was provisioned to its created 
+ * server and/or its error.  The results are keyed on the position, rather 
+ * than on the definition, so that the same definition may be passed in any 
+ * number of times, (e.g. to create 200 servers from one template), without 
+ * any of the created servers being lost track of.
+ */
+public class ProvisioningResult extends BatchResult<Integer, Server> {
+	private final List<ServerDefinition> serverDefinitions;
+
+	ProvisioningResult(List<ServerDefinition> serverDefinitions) {
+		this.serverDefinitions = new ArrayList<ServerDefinition>(serverDefinitions);
+	}
+
+	/**
+	 * Return the server definition at the position
+	 * 
+	 * @param index the position of the definition in the list that was 
+	 *     provisioned
+	 * 
+	 * @return the server definition
+	 */
+	public ServerDefinition getDefinition(int index) { return(serverDefinitions.get(index)); }
+
+	/**
+	 * Return the server definitions that were provisioned, in order
+	 * 
+	 * @return the server definitions
+	 */
+	public List<ServerDefinition> getDefinitions() { return(Collections.unmodifiableList(serverDefinitions)); }
+
+	/**
+	 * Return the number of server definitions that were provisioned
+	 * 
+	 * @return the number of server definitions
+	 */
+	public int size() { return(serverDefinitions.size()); }
+}
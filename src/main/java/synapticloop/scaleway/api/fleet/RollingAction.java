@@ -0,0 +1,366 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Execute an action, (e.g. a reboot), over a fleet of servers, a window of 
+ * servers at a time.  As soon as the action has finished on one server, (and
+ * the server has passed the health gate, if there is one), the action is 
+ * started on the next, so that there are never more than 
+ * <code>windowSize</code> servers out of action at once.
+ * 
+ * The tasks for the actions are waited for on the shared task poller, so the 
+ * threads of the rolling action are only busy while executing the actions 
+ * and checking the health gate.  Once more than the maximum ratio of the 
+ * servers have failed, no more actions are started - the actions in flight 
+ * are left to finish, and the remaining servers are reported as skipped.
+ */
+public class RollingAction {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RollingAction.class);
+
+	public static final double DEFAULT_ACTIONS_PER_SECOND = 10.0d;
+	public static final long DEFAULT_TASK_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	public static final long DEFAULT_GATE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final long DEFAULT_GATE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+	/**
+	 * Execute the action on the server, completing once its task has finished
+	 */
+	interface ActionRunner {
+		CompletableFuture<ServerTask> runAction(String serverId, ServerAction serverAction, long taskTimeoutMillis, Executor executor);
+	}
+
+	private final ActionRunner actionRunner;
+	private final int windowSize;
+
+	private volatile HealthGate healthGate = null;
+	private volatile RollingActionListener rollingActionListener = null;
+	private volatile double maxFailureRatio = 0.0d;
+	private volatile long taskTimeoutMillis = DEFAULT_TASK_TIMEOUT_MILLIS;
+	private volatile long gateTimeoutMillis = DEFAULT_GATE_TIMEOUT_MILLIS;
+	private volatile long gateIntervalMillis = DEFAULT_GATE_INTERVAL_MILLIS;
+
+	/**
+	 * Create a new rolling action, executing at most 10 actions per second
+	 * 
+	 * @param scalewayApiClient the client to execute the actions with
+	 * @param windowSize the maximum number of servers with an action in flight
+	 *     at once
+	 */
+	public RollingAction(ScalewayApiClient scalewayApiClient, int windowSize) {
+		this(scalewayApiClient, windowSize, new RateLimiter(DEFAULT_ACTIONS_PER_SECOND));
+	}
+
+	/**
+	 * Create a new rolling action
+	 * 
+	 * @param scalewayApiClient the client to execute the actions with
+	 * @param windowSize the maximum number of servers with an action in flight
+	 *     at once
+	 * @param rateLimiter the rate limiter for the actions, (which may be shared
+	 *     with other work against the same account)
+	 */
+	public RollingAction(final ScalewayApiClient scalewayApiClient, int windowSize, final RateLimiter rateLimiter) {
+		this(new ActionRunner() {
+			@Override
+			public CompletableFuture<ServerTask> runAction(final String serverId, final ServerAction serverAction, final long taskTimeoutMillis, Executor executor) {
+				return(CompletableFuture.supplyAsync(new Supplier<ServerTask>() {
+					@Override
+					public ServerTask get() {
+						try {
+							// an action is not idempotent, (a second reboot is another reboot)
+							return(ApiCalls.callWithRetries(new ApiCall<ServerTask>() {
+								@Override
+								public ServerTask call() throws ScalewayApiException {
+									return(scalewayApiClient.executeServerAction(serverId, serverAction));
+								}
+							}, rateLimiter, false));
+						} catch (ScalewayApiException ex) {
+							throw new CompletionException(ex);
+						}
+					}
+				}, executor).thenCompose(new Function<ServerTask, CompletionStage<ServerTask>>() {
+					@Override
+					public CompletionStage<ServerTask> apply(ServerTask serverTask) {
+						return(scalewayApiClient.awaitTask(serverTask.getId(), taskTimeoutMillis));
+					}
+				}));
+			}
+		}, windowSize);
+	}
+
+	RollingAction(ActionRunner actionRunner, int windowSize) {
+		if(windowSize < 1) {
+			throw new IllegalArgumentException("The window size must be at least 1, was " + windowSize);
+		}
+
+		this.actionRunner = actionRunner;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Set the health gate that each server must pass, once its action has 
+	 * finished, before the window moves on, (by default there is none)
+	 * 
+	 * @param healthGate the health gate, or null for none
+	 */
+	public void setHealthGate(HealthGate healthGate) {
+		this.healthGate = healthGate;
+	}
+
+	/**
+	 * Set the listener for the progress of the rolling action
+	 * 
+	 * @param rollingActionListener the listener, or null for none
+	 */
+	public void setRollingActionListener(RollingActionListener rollingActionListener) {
+		this.rollingActionListener = rollingActionListener;
+	}
+
+	/**
+	 * Set the ratio of the servers that may fail before the rolling action is 
+	 * aborted, (by default 0, i.e. the first failure aborts)
+	 * 
+	 * @param maxFailureRatio the ratio, between 0 and 1, of the servers that 
+	 *     may fail
+	 */
+	public void setMaxFailureRatio(double maxFailureRatio) {
+		if(maxFailureRatio < 0.0d || maxFailureRatio > 1.0d) {
+			throw new IllegalArgumentException("The maximum failure ratio must be between 0 and 1, was " + maxFailureRatio);
+		}
+		this.maxFailureRatio = maxFailureRatio;
+	}
+
+	/**
+	 * Set how long to wait for the task of each action to finish, (10 minutes 
+	 * by default)
+	 * 
+	 * @param taskTimeoutMillis the number of milliseconds to wait
+	 */
+	public void setTaskTimeoutMillis(long taskTimeoutMillis) {
+		this.taskTimeoutMillis = taskTimeoutMillis;
+	}
+
+	/**
+	 * Set how long each server has to pass the health gate, and how often the
+	 * gate is checked, (5 minutes and 5 seconds by default)
+	 * 
+	 * @param gateTimeoutMillis the number of milliseconds to wait for the 
+	 *     server to pass the health gate
+	 * @param gateIntervalMillis the number of milliseconds between the checks
+	 */
+	public void setGateTimeoutMillis(long gateTimeoutMillis, long gateIntervalMillis) {
+		this.gateTimeoutMillis = gateTimeoutMillis;
+		this.gateIntervalMillis = gateIntervalMillis;
+	}
+
+	/**
+	 * Execute the action on the servers, in the order of the IDs, returning 
+	 * once every action has finished, or has failed, or has been skipped.  If 
+	 * the calling thread is interrupted, the wait carries on and the interrupt
+	 * status is restored on return.
+	 * 
+	 * @param serverIds the IDs of the servers to execute the action on
+	 * @param serverAction the action to execute
+	 * 
+	 * @return the result of the rolling action
+	 */
+	public RollingActionResult execute(List<String> serverIds, final ServerAction serverAction) {
+		RollingActionResult rollingActionResult = new RollingActionResult();
+		if(serverIds.isEmpty()) {
+			return(rollingActionResult);
+		}
+
+		final int maxFailures = (int)Math.floor(maxFailureRatio * serverIds.size());
+		final Semaphore window = new Semaphore(windowSize);
+		final AtomicInteger numFailed = new AtomicInteger();
+		final AtomicBoolean isAborted = new AtomicBoolean(false);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(windowSize, serverIds.size()), new NamedThreadFactory("scaleway-rolling"));
+		try {
+			List<String> startedIds = new ArrayList<String>(serverIds.size());
+			List<CompletableFuture<ServerTask>> actions = new ArrayList<CompletableFuture<ServerTask>>(serverIds.size());
+			for (final String serverId : serverIds) {
+				window.acquireUninterruptibly();
+				if(isAborted.get()) {
+					window.release();
+					rollingActionResult.addSkipped(serverId);
+					continue;
+				}
+
+				notifyStarted(serverId);
+				startedIds.add(serverId);
+				actions.add(executeAction(serverId, serverAction, executorService)
+						.whenComplete(new BiConsumer<ServerTask, Throwable>() {
+							@Override
+							public void accept(ServerTask serverTask, Throwable throwable) {
+								try {
+									if(null == throwable) {
+										notifySucceeded(serverId, serverTask);
+										return;
+									}
+
+									notifyFailed(serverId, ApiCalls.toApiException(throwable));
+									int failed = numFailed.incrementAndGet();
+									if(failed > maxFailures && isAborted.compareAndSet(false, true)) {
+										notifyAborted(failed);
+									}
+								} finally {
+									window.release();
+								}
+							}
+						}));
+			}
+
+			boolean isInterrupted = false;
+			for (int i = 0; i < actions.size(); i++) {
+				String serverId = startedIds.get(i);
+				while(true) {
+					try {
+						rollingActionResult.addResult(serverId, actions.get(i).get());
+						break;
+					} catch (InterruptedException ex) {
+						isInterrupted = true;
+					} catch (ExecutionException ex) {
+						rollingActionResult.addError(serverId, ApiCalls.toApiException(ex));
+						break;
+					}
+				}
+			}
+			if(isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+
+			rollingActionResult.setAborted(isAborted.get());
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		return(rollingActionResult);
+	}
+
+	private CompletableFuture<ServerTask> executeAction(final String serverId, final ServerAction serverAction, final ExecutorService executorService) {
+		CompletableFuture<ServerTask> action = actionRunner.runAction(serverId, serverAction, taskTimeoutMillis, executorService);
+
+		final HealthGate currentHealthGate = healthGate;
+		if(null == currentHealthGate) {
+			return(action);
+		}
+
+		return(action.thenApplyAsync(new Function<ServerTask, ServerTask>() {
+			@Override
+			public ServerTask apply(ServerTask serverTask) {
+				try {
+					awaitHealthy(serverId, currentHealthGate);
+					return(serverTask);
+				} catch (ScalewayApiException ex) {
+					throw new CompletionException(ex);
+				}
+			}
+		}, executorService));
+	}
+
+	private void awaitHealthy(String serverId, HealthGate currentHealthGate) throws ScalewayApiException {
+		long deadline = System.currentTimeMillis() + gateTimeoutMillis;
+		while(!currentHealthGate.isHealthy(serverId)) {
+			long remainingMillis = deadline - System.currentTimeMillis();
+			if(remainingMillis <= 0) {
+				throw new ScalewayApiException("Server with id '" + serverId + "' did not pass the health gate within " + gateTimeoutMillis + "ms");
+			}
+
+			try {
+				Thread.sleep(Math.min(gateIntervalMillis, remainingMillis));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new ScalewayApiException("Interrupted whilst waiting for server with id '" + serverId + "' to pass the health gate", ex);
+			}
+		}
+	}
+
+	private void notifyStarted(String serverId) {
+		RollingActionListener listener = rollingActionListener;
+		if(null != listener) {
+			try {
+				listener.onActionStarted(serverId);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Rolling action listener threw an exception.", ex);
+			}
+		}
+	}
+
+	private void notifySucceeded(String serverId, ServerTask serverTask) {
+		RollingActionListener listener = rollingActionListener;
+		if(null != listener) {
+			try {
+				listener.onActionSucceeded(serverId, serverTask);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Rolling action listener threw an exception.", ex);
+			}
+		}
+	}
+
+	private void notifyFailed(String serverId, ScalewayApiException exception) {
+		RollingActionListener listener = rollingActionListener;
+		if(null != listener) {
+			try {
+				listener.onActionFailed(serverId, exception);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Rolling action listener threw an exception.", ex);
+			}
+		}
+	}
+
+	private void notifyAborted(int failed) {
+		RollingActionListener listener = rollingActionListener;
+		if(null != listener) {
+			try {
+				listener.onAborted(failed);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Rolling action listener threw an exception.", ex);
+			}
+		}
+	}
+}
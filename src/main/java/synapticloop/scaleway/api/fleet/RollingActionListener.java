@@ -0,0 +1,62 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.ServerTask;
+
+/**
+ * Listen for the progress of a rolling action.  The listener is called on the
+ * rolling action's threads, (and on the thread that started it), so must 
+ * return quickly and must not throw.
+ */
+public interface RollingActionListener {
+
+	/**
+	 * The action is about to be executed on the server
+	 * 
+	 * @param serverId the ID of the server
+	 */
+	void onActionStarted(String serverId);
+
+	/**
+	 * The action has finished on the server, and the server passed the health 
+	 * gate, (if there is one)
+	 * 
+	 * @param serverId the ID of the server
+	 * @param serverTask the finished task for the action
+	 */
+	void onActionSucceeded(String serverId, ServerTask serverTask);
+
+	/**
+	 * The action could not be executed, did not finish successfully, or the 
+	 * server did not pass the health gate
+	 * 
+	 * @param serverId the ID of the server
+	 * @param exception the reason for the failure
+	 */
+	void onActionFailed(String serverId, ScalewayApiException exception);
+
+	/**
+	 * Too many of the actions have failed, so no more actions will be started,
+	 * (the actions that are in flight are left to finish)
+	 * 
+	 * @param numFailed the number of actions that have failed
+	 */
+	void onAborted(int numFailed);
+}
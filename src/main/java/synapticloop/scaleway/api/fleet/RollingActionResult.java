@@ -0,0 +1,62 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import synapticloop.scaleway.api.model.ServerTask;
+
+/**
+ * The result of a rolling action, mapping each server ID that the action was
+ * executed on to its finished task, or to its error, and listing the servers
+ * that the action was never started on because the rolling action was 
+ * aborted.
+ */
+public class RollingActionResult extends BatchResult<String, ServerTask> {
+	private final List<String> skippedIds = new ArrayList<String>();
+	private boolean isAborted = false;
+
+	void addSkipped(String serverId) {
+		skippedIds.add(serverId);
+	}
+
+	void setAborted(boolean isAborted) {
+		this.isAborted = isAborted;
+	}
+
+	/**
+	 * Return the IDs of the servers that the action was never started on
+	 * 
+	 * @return the IDs of the skipped servers
+	 */
+	public List<String> getSkippedIds() { return(Collections.unmodifiableList(skippedIds)); }
+
+	/**
+	 * Return whether the rolling action was aborted for too many failures
+	 * 
+	 * @return whether the rolling action was aborted
+	 */
+	public boolean isAborted() { return(isAborted); }
+
+	@Override
+	public String toString() {
+		return("RollingActionResult [numResults=" + getResults().size() + ", numErrors=" + getNumFailed() + ", numSkipped=" + skippedIds.size() + ", isAborted=" + isAborted + "]");
+	}
+}
@@ -0,0 +1,74 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.diff.ChangeType;
+import synapticloop.scaleway.api.model.RuleDefinition;
+
+/**
+ * A single edit to the rules of a security group - a rule to be created 
+ * (ADDED), re-written in place (MODIFIED), or deleted (REMOVED).
+ */
+public class RuleEdit {
+	private final ChangeType changeType;
+	private final int index;
+	private final String ruleId;
+	private final RuleDefinition ruleDefinition;
+
+	RuleEdit(ChangeType changeType, int index, String ruleId, RuleDefinition ruleDefinition) {
+		this.changeType = changeType;
+		this.index = index;
+		this.ruleId = ruleId;
+		this.ruleDefinition = ruleDefinition;
+	}
+
+	/**
+	 * Return the type of the edit
+	 * 
+	 * @return the type of the edit
+	 */
+	public ChangeType getChangeType() { return(this.changeType); }
+
+	/**
+	 * Return the index of the rule, (starting at 0), in the order of the 
+	 * editable rules of the security group
+	 * 
+	 * @return the index of the rule
+	 */
+	public int getIndex() { return(this.index); }
+
+	/**
+	 * Return the ID of the existing rule, null for a rule to be created
+	 * 
+	 * @return the ID of the existing rule
+	 */
+	public String getRuleId() { return(this.ruleId); }
+
+	/**
+	 * Return the definition the rule is created or re-written from, null for a
+	 * rule to be deleted
+	 * 
+	 * @return the rule definition
+	 */
+	public RuleDefinition getRuleDefinition() { return(this.ruleDefinition); }
+
+	@Override
+	public String toString() {
+		return("RuleEdit [changeType=" + changeType + ", index=" + index + ", ruleId=" + ruleId + ", ruleDefinition=" + ruleDefinition + "]");
+	}
+}
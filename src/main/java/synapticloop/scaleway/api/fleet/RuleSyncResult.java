@@ -0,0 +1,65 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of synchronising the rules of a security group - the edits that
+ * were applied, and the number of rules that were left untouched.
+ */
+public class RuleSyncResult {
+	private final String securityGroupId;
+	private final List<RuleEdit> ruleEdits;
+	private final int numUnchanged;
+
+	RuleSyncResult(String securityGroupId, List<RuleEdit> ruleEdits, int numUnchanged) {
+		this.securityGroupId = securityGroupId;
+		this.ruleEdits = Collections.unmodifiableList(ruleEdits);
+		this.numUnchanged = numUnchanged;
+	}
+
+	/**
+	 * Return the ID of the security group that was synchronised
+	 * 
+	 * @return the ID of the security group
+	 */
+	public String getSecurityGroupId() { return(this.securityGroupId); }
+
+	/**
+	 * Return the edits that were applied, (empty if the rules were already as
+	 * desired)
+	 * 
+	 * @return the edits that were applied
+	 */
+	public List<RuleEdit> getRuleEdits() { return(this.ruleEdits); }
+
+	/**
+	 * Return the number of rules that were already as desired, and were not 
+	 * touched
+	 * 
+	 * @return the number of unchanged rules
+	 */
+	public int getNumUnchanged() { return(this.numUnchanged); }
+
+	@Override
+	public String toString() {
+		return("RuleSyncResult [securityGroupId=" + securityGroupId + ", numEdits=" + ruleEdits.size() + ", numUnchanged=" + numUnchanged + "]");
+	}
+}
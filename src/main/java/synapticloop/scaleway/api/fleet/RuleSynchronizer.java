@@ -0,0 +1,339 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.diff.ChangeType;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.RuleDefinition;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Declaratively synchronise the rules of security groups to a desired, 
+ * ordered, list of rule definitions.
+ * 
+ * The current rules are fetched once, and the editable rules (in position 
+ * order) are lined up against the desired rules.  A rule which already 
+ * matches the desired rule at the same position - on action, direction, 
+ * protocol, IP range and ports - is never touched, a rule which doesn't is 
+ * re-written in place (keeping its position), surplus rules are deleted and 
+ * missing rules are created.
+ * 
+ * The re-writes and deletions are independent of each other, so are applied
+ * concurrently - the creations are appended by the API in the order that 
+ * they are made, so are applied one after the other once the others are 
+ * done.  Many security groups are synchronised in parallel.
+ * 
+ * If an edit fails, the synchronisation of that security group fails with 
+ * the error, (some of its other edits may have been applied) - as the 
+ * synchronisation is declarative, running it again will converge.
+ */
+public class RuleSynchronizer {
+	public static final int DEFAULT_PARALLELISM = 16;
+	public static final double DEFAULT_CALLS_PER_SECOND = 20.0d;
+
+	private static final Comparator<Rule> POSITION_COMPARATOR = new Comparator<Rule>() {
+		@Override
+		public int compare(Rule rule, Rule otherRule) {
+			return(Integer.compare(rule.getPosition(), otherRule.getPosition()));
+		}
+	};
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final int parallelism;
+	private final RateLimiter rateLimiter;
+
+	/**
+	 * Create a new rule synchronizer, making at most 20 API calls per second
+	 * 
+	 * @param scalewayApiClient the client to synchronise the rules with
+	 * @param parallelism the maximum number of API calls in flight at once
+	 */
+	public RuleSynchronizer(ScalewayApiClient scalewayApiClient, int parallelism) {
+		this(scalewayApiClient, parallelism, new RateLimiter(DEFAULT_CALLS_PER_SECOND));
+	}
+
+	/**
+	 * Create a new rule synchronizer
+	 * 
+	 * @param scalewayApiClient the client to synchronise the rules with
+	 * @param parallelism the maximum number of API calls in flight at once
+	 * @param rateLimiter the rate limiter for the API calls, (which may be 
+	 *     shared with other work against the same account)
+	 */
+	public RuleSynchronizer(ScalewayApiClient scalewayApiClient, int parallelism, RateLimiter rateLimiter) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, was " + parallelism);
+		}
+
+		this.scalewayApiClient = scalewayApiClient;
+		this.parallelism = parallelism;
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Synchronise the rules of the security group to the desired rules
+	 * 
+	 * @param securityGroupId the ID of the security group
+	 * @param desiredRules the rules that the security group should have, in 
+	 *     order
+	 * 
+	 * @return the edits that were applied
+	 * 
+	 * @throws ScalewayApiException If there was an error with any of the API 
+	 *     calls
+	 */
+	public RuleSyncResult syncRules(String securityGroupId, List<RuleDefinition> desiredRules) throws ScalewayApiException {
+		BatchResult<String, RuleSyncResult> batchResult = syncRules(Collections.singletonList(securityGroupId), desiredRules);
+		if(!batchResult.isAllSucceeded()) {
+			throw batchResult.getError(securityGroupId);
+		}
+		return(batchResult.getResult(securityGroupId));
+	}
+
+	/**
+	 * Synchronise the rules of each of the security groups to the same desired
+	 * rules, in parallel.  One failure does not abort the rest.
+	 * 
+	 * @param securityGroupIds the IDs of the security groups
+	 * @param desiredRules the rules that the security groups should have, in 
+	 *     order
+	 * 
+	 * @return the result, mapping each security group ID to the edits that 
+	 *     were applied, or its error
+	 */
+	public BatchResult<String, RuleSyncResult> syncRules(Collection<String> securityGroupIds, List<RuleDefinition> desiredRules) {
+		BatchResult<String, RuleSyncResult> batchResult = new BatchResult<String, RuleSyncResult>();
+		if(securityGroupIds.isEmpty()) {
+			return(batchResult);
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("scaleway-rule-sync"));
+		try {
+			List<CompletableFuture<RuleSyncResult>> syncs = new ArrayList<CompletableFuture<RuleSyncResult>>(securityGroupIds.size());
+			for (String securityGroupId : securityGroupIds) {
+				syncs.add(syncRules(securityGroupId, desiredRules, executorService));
+			}
+
+			boolean isInterrupted = false;
+			int i = 0;
+			for (String securityGroupId : securityGroupIds) {
+				CompletableFuture<RuleSyncResult> sync = syncs.get(i++);
+				while(true) {
+					try {
+						batchResult.addResult(securityGroupId, sync.get());
+						break;
+					} catch (InterruptedException ex) {
+						isInterrupted = true;
+					} catch (ExecutionException ex) {
+						batchResult.addError(securityGroupId, ApiCalls.toApiException(ex));
+						break;
+					}
+				}
+			}
+			if(isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		return(batchResult);
+	}
+
+	private CompletableFuture<RuleSyncResult> syncRules(final String securityGroupId, final List<RuleDefinition> desiredRules, final Executor executor) {
+		CompletableFuture<List<Rule>> currentRules = call(new ApiCall<List<Rule>>() {
+			@Override
+			public List<Rule> call() throws ScalewayApiException {
+				return(PageFetchers.fetchAll(PageFetchers.rules(scalewayApiClient, securityGroupId), PageFetchers.MAX_NUM_PER_PAGE));
+			}
+		}, true, executor);
+
+		return(currentRules.thenComposeAsync(new Function<List<Rule>, CompletionStage<RuleSyncResult>>() {
+			@Override
+			public CompletionStage<RuleSyncResult> apply(List<Rule> rules) {
+				List<Rule> editableRules = getEditableRules(rules);
+				final List<RuleEdit> ruleEdits = computeEdits(editableRules, desiredRules);
+				final int numUnchanged = Math.min(editableRules.size(), desiredRules.size()) - countEdits(ruleEdits, ChangeType.MODIFIED);
+
+				List<CompletableFuture<Void>> independentEdits = new ArrayList<CompletableFuture<Void>>();
+				List<RuleEdit> creations = new ArrayList<RuleEdit>();
+				for (RuleEdit ruleEdit : ruleEdits) {
+					if(ruleEdit.getChangeType() == ChangeType.ADDED) {
+						creations.add(ruleEdit);
+					} else {
+						independentEdits.add(applyEdit(securityGroupId, ruleEdit, executor));
+					}
+				}
+
+				CompletableFuture<Void> applied = CompletableFuture.allOf(independentEdits.toArray(new CompletableFuture<?>[independentEdits.size()]));
+				for (final RuleEdit creation : creations) {
+					applied = applied.thenComposeAsync(new Function<Void, CompletionStage<Void>>() {
+						@Override
+						public CompletionStage<Void> apply(Void result) {
+							return(applyEdit(securityGroupId, creation, executor));
+						}
+					}, executor);
+				}
+
+				return(applied.thenApply(new Function<Void, RuleSyncResult>() {
+					@Override
+					public RuleSyncResult apply(Void result) {
+						return(new RuleSyncResult(securityGroupId, ruleEdits, numUnchanged));
+					}
+				}));
+			}
+		}, executor));
+	}
+
+	private CompletableFuture<Void> applyEdit(final String securityGroupId, final RuleEdit ruleEdit, Executor executor) {
+		switch (ruleEdit.getChangeType()) {
+		case ADDED:
+			return(call(new ApiCall<Void>() {
+				@Override
+				public Void call() throws ScalewayApiException {
+					scalewayApiClient.createRule(securityGroupId, ruleEdit.getRuleDefinition());
+					return(null);
+				}
+			}, false, executor));
+		case MODIFIED:
+			return(call(new ApiCall<Void>() {
+				@Override
+				public Void call() throws ScalewayApiException {
+					scalewayApiClient.updateRule(securityGroupId, ruleEdit.getRuleId(), ruleEdit.getRuleDefinition());
+					return(null);
+				}
+			}, true, executor));
+		default:
+			return(call(new ApiCall<Void>() {
+				@Override
+				public Void call() throws ScalewayApiException {
+					try {
+						scalewayApiClient.deleteRule(securityGroupId, ruleEdit.getRuleId());
+					} catch (NotFoundException ex) {
+						// already gone
+					}
+					return(null);
+				}
+			}, true, executor));
+		}
+	}
+
+	private <T> CompletableFuture<T> call(final ApiCall<T> apiCall, final boolean isIdempotent, Executor executor) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					future.complete(ApiCalls.callWithRetries(apiCall, rateLimiter, isIdempotent));
+				} catch (ScalewayApiException | RuntimeException ex) {
+					future.completeExceptionally(ex);
+				}
+			}
+		});
+		return(future);
+	}
+
+	/**
+	 * Compute the minimal edits to turn the current editable rules into the 
+	 * desired rules, position for position
+	 * 
+	 * @param currentRules the current editable rules, in position order
+	 * @param desiredRules the desired rules, in order
+	 * 
+	 * @return the edits, in index order
+	 */
+	static List<RuleEdit> computeEdits(List<Rule> currentRules, List<RuleDefinition> desiredRules) {
+		List<RuleEdit> ruleEdits = new ArrayList<RuleEdit>();
+		int numRules = Math.max(currentRules.size(), desiredRules.size());
+		for (int i = 0; i < numRules; i++) {
+			if(i >= desiredRules.size()) {
+				ruleEdits.add(new RuleEdit(ChangeType.REMOVED, i, currentRules.get(i).getId(), null));
+			} else if(i >= currentRules.size()) {
+				ruleEdits.add(new RuleEdit(ChangeType.ADDED, i, null, desiredRules.get(i)));
+			} else if(!matches(currentRules.get(i), desiredRules.get(i))) {
+				ruleEdits.add(new RuleEdit(ChangeType.MODIFIED, i, currentRules.get(i).getId(), desiredRules.get(i)));
+			}
+		}
+		return(ruleEdits);
+	}
+
+	/**
+	 * Whether the rule matches the rule definition - a definition without a 
+	 * destination port to matches a rule whose port range is a single port
+	 * 
+	 * @param rule the current rule
+	 * @param ruleDefinition the desired rule
+	 * 
+	 * @return whether the rule matches
+	 */
+	static boolean matches(Rule rule, RuleDefinition ruleDefinition) {
+		if(rule.getAction() != ruleDefinition.getAction() || 
+				rule.getDirection() != ruleDefinition.getDirection() || 
+				rule.getProtocol() != ruleDefinition.getProtocol() || 
+				!Objects.equals(rule.getIpRange(), ruleDefinition.getIpRange()) || 
+				!Objects.equals(rule.getDestPortFrom(), ruleDefinition.getDestPortFrom())) {
+			return(false);
+		}
+
+		if(null == ruleDefinition.getDestPortTo()) {
+			return(null == rule.getDestPortTo() || rule.getDestPortTo().equals(rule.getDestPortFrom()));
+		}
+		return(ruleDefinition.getDestPortTo().equals(rule.getDestPortTo()));
+	}
+
+	private static List<Rule> getEditableRules(List<Rule> rules) {
+		List<Rule> editableRules = new ArrayList<Rule>(rules.size());
+		for (Rule rule : rules) {
+			if(!Boolean.FALSE.equals(rule.getIsEditable())) {
+				editableRules.add(rule);
+			}
+		}
+		Collections.sort(editableRules, POSITION_COMPARATOR);
+		return(editableRules);
+	}
+
+	private static int countEdits(List<RuleEdit> ruleEdits, ChangeType changeType) {
+		int count = 0;
+		for (RuleEdit ruleEdit : ruleEdits) {
+			if(ruleEdit.getChangeType() == changeType) {
+				count++;
+			}
+		}
+		return(count);
+	}
+}
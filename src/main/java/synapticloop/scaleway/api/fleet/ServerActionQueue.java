@@ -0,0 +1,275 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ApiCalls.ApiCall;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Serialise the actions on each server, so that an action is only executed 
+ * once the task of the previous action on the same server has finished, 
+ * whilst the actions on different servers run in parallel.  The queues are
+ * kept in lock stripes, keyed on the server ID, and a server's queue only 
+ * exists whilst it has an action in flight.
+ * 
+ * Redundant actions are coalesced with the last action that is still waiting
+ * in the server's queue (never with the action that is in flight):
+ * <ul>
+ *   <li>the same action again, (e.g. a second REBOOT), is collapsed into the
+ *     waiting one, and is given the same future</li>
+ *   <li>a POWEROFF behind a waiting POWERON, (or a POWERON behind a waiting
+ *     POWEROFF), cancels the waiting action, if it has no consumer - that is 
+ *     no stage depends on its future and no thread is waiting on it</li>
+ * </ul>
+ * 
+ * A future that is cancelled whilst its action is waiting removes the action 
+ * from the queue - an action that is in flight can not be cancelled.
+ */
+public class ServerActionQueue {
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new NamedThreadFactory("scaleway-action"));
+
+	public static final int NUM_STRIPES = 64;
+	public static final double DEFAULT_ACTIONS_PER_SECOND = 10.0d;
+
+	/**
+	 * Execute an action, and wait for its task to finish
+	 */
+	interface ActionRunner {
+		CompletableFuture<ServerTask> runAction(String serverId, ServerAction serverAction);
+	}
+
+	private final ActionRunner actionRunner;
+	private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+
+	private final AtomicLong numSubmitted = new AtomicLong();
+	private final AtomicLong numCoalesced = new AtomicLong();
+	private final AtomicLong numCancelled = new AtomicLong();
+
+	/**
+	 * Create a new server action queue, executing at most 10 actions per 
+	 * second
+	 * 
+	 * @param scalewayApiClient the client to execute the actions with
+	 */
+	public ServerActionQueue(ScalewayApiClient scalewayApiClient) {
+		this(scalewayApiClient, new RateLimiter(DEFAULT_ACTIONS_PER_SECOND), DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Create a new server action queue
+	 * 
+	 * @param scalewayApiClient the client to execute the actions with
+	 * @param rateLimiter the rate limiter for the actions, (which may be shared
+	 *     with other work against the same account)
+	 * @param executor the executor to execute the actions on
+	 */
+	public ServerActionQueue(final ScalewayApiClient scalewayApiClient, final RateLimiter rateLimiter, final Executor executor) {
+		this(new ActionRunner() {
+			@Override
+			public CompletableFuture<ServerTask> runAction(final String serverId, final ServerAction serverAction) {
+				return(CompletableFuture.supplyAsync(new Supplier<ServerTask>() {
+					@Override
+					public ServerTask get() {
+						try {
+							// an action is not idempotent, (a second reboot is another reboot)
+							return(ApiCalls.callWithRetries(new ApiCall<ServerTask>() {
+								@Override
+								public ServerTask call() throws ScalewayApiException {
+									return(scalewayApiClient.executeServerAction(serverId, serverAction));
+								}
+							}, rateLimiter, false));
+						} catch (ScalewayApiException ex) {
+							throw new CompletionException(ex);
+						}
+					}
+				}, executor).thenCompose(new Function<ServerTask, CompletionStage<ServerTask>>() {
+					@Override
+					public CompletionStage<ServerTask> apply(ServerTask serverTask) {
+						return(scalewayApiClient.awaitTask(serverTask.getId()));
+					}
+				}));
+			}
+		});
+	}
+
+	ServerActionQueue(ActionRunner actionRunner) {
+		this.actionRunner = actionRunner;
+		for (int i = 0; i < NUM_STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Queue the action on the server, to be executed once all of the actions 
+	 * that were queued before it on the same server have finished.
+	 * 
+	 * @param serverId the ID of the server to execute the action on
+	 * @param serverAction the action to execute
+	 * 
+	 * @return the future which completes with the finished task of the action,
+	 *     exceptionally if the action failed, or is cancelled if the action was
+	 *     cancelled by a later, conflicting, action
+	 */
+	public CompletableFuture<ServerTask> submit(String serverId, ServerAction serverAction) {
+		numSubmitted.incrementAndGet();
+		Stripe stripe = stripes[(serverId.hashCode() & 0x7fffffff) % NUM_STRIPES];
+		QueuedAction queuedAction = new QueuedAction(serverAction);
+		synchronized(stripe) {
+			ServerActions serverActions = stripe.serverActions.get(serverId);
+			if(null == serverActions) {
+				serverActions = new ServerActions();
+				stripe.serverActions.put(serverId, serverActions);
+			}
+
+			QueuedAction lastAction = serverActions.waiting.peekLast();
+			if(null != lastAction && !lastAction.future.isDone()) {
+				if(lastAction.serverAction == serverAction) {
+					numCoalesced.incrementAndGet();
+					return(lastAction.future);
+				}
+
+				if(isOpposite(lastAction.serverAction, serverAction) && lastAction.future.getNumberOfDependents() == 0) {
+					serverActions.waiting.pollLast();
+					lastAction.future.cancel(false);
+					numCancelled.incrementAndGet();
+				}
+			}
+
+			serverActions.waiting.offerLast(queuedAction);
+			if(serverActions.isRunning) {
+				return(queuedAction.future);
+			}
+			serverActions.isRunning = true;
+			serverActions.waiting.pollFirst();
+		}
+
+		run(serverId, stripe, queuedAction);
+		return(queuedAction.future);
+	}
+
+	/**
+	 * Return the number of actions that have been submitted
+	 * 
+	 * @return the number of actions that have been submitted
+	 */
+	public long getNumSubmitted() { return(numSubmitted.get()); }
+
+	/**
+	 * Return the number of actions that were collapsed into an identical 
+	 * waiting action
+	 * 
+	 * @return the number of coalesced actions
+	 */
+	public long getNumCoalesced() { return(numCoalesced.get()); }
+
+	/**
+	 * Return the number of waiting actions that were cancelled by a later, 
+	 * conflicting, action
+	 * 
+	 * @return the number of cancelled actions
+	 */
+	public long getNumCancelled() { return(numCancelled.get()); }
+
+	private void run(final String serverId, final Stripe stripe, final QueuedAction queuedAction) {
+		CompletableFuture<ServerTask> action;
+		try {
+			action = actionRunner.runAction(serverId, queuedAction.serverAction);
+		} catch (RuntimeException ex) {
+			action = new CompletableFuture<ServerTask>();
+			action.completeExceptionally(ex);
+		}
+
+		action.whenComplete(new BiConsumer<ServerTask, Throwable>() {
+			@Override
+			public void accept(ServerTask serverTask, Throwable throwable) {
+				if(null == throwable) {
+					queuedAction.future.complete(serverTask);
+				} else {
+					queuedAction.future.completeExceptionally(ApiCalls.toApiException(throwable));
+				}
+				runNext(serverId, stripe);
+			}
+		});
+	}
+
+	private void runNext(String serverId, Stripe stripe) {
+		QueuedAction nextAction;
+		synchronized(stripe) {
+			ServerActions serverActions = stripe.serverActions.get(serverId);
+			// skip over the actions that were cancelled whilst waiting
+			do {
+				nextAction = serverActions.waiting.pollFirst();
+			} while(null != nextAction && nextAction.future.isDone());
+
+			if(null == nextAction) {
+				stripe.serverActions.remove(serverId);
+				return;
+			}
+		}
+
+		run(serverId, stripe, nextAction);
+	}
+
+	private static boolean isOpposite(ServerAction waitingAction, ServerAction serverAction) {
+		return((waitingAction == ServerAction.POWERON && serverAction == ServerAction.POWEROFF) ||
+				(waitingAction == ServerAction.POWEROFF && serverAction == ServerAction.POWERON));
+	}
+
+	/**
+	 * A lock stripe, holding the queues of the servers that hash to it
+	 */
+	private static final class Stripe {
+		private final Map<String, ServerActions> serverActions = new HashMap<String, ServerActions>();
+	}
+
+	/**
+	 * The actions for a single server, the one in flight and the ones waiting
+	 */
+	private static final class ServerActions {
+		private final ArrayDeque<QueuedAction> waiting = new ArrayDeque<QueuedAction>();
+		private boolean isRunning = false;
+	}
+
+	private static final class QueuedAction {
+		private final ServerAction serverAction;
+		private final CompletableFuture<ServerTask> future = new CompletableFuture<ServerTask>();
+
+		private QueuedAction(ServerAction serverAction) {
+			this.serverAction = serverAction;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+/**
+ * The report of a teardown - exactly which servers, volumes and IPs were 
+ * removed, which were already gone, and which could not be removed (and why).
+ */
+public class TeardownReport {
+	private final Map<ResourceType, List<String>> removedIds = new EnumMap<ResourceType, List<String>>(ResourceType.class);
+	private final List<String> notFoundIds = new ArrayList<String>();
+	private final Map<String, ScalewayApiException> errors = new LinkedHashMap<String, ScalewayApiException>();
+
+	synchronized void addRemoved(ResourceType resourceType, String id) {
+		List<String> ids = removedIds.get(resourceType);
+		if(null == ids) {
+			ids = new ArrayList<String>();
+			removedIds.put(resourceType, ids);
+		}
+		ids.add(id);
+	}
+
+	synchronized void addNotFound(String id) {
+		notFoundIds.add(id);
+	}
+
+	synchronized void addError(String id, ScalewayApiException error) {
+		errors.put(id, error);
+	}
+
+	/**
+	 * Return the IDs of the resources of the type that were removed
+	 * 
+	 * @param resourceType the type of the resources
+	 * 
+	 * @return the IDs of the removed resources, in the order they were removed
+	 */
+	public synchronized List<String> getRemovedIds(ResourceType resourceType) {
+		List<String> ids = removedIds.get(resourceType);
+		if(null == ids) {
+			return(Collections.<String>emptyList());
+		}
+		return(new ArrayList<String>(ids));
+	}
+
+	/**
+	 * Return the IDs of the resources that were already gone
+	 * 
+	 * @return the IDs of the resources that were not found
+	 */
+	public synchronized List<String> getNotFoundIds() { return(new ArrayList<String>(notFoundIds)); }
+
+	/**
+	 * Return the errors for the resources that could not be removed, keyed on
+	 * the ID of the resource.  The volumes and IP of a server that could not 
+	 * be stopped or deleted are left in place, and are not reported here.
+	 * 
+	 * @return the errors
+	 */
+	public synchronized Map<String, ScalewayApiException> getErrors() { return(new LinkedHashMap<String, ScalewayApiException>(errors)); }
+
+	/**
+	 * Whether everything was removed, (or was already gone)
+	 * 
+	 * @return whether there were no errors
+	 */
+	public synchronized boolean isComplete() { return(errors.isEmpty()); }
+
+	@Override
+	public synchronized String toString() {
+		return("TeardownReport [removed=" + removedIds + ", notFound=" + notFoundIds + ", errors=" + errors.keySet() + "]");
+	}
+}
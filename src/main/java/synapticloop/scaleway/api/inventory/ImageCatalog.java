@@ -0,0 +1,384 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * A local catalogue of all of the images that are available, loaded with 
+ * parallel paging, and indexed by exact name, name prefix, architecture, 
+ * organization, public visibility and marketplace key, so that the image to 
+ * provision a server with can be resolved without crawling the image pages.
+ * 
+ * All of the lists that are returned are ordered by creation date, newest 
+ * first, so the first image in any list is the latest one.
+ */
+public class ImageCatalog implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageCatalog.class);
+
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	private static final Comparator<Image> NEWEST_FIRST = new Comparator<Image>() {
+		@Override
+		public int compare(Image image, Image other) {
+			Date creationDate = image.getCreationDate();
+			Date otherCreationDate = other.getCreationDate();
+			if(null == creationDate) {
+				return(null == otherCreationDate ? 0 : 1);
+			} else if(null == otherCreationDate) {
+				return(-1);
+			}
+			return(otherCreationDate.compareTo(creationDate));
+		}
+	};
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final ExecutorService executorService;
+
+	private volatile Indexes indexes = new Indexes(Collections.<Image>emptyList());
+
+	/**
+	 * Create a new, empty, image catalogue which fetches the image pages with the
+	 * default parallelism
+	 * 
+	 * @param scalewayApiClient the client to fetch the images with
+	 */
+	public ImageCatalog(ScalewayApiClient scalewayApiClient) {
+		this(scalewayApiClient, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Create a new, empty, image catalogue
+	 * 
+	 * @param scalewayApiClient the client to fetch the images with
+	 * @param parallelism the maximum number of image pages to fetch at once
+	 */
+	public ImageCatalog(ScalewayApiClient scalewayApiClient, int parallelism) {
+		this.scalewayApiClient = scalewayApiClient;
+		this.executorService = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("scaleway-image-catalog"));
+	}
+
+	/**
+	 * Load (or reload) all of the images.  If none of the images have been 
+	 * added, removed or modified since the last load, the current indexes are 
+	 * kept, otherwise they are rebuilt and swapped in atomically, so readers 
+	 * always see a consistent catalogue.
+	 * 
+	 * @return whether the catalogue changed
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public boolean refresh() throws ScalewayApiException {
+		long startMillis = System.currentTimeMillis();
+		List<Image> images = PageFetchers.fetchAll(PageFetchers.images(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE, executorService);
+
+		if(!indexes.isChanged(images)) {
+			LOGGER.debug("Image catalogue of {} images is unchanged, took {}ms", images.size(), System.currentTimeMillis() - startMillis);
+			return(false);
+		}
+
+		indexes = new Indexes(images);
+		LOGGER.debug("Loaded image catalogue of {} images in {}ms", images.size(), System.currentTimeMillis() - startMillis);
+		return(true);
+	}
+
+	/**
+	 * Get the image by its ID
+	 * 
+	 * @param imageId the ID of the image
+	 * 
+	 * @return the image, or null if it is not in the catalogue
+	 */
+	public Image getImage(String imageId) { return(indexes.byId.get(imageId)); }
+
+	/**
+	 * Get all of the images in the catalogue
+	 * 
+	 * @return all of the images, newest first
+	 */
+	public List<Image> getImages() { return(indexes.all); }
+
+	/**
+	 * Get the images with exactly this name
+	 * 
+	 * @param name the name of the image
+	 * 
+	 * @return the images with this name, newest first
+	 */
+	public List<Image> getImagesByName(String name) { return(listFor(indexes.byName, name)); }
+
+	/**
+	 * Get the images whose names start with this prefix
+	 * 
+	 * @param namePrefix the start of the name of the images
+	 * 
+	 * @return the images whose names start with the prefix, newest first
+	 */
+	public List<Image> getImagesByNamePrefix(String namePrefix) {
+		List<Image> images = new ArrayList<Image>();
+		for (List<Image> named : prefixMap(indexes.byName, namePrefix).values()) {
+			images.addAll(named);
+		}
+		Collections.sort(images, NEWEST_FIRST);
+		return(images);
+	}
+
+	/**
+	 * Get the images for this architecture
+	 * 
+	 * @param arch the architecture (e.g. x86_64 or arm)
+	 * 
+	 * @return the images for the architecture, newest first
+	 */
+	public List<Image> getImagesByArch(String arch) { return(listFor(indexes.byArch, arch)); }
+
+	/**
+	 * Get the images owned by this organization
+	 * 
+	 * @param organizationId the ID of the organization
+	 * 
+	 * @return the images owned by the organization, newest first
+	 */
+	public List<Image> getImagesByOrganization(String organizationId) { return(listFor(indexes.byOrganization, organizationId)); }
+
+	/**
+	 * Get the images with this marketplace key
+	 * 
+	 * @param marketplaceKey the marketplace key
+	 * 
+	 * @return the images with the marketplace key, newest first
+	 */
+	public List<Image> getImagesByMarketplaceKey(String marketplaceKey) { return(listFor(indexes.byMarketplaceKey, marketplaceKey)); }
+
+	/**
+	 * Get the public images
+	 * 
+	 * @return the public images, newest first
+	 */
+	public List<Image> getPublicImages() { return(indexes.publicImages); }
+
+	/**
+	 * Find the latest (by creation date) image with exactly this name, for the
+	 * architecture
+	 * 
+	 * @param name the name of the image
+	 * @param arch the architecture, or null for any architecture
+	 * 
+	 * @return the latest image, or null if there is no match
+	 */
+	public Image findLatestByName(String name, String arch) {
+		return(firstForArch(getImagesByName(name), arch));
+	}
+
+	/**
+	 * Find the latest (by creation date) image whose name starts with the prefix,
+	 * for the architecture
+	 * 
+	 * @param namePrefix the start of the name of the image
+	 * @param arch the architecture, or null for any architecture
+	 * 
+	 * @return the latest image, or null if there is no match
+	 */
+	public Image findLatestByNamePrefix(String namePrefix, String arch) {
+		return(firstForArch(getImagesByNamePrefix(namePrefix), arch));
+	}
+
+	/**
+	 * Resolve an image ID, or the name of an image (to the latest image with that
+	 * name) into an image ID
+	 * 
+	 * @param imageNameOrId the image ID, or the name of the image
+	 * 
+	 * @return the image ID
+	 * 
+	 * @throws ScalewayApiException if there is no image with that ID or name
+	 */
+	public String resolveImageId(String imageNameOrId) throws ScalewayApiException {
+		return(resolveImageId(imageNameOrId, null));
+	}
+
+	/**
+	 * Resolve an image ID, or the name of an image (to the latest image with that
+	 * name for the architecture) into an image ID
+	 * 
+	 * @param imageNameOrId the image ID, or the name of the image
+	 * @param arch the architecture, or null for any architecture
+	 * 
+	 * @return the image ID
+	 * 
+	 * @throws ScalewayApiException if there is no image with that ID or name for
+	 *     the architecture
+	 */
+	public String resolveImageId(String imageNameOrId, String arch) throws ScalewayApiException {
+		Indexes current = indexes;
+		Image image = current.byId.get(imageNameOrId);
+		if(null != image) {
+			if(null != arch && null != image.getArch() && !arch.equals(image.getArch())) {
+				throw new ScalewayApiException("The image with the ID '" + imageNameOrId + "' is for the architecture '" + image.getArch() + "', not '" + arch + "'");
+			}
+			return(imageNameOrId);
+		}
+
+		image = findLatestByName(imageNameOrId, arch);
+		if(null == image) {
+			throw new ScalewayApiException("Could not find an image with the ID or name '" + imageNameOrId + "'" + (null == arch ? "" : " for the architecture '" + arch + "'") + " in the image catalogue");
+		}
+		return(image.getId());
+	}
+
+	/**
+	 * Create a server, which has a dynamic IP attached to it, from the image 
+	 * identified by its ID or its name, (resolved to the latest image with that
+	 * name for the architecture of the server type), without any further API 
+	 * calls to find the image.
+	 * 
+	 * @param serverName The name of the server
+	 * @param imageNameOrId the ID, or the name, of the image to use as the base
+	 * @param organizationToken the organization token
+	 * @param serverType the Type of Server
+	 * @param tags The tags to apply to this server
+	 * 
+	 * @return The newly created server
+	 * 
+	 * @throws ScalewayApiException If the image could not be found, or there was
+	 *     an error with the API call
+	 */
+	public Server createServer(String serverName, String imageNameOrId, String organizationToken, ServerType serverType, String... tags) throws ScalewayApiException {
+		return(scalewayApiClient.createServer(serverName, resolveImageId(imageNameOrId, serverType.getArch()), organizationToken, serverType, tags));
+	}
+
+	/**
+	 * Stop the threads that fetch the image pages
+	 */
+	@Override
+	public void close() {
+		executorService.shutdownNow();
+	}
+
+	private static Image firstForArch(List<Image> images, String arch) {
+		for (Image image : images) {
+			if(null == arch || arch.equals(image.getArch())) {
+				return(image);
+			}
+		}
+		return(null);
+	}
+
+	private static List<Image> listFor(Map<String, List<Image>> index, String key) {
+		List<Image> images = index.get(key);
+		if(null == images) {
+			return(Collections.emptyList());
+		}
+		return(Collections.unmodifiableList(images));
+	}
+
+	private static SortedMap<String, List<Image>> prefixMap(TreeMap<String, List<Image>> index, String prefix) {
+		return(index.subMap(prefix, prefix + Character.MAX_VALUE));
+	}
+
+	/**
+	 * The indexes are immutable once built, and are replaced as a whole on 
+	 * refresh.
+	 */
+	private static final class Indexes {
+		private final List<Image> all;
+		private final Map<String, Image> byId = new HashMap<String, Image>();
+		private final TreeMap<String, List<Image>> byName = new TreeMap<String, List<Image>>();
+		private final Map<String, List<Image>> byArch = new HashMap<String, List<Image>>();
+		private final Map<String, List<Image>> byOrganization = new HashMap<String, List<Image>>();
+		private final Map<String, List<Image>> byMarketplaceKey = new HashMap<String, List<Image>>();
+		private final List<Image> publicImages;
+
+		private Indexes(List<Image> images) {
+			List<Image> sorted = new ArrayList<Image>(images);
+			Collections.sort(sorted, NEWEST_FIRST);
+
+			List<Image> publicImagesList = new ArrayList<Image>();
+			for (Image image : sorted) {
+				byId.put(image.getId(), image);
+				add(byName, image.getName(), image);
+				add(byArch, image.getArch(), image);
+				add(byOrganization, image.getOrganization(), image);
+				add(byMarketplaceKey, image.getMarketplaceKey(), image);
+				if(image.getIsPublicImage()) {
+					publicImagesList.add(image);
+				}
+			}
+
+			this.all = Collections.unmodifiableList(sorted);
+			this.publicImages = Collections.unmodifiableList(publicImagesList);
+		}
+
+		private static void add(Map<String, List<Image>> index, String key, Image image) {
+			if(null == key) {
+				return;
+			}
+			List<Image> images = index.get(key);
+			if(null == images) {
+				images = new ArrayList<Image>();
+				index.put(key, images);
+			}
+			// images are added newest first, so the lists stay sorted
+			images.add(image);
+		}
+
+		/**
+		 * Whether any image has been added, removed or modified, compared to the
+		 * images in these indexes
+		 */
+		private boolean isChanged(List<Image> images) {
+			if(images.size() != byId.size()) {
+				return(true);
+			}
+			for (Image image : images) {
+				Image existing = byId.get(image.getId());
+				if(null == existing) {
+					return(true);
+				}
+				Date modificationDate = image.getModificationDate();
+				Date existingModificationDate = existing.getModificationDate();
+				if(null == modificationDate ? null != existingModificationDate : !modificationDate.equals(existingModificationDate)) {
+					return(true);
+				}
+			}
+			return(false);
+		}
+	}
+}
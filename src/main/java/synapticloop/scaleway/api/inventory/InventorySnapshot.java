@@ -0,0 +1,144 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+
+/**
+ * A point in time snapshot of the inventory, which is written to a local file
+ * in the (binary) Smile format so that a restarted process can serve the last
+ * known inventory immediately, rather than re-crawling every page first.
+ * 
+ * Snapshots are written to a temporary file which is then moved over the 
+ * existing snapshot, so that a reader never sees a partially written file, 
+ * and are read through a memory mapped buffer.
+ */
+public class InventorySnapshot {
+	public static final int CURRENT_VERSION = 1;
+
+	private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory())
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	@JsonProperty("version")         private int version = CURRENT_VERSION;
+	@JsonProperty("created_millis")  private long createdMillis;
+	@JsonProperty("servers")         private List<Server> servers = new ArrayList<Server>();
+	@JsonProperty("volumes")         private List<Volume> volumes = new ArrayList<Volume>();
+	@JsonProperty("ips")             private List<IP> ips = new ArrayList<IP>();
+	@JsonProperty("security_groups") private List<SecurityGroup> securityGroups = new ArrayList<SecurityGroup>();
+
+	public InventorySnapshot() {}
+
+	public InventorySnapshot(long createdMillis, List<Server> servers, List<Volume> volumes, List<IP> ips, List<SecurityGroup> securityGroups) {
+		this.createdMillis = createdMillis;
+		this.servers = servers;
+		this.volumes = volumes;
+		this.ips = ips;
+		this.securityGroups = securityGroups;
+	}
+
+	public int getVersion() { return version; }
+
+	public long getCreatedMillis() { return createdMillis; }
+
+	public List<Server> getServers() { return servers; }
+
+	public List<Volume> getVolumes() { return volumes; }
+
+	public List<IP> getIPs() { return ips; }
+
+	public List<SecurityGroup> getSecurityGroups() { return securityGroups; }
+
+	/**
+	 * Write this snapshot to the file, replacing any existing snapshot atomically
+	 * (where the file system supports it)
+	 * 
+	 * @param file the file to write the snapshot to
+	 * 
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void write(File file) throws IOException {
+		Path target = file.getAbsoluteFile().toPath();
+		Path temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+				SMILE_MAPPER.writeValue(outputStream, this);
+			}
+
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Read a snapshot from the file
+	 * 
+	 * @param file the file to read the snapshot from
+	 * 
+	 * @return the snapshot, or null if the file does not exist, or was written 
+	 *     by an incompatible version
+	 * 
+	 * @throws IOException if the snapshot could not be read
+	 */
+	public static InventorySnapshot read(File file) throws IOException {
+		if(!file.isFile()) {
+			return(null);
+		}
+
+		InventorySnapshot inventorySnapshot;
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel fileChannel = randomAccessFile.getChannel()) {
+			MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			try (InputStream inputStream = new ByteBufferBackedInputStream(mappedByteBuffer)) {
+				inventorySnapshot = SMILE_MAPPER.readValue(inputStream, InventorySnapshot.class);
+			}
+		}
+
+		if(inventorySnapshot.getVersion() != CURRENT_VERSION) {
+			return(null);
+		}
+		return(inventorySnapshot);
+	}
+}
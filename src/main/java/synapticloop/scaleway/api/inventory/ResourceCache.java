@@ -0,0 +1,203 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent cache of one type of resource, keyed by the resource ID.  Each 
+ * entry records the time (from <code>System.nanoTime()</code>) as of which the 
+ * resource state is known, so that an older state (e.g. from a full refresh 
+ * which was started before an update was made through the client) never 
+ * overwrites a newer one.
+ * 
+ * Deletions and invalidations are also recorded as entries so that a refresh 
+ * which is in flight when they happen cannot bring the old state back.
+ *
+ * @param <T> The type of the resource that is cached
+ */
+public class ResourceCache<T> {
+	private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<String, Entry<T>>();
+
+	/**
+	 * Get the resource if it is known, not invalidated and no older than the 
+	 * maximum staleness
+	 * 
+	 * @param id The ID of the resource
+	 * @param maxStalenessNanos The maximum age of the cached state, in nanoseconds
+	 * @param nowNanos The current time, from <code>System.nanoTime()</code>
+	 * 
+	 * @return The resource, or null if it is not in the cache, or is not fresh
+	 */
+	public T getFresh(String id, long maxStalenessNanos, long nowNanos) {
+		Entry<T> entry = entries.get(id);
+		if(null == entry || !entry.isFresh || nowNanos - entry.asOfNanos > maxStalenessNanos) {
+			return(null);
+		}
+		return(entry.resource);
+	}
+
+	/**
+	 * Get the latest known state of the resource, regardless of how fresh it is
+	 * 
+	 * @param id The ID of the resource
+	 * 
+	 * @return The resource, or null if it is not in the cache, or was deleted
+	 */
+	public T get(String id) {
+		Entry<T> entry = entries.get(id);
+		if(null == entry) {
+			return(null);
+		}
+		return(entry.resource);
+	}
+
+	/**
+	 * Put the current state of the resource into the cache, unless a newer state
+	 * (or a newer deletion) has already been recorded
+	 * 
+	 * @param id The ID of the resource
+	 * @param resource The resource
+	 * @param asOfNanos The time as of which the state of the resource is known
+	 */
+	public void put(String id, T resource, long asOfNanos) {
+		Entry<T> updated = new Entry<T>(resource, asOfNanos, true);
+		while(true) {
+			Entry<T> existing = entries.get(id);
+			if(null == existing) {
+				if(null == entries.putIfAbsent(id, updated)) {
+					return;
+				}
+			} else if(existing.asOfNanos <= asOfNanos) {
+				if(entries.replace(id, existing, updated)) {
+					return;
+				}
+			} else if(!existing.isFresh && null != existing.resource) {
+				// a newer invalidation - keep the newer state of the resource, but it 
+				// still needs to be retrieved before it can be trusted
+				if(entries.replace(id, existing, new Entry<T>(resource, existing.asOfNanos, false))) {
+					return;
+				}
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Mark the resource as changed, so that it will not be returned as fresh 
+	 * until its new state has been put into the cache
+	 * 
+	 * @param id The ID of the resource
+	 * @param asOfNanos The time at which the resource was changed
+	 */
+	public void invalidate(String id, long asOfNanos) {
+		while(true) {
+			Entry<T> existing = entries.get(id);
+			if(null == existing || null == existing.resource || existing.asOfNanos > asOfNanos) {
+				return;
+			}
+			if(entries.replace(id, existing, new Entry<T>(existing.resource, asOfNanos, false))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Record that the resource has been deleted
+	 * 
+	 * @param id The ID of the resource
+	 * @param asOfNanos The time at which the resource was deleted
+	 */
+	public void delete(String id, long asOfNanos) {
+		Entry<T> deleted = new Entry<T>(null, asOfNanos, true);
+		while(true) {
+			Entry<T> existing = entries.get(id);
+			if(null == existing) {
+				if(null == entries.putIfAbsent(id, deleted)) {
+					return;
+				}
+			} else if(existing.asOfNanos <= asOfNanos) {
+				if(entries.replace(id, existing, deleted)) {
+					return;
+				}
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reload the cache from a full listing of the resources, which was started
+	 * at the passed in time.  Any resource that was not in the listing, and has
+	 * not been updated since the listing was started, is removed.
+	 * 
+	 * @param resources The full listing of resources, keyed on their ID
+	 * @param asOfNanos The time at which the listing was started
+	 */
+	public void reload(Map<String, T> resources, long asOfNanos) {
+		for (Map.Entry<String, T> resource : resources.entrySet()) {
+			put(resource.getKey(), resource.getValue(), asOfNanos);
+		}
+
+		for (Map.Entry<String, Entry<T>> entry : entries.entrySet()) {
+			if(entry.getValue().asOfNanos < asOfNanos && !resources.containsKey(entry.getKey())) {
+				entries.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Return all of the resources in the cache which have not been deleted, 
+	 * regardless of how fresh they are
+	 * 
+	 * @return all of the resources in the cache
+	 */
+	public List<T> values() {
+		List<T> values = new ArrayList<T>(entries.size());
+		for (Entry<T> entry : entries.values()) {
+			if(null != entry.resource) {
+				values.add(entry.resource);
+			}
+		}
+		return(values);
+	}
+
+	/**
+	 * Remove all of the entries from the cache
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	private static final class Entry<T> {
+		private final T resource;
+		private final long asOfNanos;
+		private final boolean isFresh;
+
+		private Entry(T resource, long asOfNanos, boolean isFresh) {
+			this.resource = resource;
+			this.asOfNanos = asOfNanos;
+			this.isFresh = isFresh;
+		}
+	}
+}
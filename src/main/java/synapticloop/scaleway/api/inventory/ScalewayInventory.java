@@ -0,0 +1,492 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ResourceListener;
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * An opt-in local inventory of the servers, volumes, IPs and security groups 
+ * for the client's region, which answers reads locally as long as the cached 
+ * state is no older than the maximum staleness, falling back to the API 
+ * otherwise.
+ * 
+ * The inventory registers itself as a resource listener on the client, so any
+ * create, update, attach, action or delete made through the client updates (or
+ * invalidates) the inventory as soon as the call succeeds.  Changes made 
+ * outside of this client are picked up on the next full refresh.
+ * 
+ * Note that the maximum staleness should be larger than the refresh interval,
+ * otherwise reads between refreshes will go to the API.
+ * 
+ * If a snapshot file is set, the inventory is written to it after every 
+ * successful refresh, and on start the last snapshot is loaded and served 
+ * straight away, while the first refresh reconciles it with the API in the 
+ * background.
+ */
+public class ScalewayInventory implements ResourceListener, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScalewayInventory.class);
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final long maxStalenessNanos;
+	private final long refreshIntervalMillis;
+
+	private final ResourceCache<Server> servers = new ResourceCache<Server>();
+	private final ResourceCache<Volume> volumes = new ResourceCache<Volume>();
+	private final ResourceCache<IP> ips = new ResourceCache<IP>();
+	private final ResourceCache<SecurityGroup> securityGroups = new ResourceCache<SecurityGroup>();
+	private final ServerIndex serverIndex = new ServerIndex();
+
+	private final AtomicLong numHits = new AtomicLong();
+	private final AtomicLong numMisses = new AtomicLong();
+
+	private ScheduledExecutorService scheduledExecutorService = null;
+	private volatile File snapshotFile = null;
+
+	/**
+	 * Create a new inventory, which registers itself as a listener on the client.
+	 * The inventory is empty until it is loaded, or started.
+	 * 
+	 * @param scalewayApiClient The client to load the resources with
+	 * @param maxStalenessMillis The maximum age of a cached resource that will be
+	 *     returned without going to the API
+	 * @param refreshIntervalMillis The interval between full refreshes once the 
+	 *     inventory is started
+	 */
+	public ScalewayInventory(ScalewayApiClient scalewayApiClient, long maxStalenessMillis, long refreshIntervalMillis) {
+		if(maxStalenessMillis < 0 || refreshIntervalMillis <= 0) {
+			throw new IllegalArgumentException("The maximum staleness must not be negative, and the refresh interval must be positive");
+		}
+		this.scalewayApiClient = scalewayApiClient;
+		this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+		this.refreshIntervalMillis = refreshIntervalMillis;
+		scalewayApiClient.addResourceListener(this);
+	}
+
+	/**
+	 * Load all of the servers, volumes, IPs and security groups through the paged
+	 * endpoints, replacing the current contents of the inventory
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public void load() throws ScalewayApiException {
+		long startNanos = System.nanoTime();
+		List<Server> allServers = PageFetchers.fetchAll(PageFetchers.servers(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE);
+		Map<String, Server> serversMap = new HashMap<String, Server>();
+		for (Server server : allServers) {
+			serversMap.put(server.getId(), server);
+		}
+		servers.reload(serversMap, startNanos);
+		synchronized(serverIndex) {
+			serverIndex.reload(servers.values());
+		}
+
+		startNanos = System.nanoTime();
+		List<Volume> allVolumes = PageFetchers.fetchAll(PageFetchers.volumes(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE);
+		Map<String, Volume> volumesMap = new HashMap<String, Volume>();
+		for (Volume volume : allVolumes) {
+			volumesMap.put(volume.getId(), volume);
+		}
+		volumes.reload(volumesMap, startNanos);
+
+		startNanos = System.nanoTime();
+		List<IP> allIPs = PageFetchers.fetchAll(PageFetchers.ips(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE);
+		Map<String, IP> ipsMap = new HashMap<String, IP>();
+		for (IP ip : allIPs) {
+			ipsMap.put(ip.getId(), ip);
+		}
+		ips.reload(ipsMap, startNanos);
+
+		startNanos = System.nanoTime();
+		List<SecurityGroup> allSecurityGroups = PageFetchers.fetchAll(PageFetchers.securityGroups(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE);
+		Map<String, SecurityGroup> securityGroupsMap = new HashMap<String, SecurityGroup>();
+		for (SecurityGroup securityGroup : allSecurityGroups) {
+			securityGroupsMap.put(securityGroup.getId(), securityGroup);
+		}
+		securityGroups.reload(securityGroupsMap, startNanos);
+
+		LOGGER.debug("Loaded inventory of {} servers, {} volumes, {} IPs and {} security groups", 
+				allServers.size(), allVolumes.size(), allIPs.size(), allSecurityGroups.size());
+	}
+
+	/**
+	 * Set the file that the inventory is snapshotted to after each refresh, and 
+	 * warm started from when the inventory is started
+	 * 
+	 * @param snapshotFile the snapshot file, or null to not snapshot the inventory
+	 */
+	public void setSnapshotFile(File snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * Write a snapshot of the current contents of the inventory to the file
+	 * 
+	 * @param file the file to write the snapshot to
+	 * 
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void saveSnapshot(File file) throws IOException {
+		long startMillis = System.currentTimeMillis();
+		InventorySnapshot inventorySnapshot = new InventorySnapshot(startMillis, 
+				servers.values(), 
+				volumes.values(), 
+				ips.values(), 
+				securityGroups.values());
+		inventorySnapshot.write(file);
+		LOGGER.debug("Wrote inventory snapshot to '{}' in {}ms", file, System.currentTimeMillis() - startMillis);
+	}
+
+	/**
+	 * Load the contents of a snapshot into the inventory.  The snapshot 
+	 * resources are as old as the snapshot, (not as the load), so those within
+	 * the maximum staleness are served without going to the API, and the rest 
+	 * are stale until the next refresh, (which <code>start()</code> does).  Any resource already in the inventory which
+	 * is newer than the snapshot is kept.
+	 * 
+	 * @param file the file to read the snapshot from
+	 * 
+	 * @return whether the snapshot was loaded (false if there was no snapshot, 
+	 *     or it was written by an incompatible version)
+	 * 
+	 * @throws IOException if the snapshot could not be read
+	 */
+	public boolean loadSnapshot(File file) throws IOException {
+		long startMillis = System.currentTimeMillis();
+		InventorySnapshot inventorySnapshot = InventorySnapshot.read(file);
+		if(null == inventorySnapshot) {
+			return(false);
+		}
+
+		// the entries are as old as the snapshot, not as the load, so that stale
+		// entries are still refreshed
+		long snapshotAgeMillis = Math.max(0L, startMillis - inventorySnapshot.getCreatedMillis());
+		long snapshotNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(snapshotAgeMillis);
+		for (Server server : inventorySnapshot.getServers()) {
+			servers.put(server.getId(), server, snapshotNanos);
+		}
+		synchronized(serverIndex) {
+			serverIndex.reload(servers.values());
+		}
+		for (Volume volume : inventorySnapshot.getVolumes()) {
+			volumes.put(volume.getId(), volume, snapshotNanos);
+		}
+		for (IP ip : inventorySnapshot.getIPs()) {
+			ips.put(ip.getId(), ip, snapshotNanos);
+		}
+		for (SecurityGroup securityGroup : inventorySnapshot.getSecurityGroups()) {
+			securityGroups.put(securityGroup.getId(), securityGroup, snapshotNanos);
+		}
+
+		LOGGER.debug("Loaded inventory snapshot from '{}' (written {}ms ago) in {}ms", 
+				file, 
+				snapshotAgeMillis, 
+				System.currentTimeMillis() - startMillis);
+		return(true);
+	}
+
+	/**
+	 * Load the inventory, and then refresh it in the background at the refresh 
+	 * interval.  If a snapshot file has been set, and there is a snapshot, then 
+	 * the snapshot is loaded instead and the first refresh is started in the
+	 * background immediately.
+	 * 
+	 * @throws ScalewayApiException If there was an error with the initial load
+	 */
+	public synchronized void start() throws ScalewayApiException {
+		if(null != scheduledExecutorService) {
+			return;
+		}
+
+		long initialDelayMillis = refreshIntervalMillis;
+		if(!warmStart()) {
+			load();
+			saveSnapshot();
+		} else {
+			initialDelayMillis = 0;
+		}
+
+		scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("scaleway-inventory"));
+		scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					load();
+					saveSnapshot();
+				} catch (ScalewayApiException | RuntimeException ex) {
+					// the existing entries will age past the maximum staleness, so reads 
+					// fall back to the API until a refresh succeeds
+					LOGGER.warn("Could not refresh the inventory, message was: {}", ex.getMessage());
+				}
+			}
+		}, initialDelayMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private boolean warmStart() {
+		File file = snapshotFile;
+		if(null == file) {
+			return(false);
+		}
+
+		try {
+			return(loadSnapshot(file));
+		} catch (IOException | RuntimeException ex) {
+			LOGGER.warn("Could not load the inventory snapshot from '{}', message was: {}", file, ex.getMessage());
+			return(false);
+		}
+	}
+
+	private void saveSnapshot() {
+		File file = snapshotFile;
+		if(null == file) {
+			return;
+		}
+
+		try {
+			saveSnapshot(file);
+		} catch (IOException | RuntimeException ex) {
+			LOGGER.warn("Could not write the inventory snapshot to '{}', message was: {}", file, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Stop refreshing the inventory and de-register it from the client
+	 */
+	@Override
+	public synchronized void close() {
+		if(null != scheduledExecutorService) {
+			scheduledExecutorService.shutdownNow();
+			scheduledExecutorService = null;
+		}
+		scalewayApiClient.removeResourceListener(this);
+	}
+
+	/**
+	 * Get the server, from the inventory if it is fresh enough, else from the API
+	 * 
+	 * @param serverId The ID of the server
+	 * 
+	 * @return The server
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Server getServer(String serverId) throws ScalewayApiException {
+		Server server = servers.getFresh(serverId, maxStalenessNanos, System.nanoTime());
+		if(null != server) {
+			numHits.incrementAndGet();
+			return(server);
+		}
+		numMisses.incrementAndGet();
+		return(scalewayApiClient.getServer(serverId));
+	}
+
+	/**
+	 * Get the volume, from the inventory if it is fresh enough, else from the API
+	 * 
+	 * @param volumeId The ID of the volume
+	 * 
+	 * @return The volume
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public Volume getVolume(String volumeId) throws ScalewayApiException {
+		Volume volume = volumes.getFresh(volumeId, maxStalenessNanos, System.nanoTime());
+		if(null != volume) {
+			numHits.incrementAndGet();
+			return(volume);
+		}
+		numMisses.incrementAndGet();
+		return(scalewayApiClient.getVolume(volumeId));
+	}
+
+	/**
+	 * Get the IP, from the inventory if it is fresh enough, else from the API
+	 * 
+	 * @param ipId The ID of the IP
+	 * 
+	 * @return The IP
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public IP getIP(String ipId) throws ScalewayApiException {
+		IP ip = ips.getFresh(ipId, maxStalenessNanos, System.nanoTime());
+		if(null != ip) {
+			numHits.incrementAndGet();
+			return(ip);
+		}
+		numMisses.incrementAndGet();
+		return(scalewayApiClient.getIP(ipId));
+	}
+
+	/**
+	 * Get the security group, from the inventory if it is fresh enough, else from
+	 * the API
+	 * 
+	 * @param securityGroupId The ID of the security group
+	 * 
+	 * @return The security group
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public SecurityGroup getSecurityGroup(String securityGroupId) throws ScalewayApiException {
+		SecurityGroup securityGroup = securityGroups.getFresh(securityGroupId, maxStalenessNanos, System.nanoTime());
+		if(null != securityGroup) {
+			numHits.incrementAndGet();
+			return(securityGroup);
+		}
+		numMisses.incrementAndGet();
+		return(scalewayApiClient.getSecurityGroup(securityGroupId));
+	}
+
+	/**
+	 * Get all of the servers in the inventory, regardless of how fresh they are
+	 * 
+	 * @return all of the servers in the inventory
+	 */
+	public List<Server> getServers() { return(servers.values()); }
+
+	/**
+	 * Start a compound query over the secondary indexes of the servers in the 
+	 * inventory, (by tag, organization, state, server type and image)
+	 * 
+	 * @return a new, empty query
+	 */
+	public ServerIndex.Query queryServers() { return(serverIndex.query()); }
+
+	/**
+	 * Get all of the volumes in the inventory, regardless of how fresh they are
+	 * 
+	 * @return all of the volumes in the inventory
+	 */
+	public List<Volume> getVolumes() { return(volumes.values()); }
+
+	/**
+	 * Get all of the IPs in the inventory, regardless of how fresh they are
+	 * 
+	 * @return all of the IPs in the inventory
+	 */
+	public List<IP> getIPs() { return(ips.values()); }
+
+	/**
+	 * Get all of the security groups in the inventory, regardless of how fresh 
+	 * they are
+	 * 
+	 * @return all of the security groups in the inventory
+	 */
+	public List<SecurityGroup> getSecurityGroups() { return(securityGroups.values()); }
+
+	/**
+	 * Get the number of reads that were answered from the inventory
+	 * 
+	 * @return the number of reads that were answered from the inventory
+	 */
+	public long getNumHits() { return(numHits.get()); }
+
+	/**
+	 * Get the number of reads that went to the API
+	 * 
+	 * @return the number of reads that went to the API
+	 */
+	public long getNumMisses() { return(numMisses.get()); }
+
+	@Override
+	public void onResourceUpdated(ResourceType resourceType, String id, Object resource) {
+		long nowNanos = System.nanoTime();
+		switch (resourceType) {
+		case SERVER:
+			servers.put(id, (Server)resource, nowNanos);
+			indexServer(id);
+			break;
+		case VOLUME:
+			volumes.put(id, (Volume)resource, nowNanos);
+			break;
+		case IP:
+			ips.put(id, (IP)resource, nowNanos);
+			break;
+		case SECURITY_GROUP:
+			securityGroups.put(id, (SecurityGroup)resource, nowNanos);
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void onResourceInvalidated(ResourceType resourceType, String id) {
+		ResourceCache<?> resourceCache = getResourceCache(resourceType);
+		if(null != resourceCache) {
+			resourceCache.invalidate(id, System.nanoTime());
+		}
+	}
+
+	@Override
+	public void onResourceDeleted(ResourceType resourceType, String id) {
+		ResourceCache<?> resourceCache = getResourceCache(resourceType);
+		if(null != resourceCache) {
+			resourceCache.delete(id, System.nanoTime());
+		}
+		if(resourceType == ResourceType.SERVER) {
+			indexServer(id);
+		}
+	}
+
+	private void indexServer(String serverId) {
+		// the index follows whatever state won in the cache, read under the same 
+		// lock so that concurrent updates are applied in order
+		synchronized(serverIndex) {
+			serverIndex.update(serverId, servers.get(serverId));
+		}
+	}
+
+	private ResourceCache<?> getResourceCache(ResourceType resourceType) {
+		switch (resourceType) {
+		case SERVER:
+			return(servers);
+		case VOLUME:
+			return(volumes);
+		case IP:
+			return(ips);
+		case SECURITY_GROUP:
+			return(securityGroups);
+		default:
+			return(null);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+
+/**
+ * In-memory secondary indexes over servers, by tag, organization, state, 
+ * server type (commercial type) and image ID, which are maintained 
+ * incrementally as servers are added, changed and removed.
+ * 
+ * Each server is given a small integer ordinal (which is re-used once the 
+ * server is removed), and each index maps a value onto a bitmap of the 
+ * ordinals of the servers that have that value, so that a compound query is 
+ * the intersection of a handful of bitmaps, rather than a scan over every 
+ * server.
+ */
+public class ServerIndex {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+	private final List<Server> servers = new ArrayList<Server>();
+	private final BitSet live = new BitSet();
+	private final BitSet freeOrdinals = new BitSet();
+
+	private final Map<String, BitSet> tagIndex = new HashMap<String, BitSet>();
+	private final Map<String, BitSet> organizationIndex = new HashMap<String, BitSet>();
+	private final Map<State, BitSet> stateIndex = new EnumMap<State, BitSet>(State.class);
+	private final Map<ServerType, BitSet> serverTypeIndex = new EnumMap<ServerType, BitSet>(ServerType.class);
+	private final Map<String, BitSet> imageIndex = new HashMap<String, BitSet>();
+
+	/**
+	 * Add or update the server in the indexes
+	 * 
+	 * @param server The server to index
+	 */
+	public void put(Server server) {
+		update(server.getId(), server);
+	}
+
+	/**
+	 * Remove the server from the indexes
+	 * 
+	 * @param serverId The ID of the server to remove
+	 */
+	public void remove(String serverId) {
+		update(serverId, null);
+	}
+
+	/**
+	 * Update the indexes for the server to match its current state
+	 * 
+	 * @param serverId The ID of the server
+	 * @param server The current state of the server, or null if it has been 
+	 *     removed
+	 */
+	public void update(String serverId, Server server) {
+		lock.writeLock().lock();
+		try {
+			Integer ordinal = ordinals.get(serverId);
+			if(null != ordinal) {
+				Server existing = servers.get(ordinal);
+				if(existing == server) {
+					return;
+				}
+				unindex(existing, ordinal);
+			}
+
+			if(null == server) {
+				if(null != ordinal) {
+					ordinals.remove(serverId);
+					servers.set(ordinal, null);
+					live.clear(ordinal);
+					freeOrdinals.set(ordinal);
+				}
+				return;
+			}
+
+			if(null == ordinal) {
+				ordinal = allocateOrdinal();
+				ordinals.put(serverId, ordinal);
+			}
+
+			servers.set(ordinal, server);
+			live.set(ordinal);
+			index(server, ordinal);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Update the indexes so that they contain exactly the passed in servers
+	 * 
+	 * @param allServers all of the servers
+	 */
+	public void reload(Collection<Server> allServers) {
+		lock.writeLock().lock();
+		try {
+			Set<String> serverIds = new HashSet<String>();
+			for (Server server : allServers) {
+				serverIds.add(server.getId());
+				update(server.getId(), server);
+			}
+
+			for (String serverId : new ArrayList<String>(ordinals.keySet())) {
+				if(!serverIds.contains(serverId)) {
+					update(serverId, null);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of servers in the indexes
+	 * 
+	 * @return the number of servers in the indexes
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return(ordinals.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Start a new compound query over the indexes - all of the criteria that are
+	 * added to the query must match.
+	 * 
+	 * @return a new, empty query (which will match every server)
+	 */
+	public Query query() {
+		return(new Query());
+	}
+
+	private int allocateOrdinal() {
+		int ordinal = freeOrdinals.nextSetBit(0);
+		if(ordinal == -1) {
+			servers.add(null);
+			return(servers.size() - 1);
+		}
+		freeOrdinals.clear(ordinal);
+		return(ordinal);
+	}
+
+	private void index(Server server, int ordinal) {
+		List<String> tags = server.getTags();
+		if(null != tags) {
+			for (String tag : tags) {
+				bitsFor(tagIndex, tag).set(ordinal);
+			}
+		}
+		if(null != server.getOrganization()) {
+			bitsFor(organizationIndex, server.getOrganization()).set(ordinal);
+		}
+		if(null != server.getState()) {
+			bitsFor(stateIndex, server.getState()).set(ordinal);
+		}
+		if(null != server.getServerType()) {
+			bitsFor(serverTypeIndex, server.getServerType()).set(ordinal);
+		}
+		if(null != server.getImage() && null != server.getImage().getId()) {
+			bitsFor(imageIndex, server.getImage().getId()).set(ordinal);
+		}
+	}
+
+	private void unindex(Server server, int ordinal) {
+		List<String> tags = server.getTags();
+		if(null != tags) {
+			for (String tag : tags) {
+				clearBit(tagIndex, tag, ordinal);
+			}
+		}
+		clearBit(organizationIndex, server.getOrganization(), ordinal);
+		clearBit(stateIndex, server.getState(), ordinal);
+		clearBit(serverTypeIndex, server.getServerType(), ordinal);
+		if(null != server.getImage()) {
+			clearBit(imageIndex, server.getImage().getId(), ordinal);
+		}
+	}
+
+	private static <K> BitSet bitsFor(Map<K, BitSet> index, K key) {
+		BitSet bitSet = index.get(key);
+		if(null == bitSet) {
+			bitSet = new BitSet();
+			index.put(key, bitSet);
+		}
+		return(bitSet);
+	}
+
+	private static <K> void clearBit(Map<K, BitSet> index, K key, int ordinal) {
+		if(null == key) {
+			return;
+		}
+		BitSet bitSet = index.get(key);
+		if(null != bitSet) {
+			bitSet.clear(ordinal);
+			if(bitSet.isEmpty()) {
+				// don't leave empty bitmaps behind for tags that are no longer used
+				index.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * A compound query over the server indexes, for example:
+	 * 
+	 * <pre>
+	 * serverIndex.query()
+	 *     .withState(State.RUNNING)
+	 *     .withServerType(ServerType.VC1S)
+	 *     .withTag("web")
+	 *     .withOrganization(organizationId)
+	 *     .list();
+	 * </pre>
+	 */
+	public class Query {
+		private final List<String> tags = new ArrayList<String>();
+		private String organization = null;
+		private State state = null;
+		private ServerType serverType = null;
+		private String imageId = null;
+
+		private Query() {}
+
+		/**
+		 * Only match servers which have this tag (may be called more than once, in
+		 * which case the servers must have all of the tags)
+		 * 
+		 * @param tag the tag the server must have
+		 * 
+		 * @return this query
+		 */
+		public Query withTag(String tag) { this.tags.add(tag); return(this); }
+
+		/**
+		 * Only match servers in this organization
+		 * 
+		 * @param organization the organization ID
+		 * 
+		 * @return this query
+		 */
+		public Query withOrganization(String organization) { this.organization = organization; return(this); }
+
+		/**
+		 * Only match servers in this state
+		 * 
+		 * @param state the state of the server
+		 * 
+		 * @return this query
+		 */
+		public Query withState(State state) { this.state = state; return(this); }
+
+		/**
+		 * Only match servers of this type
+		 * 
+		 * @param serverType the type of the server
+		 * 
+		 * @return this query
+		 */
+		public Query withServerType(ServerType serverType) { this.serverType = serverType; return(this); }
+
+		/**
+		 * Only match servers running this image
+		 * 
+		 * @param imageId the ID of the image
+		 * 
+		 * @return this query
+		 */
+		public Query withImageId(String imageId) { this.imageId = imageId; return(this); }
+
+		/**
+		 * Return the servers that match all of the criteria
+		 * 
+		 * @return the matching servers
+		 */
+		public List<Server> list() {
+			lock.readLock().lock();
+			try {
+				BitSet matches = match();
+				List<Server> results = new ArrayList<Server>(matches.cardinality());
+				for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+					results.add(servers.get(ordinal));
+				}
+				return(results);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Return the number of servers that match all of the criteria
+		 * 
+		 * @return the number of matching servers
+		 */
+		public int count() {
+			lock.readLock().lock();
+			try {
+				return(match().cardinality());
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private BitSet match() {
+			// start with the smallest bitmap so that the intersection is cheapest
+			List<BitSet> bitSets = new ArrayList<BitSet>();
+			for (String tag : tags) {
+				bitSets.add(tagIndex.get(tag));
+			}
+			if(null != organization) {
+				bitSets.add(organizationIndex.get(organization));
+			}
+			if(null != state) {
+				bitSets.add(stateIndex.get(state));
+			}
+			if(null != serverType) {
+				bitSets.add(serverTypeIndex.get(serverType));
+			}
+			if(null != imageId) {
+				bitSets.add(imageIndex.get(imageId));
+			}
+
+			if(bitSets.isEmpty()) {
+				return((BitSet)live.clone());
+			}
+
+			BitSet smallest = null;
+			for (BitSet bitSet : bitSets) {
+				if(null == bitSet) {
+					// nothing has this value
+					return(new BitSet());
+				}
+				if(null == smallest || bitSet.cardinality() < smallest.cardinality()) {
+					smallest = bitSet;
+				}
+			}
+
+			BitSet result = (BitSet)smallest.clone();
+			for (BitSet bitSet : bitSets) {
+				if(bitSet != smallest) {
+					result.and(bitSet);
+				}
+			}
+			return(result);
+		}
+	}
+}
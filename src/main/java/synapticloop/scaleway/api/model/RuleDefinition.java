@@ -0,0 +1,68 @@
+package synapticloop.scaleway.api.model;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import synapticloop.scaleway.api.RuleAction;
+import synapticloop.scaleway.api.RuleDirection;
+import synapticloop.scaleway.api.RuleProtocol;
+
+/**
+ * The definition of a security group rule, to create a rule from, or to 
+ * update a rule to.  The ports are optional, (e.g. for ICMP rules), and are 
+ * left out of the request when they are null.
+ */
+public class RuleDefinition {
+	@JsonProperty("action")          private RuleAction action;
+	@JsonProperty("direction")       private RuleDirection direction;
+	@JsonProperty("ip_range")        private String ipRange;
+	@JsonProperty("protocol")        private RuleProtocol protocol;
+	@JsonProperty("dest_port_from")  private Integer destPortFrom;
+	@JsonProperty("dest_port_to")    private Integer destPortTo;
+
+	public RuleDefinition(RuleAction action, RuleDirection direction, String ipRange, RuleProtocol protocol, Integer destPortFrom) {
+		this(action, direction, ipRange, protocol, destPortFrom, null);
+	}
+
+	public RuleDefinition(RuleAction action, RuleDirection direction, String ipRange, RuleProtocol protocol, Integer destPortFrom, Integer destPortTo) {
+		this.action = action;
+		this.direction = direction;
+		this.ipRange = ipRange;
+		this.protocol = protocol;
+		this.destPortFrom = destPortFrom;
+		this.destPortTo = destPortTo;
+	}
+
+	public RuleAction getAction() { return this.action; }
+
+	public RuleDirection getDirection() { return this.direction; }
+
+	public String getIpRange() { return this.ipRange; }
+
+	public RuleProtocol getProtocol() { return this.protocol; }
+
+	public Integer getDestPortFrom() { return this.destPortFrom; }
+
+	public Integer getDestPortTo() { return this.destPortTo; }
+
+	@Override
+	public String toString() {
+		return("RuleDefinition [action=" + action + ", direction=" + direction + ", ipRange=" + ipRange + ", protocol=" + protocol + ", destPortFrom=" + destPortFrom + ", destPortTo=" + destPortTo + "]");
+	}
+}
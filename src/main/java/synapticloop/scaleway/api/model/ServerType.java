@@ -19,10 +19,26 @@ package synapticloop.scaleway.api.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public enum ServerType {
-	@JsonProperty("VC1S") VC1S,
-	@JsonProperty("VC1M") VC1M,
-	@JsonProperty("VC1L") VC1L,
-	@JsonProperty("C2S")  C2S,
-	@JsonProperty("C2M")  C2M,
-	@JsonProperty("C2L")  C2L;
+	@JsonProperty("VC1S") VC1S(ServerType.ARCH_X86_64),
+	@JsonProperty("VC1M") VC1M(ServerType.ARCH_X86_64),
+	@JsonProperty("VC1L") VC1L(ServerType.ARCH_X86_64),
+	@JsonProperty("C2S")  C2S(ServerType.ARCH_X86_64),
+	@JsonProperty("C2M")  C2M(ServerType.ARCH_X86_64),
+	@JsonProperty("C2L")  C2L(ServerType.ARCH_X86_64);
+
+	private static final String ARCH_X86_64 = "x86_64";
+
+	private final String arch;
+
+	private ServerType(String arch) {
+		this.arch = arch;
+	}
+
+	/**
+	 * Get the architecture of this server type, which the image for the server
+	 * must match
+	 * 
+	 * @return the architecture (e.g. x86_64)
+	 */
+	public String getArch() { return(arch); }
 }
@@ -0,0 +1,107 @@
+package synapticloop.scaleway.api.paging;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+import synapticloop.scaleway.api.response.BasePaginationResponse;
+
+/**
+ * A single page of results, independent of the type of the underlying
+ * paginated response, carrying the results and the pagination information
+ * that was parsed from the response headers.
+ *
+ * @param <T> The type of the results in this page
+ */
+public class Page<T> {
+	private final List<T> results;
+	private final int currentPage;
+	private final int numPages;
+	private final int totalCount;
+
+	/**
+	 * Create a page from the results and the pagination response that they
+	 * were retrieved with
+	 *
+	 * @param results The results in this page (may be null)
+	 * @param paginationResponse The response holding the pagination headers
+	 */
+	public Page(List<T> results, BasePaginationResponse paginationResponse) {
+		this(results, paginationResponse.getCurrentPage(), paginationResponse.getNumPages(), paginationResponse.getTotalCount());
+	}
+
+	/**
+	 * Create a page from the results and the pagination values
+	 *
+	 * @param results The results in this page (may be null)
+	 * @param currentPage The page number (starting at 1)
+	 * @param numPages The total number of pages
+	 * @param totalCount The total number of results over all pages
+	 */
+	public Page(List<T> results, int currentPage, int numPages, int totalCount) {
+		if(null == results) {
+			this.results = Collections.emptyList();
+		} else {
+			this.results = results;
+		}
+		this.currentPage = currentPage;
+		this.numPages = numPages;
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * Return the results in this page, which will never be null
+	 *
+	 * @return The results in this page
+	 */
+	public List<T> getResults() { return this.results; }
+
+	/**
+	 * Return the page number of this page (starting at 1)
+	 *
+	 * @return The page number of this page
+	 */
+	public int getCurrentPage() { return this.currentPage; }
+
+	/**
+	 * Return the total number of pages available
+	 *
+	 * @return The total number of pages available
+	 */
+	public int getNumPages() { return this.numPages; }
+
+	/**
+	 * Return the total count of results over all of the pages
+	 *
+	 * @return The total count of results over all of the pages
+	 */
+	public int getTotalCount() { return this.totalCount; }
+
+	/**
+	 * Whether this is the last page of results, given the page number that was
+	 * requested and the number of results requested per page.
+	 *
+	 * @param numPage The page number that was requested
+	 * @param numPerPage The number of results per page that was requested
+	 *
+	 * @return whether there are no more pages to be retrieved after this one
+	 */
+	public boolean isLastPage(int numPage, int numPerPage) {
+		return(results.isEmpty() || results.size() < numPerPage || numPage >= numPages);
+	}
+}
@@ -0,0 +1,41 @@
+package synapticloop.scaleway.api.paging;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+/**
+ * Fetch a single page of results from one of the paginated API calls, (e.g.
+ * getAllServers, getAllVolumes, getAllIPs), pages start at 1, maximum number
+ * of results per page is 100.
+ *
+ * @param <T> The type of the results that are fetched
+ */
+public interface PageFetcher<T> {
+
+	/**
+	 * Fetch a page of results
+	 *
+	 * @param numPage the page number that you are requesting (starts at 1)
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The page of results
+	 *
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	Page<T> fetchPage(int numPage, int numPerPage) throws ScalewayApiException;
+}
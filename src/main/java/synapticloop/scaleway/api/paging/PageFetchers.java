@@ -0,0 +1,280 @@
+package synapticloop.scaleway.api.paging;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Token;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.response.IPsResponse;
+import synapticloop.scaleway.api.response.ImagesResponse;
+import synapticloop.scaleway.api.response.RulesResponse;
+import synapticloop.scaleway.api.response.SecurityGroupsResponse;
+import synapticloop.scaleway.api.response.ServersResponse;
+import synapticloop.scaleway.api.response.TokensResponse;
+import synapticloop.scaleway.api.response.VolumesResponse;
+
+/**
+ * Page fetchers for each of the paginated calls on the Scaleway API client,
+ * so that paging logic can be written once, independent of the resource type.
+ */
+public class PageFetchers {
+	public static final int MAX_NUM_PER_PAGE = 100;
+
+	// the most pages that are fetched in parallel, any further pages are 
+	// fetched one after the other
+	private static final int MAX_NUM_PARALLEL_PAGES = 1000;
+
+	private PageFetchers() {}
+
+	/**
+	 * Return a page fetcher for the servers
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the servers
+	 */
+	public static PageFetcher<Server> servers(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<Server>() {
+			@Override
+			public Page<Server> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				ServersResponse serversResponse = scalewayApiClient.getAllServers(numPage, numPerPage);
+				return(new Page<Server>(serversResponse.getServers(), serversResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the volumes
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the volumes
+	 */
+	public static PageFetcher<Volume> volumes(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<Volume>() {
+			@Override
+			public Page<Volume> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				VolumesResponse volumesResponse = scalewayApiClient.getAllVolumes(numPage, numPerPage);
+				return(new Page<Volume>(volumesResponse.getVolumes(), volumesResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the reserved IP addresses
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the reserved IP addresses
+	 */
+	public static PageFetcher<IP> ips(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<IP>() {
+			@Override
+			public Page<IP> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				IPsResponse ipsResponse = scalewayApiClient.getAllIPs(numPage, numPerPage);
+				return(new Page<IP>(ipsResponse.getIPs(), ipsResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the security groups
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the security groups
+	 */
+	public static PageFetcher<SecurityGroup> securityGroups(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<SecurityGroup>() {
+			@Override
+			public Page<SecurityGroup> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				SecurityGroupsResponse securityGroupsResponse = scalewayApiClient.getAllSecurityGroups(numPage, numPerPage);
+				return(new Page<SecurityGroup>(securityGroupsResponse.getSecurityGroups(), securityGroupsResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the rules of a security group
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param securityGroupId The ID of the security group to fetch the rules for
+	 *
+	 * @return The page fetcher for the rules of the security group
+	 */
+	public static PageFetcher<Rule> rules(final ScalewayApiClient scalewayApiClient, final String securityGroupId) {
+		return(new PageFetcher<Rule>() {
+			@Override
+			public Page<Rule> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				RulesResponse rulesResponse = scalewayApiClient.getAllRules(securityGroupId, numPage, numPerPage);
+				return(new Page<Rule>(rulesResponse.getRules(), rulesResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the images
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the images
+	 */
+	public static PageFetcher<Image> images(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<Image>() {
+			@Override
+			public Page<Image> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				ImagesResponse imagesResponse = scalewayApiClient.getAllImages(numPage, numPerPage);
+				return(new Page<Image>(imagesResponse.getImages(), imagesResponse));
+			}
+		});
+	}
+
+	/**
+	 * Return a page fetcher for the tokens
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 *
+	 * @return The page fetcher for the tokens
+	 */
+	public static PageFetcher<Token> tokens(final ScalewayApiClient scalewayApiClient) {
+		return(new PageFetcher<Token>() {
+			@Override
+			public Page<Token> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				TokensResponse tokensResponse = scalewayApiClient.getAllTokens(numPage, numPerPage);
+				return(new Page<Token>(tokensResponse.getTokens(), tokensResponse));
+			}
+		});
+	}
+
+	/**
+	 * Fetch all of the results from all of the pages, one page after the other
+	 *
+	 * @param pageFetcher The page fetcher to retrieve the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return All of the results
+	 *
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	public static <T> List<T> fetchAll(PageFetcher<T> pageFetcher, int numPerPage) throws ScalewayApiException {
+		List<T> results = new ArrayList<T>();
+		int numPage = 1;
+		boolean isLastPage = false;
+		while(!isLastPage) {
+			Page<T> page = pageFetcher.fetchPage(numPage, numPerPage);
+			results.addAll(page.getResults());
+			isLastPage = page.isLastPage(numPage, numPerPage);
+			numPage++;
+		}
+		return(results);
+	}
+
+	/**
+	 * Fetch all of the results from all of the pages, fetching the first page to
+	 * find out how many pages there are, and then all of the remaining pages in
+	 * parallel on the executor.  The results are returned in page order.
+	 * 
+	 * The number of pages is worked out from the total count and the requested 
+	 * number of results per page, (rather than from the pagination headers, 
+	 * which may be missing), and at most 1000 pages are fetched in parallel.
+	 *
+	 * @param pageFetcher The page fetcher to retrieve the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 * @param executor The executor to fetch the remaining pages on
+	 *
+	 * @return All of the results
+	 *
+	 * @throws ScalewayApiException If there was an error with any of the API calls
+	 */
+	public static <T> List<T> fetchAll(final PageFetcher<T> pageFetcher, final int numPerPage, Executor executor) throws ScalewayApiException {
+		Page<T> firstPage = pageFetcher.fetchPage(1, numPerPage);
+		if(firstPage.isLastPage(1, numPerPage)) {
+			return(new ArrayList<T>(firstPage.getResults()));
+		}
+
+		int numPages = numPages(firstPage.getTotalCount(), numPerPage);
+		List<FutureTask<Page<T>>> futureTasks = new ArrayList<FutureTask<Page<T>>>();
+		for (int i = 2; i <= numPages; i++) {
+			final int numPage = i;
+			FutureTask<Page<T>> futureTask = new FutureTask<Page<T>>(new Callable<Page<T>>() {
+				@Override
+				public Page<T> call() throws ScalewayApiException {
+					return(pageFetcher.fetchPage(numPage, numPerPage));
+				}
+			});
+			futureTasks.add(futureTask);
+			executor.execute(futureTask);
+		}
+
+		List<T> results = new ArrayList<T>(Math.max(numPages * numPerPage, firstPage.getResults().size()));
+		results.addAll(firstPage.getResults());
+		Page<T> page = firstPage;
+		try {
+			for (FutureTask<Page<T>> futureTask : futureTasks) {
+				page = futureTask.get();
+				results.addAll(page.getResults());
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ScalewayApiException("Interrupted whilst fetching the pages", ex);
+		} catch (ExecutionException ex) {
+			if(ex.getCause() instanceof ScalewayApiException) {
+				throw (ScalewayApiException)ex.getCause();
+			}
+			throw new ScalewayApiException(ex.getCause());
+		} finally {
+			for (FutureTask<Page<T>> futureTask : futureTasks) {
+				futureTask.cancel(true);
+			}
+		}
+
+		// results may have been added since the first page was fetched, in which 
+		// case carry on from the last known page, one page after the other
+		int numPage = numPages;
+		while(!page.isLastPage(numPage, numPerPage)) {
+			numPage++;
+			page = pageFetcher.fetchPage(numPage, numPerPage);
+			results.addAll(page.getResults());
+		}
+
+		return(results);
+	}
+
+	/**
+	 * @return the number of pages for the total count, at the requested number
+	 *     of results per page, bounded to the most pages fetched in parallel
+	 */
+	private static int numPages(int totalCount, int numPerPage) {
+		if(totalCount <= 0 || numPerPage <= 0) {
+			return(1);
+		}
+		return((int)Math.min(MAX_NUM_PARALLEL_PAGES, ((long)totalCount + numPerPage - 1) / numPerPage));
+	}
+}
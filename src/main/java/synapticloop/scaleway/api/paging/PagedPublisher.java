@@ -0,0 +1,304 @@
+package synapticloop.scaleway.api.paging;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * A Reactive Streams publisher over one of the paginated API calls.  Pages are
+ * only fetched when the subscriber has signalled demand for more results than
+ * are currently buffered, and at most one page of results is ever buffered per
+ * subscription.
+ *
+ * Each subscription starts at page 1 - i.e. this is a cold publisher - and the
+ * pages are fetched, and the results are signalled, on the passed in executor,
+ * never on the thread that called <code>request(n)</code>.
+ *
+ * @param <T> The type of the results that are published
+ */
+public class PagedPublisher<T> implements Publisher<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PagedPublisher.class);
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new NamedThreadFactory("scaleway-publisher"));
+
+	private final PageFetcher<T> pageFetcher;
+	private final int numPerPage;
+	private final Executor executor;
+
+	/**
+	 * Create a new publisher over the passed in page fetcher
+	 *
+	 * @param pageFetcher The page fetcher to retrieve the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100),
+	 *     which is also the maximum number of results that will be buffered
+	 * @param executor the executor to fetch the pages and signal the subscriber on
+	 */
+	public PagedPublisher(PageFetcher<T> pageFetcher, int numPerPage, Executor executor) {
+		if(numPerPage < 1 || numPerPage > PageFetchers.MAX_NUM_PER_PAGE) {
+			throw new IllegalArgumentException("The number of results per page must be between 1 and " + PageFetchers.MAX_NUM_PER_PAGE + ", was " + numPerPage);
+		}
+		this.pageFetcher = pageFetcher;
+		this.numPerPage = numPerPage;
+		this.executor = executor;
+	}
+
+	/**
+	 * Create a new publisher over the passed in page fetcher, fetching the pages
+	 * on a shared pool of daemon threads
+	 *
+	 * @param pageFetcher The page fetcher to retrieve the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100),
+	 *     which is also the maximum number of results that will be buffered
+	 */
+	public PagedPublisher(PageFetcher<T> pageFetcher, int numPerPage) {
+		this(pageFetcher, numPerPage, DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Create a publisher of all of the servers
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The publisher of all of the servers
+	 */
+	public static PagedPublisher<Server> servers(ScalewayApiClient scalewayApiClient, int numPerPage) {
+		return(new PagedPublisher<Server>(PageFetchers.servers(scalewayApiClient), numPerPage));
+	}
+
+	/**
+	 * Create a publisher of all of the volumes
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The publisher of all of the volumes
+	 */
+	public static PagedPublisher<Volume> volumes(ScalewayApiClient scalewayApiClient, int numPerPage) {
+		return(new PagedPublisher<Volume>(PageFetchers.volumes(scalewayApiClient), numPerPage));
+	}
+
+	/**
+	 * Create a publisher of all of the reserved IP addresses
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The publisher of all of the reserved IP addresses
+	 */
+	public static PagedPublisher<IP> ips(ScalewayApiClient scalewayApiClient, int numPerPage) {
+		return(new PagedPublisher<IP>(PageFetchers.ips(scalewayApiClient), numPerPage));
+	}
+
+	/**
+	 * Create a publisher of all of the security groups
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The publisher of all of the security groups
+	 */
+	public static PagedPublisher<SecurityGroup> securityGroups(ScalewayApiClient scalewayApiClient, int numPerPage) {
+		return(new PagedPublisher<SecurityGroup>(PageFetchers.securityGroups(scalewayApiClient), numPerPage));
+	}
+
+	/**
+	 * Create a publisher of all of the images
+	 *
+	 * @param scalewayApiClient The client to fetch the pages with
+	 * @param numPerPage the number of results per page - (maximum value of 100)
+	 *
+	 * @return The publisher of all of the images
+	 */
+	public static PagedPublisher<Image> images(ScalewayApiClient scalewayApiClient, int numPerPage) {
+		return(new PagedPublisher<Image>(PageFetchers.images(scalewayApiClient), numPerPage));
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if(null == subscriber) {
+			throw new NullPointerException("The subscriber must not be null");
+		}
+
+		subscriber.onSubscribe(new PagedSubscription<T>(subscriber, pageFetcher, numPerPage, executor));
+	}
+
+	/**
+	 * The subscription turns the demand into page fetches.  All of the signals to
+	 * the subscriber are sent from the drain loop, which is only ever running on
+	 * one thread at a time (guarded by the work in progress counter), so the
+	 * buffer and the paging state need no further synchronisation.
+	 */
+	private static final class PagedSubscription<T> implements Subscription, Runnable {
+		private final Subscriber<? super T> subscriber;
+		private final PageFetcher<T> pageFetcher;
+		private final int numPerPage;
+		private final Executor executor;
+
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger workInProgress = new AtomicInteger();
+		private volatile boolean isCancelled = false;
+		private volatile Throwable invalidRequest = null;
+
+		private final ArrayDeque<T> buffer = new ArrayDeque<T>();
+		private int nextPage = 1;
+		private boolean isExhausted = false;
+		private boolean isTerminated = false;
+
+		private PagedSubscription(Subscriber<? super T> subscriber, PageFetcher<T> pageFetcher, int numPerPage, Executor executor) {
+			this.subscriber = subscriber;
+			this.pageFetcher = pageFetcher;
+			this.numPerPage = numPerPage;
+			this.executor = executor;
+		}
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				invalidRequest = new IllegalArgumentException("Requested number of elements must be positive (rule 3.9), was " + n);
+			} else {
+				long current;
+				long updated;
+				do {
+					current = demand.get();
+					if(current == Long.MAX_VALUE) {
+						break;
+					}
+					updated = current + n;
+					if(updated < 0) {
+						updated = Long.MAX_VALUE;
+					}
+				} while(!demand.compareAndSet(current, updated));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			isCancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if(workInProgress.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException ex) {
+					isCancelled = true;
+					workInProgress.set(0);
+					subscriber.onError(ex);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			while(true) {
+				drain();
+				missed = workInProgress.addAndGet(-missed);
+				if(missed == 0) {
+					break;
+				}
+			}
+		}
+
+		private void drain() {
+			while(!isTerminated) {
+				if(isCancelled) {
+					isTerminated = true;
+					buffer.clear();
+					return;
+				}
+
+				if(null != invalidRequest) {
+					terminate(invalidRequest);
+					return;
+				}
+
+				long requested = demand.get();
+
+				if(buffer.isEmpty()) {
+					if(isExhausted) {
+						isTerminated = true;
+						subscriber.onComplete();
+						return;
+					}
+
+					if(requested == 0) {
+						// no demand - so don't fetch the next page
+						return;
+					}
+
+					try {
+						Page<T> page = pageFetcher.fetchPage(nextPage, numPerPage);
+						buffer.addAll(page.getResults());
+						isExhausted = page.isLastPage(nextPage, numPerPage);
+						nextPage++;
+					} catch (ScalewayApiException | RuntimeException ex) {
+						terminate(ex);
+						return;
+					}
+					continue;
+				}
+
+				if(requested == 0) {
+					return;
+				}
+
+				try {
+					subscriber.onNext(buffer.poll());
+				} catch (RuntimeException ex) {
+					LOGGER.error("Subscriber threw an exception from onNext (rule 2.13), cancelling the subscription.", ex);
+					isCancelled = true;
+					continue;
+				}
+
+				if(requested != Long.MAX_VALUE) {
+					demand.decrementAndGet();
+				}
+			}
+		}
+
+		private void terminate(Throwable throwable) {
+			isTerminated = true;
+			buffer.clear();
+			subscriber.onError(throwable);
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package synapticloop.scaleway.api.pool;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * A pool of reserved, unattached, IP addresses per organization, so that 
+ * taking an IP address off the critical path of a failover or scale-up is a 
+ * local operation, rather than an API call to create it.
+ * 
+ * Each organization's pool is kept at the target size by a background thread
+ * - acquiring an IP address takes one from the pool straight away (a hit), 
+ * or creates one if the pool is empty (a miss), and either way triggers a 
+ * refill.  Released IP addresses go back into the pool, unless it is already
+ * full, in which case they are deleted.
+ * 
+ * The idle IP addresses are left allocated when the pool is closed, call 
+ * {@link #drain()} to delete them.
+ */
+public class IPPool implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(IPPool.class);
+
+	private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final int targetSize;
+	private final ConcurrentMap<String, OrganizationPool> organizationPools = new ConcurrentHashMap<String, OrganizationPool>();
+	private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("scaleway-ip-pool"));
+
+	private final AtomicLong numHits = new AtomicLong();
+	private final AtomicLong numMisses = new AtomicLong();
+	private final AtomicLong numCreated = new AtomicLong();
+	private final AtomicLong numRecycled = new AtomicLong();
+
+	/**
+	 * Create a new IP address pool, starting to fill the pools for the 
+	 * organizations straight away.  Pools for other organizations are created, 
+	 * and filled, on first use.
+	 * 
+	 * @param scalewayApiClient the client to create, attach and delete the IP 
+	 *     addresses with
+	 * @param targetSize the number of unattached IP addresses to keep for each
+	 *     organization
+	 * @param organizationIds the IDs of the organizations to fill the pools for
+	 */
+	public IPPool(ScalewayApiClient scalewayApiClient, int targetSize, String... organizationIds) {
+		if(targetSize < 0) {
+			throw new IllegalArgumentException("The target size must not be negative, was " + targetSize);
+		}
+
+		this.scalewayApiClient = scalewayApiClient;
+		this.targetSize = targetSize;
+		for (String organizationId : organizationIds) {
+			getOrganizationPool(organizationId).requestRefill(0L);
+		}
+	}
+
+	/**
+	 * Acquire an unattached IP address for the organization - from the pool if
+	 * there is one, otherwise by creating one.
+	 * 
+	 * @param organizationId the ID of the organization
+	 * 
+	 * @return the unattached IP address
+	 * 
+	 * @throws ScalewayApiException if the pool was empty, and there was an 
+	 *     error creating the IP address
+	 */
+	public IP acquire(String organizationId) throws ScalewayApiException {
+		OrganizationPool organizationPool = getOrganizationPool(organizationId);
+		IP ip = organizationPool.poll();
+		organizationPool.requestRefill(0L);
+
+		if(null != ip) {
+			numHits.incrementAndGet();
+			return(ip);
+		}
+
+		numMisses.incrementAndGet();
+		ip = scalewayApiClient.createIP(organizationId);
+		numCreated.incrementAndGet();
+		return(ip);
+	}
+
+	/**
+	 * Acquire an IP address for the organization, and attach it to the server.
+	 * If the attachment fails, the IP address is released back to the pool.
+	 * 
+	 * @param organizationId the ID of the organization
+	 * @param serverId the ID of the server to attach the IP address to
+	 * 
+	 * @return the attached IP address
+	 * 
+	 * @throws ScalewayApiException if there was an error acquiring or 
+	 *     attaching the IP address
+	 */
+	public IP attach(String organizationId, String serverId) throws ScalewayApiException {
+		IP ip = acquire(organizationId);
+		try {
+			return(scalewayApiClient.attachIP(ip.getId(), organizationId, ip.getIpAddress(), serverId));
+		} catch (ScalewayApiException ex) {
+			release(organizationId, ip);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Release an unattached IP address back to the pool, (e.g. once the server
+	 * it was attached to has been deleted).  If the pool is already full, the 
+	 * IP address is deleted.  An IP address that is still attached to a server
+	 * is rejected, (so it is never handed out to a second server), so read the
+	 * IP address again once its server has been deleted.
+	 * 
+	 * @param organizationId the ID of the organization that the IP address 
+	 *     belongs to
+	 * @param ip the unattached IP address
+	 * 
+	 * @throws ScalewayApiException if the pool was full, and there was an error
+	 *     deleting the IP address
+	 * @throws IllegalArgumentException if the IP address is attached to a 
+	 *     server
+	 */
+	public void release(String organizationId, IP ip) throws ScalewayApiException {
+		if(null != ip.getServer()) {
+			throw new IllegalArgumentException("IP address with id '" + ip.getId() + "' is still attached to server with id '" + ip.getServer().getId() + "', and can not be released to the pool");
+		}
+
+		if(getOrganizationPool(organizationId).offer(ip)) {
+			numRecycled.incrementAndGet();
+			return;
+		}
+
+		try {
+			scalewayApiClient.deleteIP(ip.getId());
+		} catch (NotFoundException ex) {
+			// already gone
+		}
+	}
+
+	/**
+	 * Delete all of the idle IP addresses in the pools - the pools will be 
+	 * refilled on the next acquire, unless the pool is closed.
+	 * 
+	 * @return the number of IP addresses that were deleted
+	 */
+	public int drain() {
+		int numDeleted = 0;
+		for (OrganizationPool organizationPool : organizationPools.values()) {
+			IP ip;
+			while((ip = organizationPool.poll()) != null) {
+				try {
+					scalewayApiClient.deleteIP(ip.getId());
+					numDeleted++;
+				} catch (NotFoundException ex) {
+					// already gone
+				} catch (ScalewayApiException ex) {
+					LOGGER.warn("Could not delete pooled IP address with id '{}': {}", ip.getId(), ex.getMessage());
+				}
+			}
+		}
+		return(numDeleted);
+	}
+
+	/**
+	 * Return the number of idle IP addresses in the pool for the organization
+	 * 
+	 * @param organizationId the ID of the organization
+	 * 
+	 * @return the number of idle IP addresses
+	 */
+	public int getSize(String organizationId) {
+		OrganizationPool organizationPool = organizationPools.get(organizationId);
+		return(null == organizationPool ? 0 : organizationPool.size.get());
+	}
+
+	/**
+	 * Return the number of idle IP addresses over all of the pools
+	 * 
+	 * @return the number of idle IP addresses
+	 */
+	public int getSize() {
+		int size = 0;
+		for (OrganizationPool organizationPool : organizationPools.values()) {
+			size += organizationPool.size.get();
+		}
+		return(size);
+	}
+
+	/**
+	 * Return the number of acquires that were answered from the pool
+	 * 
+	 * @return the number of acquires that were answered from the pool
+	 */
+	public long getNumHits() { return(numHits.get()); }
+
+	/**
+	 * Return the number of acquires that had to create an IP address
+	 * 
+	 * @return the number of acquires that had to create an IP address
+	 */
+	public long getNumMisses() { return(numMisses.get()); }
+
+	/**
+	 * Return the ratio of the acquires that were answered from the pool
+	 * 
+	 * @return the hit rate, between 0 and 1, (0 if there have been no acquires)
+	 */
+	public double getHitRate() {
+		long hits = numHits.get();
+		long total = hits + numMisses.get();
+		return(total == 0 ? 0.0d : (double)hits / total);
+	}
+
+	/**
+	 * Return the number of IP addresses that were created, either to refill the
+	 * pools or on a miss
+	 * 
+	 * @return the number of IP addresses that were created
+	 */
+	public long getNumCreated() { return(numCreated.get()); }
+
+	/**
+	 * Return the number of released IP addresses that went back into a pool
+	 * 
+	 * @return the number of recycled IP addresses
+	 */
+	public long getNumRecycled() { return(numRecycled.get()); }
+
+	/**
+	 * Stop refilling the pools - the idle IP addresses are left allocated.
+	 */
+	@Override
+	public void close() {
+		scheduledExecutorService.shutdownNow();
+	}
+
+	private OrganizationPool getOrganizationPool(String organizationId) {
+		OrganizationPool organizationPool = organizationPools.get(organizationId);
+		if(null == organizationPool) {
+			organizationPool = new OrganizationPool(organizationId);
+			OrganizationPool existing = organizationPools.putIfAbsent(organizationId, organizationPool);
+			if(null != existing) {
+				organizationPool = existing;
+			}
+		}
+		return(organizationPool);
+	}
+
+	/**
+	 * The idle IP addresses for a single organization, with at most one refill
+	 * scheduled or running at a time.
+	 */
+	private final class OrganizationPool implements Runnable {
+		private final String organizationId;
+		private final ConcurrentLinkedDeque<IP> ips = new ConcurrentLinkedDeque<IP>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicBoolean isRefillScheduled = new AtomicBoolean(false);
+		private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+
+		private OrganizationPool(String organizationId) {
+			this.organizationId = organizationId;
+		}
+
+		private IP poll() {
+			IP ip = ips.pollFirst();
+			if(null != ip) {
+				size.decrementAndGet();
+			}
+			return(ip);
+		}
+
+		private boolean offer(IP ip) {
+			// allowed to go over the target by the number of concurrent releases
+			if(size.get() >= targetSize) {
+				return(false);
+			}
+			size.incrementAndGet();
+			ips.offerLast(ip);
+			return(true);
+		}
+
+		private void requestRefill(long delayMillis) {
+			if(size.get() >= targetSize || !isRefillScheduled.compareAndSet(false, true)) {
+				return;
+			}
+
+			try {
+				scheduledExecutorService.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException ex) {
+				// the pool has been closed
+				isRefillScheduled.set(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(size.get() < targetSize && !Thread.currentThread().isInterrupted()) {
+					IP ip = scalewayApiClient.createIP(organizationId);
+					numCreated.incrementAndGet();
+					size.incrementAndGet();
+					ips.offerLast(ip);
+				}
+				backoffMillis = INITIAL_BACKOFF_MILLIS;
+			} catch (ScalewayApiException ex) {
+				long delayMillis = Math.max(backoffMillis, ex.getRetryAfterMillis());
+				LOGGER.warn("Could not refill the IP address pool for organization '{}', retrying in {}ms: {}", organizationId, delayMillis, ex.getMessage());
+				backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+				isRefillScheduled.set(false);
+				requestRefill(delayMillis);
+				return;
+			}
+
+			isRefillScheduled.set(false);
+			// an IP address may have been acquired after the last check
+			requestRefill(0L);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package synapticloop.scaleway.api.pool;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.Objects;
+
+import synapticloop.scaleway.api.model.ServerType;
+
+/**
+ * The key for one of the warm server pools - the servers in a pool are 
+ * interchangeable, as they all have the same server type and were all created
+ * from the same image.
+ */
+public final class ServerPoolKey {
+	private final ServerType serverType;
+	private final String imageId;
+
+	/**
+	 * Create a new pool key
+	 * 
+	 * @param serverType the type of the servers in the pool
+	 * @param imageId the ID of the image the servers in the pool are created from
+	 */
+	public ServerPoolKey(ServerType serverType, String imageId) {
+		if(null == serverType || null == imageId) {
+			throw new IllegalArgumentException("The server type and image ID must not be null");
+		}
+		this.serverType = serverType;
+		this.imageId = imageId;
+	}
+
+	public ServerType getServerType() { return(serverType); }
+
+	public String getImageId() { return(imageId); }
+
+	@Override
+	public boolean equals(Object object) {
+		if(this == object) {
+			return(true);
+		}
+		if(!(object instanceof ServerPoolKey)) {
+			return(false);
+		}
+		ServerPoolKey that = (ServerPoolKey)object;
+		return(serverType == that.serverType && imageId.equals(that.imageId));
+	}
+
+	@Override
+	public int hashCode() {
+		return(Objects.hash(serverType, imageId));
+	}
+
+	@Override
+	public String toString() {
+		return(serverType.name() + "/" + imageId);
+	}
+}
@@ -0,0 +1,539 @@
+package synapticloop.scaleway.api.pool;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.FleetProvisioner;
+import synapticloop.scaleway.api.fleet.FleetTeardown;
+import synapticloop.scaleway.api.fleet.ProvisioningResult;
+import synapticloop.scaleway.api.fleet.TeardownReport;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerDefinition;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * A pool of pre-created, idle, servers for each registered server type and 
+ * image, so that scaling up is a rename and retag of an existing server, 
+ * rather than a creation from an image that takes minutes.
+ * 
+ * The idle servers are tagged as members of the named pool, (and with their
+ * pool key), so that they can be told apart from the servers that are in use,
+ * and are adopted back into the pool when a new pool with the same name is 
+ * started, (e.g. after a restart of the application).  Depending on 
+ * {@link #setKeepRunning(boolean)}, the idle servers are either left stopped,
+ * (cheaper, but the server still has to be powered on once acquired), or are
+ * powered on, (ready straight away).
+ * 
+ * The pools are replenished on a background thread, periodically and after 
+ * every acquire, creating all of the missing servers in parallel.  Idle 
+ * servers that are older than the maximum age are torn down and replaced, so
+ * that servers are not handed out with a stale image - an expired server that
+ * could not be torn down is retried on the next replenish.
+ * 
+ * The idle servers are left in the account when the pool is closed, call 
+ * {@link #drain()} to tear them down.
+ */
+public class WarmServerPool implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WarmServerPool.class);
+
+	public static final String TAG_POOL_PREFIX = "warm-pool:";
+	public static final String TAG_POOL_KEY_PREFIX = "warm-pool-key:";
+
+	public static final int DEFAULT_PARALLELISM = 10;
+	public static final long DEFAULT_REPLENISH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+	private final ScalewayApiClient scalewayApiClient;
+	private final String poolTag;
+	private final ConcurrentMap<ServerPoolKey, PoolState> poolStates = new ConcurrentHashMap<ServerPoolKey, PoolState>();
+	private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("scaleway-server-pool"));
+	private final AtomicBoolean isReplenishScheduled = new AtomicBoolean(false);
+	// the expired servers that could not be torn down, which are retried
+	private final Set<String> failedTeardownIds = ConcurrentHashMap.newKeySet();
+
+	private volatile int parallelism = DEFAULT_PARALLELISM;
+	private volatile boolean keepRunning = false;
+	private volatile long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+	private boolean isAdopted = false;
+
+	private final AtomicLong numHits = new AtomicLong();
+	private final AtomicLong numMisses = new AtomicLong();
+	private final AtomicLong numCreated = new AtomicLong();
+	private final AtomicLong numExpired = new AtomicLong();
+
+	/**
+	 * Create a new warm server pool, replenishing the pools every minute
+	 * 
+	 * @param scalewayApiClient the client to create, update and tear down the 
+	 *     servers with
+	 * @param poolName the name of the pool, which the idle servers are tagged 
+	 *     with - (must be unique to this pool within the account)
+	 */
+	public WarmServerPool(ScalewayApiClient scalewayApiClient, String poolName) {
+		this(scalewayApiClient, poolName, DEFAULT_REPLENISH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Create a new warm server pool
+	 * 
+	 * @param scalewayApiClient the client to create, update and tear down the 
+	 *     servers with
+	 * @param poolName the name of the pool, which the idle servers are tagged 
+	 *     with - (must be unique to this pool within the account)
+	 * @param replenishIntervalMillis how often to check the pools, in addition
+	 *     to after each acquire
+	 */
+	public WarmServerPool(ScalewayApiClient scalewayApiClient, String poolName, long replenishIntervalMillis) {
+		if(null == poolName || poolName.isEmpty()) {
+			throw new IllegalArgumentException("The pool name must not be empty");
+		}
+
+		this.scalewayApiClient = scalewayApiClient;
+		this.poolTag = TAG_POOL_PREFIX + poolName;
+		scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				requestReplenish();
+			}
+		}, replenishIntervalMillis, replenishIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Register a server template, keeping <code>targetSize</code> idle servers
+	 * created from it.  The template's server type and image make up the pool
+	 * key, its name is used for the idle servers and its tags are replaced by 
+	 * the pool tags.  Registering a template for a key that is already 
+	 * registered replaces the template and the target size.
+	 * 
+	 * @param template the definition to create the idle servers from, (any 
+	 *     public IP address is ignored, as it cannot be shared between servers)
+	 * @param targetSize the number of idle servers to keep
+	 * 
+	 * @return the key for the pool
+	 */
+	public ServerPoolKey addTemplate(ServerDefinition template, int targetSize) {
+		if(targetSize < 0) {
+			throw new IllegalArgumentException("The target size must not be negative, was " + targetSize);
+		}
+
+		ServerPoolKey serverPoolKey = new ServerPoolKey(template.getServerType(), template.getImageId());
+		PoolState poolState = new PoolState(template, targetSize);
+		PoolState existing = poolStates.putIfAbsent(serverPoolKey, poolState);
+		if(null != existing) {
+			existing.template = template;
+			existing.targetSize = targetSize;
+		}
+		requestReplenish();
+		return(serverPoolKey);
+	}
+
+	/**
+	 * Acquire a server from the pool, renaming and retagging it, so that it is
+	 * no longer a member of the pool.  If the pool is empty, a server is 
+	 * created from the template instead, (in the stopped state).  Either way, 
+	 * the pool is replenished in the background.
+	 * 
+	 * @param serverType the type of the server
+	 * @param imageId the ID of the image the server was created from
+	 * @param name the name to give the server
+	 * @param tags the tags to give the server
+	 * 
+	 * @return the server
+	 * 
+	 * @throws ScalewayApiException if there was an error renaming the idle 
+	 *     server, or creating a new one
+	 */
+	public Server acquire(ServerType serverType, String imageId, String name, String... tags) throws ScalewayApiException {
+		return(acquire(new ServerPoolKey(serverType, imageId), name, tags));
+	}
+
+	/**
+	 * Acquire a server from the pool, renaming and retagging it, so that it is
+	 * no longer a member of the pool.  If the pool is empty, a server is 
+	 * created from the template instead, (in the stopped state).  Either way, 
+	 * the pool is replenished in the background.
+	 * 
+	 * @param serverPoolKey the key of the pool to acquire the server from
+	 * @param name the name to give the server
+	 * @param tags the tags to give the server
+	 * 
+	 * @return the server
+	 * 
+	 * @throws ScalewayApiException if there was an error renaming the idle 
+	 *     server, or creating a new one
+	 */
+	public Server acquire(ServerPoolKey serverPoolKey, String name, String... tags) throws ScalewayApiException {
+		PoolState poolState = poolStates.get(serverPoolKey);
+		if(null == poolState) {
+			throw new IllegalArgumentException("No template has been registered for the pool '" + serverPoolKey + "'");
+		}
+
+		List<String> serverTags = Arrays.asList(tags);
+		try {
+			Server idleServer;
+			while((idleServer = poolState.idleServers.pollFirst()) != null) {
+				try {
+					Server server = scalewayApiClient.updateServer(idleServer.getId(), name, serverTags);
+					numHits.incrementAndGet();
+					return(server);
+				} catch (NotFoundException ex) {
+					// deleted from outside of the pool - try the next one
+				} catch (ScalewayApiException ex) {
+					poolState.idleServers.offerFirst(idleServer);
+					throw ex;
+				}
+			}
+
+			numMisses.incrementAndGet();
+			ServerDefinition serverDefinition = newServerDefinition(poolState.template, name, serverTags);
+			Server server = scalewayApiClient.createServer(serverDefinition);
+			numCreated.incrementAndGet();
+			return(server);
+		} finally {
+			requestReplenish();
+		}
+	}
+
+	/**
+	 * Tear down all of the idle servers in the pools, (and any expired servers
+	 * that could not be torn down before) - the pools will be replenished on 
+	 * the next check, unless the pool is closed.
+	 * 
+	 * @return the report of the servers that were torn down
+	 */
+	public TeardownReport drain() {
+		List<String> serverIds = new ArrayList<String>();
+		for (PoolState poolState : poolStates.values()) {
+			Server idleServer;
+			while((idleServer = poolState.idleServers.pollFirst()) != null) {
+				serverIds.add(idleServer.getId());
+			}
+		}
+		for (String failedTeardownId : failedTeardownIds) {
+			if(failedTeardownIds.remove(failedTeardownId)) {
+				serverIds.add(failedTeardownId);
+			}
+		}
+		return(new FleetTeardown(scalewayApiClient, parallelism).teardown(serverIds));
+	}
+
+	/**
+	 * Set the maximum number of server creations, or tear downs, in flight at 
+	 * once when replenishing, (10 by default)
+	 * 
+	 * @param parallelism the maximum number of servers in flight at once
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, was " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set whether newly created idle servers are powered on, (by default they
+	 * are left stopped)
+	 * 
+	 * @param keepRunning whether to power on the idle servers
+	 */
+	public void setKeepRunning(boolean keepRunning) {
+		this.keepRunning = keepRunning;
+	}
+
+	/**
+	 * Set the age after which an idle server is torn down and replaced, (24 
+	 * hours by default)
+	 * 
+	 * @param maxAgeMillis the maximum age of an idle server in milliseconds, or
+	 *     0 for no maximum
+	 */
+	public void setMaxAgeMillis(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Return the number of idle servers in the pool
+	 * 
+	 * @param serverPoolKey the key of the pool
+	 * 
+	 * @return the number of idle servers
+	 */
+	public int getSize(ServerPoolKey serverPoolKey) {
+		PoolState poolState = poolStates.get(serverPoolKey);
+		return(null == poolState ? 0 : poolState.idleServers.size());
+	}
+
+	/**
+	 * Return the number of idle servers over all of the pools
+	 * 
+	 * @return the number of idle servers
+	 */
+	public int getSize() {
+		int size = 0;
+		for (PoolState poolState : poolStates.values()) {
+			size += poolState.idleServers.size();
+		}
+		return(size);
+	}
+
+	/**
+	 * Return the number of acquires that were answered with an idle server
+	 * 
+	 * @return the number of acquires that were answered with an idle server
+	 */
+	public long getNumHits() { return(numHits.get()); }
+
+	/**
+	 * Return the number of acquires that had to create a server
+	 * 
+	 * @return the number of acquires that had to create a server
+	 */
+	public long getNumMisses() { return(numMisses.get()); }
+
+	/**
+	 * Return the ratio of the acquires that were answered with an idle server
+	 * 
+	 * @return the hit rate, between 0 and 1, (0 if there have been no acquires)
+	 */
+	public double getHitRate() {
+		long hits = numHits.get();
+		long total = hits + numMisses.get();
+		return(total == 0 ? 0.0d : (double)hits / total);
+	}
+
+	/**
+	 * Return the number of servers that were created, either to replenish the 
+	 * pools or on a miss
+	 * 
+	 * @return the number of servers that were created
+	 */
+	public long getNumCreated() { return(numCreated.get()); }
+
+	/**
+	 * Return the number of idle servers that were torn down for being older 
+	 * than the maximum age
+	 * 
+	 * @return the number of expired servers
+	 */
+	public long getNumExpired() { return(numExpired.get()); }
+
+	/**
+	 * Stop replenishing the pools - the idle servers are left in the account,
+	 * and will be adopted by the next pool with the same name.
+	 */
+	@Override
+	public void close() {
+		scheduledExecutorService.shutdownNow();
+	}
+
+	private void requestReplenish() {
+		if(!isReplenishScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			scheduledExecutorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					isReplenishScheduled.set(false);
+					try {
+						replenish();
+					} catch (RuntimeException ex) {
+						LOGGER.error("Could not replenish the warm server pool '" + poolTag + "'", ex);
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			// the pool has been closed
+			isReplenishScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Replenish the pools, only ever run on the single background thread
+	 */
+	private void replenish() {
+		if(!isAdopted) {
+			try {
+				adoptIdleServers();
+				isAdopted = true;
+			} catch (ScalewayApiException ex) {
+				// don't create any servers until the existing members are known
+				LOGGER.warn("Could not list the existing members of the warm server pool '{}': {}", poolTag, ex.getMessage());
+				return;
+			}
+		}
+
+		tearDownExpiredServers();
+
+		List<PoolState> definitionPools = new ArrayList<PoolState>();
+		List<ServerDefinition> serverDefinitions = new ArrayList<ServerDefinition>();
+		for (PoolState poolState : poolStates.values()) {
+			ServerDefinition template = poolState.template;
+			List<String> poolTags = Arrays.asList(poolTag, TAG_POOL_KEY_PREFIX + new ServerPoolKey(template.getServerType(), template.getImageId()));
+			for (int i = poolState.idleServers.size(); i < poolState.targetSize; i++) {
+				ServerDefinition serverDefinition = newServerDefinition(template, template.getName(), poolTags);
+				definitionPools.add(poolState);
+				serverDefinitions.add(serverDefinition);
+			}
+		}
+
+		if(serverDefinitions.isEmpty()) {
+			return;
+		}
+
+		FleetProvisioner fleetProvisioner = new FleetProvisioner(scalewayApiClient, parallelism);
+		fleetProvisioner.setPowerOn(keepRunning);
+		ProvisioningResult batchResult = fleetProvisioner.createServers(serverDefinitions);
+		for (Map.Entry<Integer, Server> entry : batchResult.getResults().entrySet()) {
+			numCreated.incrementAndGet();
+			definitionPools.get(entry.getKey()).idleServers.offerLast(entry.getValue());
+		}
+
+		if(!batchResult.isAllSucceeded()) {
+			LOGGER.warn("Could not create {} of the {} servers for the warm server pool '{}': {}", batchResult.getNumFailed(), serverDefinitions.size(), poolTag, batchResult.getErrors());
+		}
+	}
+
+	/**
+	 * Add the servers in the account that are tagged as idle members of this 
+	 * pool, for any of the registered pool keys, to the pools
+	 * 
+	 * @throws ScalewayApiException if there was an error listing the servers
+	 */
+	private void adoptIdleServers() throws ScalewayApiException {
+		Set<String> idleServerIds = new HashSet<String>();
+		for (PoolState poolState : poolStates.values()) {
+			for (Server idleServer : poolState.idleServers) {
+				idleServerIds.add(idleServer.getId());
+			}
+		}
+
+		for (Server server : PageFetchers.fetchAll(PageFetchers.servers(scalewayApiClient), PageFetchers.MAX_NUM_PER_PAGE)) {
+			List<String> tags = server.getTags();
+			if(null == tags || !tags.contains(poolTag) || idleServerIds.contains(server.getId())) {
+				continue;
+			}
+
+			for (Map.Entry<ServerPoolKey, PoolState> entry : poolStates.entrySet()) {
+				if(tags.contains(TAG_POOL_KEY_PREFIX + entry.getKey())) {
+					entry.getValue().idleServers.offerLast(server);
+					break;
+				}
+			}
+		}
+	}
+
+	private void tearDownExpiredServers() {
+		List<String> expiredServerIds = new ArrayList<String>();
+		for (String failedTeardownId : failedTeardownIds) {
+			if(failedTeardownIds.remove(failedTeardownId)) {
+				expiredServerIds.add(failedTeardownId);
+			}
+		}
+		int numRetried = expiredServerIds.size();
+
+		long maxAge = maxAgeMillis;
+		if(maxAge > 0) {
+			long now = System.currentTimeMillis();
+			for (PoolState poolState : poolStates.values()) {
+				Iterator<Server> iterator = poolState.idleServers.iterator();
+				while(iterator.hasNext()) {
+					Server idleServer = iterator.next();
+					Date creationDate = idleServer.getCreationDate();
+					// removal may race with an acquire - only the winner gets the server
+					if(null != creationDate && now - creationDate.getTime() > maxAge && poolState.idleServers.remove(idleServer)) {
+						expiredServerIds.add(idleServer.getId());
+					}
+				}
+			}
+		}
+
+		if(expiredServerIds.isEmpty()) {
+			return;
+		}
+
+		TeardownReport teardownReport = new FleetTeardown(scalewayApiClient, parallelism).teardown(expiredServerIds);
+		numExpired.addAndGet(expiredServerIds.size() - numRetried);
+		if(!teardownReport.isComplete()) {
+			// keep track of the servers that are left, so that they do not leak
+			Map<String, ScalewayApiException> errors = teardownReport.getErrors();
+			for (String expiredServerId : expiredServerIds) {
+				if(errors.containsKey(expiredServerId)) {
+					failedTeardownIds.add(expiredServerId);
+				}
+			}
+			LOGGER.warn("Could not tear down all of the expired servers in the warm server pool '{}', retrying on the next replenish: {}", poolTag, errors);
+		}
+	}
+
+	private static ServerDefinition newServerDefinition(ServerDefinition template, String name, List<String> tags) {
+		ServerDefinition serverDefinition = new ServerDefinition();
+		serverDefinition.setName(name);
+		serverDefinition.setTags(new ArrayList<String>(tags));
+		serverDefinition.setImage(template.getImageId());
+		serverDefinition.setOrganization(template.getOrganization());
+		serverDefinition.setServerType(template.getServerType());
+		serverDefinition.setVolumes(template.getVolumes());
+		serverDefinition.setDynamicIpRequired(template.isDynamicIpRequired());
+		serverDefinition.setIpv6Enabled(template.isIpv6Enabled());
+		serverDefinition.setSecurityGroup(template.getSecurityGroup());
+		serverDefinition.setBootscript(template.getBootscript());
+		return(serverDefinition);
+	}
+
+	/**
+	 * The template and the idle servers for a single pool key
+	 */
+	private static final class PoolState {
+		private final ConcurrentLinkedDeque<Server> idleServers = new ConcurrentLinkedDeque<Server>();
+		private volatile ServerDefinition template;
+		private volatile int targetSize;
+
+		private PoolState(ServerDefinition template, int targetSize) {
+			this.template = template;
+			this.targetSize = targetSize;
+		}
+	}
+}
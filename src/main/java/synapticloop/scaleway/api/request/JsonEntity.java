@@ -0,0 +1,100 @@
+package synapticloop.scaleway.api.request;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A request entity holding an object serialized to JSON as UTF-8 bytes.
+ * 
+ * The object is serialized directly to bytes (no intermediate String, so no 
+ * re-encoding and no platform default charset), with the serializer's scratch
+ * buffers being recycled per thread by Jackson, leaving the resulting byte 
+ * array as the only allocation per request body.  The entity is immutable and
+ * repeatable, so a body can be serialized once and then re-used for any 
+ * number of requests (or retries).
+ */
+public class JsonEntity extends AbstractHttpEntity {
+	private static final ObjectWriter OBJECT_WRITER = new ObjectMapper().setSerializationInclusion(Include.NON_NULL).writer();
+	private static final String CONTENT_TYPE = ContentType.APPLICATION_JSON.toString();
+
+	private final byte[] content;
+
+	/**
+	 * Create a new entity from already serialized UTF-8 JSON bytes - the bytes 
+	 * are not copied, so must not be changed after the entity is created
+	 * 
+	 * @param content The UTF-8 JSON bytes
+	 */
+	public JsonEntity(byte[] content) {
+		if(null == content) {
+			throw new IllegalArgumentException("The content must not be null");
+		}
+		this.content = content;
+		setContentType(CONTENT_TYPE);
+	}
+
+	/**
+	 * Serialize an object to a JSON entity, omitting null values
+	 * 
+	 * @param object The object to serialize
+	 * 
+	 * @return The JSON entity
+	 * 
+	 * @throws JsonProcessingException if there was an error serializing
+	 */
+	public static JsonEntity fromObject(Object object) throws JsonProcessingException {
+		return(new JsonEntity(OBJECT_WRITER.writeValueAsBytes(object)));
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return(true);
+	}
+
+	@Override
+	public long getContentLength() {
+		return(content.length);
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		return(new ByteArrayInputStream(content));
+	}
+
+	@Override
+	public void writeTo(OutputStream outputStream) throws IOException {
+		outputStream.write(content);
+		outputStream.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return(false);
+	}
+}
@@ -0,0 +1,37 @@
+package synapticloop.scaleway.api.request;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A Server Patch Request is used to encapsulate the JSON object for renaming
+ * and/or retagging a server - null values are left unchanged
+ */
+
+public class ServerPatchRequest {
+	@JsonProperty("name")  private String name;
+	@JsonProperty("tags")  private List<String> tags;
+
+	public ServerPatchRequest(String name, List<String> tags) {
+		this.name = name;
+		this.tags = tags;
+	}
+}
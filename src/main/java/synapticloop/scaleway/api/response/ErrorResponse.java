@@ -0,0 +1,35 @@
+package synapticloop.scaleway.api.response;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The body of an error response from the API, which looks something like:
+ * 
+ * {"message": "\"e5e2c33f-...\" not found", "type": "unknown_resource"}
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ErrorResponse {
+	@JsonProperty("type")     private String type;
+	@JsonProperty("message")  private String message;
+
+	public String getType() { return type; }
+
+	public String getMessage() { return message; }
+}
@@ -0,0 +1,52 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+import synapticloop.scaleway.api.model.Server;
+
+/**
+ * The future of a server reaching one of a set of states, which also exposes
+ * the estimated time until it gets there, and how many times the API has been
+ * polled whilst waiting.
+ */
+public class ServerStateFuture extends CompletableFuture<Server> {
+	private volatile long estimatedMillisRemaining = -1L;
+	private volatile int numPolls = 0;
+
+	/**
+	 * Return the estimated number of milliseconds until the server reaches the 
+	 * state, as of the last poll.  This is zero once the server is overdue, and
+	 * -1 until the first poll has completed.
+	 * 
+	 * @return the estimated number of milliseconds remaining
+	 */
+	public long getEstimatedMillisRemaining() { return(this.estimatedMillisRemaining); }
+
+	/**
+	 * Return the number of times that the API has been polled whilst waiting
+	 * 
+	 * @return the number of polls
+	 */
+	public int getNumPolls() { return(this.numPolls); }
+
+	void setEstimatedMillisRemaining(long estimatedMillisRemaining) { this.estimatedMillisRemaining = estimatedMillisRemaining; }
+
+	void incrementNumPolls() { this.numPolls++; }
+}
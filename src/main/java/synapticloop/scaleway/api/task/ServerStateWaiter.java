@@ -0,0 +1,337 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.ServerTaskStatus;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+import synapticloop.scaleway.api.util.HashedWheelTimer;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Wait for servers to reach a state, (e.g. running, or stopped), polling 
+ * rarely whilst the server is not expected to be there yet, and densely 
+ * around the time that it is expected.
+ * 
+ * The expected duration comes from the transitions that have been seen 
+ * before for the server type (see {@link TransitionHistory}), or, whilst the 
+ * task that caused the transition is being polled, from the progress of the 
+ * task.  Each poll halves the time remaining until the expected duration, so 
+ * a wait of a minute takes around half a dozen polls rather than the dozens 
+ * that polling at a fixed interval would, and once the server is overdue the
+ * polls back off again.
+ * 
+ * The polls are scheduled on the same timer wheel, and share the same rate 
+ * limit, as the default {@link TaskTracker}.
+ */
+public class ServerStateWaiter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServerStateWaiter.class);
+
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+	public static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private final ServerFetcher serverFetcher;
+	private final TaskFetcher taskFetcher;
+	private final TransitionHistory transitionHistory;
+	private final long minIntervalMillis;
+	private final long maxIntervalMillis;
+	private final HashedWheelTimer hashedWheelTimer;
+	private final RateLimiter rateLimiter;
+
+	/**
+	 * Create a new server state waiter, polling between every 1 and 30 seconds
+	 * 
+	 * @param serverFetcher the fetcher to retrieve the servers with
+	 * @param taskFetcher the fetcher to retrieve the tasks with
+	 */
+	public ServerStateWaiter(ServerFetcher serverFetcher, TaskFetcher taskFetcher) {
+		this(serverFetcher, taskFetcher, new TransitionHistory(), DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS, TaskTracker.DEFAULT_TIMER, TaskTracker.DEFAULT_RATE_LIMITER);
+	}
+
+	/**
+	 * Create a new server state waiter
+	 * 
+	 * @param serverFetcher the fetcher to retrieve the servers with
+	 * @param taskFetcher the fetcher to retrieve the tasks with
+	 * @param transitionHistory the history to estimate the durations from, and
+	 *     to record the durations that are seen to
+	 * @param minIntervalMillis the shortest interval between polls
+	 * @param maxIntervalMillis the longest interval between polls
+	 * @param hashedWheelTimer the timer wheel to schedule the polls on
+	 * @param rateLimiter the rate limiter for the polls
+	 */
+	public ServerStateWaiter(ServerFetcher serverFetcher, TaskFetcher taskFetcher, TransitionHistory transitionHistory, long minIntervalMillis, long maxIntervalMillis, HashedWheelTimer hashedWheelTimer, RateLimiter rateLimiter) {
+		if(minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+			throw new IllegalArgumentException("The minimum interval must be positive, and no greater than the maximum interval");
+		}
+
+		this.serverFetcher = serverFetcher;
+		this.taskFetcher = taskFetcher;
+		this.transitionHistory = transitionHistory;
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxIntervalMillis = maxIntervalMillis;
+		this.hashedWheelTimer = hashedWheelTimer;
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Return the history of the transitions that the waits are estimated from
+	 * 
+	 * @return the transition history
+	 */
+	public TransitionHistory getTransitionHistory() { return(this.transitionHistory); }
+
+	/**
+	 * Wait for the server to reach one of the states, timing out after 10 
+	 * minutes
+	 * 
+	 * @param serverId the id of the server
+	 * @param states the states to wait for
+	 * 
+	 * @return the future which completes with the server once it has reached
+	 *     one of the states
+	 */
+	public ServerStateFuture waitForState(String serverId, State... states) {
+		return(waitForState(serverId, null, DEFAULT_TIMEOUT_MILLIS, states));
+	}
+
+	/**
+	 * Wait for the server to reach one of the states.  If the task that caused 
+	 * the transition is passed in, the task is polled until it has finished, 
+	 * and its progress used to estimate the time remaining, before the server 
+	 * is polled.
+	 * 
+	 * @param serverId the id of the server
+	 * @param serverTask the task that caused the transition, (may be null)
+	 * @param timeoutMillis the number of milliseconds to wait before completing 
+	 *     the future with a {@link TimeoutException}
+	 * @param states the states to wait for
+	 * 
+	 * @return the future which completes with the server once it has reached
+	 *     one of the states
+	 */
+	public ServerStateFuture waitForState(final String serverId, ServerTask serverTask, long timeoutMillis, State... states) {
+		if(null == states || states.length == 0) {
+			throw new IllegalArgumentException("At least one state to wait for must be passed in");
+		}
+
+		final ServerStateFuture future = new ServerStateFuture();
+		Set<State> targetStates = EnumSet.noneOf(State.class);
+		for (State state : states) {
+			targetStates.add(state);
+		}
+
+		final StateWait stateWait = new StateWait(serverId, (null == serverTask ? null : serverTask.getId()), targetStates, future);
+
+		final HashedWheelTimer.Timeout timeout = hashedWheelTimer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				future.completeExceptionally(new TimeoutException("Server with id '" + serverId + "' did not reach the state within the timeout"));
+			}
+		}, timeoutMillis);
+
+		future.whenComplete(new BiConsumer<Server, Throwable>() {
+			@Override
+			public void accept(Server server, Throwable throwable) {
+				timeout.cancel();
+				stateWait.cancel();
+			}
+		});
+
+		stateWait.schedule(0L);
+		return(future);
+	}
+
+	private static double parseProgress(String progress) {
+		if(null == progress) {
+			return(-1.0d);
+		}
+
+		try {
+			return(Double.parseDouble(progress.replace("%", "").trim()));
+		} catch (NumberFormatException ex) {
+			return(-1.0d);
+		}
+	}
+
+	/**
+	 * A single wait for a server state - each poll schedules the next one, so 
+	 * at most one poll is ever scheduled, or running, per wait.
+	 */
+	private final class StateWait implements Runnable {
+		private final String serverId;
+		private final String taskId;
+		private final Set<State> targetStates;
+		private final ServerStateFuture future;
+		private final long startNanos = System.nanoTime();
+
+		private boolean hasPermit = false;
+		private boolean isTaskFinished;
+		private ServerType serverType = null;
+		private long lastPollNanos = -1L;
+		private volatile HashedWheelTimer.Timeout scheduledPoll = null;
+
+		private StateWait(String serverId, String taskId, Set<State> targetStates, ServerStateFuture future) {
+			this.serverId = serverId;
+			this.taskId = taskId;
+			this.targetStates = targetStates;
+			this.future = future;
+			this.isTaskFinished = (null == taskId);
+			if(!isTaskFinished) {
+				// the task was in flight when the wait started, so the transition 
+				// happens after the start, (or after any task poll that found it 
+				// still in flight)
+				this.lastPollNanos = startNanos;
+			}
+		}
+
+		private void schedule(long delayMillis) {
+			if(future.isDone()) {
+				return;
+			}
+
+			scheduledPoll = hashedWheelTimer.newTimeout(this, delayMillis);
+
+			// the future may have been completed (or cancelled) whilst scheduling
+			if(future.isDone()) {
+				cancel();
+			}
+		}
+
+		private void cancel() {
+			HashedWheelTimer.Timeout current = scheduledPoll;
+			if(null != current) {
+				current.cancel();
+			}
+		}
+
+		@Override
+		public void run() {
+			if(future.isDone()) {
+				return;
+			}
+
+			if(!hasPermit) {
+				long waitMillis = rateLimiter.reserve();
+				if(waitMillis > 0) {
+					hasPermit = true;
+					schedule(waitMillis);
+					return;
+				}
+			}
+			hasPermit = false;
+
+			future.incrementNumPolls();
+			try {
+				if(isTaskFinished) {
+					pollServer();
+				} else {
+					pollTask();
+				}
+			} catch (ScalewayApiException ex) {
+				if(ex.isRetryable()) {
+					LOGGER.warn("Could not poll server with id '{}', retrying: {}", serverId, ex.getMessage());
+					schedule(Math.max(minIntervalMillis, ex.getRetryAfterMillis()));
+				} else {
+					future.completeExceptionally(ex);
+				}
+			} catch (RuntimeException ex) {
+				future.completeExceptionally(ex);
+			}
+		}
+
+		private void pollTask() throws ScalewayApiException {
+			ServerTask serverTask = taskFetcher.fetchTask(taskId);
+			ServerTaskStatus status = serverTask.getStatus();
+
+			if(status == ServerTaskStatus.FAILURE) {
+				future.completeExceptionally(new ScalewayApiException("Task with id '" + taskId + "' for server with id '" + serverId + "' failed (progress '" + serverTask.getProgress() + "')"));
+			} else if(TaskTracker.isTerminal(status) || null != serverTask.getTerminatedAt()) {
+				// the task is done, so the server should be there (or very nearly)
+				isTaskFinished = true;
+				schedule(0L);
+			} else {
+				lastPollNanos = System.nanoTime();
+				scheduleNext(parseProgress(serverTask.getProgress()));
+			}
+		}
+
+		private void pollServer() throws ScalewayApiException {
+			long previousPollNanos = lastPollNanos;
+			Server server = serverFetcher.fetchServer(serverId);
+			long nowNanos = System.nanoTime();
+			lastPollNanos = nowNanos;
+			serverType = server.getServerType();
+
+			State state = server.getState();
+			if(targetStates.contains(state)) {
+				if(previousPollNanos != -1L) {
+					// the server got there at some point since the previous poll
+					long reachedNanos = (previousPollNanos + nowNanos) / 2;
+					transitionHistory.record(serverType, state, TimeUnit.NANOSECONDS.toMillis(reachedNanos - startNanos));
+				}
+				future.setEstimatedMillisRemaining(0L);
+				future.complete(server);
+			} else {
+				scheduleNext(-1.0d);
+			}
+		}
+
+		private void scheduleNext(double progress) {
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+			long expectedMillis = Long.MAX_VALUE;
+			long deviationMillis = 0L;
+			if(progress > 0.0d && progress < 100.0d && elapsedMillis > 0) {
+				expectedMillis = (long)(elapsedMillis * 100.0d / progress);
+			} else {
+				for (State state : targetStates) {
+					long stateExpectedMillis = transitionHistory.getExpectedMillis(serverType, state);
+					if(stateExpectedMillis < expectedMillis) {
+						expectedMillis = stateExpectedMillis;
+						deviationMillis = transitionHistory.getDeviationMillis(serverType, state);
+					}
+				}
+			}
+
+			long delayMillis;
+			if(elapsedMillis < expectedMillis) {
+				future.setEstimatedMillisRemaining(expectedMillis - elapsedMillis);
+				delayMillis = (expectedMillis - elapsedMillis) / 2;
+			} else {
+				future.setEstimatedMillisRemaining(0L);
+				delayMillis = Math.max(deviationMillis / 4, (elapsedMillis - expectedMillis) / 2);
+			}
+
+			schedule(Math.min(maxIntervalMillis, Math.max(minIntervalMillis, delayMillis)));
+		}
+	}
+}
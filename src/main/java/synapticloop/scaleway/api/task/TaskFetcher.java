@@ -0,0 +1,39 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.ServerTask;
+
+/**
+ * Fetch the current status of a server task, (e.g. the task that was returned
+ * from executing a server action).
+ */
+public interface TaskFetcher {
+
+	/**
+	 * Fetch the current status of the task
+	 * 
+	 * @param taskId The id of the task
+	 * 
+	 * @return The server task which includes the status
+	 * 
+	 * @throws ScalewayApiException If there was an error with the API call
+	 */
+	ServerTask fetchTask(String taskId) throws ScalewayApiException;
+}
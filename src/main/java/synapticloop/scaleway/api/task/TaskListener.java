@@ -0,0 +1,39 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.ServerTaskStatus;
+
+/**
+ * Listen for the status transitions of a server task that is being waited 
+ * for.  The listener is called on one of the task tracker's threads, so it 
+ * should return quickly.
+ */
+public interface TaskListener {
+
+	/**
+	 * The status of the task has changed, (including the first time that the 
+	 * status was retrieved)
+	 * 
+	 * @param previousStatus the previous status of the task, null if this is 
+	 *     the first status that was retrieved
+	 * @param serverTask the task, with its new status
+	 */
+	void onTaskStatusChanged(ServerTaskStatus previousStatus, ServerTask serverTask);
+}
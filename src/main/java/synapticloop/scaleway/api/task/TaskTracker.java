@@ -0,0 +1,304 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.ServerTaskStatus;
+import synapticloop.scaleway.api.util.HashedWheelTimer;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+/**
+ * Wait for server tasks to finish without holding a thread per task - the 
+ * polls for every outstanding task are multiplexed onto a hashed timer wheel,
+ * and run on a small pool of threads, so that waiting for thousands of tasks
+ * costs a few objects per task.  Each task is polled quickly at first (most 
+ * tasks finish within a few seconds) and then backing off, so that the time 
+ * between a task finishing and the future completing is kept short without 
+ * hammering the API for long running tasks.
+ * 
+ * All of the polls share a rate limiter, so however many tasks are 
+ * outstanding, the API is never polled faster than the budget - when the 
+ * budget is used up, the polls are pushed back on the wheel rather than 
+ * waiting on a thread.
+ * 
+ * The returned future completes:
+ * 
+ * <ul>
+ *   <li>normally with the final task, when the task succeeds,</li>
+ *   <li>exceptionally with a {@link ScalewayApiException}, when the task fails 
+ *     or the status could not be retrieved (retryable errors are retried),</li>
+ *   <li>exceptionally with a {@link TimeoutException}, when the task has not 
+ *     finished within the timeout.</li>
+ * </ul>
+ * 
+ * Cancelling the returned future stops the polling.
+ */
+public class TaskTracker {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TaskTracker.class);
+
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = 500L;
+	public static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	public static final double DEFAULT_POLLS_PER_SECOND = 20.0d;
+
+	private static final long TICK_MILLIS = 100L;
+	private static final int NUM_BUCKETS = 512;
+	private static final int NUM_POLLING_THREADS = 4;
+
+	static final HashedWheelTimer DEFAULT_TIMER = new HashedWheelTimer("scaleway-task-timer", 
+			TICK_MILLIS, 
+			NUM_BUCKETS, 
+			new ThreadPoolExecutor(NUM_POLLING_THREADS, NUM_POLLING_THREADS, 
+					60L, TimeUnit.SECONDS, 
+					new LinkedBlockingQueue<Runnable>(), 
+					new NamedThreadFactory("scaleway-task")));
+
+	static final RateLimiter DEFAULT_RATE_LIMITER = new RateLimiter(DEFAULT_POLLS_PER_SECOND);
+
+	private final TaskFetcher taskFetcher;
+	private final HashedWheelTimer hashedWheelTimer;
+	private final RateLimiter rateLimiter;
+	private final long minIntervalMillis;
+	private final long maxIntervalMillis;
+
+	/**
+	 * Create a new task tracker, polling each task between every 0.5 and 10 
+	 * seconds, on a timer wheel and pool of daemon threads that are shared with
+	 * all of the other default task trackers, as is the budget of 20 polls per
+	 * second.
+	 * 
+	 * @param taskFetcher the fetcher to retrieve the status of the tasks with
+	 */
+	public TaskTracker(TaskFetcher taskFetcher) {
+		this(taskFetcher, DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS, DEFAULT_TIMER, DEFAULT_RATE_LIMITER);
+	}
+
+	/**
+	 * Create a new task tracker
+	 * 
+	 * @param taskFetcher the fetcher to retrieve the status of the tasks with
+	 * @param minIntervalMillis the interval before the first poll, which is 
+	 *     doubled after every poll that the task has not finished
+	 * @param maxIntervalMillis the longest interval between polls
+	 * @param hashedWheelTimer the timer wheel to schedule the polls on
+	 * @param rateLimiter the rate limiter for the polls
+	 */
+	public TaskTracker(TaskFetcher taskFetcher, long minIntervalMillis, long maxIntervalMillis, HashedWheelTimer hashedWheelTimer, RateLimiter rateLimiter) {
+		if(minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+			throw new IllegalArgumentException("The minimum interval must be positive, and no greater than the maximum interval");
+		}
+
+		this.taskFetcher = taskFetcher;
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxIntervalMillis = maxIntervalMillis;
+		this.hashedWheelTimer = hashedWheelTimer;
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Return the timer wheel, (with a tick of 100 milliseconds), that the 
+	 * default task trackers schedule their polls on, so that other coarse 
+	 * grained timeouts may share its thread rather than starting their own
+	 * 
+	 * @return the shared timer wheel
+	 */
+	public static HashedWheelTimer getDefaultTimer() {
+		return(DEFAULT_TIMER);
+	}
+
+	/**
+	 * Wait for the task to finish, timing out after 10 minutes
+	 * 
+	 * @param taskId The id of the task to wait for
+	 * 
+	 * @return the future which completes when the task has finished
+	 */
+	public CompletableFuture<ServerTask> awaitTask(String taskId) {
+		return(awaitTask(taskId, DEFAULT_TIMEOUT_MILLIS, null));
+	}
+
+	/**
+	 * Wait for the task to finish
+	 * 
+	 * @param taskId The id of the task to wait for
+	 * @param timeoutMillis the number of milliseconds to wait before completing 
+	 *     the future with a {@link TimeoutException}
+	 * 
+	 * @return the future which completes when the task has finished
+	 */
+	public CompletableFuture<ServerTask> awaitTask(String taskId, long timeoutMillis) {
+		return(awaitTask(taskId, timeoutMillis, null));
+	}
+
+	/**
+	 * Wait for the task to finish, calling the listener on every change of 
+	 * status of the task
+	 * 
+	 * @param taskId The id of the task to wait for
+	 * @param timeoutMillis the number of milliseconds to wait before completing 
+	 *     the future with a {@link TimeoutException}
+	 * @param taskListener the listener to call on every change of status, (may
+	 *     be null)
+	 * 
+	 * @return the future which completes when the task has finished
+	 */
+	public CompletableFuture<ServerTask> awaitTask(final String taskId, long timeoutMillis, TaskListener taskListener) {
+		final CompletableFuture<ServerTask> future = new CompletableFuture<ServerTask>();
+		final TaskPoll taskPoll = new TaskPoll(taskId, future, taskListener);
+
+		final HashedWheelTimer.Timeout timeout = hashedWheelTimer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				future.completeExceptionally(new TimeoutException("Task with id '" + taskId + "' did not finish within the timeout"));
+			}
+		}, timeoutMillis);
+
+		future.whenComplete(new BiConsumer<ServerTask, Throwable>() {
+			@Override
+			public void accept(ServerTask serverTask, Throwable throwable) {
+				timeout.cancel();
+				taskPoll.cancel();
+			}
+		});
+
+		taskPoll.schedule(minIntervalMillis);
+		return(future);
+	}
+
+	/**
+	 * Whether the task status is a terminal one - i.e. the task will not change
+	 * status again
+	 * 
+	 * @param serverTaskStatus the status of the task
+	 * 
+	 * @return whether the status is terminal
+	 */
+	public static boolean isTerminal(ServerTaskStatus serverTaskStatus) {
+		return(serverTaskStatus == ServerTaskStatus.SUCCESS || serverTaskStatus == ServerTaskStatus.FAILURE);
+	}
+
+	/**
+	 * A single task being waited for - each poll schedules the next one, so at 
+	 * most one poll is ever scheduled, or running, per task.
+	 */
+	private final class TaskPoll implements Runnable {
+		private final String taskId;
+		private final CompletableFuture<ServerTask> future;
+		private final TaskListener taskListener;
+		private long intervalMillis;
+		private boolean hasPermit = false;
+		private ServerTaskStatus previousStatus = null;
+		private volatile HashedWheelTimer.Timeout scheduledPoll = null;
+
+		private TaskPoll(String taskId, CompletableFuture<ServerTask> future, TaskListener taskListener) {
+			this.taskId = taskId;
+			this.future = future;
+			this.taskListener = taskListener;
+			this.intervalMillis = minIntervalMillis;
+		}
+
+		private void schedule(long delayMillis) {
+			if(future.isDone()) {
+				return;
+			}
+
+			scheduledPoll = hashedWheelTimer.newTimeout(this, delayMillis);
+
+			// the future may have been completed (or cancelled) whilst scheduling
+			if(future.isDone()) {
+				cancel();
+			}
+		}
+
+		private void cancel() {
+			HashedWheelTimer.Timeout current = scheduledPoll;
+			if(null != current) {
+				current.cancel();
+			}
+		}
+
+		@Override
+		public void run() {
+			if(future.isDone()) {
+				return;
+			}
+
+			if(!hasPermit) {
+				long waitMillis = rateLimiter.reserve();
+				if(waitMillis > 0) {
+					// over the budget - come back when the permit may be used
+					hasPermit = true;
+					schedule(waitMillis);
+					return;
+				}
+			}
+			hasPermit = false;
+
+			intervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+
+			ServerTask serverTask;
+			try {
+				serverTask = taskFetcher.fetchTask(taskId);
+			} catch (ScalewayApiException ex) {
+				if(ex.isRetryable()) {
+					LOGGER.warn("Could not retrieve the status of task with id '{}', retrying: {}", taskId, ex.getMessage());
+					schedule(Math.max(intervalMillis, ex.getRetryAfterMillis()));
+				} else {
+					future.completeExceptionally(ex);
+				}
+				return;
+			} catch (RuntimeException ex) {
+				future.completeExceptionally(ex);
+				return;
+			}
+
+			ServerTaskStatus status = serverTask.getStatus();
+			LOGGER.debug("Server task with id '{}' is in current state '{}' (progress '{}')", taskId, status, serverTask.getProgress());
+
+			if(status != previousStatus && null != taskListener) {
+				try {
+					taskListener.onTaskStatusChanged(previousStatus, serverTask);
+				} catch (RuntimeException ex) {
+					LOGGER.warn("Task listener threw an exception, ignoring.", ex);
+				}
+			}
+			previousStatus = status;
+
+			if(status == ServerTaskStatus.SUCCESS) {
+				future.complete(serverTask);
+			} else if(isTerminal(status) || null != serverTask.getTerminatedAt()) {
+				future.completeExceptionally(new ScalewayApiException("Task with id '" + taskId + "' finished with status '" + status + "' (progress '" + serverTask.getProgress() + "')"));
+			} else {
+				schedule(intervalMillis);
+			}
+		}
+	}
+}
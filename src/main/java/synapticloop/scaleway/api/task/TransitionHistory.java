@@ -0,0 +1,163 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+
+/**
+ * The learned durations of the server state transitions, per server type and
+ * target state, as an exponentially weighted moving average of the duration
+ * and of its deviation from the average, (in the same way that TCP estimates
+ * round trip times).
+ * 
+ * Until a transition has been seen for a server type, the transitions seen 
+ * for any server type are used, and until any have been seen, a fixed prior 
+ * for the target state.
+ */
+public class TransitionHistory {
+	private static final double ALPHA = 0.25d;
+
+	private static final long DEFAULT_RUNNING_MILLIS = TimeUnit.SECONDS.toMillis(60);
+	private static final long DEFAULT_STOPPED_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	private static final long DEFAULT_OTHER_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+	private final Map<ServerType, Map<State, Estimate>> estimatesByServerType = new EnumMap<ServerType, Map<State, Estimate>>(ServerType.class);
+	private final Map<State, Estimate> estimatesForAnyServerType = new EnumMap<State, Estimate>(State.class);
+
+	/**
+	 * Record the duration of a transition
+	 * 
+	 * @param serverType the type of the server, (may be null if not known)
+	 * @param state the state that the server reached
+	 * @param durationMillis how long the server took to reach the state
+	 */
+	public synchronized void record(ServerType serverType, State state, long durationMillis) {
+		if(null == state || durationMillis < 0) {
+			return;
+		}
+
+		if(null != serverType) {
+			Map<State, Estimate> estimates = estimatesByServerType.get(serverType);
+			if(null == estimates) {
+				estimates = new EnumMap<State, Estimate>(State.class);
+				estimatesByServerType.put(serverType, estimates);
+			}
+			record(estimates, state, durationMillis);
+		}
+		record(estimatesForAnyServerType, state, durationMillis);
+	}
+
+	/**
+	 * Return the expected duration of the transition to the state
+	 * 
+	 * @param serverType the type of the server, (may be null if not known)
+	 * @param state the state that the server is transitioning to
+	 * 
+	 * @return the expected duration of the transition in milliseconds
+	 */
+	public synchronized long getExpectedMillis(ServerType serverType, State state) {
+		Estimate estimate = getEstimate(serverType, state);
+		if(null == estimate) {
+			return(getDefaultMillis(state));
+		}
+		return((long)estimate.meanMillis);
+	}
+
+	/**
+	 * Return the mean deviation of the duration of the transition to the state
+	 * 
+	 * @param serverType the type of the server, (may be null if not known)
+	 * @param state the state that the server is transitioning to
+	 * 
+	 * @return the mean deviation of the duration in milliseconds
+	 */
+	public synchronized long getDeviationMillis(ServerType serverType, State state) {
+		Estimate estimate = getEstimate(serverType, state);
+		if(null == estimate) {
+			return(getDefaultMillis(state) / 2);
+		}
+		return((long)estimate.deviationMillis);
+	}
+
+	/**
+	 * Return the number of transitions to the state that have been recorded
+	 * 
+	 * @param serverType the type of the server, (null for any server type)
+	 * @param state the state that the servers transitioned to
+	 * 
+	 * @return the number of transitions that have been recorded
+	 */
+	public synchronized int getNumSamples(ServerType serverType, State state) {
+		Map<State, Estimate> estimates = (null == serverType ? estimatesForAnyServerType : estimatesByServerType.get(serverType));
+		if(null == estimates || !estimates.containsKey(state)) {
+			return(0);
+		}
+		return(estimates.get(state).numSamples);
+	}
+
+	private Estimate getEstimate(ServerType serverType, State state) {
+		if(null != serverType) {
+			Map<State, Estimate> estimates = estimatesByServerType.get(serverType);
+			if(null != estimates && estimates.containsKey(state)) {
+				return(estimates.get(state));
+			}
+		}
+		return(estimatesForAnyServerType.get(state));
+	}
+
+	private static void record(Map<State, Estimate> estimates, State state, long durationMillis) {
+		Estimate estimate = estimates.get(state);
+		if(null == estimate) {
+			estimates.put(state, new Estimate(durationMillis));
+		} else {
+			estimate.add(durationMillis);
+		}
+	}
+
+	private static long getDefaultMillis(State state) {
+		if(state == State.RUNNING) {
+			return(DEFAULT_RUNNING_MILLIS);
+		} else if(state == State.STOPPED) {
+			return(DEFAULT_STOPPED_MILLIS);
+		}
+		return(DEFAULT_OTHER_MILLIS);
+	}
+
+	private static final class Estimate {
+		private double meanMillis;
+		private double deviationMillis;
+		private int numSamples;
+
+		private Estimate(long durationMillis) {
+			this.meanMillis = durationMillis;
+			this.deviationMillis = durationMillis / 2.0d;
+			this.numSamples = 1;
+		}
+
+		private void add(long durationMillis) {
+			deviationMillis += ALPHA * (Math.abs(durationMillis - meanMillis) - deviationMillis);
+			meanMillis += ALPHA * (durationMillis - meanMillis);
+			numSamples++;
+		}
+	}
+}
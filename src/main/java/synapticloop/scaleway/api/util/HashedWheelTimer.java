@@ -0,0 +1,255 @@
+package synapticloop.scaleway.api.util;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel for scheduling very large numbers of short tasks which 
+ * do not need precise timing, (e.g. polling thousands of server tasks).  
+ * Scheduling and cancelling a timeout are constant time and do not involve a 
+ * heap, and a single thread advances the wheel once per tick - the expired 
+ * tasks are handed to the executor, so that a slow task never holds up the 
+ * wheel.
+ * 
+ * Timeouts fire at, or up to one tick after, their deadline.  Cancelled 
+ * timeouts are removed from the wheel when their bucket is next visited.
+ */
+public class HashedWheelTimer implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+	private static final int STATE_PENDING = 0;
+	private static final int STATE_CANCELLED = 1;
+	private static final int STATE_EXPIRED = 2;
+
+	private final long tickNanos;
+	private final int mask;
+	private final List<ArrayDeque<Timeout>> wheel;
+	private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+	private final AtomicLong numPendingTimeouts = new AtomicLong();
+	private final Executor executor;
+	private final Thread workerThread;
+	private final long startNanos;
+	private volatile boolean isClosed = false;
+
+	/**
+	 * Create and start a new timer wheel
+	 * 
+	 * @param name the name of the thread that advances the wheel
+	 * @param tickMillis the duration of one tick of the wheel, which is the 
+	 *     resolution of the timer
+	 * @param numBuckets the number of buckets in the wheel, (rounded up to a 
+	 *     power of two) - timeouts further away than one revolution of the wheel
+	 *     stay in their bucket for the number of remaining revolutions
+	 * @param executor the executor to run the expired tasks on
+	 */
+	public HashedWheelTimer(String name, long tickMillis, int numBuckets, Executor executor) {
+		if(tickMillis <= 0) {
+			throw new IllegalArgumentException("The tick duration must be positive, was " + tickMillis);
+		}
+		if(numBuckets <= 0 || numBuckets > (1 << 30)) {
+			throw new IllegalArgumentException("The number of buckets must be between 1 and 2^30, was " + numBuckets);
+		}
+
+		int wheelSize = Integer.highestOneBit(numBuckets);
+		if(wheelSize < numBuckets) {
+			wheelSize = wheelSize << 1;
+		}
+
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.mask = wheelSize - 1;
+		this.wheel = new ArrayList<ArrayDeque<Timeout>>(wheelSize);
+		for (int i = 0; i < wheelSize; i++) {
+			wheel.add(new ArrayDeque<Timeout>());
+		}
+		this.executor = executor;
+		this.startNanos = System.nanoTime();
+
+		this.workerThread = new NamedThreadFactory(name).newThread(new Runnable() {
+			@Override
+			public void run() {
+				runWheel();
+			}
+		});
+		this.workerThread.start();
+	}
+
+	/**
+	 * Schedule the task to run on the executor once the delay has passed
+	 * 
+	 * @param task the task to run
+	 * @param delayMillis the delay in milliseconds
+	 * 
+	 * @return the timeout, which may be cancelled
+	 * 
+	 * @throws IllegalStateException if the timer has been closed
+	 */
+	public Timeout newTimeout(Runnable task, long delayMillis) {
+		if(isClosed) {
+			throw new IllegalStateException("The timer has been closed");
+		}
+
+		Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+		numPendingTimeouts.incrementAndGet();
+		newTimeouts.add(timeout);
+		return(timeout);
+	}
+
+	/**
+	 * Return the number of timeouts that have been scheduled, but have neither
+	 * expired nor been cancelled
+	 * 
+	 * @return the number of pending timeouts
+	 */
+	public long getNumPendingTimeouts() { return(numPendingTimeouts.get()); }
+
+	/**
+	 * Stop the timer - any pending timeouts will not be run.
+	 */
+	@Override
+	public void close() {
+		isClosed = true;
+		workerThread.interrupt();
+	}
+
+	private void runWheel() {
+		long tick = 0;
+		while(!isClosed) {
+			long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+			if(sleepNanos > 0) {
+				try {
+					Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999999L));
+				} catch (InterruptedException ex) {
+					if(isClosed) {
+						break;
+					}
+				}
+				continue;
+			}
+
+			transferNewTimeouts(tick);
+			expireTimeouts(wheel.get((int)(tick & mask)));
+			tick++;
+		}
+
+		newTimeouts.clear();
+		for (ArrayDeque<Timeout> bucket : wheel) {
+			bucket.clear();
+		}
+	}
+
+	private void transferNewTimeouts(long tick) {
+		Timeout timeout;
+		while((timeout = newTimeouts.poll()) != null) {
+			if(timeout.state.get() == STATE_CANCELLED) {
+				continue;
+			}
+
+			// the tick on which this timeout is due, or this tick if it is overdue
+			long dueTick = Math.max((timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1, tick);
+			timeout.remainingRounds = (dueTick - tick) / wheel.size();
+			wheel.get((int)(dueTick & mask)).add(timeout);
+		}
+	}
+
+	private void expireTimeouts(ArrayDeque<Timeout> bucket) {
+		Iterator<Timeout> iterator = bucket.iterator();
+		while(iterator.hasNext()) {
+			Timeout timeout = iterator.next();
+			if(timeout.state.get() == STATE_CANCELLED) {
+				iterator.remove();
+			} else if(timeout.remainingRounds <= 0) {
+				iterator.remove();
+				timeout.expire();
+			} else {
+				timeout.remainingRounds--;
+			}
+		}
+	}
+
+	/**
+	 * A task that has been scheduled on the timer wheel
+	 */
+	public final class Timeout {
+		private final Runnable task;
+		private final long deadlineNanos;
+		private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+		private long remainingRounds = 0;
+
+		private Timeout(Runnable task, long deadlineNanos) {
+			this.task = task;
+			this.deadlineNanos = deadlineNanos;
+		}
+
+		/**
+		 * Cancel the timeout, so that its task will not be run
+		 * 
+		 * @return whether the timeout was cancelled, false if it had already 
+		 *     expired, or been cancelled
+		 */
+		public boolean cancel() {
+			if(state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+				numPendingTimeouts.decrementAndGet();
+				return(true);
+			}
+			return(false);
+		}
+
+		/**
+		 * Whether the timeout has been cancelled
+		 * 
+		 * @return whether the timeout has been cancelled
+		 */
+		public boolean isCancelled() { return(state.get() == STATE_CANCELLED); }
+
+		/**
+		 * Whether the timeout has expired, (i.e. its task has been handed to the 
+		 * executor)
+		 * 
+		 * @return whether the timeout has expired
+		 */
+		public boolean isExpired() { return(state.get() == STATE_EXPIRED); }
+
+		private void expire() {
+			if(!state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+				return;
+			}
+
+			numPendingTimeouts.decrementAndGet();
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException ex) {
+				LOGGER.warn("The executor rejected an expired timeout, dropping it: {}", ex.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package synapticloop.scaleway.api.util;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream which counts the number of bytes that have been read through
+ * it, and the time that has been spent waiting in the read calls.
+ */
+public class MeteredInputStream extends FilterInputStream {
+	private long byteCount = 0L;
+	private long readNanos = 0L;
+
+	/**
+	 * Create a new metered input stream wrapping the passed in input stream
+	 * 
+	 * @param inputStream the input stream to meter
+	 */
+	public MeteredInputStream(InputStream inputStream) {
+		super(inputStream);
+	}
+
+	@Override
+	public int read() throws IOException {
+		long start = System.nanoTime();
+		int read = super.read();
+		readNanos += System.nanoTime() - start;
+		if(read != -1) {
+			byteCount++;
+		}
+		return(read);
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		long start = System.nanoTime();
+		int read = super.read(buffer, offset, length);
+		readNanos += System.nanoTime() - start;
+		if(read > 0) {
+			byteCount += read;
+		}
+		return(read);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		byteCount += skipped;
+		return(skipped);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return(false);
+	}
+
+	/**
+	 * Return the number of bytes that have been read through this stream
+	 * 
+	 * @return the number of bytes that have been read through this stream
+	 */
+	public long getByteCount() { return this.byteCount; }
+
+	/**
+	 * Return the number of nanoseconds that were spent in the read calls
+	 * 
+	 * @return the number of nanoseconds that were spent in the read calls
+	 */
+	public long getReadNanos() { return this.readNanos; }
+}
@@ -0,0 +1,46 @@
+package synapticloop.scaleway.api.util;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread factory which creates daemon threads with a recognisable name, so
+ * that background work started by the API never holds the JVM open.
+ */
+public class NamedThreadFactory implements ThreadFactory {
+	private final String namePrefix;
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	/**
+	 * Create a new thread factory
+	 *
+	 * @param namePrefix the prefix for the thread names, which will have the
+	 *     thread number appended to it
+	 */
+	public NamedThreadFactory(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return(thread);
+	}
+}
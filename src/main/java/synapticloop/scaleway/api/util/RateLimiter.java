@@ -0,0 +1,103 @@
+package synapticloop.scaleway.api.util;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter, handing out permits at a steady rate with a 
+ * burst of up to one second's worth of permits that were not used.
+ * 
+ * Rather than blocking, callers may reserve a permit and be told how long to 
+ * wait before using it, so that a scheduler can delay the work instead of 
+ * holding a thread whilst waiting.
+ */
+public class RateLimiter {
+	private final long intervalNanos;
+	private final double maxStoredPermits;
+
+	private double storedPermits;
+	private long nextFreeNanos;
+
+	/**
+	 * Create a new rate limiter
+	 * 
+	 * @param permitsPerSecond the number of permits to hand out per second
+	 */
+	public RateLimiter(double permitsPerSecond) {
+		this(permitsPerSecond, System.nanoTime());
+	}
+
+	RateLimiter(double permitsPerSecond, long nowNanos) {
+		if(permitsPerSecond <= 0 || Double.isNaN(permitsPerSecond)) {
+			throw new IllegalArgumentException("The number of permits per second must be positive, was " + permitsPerSecond);
+		}
+
+		this.intervalNanos = Math.max(1L, (long)(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.maxStoredPermits = Math.max(1.0d, permitsPerSecond);
+		this.storedPermits = maxStoredPermits;
+		this.nextFreeNanos = nowNanos;
+	}
+
+	/**
+	 * Reserve a permit, returning the number of milliseconds that the caller 
+	 * must wait before the permit may be used.  The permit is taken whether or
+	 * not there is a wait.
+	 * 
+	 * @return the number of milliseconds to wait before using the permit, zero
+	 *     if it may be used straight away
+	 */
+	public long reserve() {
+		long waitNanos = reserve(System.nanoTime());
+		return(TimeUnit.NANOSECONDS.toMillis(waitNanos + 999999L));
+	}
+
+	/**
+	 * Acquire a permit, blocking until it may be used
+	 * 
+	 * @throws InterruptedException if the thread was interrupted whilst waiting
+	 */
+	public void acquire() throws InterruptedException {
+		long waitMillis = reserve();
+		if(waitMillis > 0) {
+			Thread.sleep(waitMillis);
+		}
+	}
+
+	/**
+	 * Reserve a permit as of the passed in time
+	 * 
+	 * @param nowNanos the current value of the nano time
+	 * 
+	 * @return the number of nanoseconds to wait before using the permit
+	 */
+	synchronized long reserve(long nowNanos) {
+		if(nowNanos > nextFreeNanos) {
+			storedPermits = Math.min(maxStoredPermits, storedPermits + (double)(nowNanos - nextFreeNanos) / intervalNanos);
+			nextFreeNanos = nowNanos;
+		}
+
+		long waitNanos = nextFreeNanos - nowNanos;
+		if(storedPermits >= 1.0d) {
+			storedPermits -= 1.0d;
+		} else {
+			nextFreeNanos += intervalNanos;
+		}
+		return(waitNanos);
+	}
+}
@@ -0,0 +1,42 @@
+package synapticloop.scaleway.api.watch;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import synapticloop.scaleway.api.diff.ResourceChange;
+
+/**
+ * A listener for the changes to one type of resource, as found by a watch.
+ * 
+ * The changes for a watch are delivered to the listener one at a time, in the
+ * order that they were found, on the dispatch executor (never on the polling 
+ * thread), so the listener does not need to be thread safe, however a slow 
+ * listener will slow down the polling.
+ *
+ * @param <T> The type of the resource
+ */
+public interface ResourceChangeListener<T> {
+
+	/**
+	 * A resource was added, modified or removed.  When a listener is added to a
+	 * watch that has already polled, it is first sent an ADDED change for each of 
+	 * the resources that currently exist.
+	 * 
+	 * @param resourceChange the change
+	 */
+	void onResourceChange(ResourceChange<T> resourceChange);
+}
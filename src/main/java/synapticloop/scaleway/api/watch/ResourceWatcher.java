@@ -0,0 +1,193 @@
+package synapticloop.scaleway.api.watch;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import synapticloop.scaleway.api.diff.ChangeType;
+import synapticloop.scaleway.api.diff.ResourceChange;
+import synapticloop.scaleway.api.diff.ResourceDiffer;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.paging.PageFetcher;
+import synapticloop.scaleway.api.paging.PageFetchers;
+
+/**
+ * A single polling loop over one type of resource, which is shared by all of
+ * the listeners for that type.  Each poll fetches the complete listing, diffs 
+ * it against the previous listing, and dispatches the changes to the 
+ * listeners.
+ * 
+ * The interval between polls adapts to the rate of change: it drops to the 
+ * minimum interval as soon as a poll finds a change, and doubles (up to the 
+ * maximum interval) for every poll that finds nothing, or fails.  No API calls
+ * are made while there are no listeners.
+ * 
+ * All of the polling and the listener bookkeeping happens on the scheduler 
+ * thread, and all of the dispatching on the dispatch executor, so the order 
+ * of the changes is kept as long as the dispatch executor runs one task at a 
+ * time.
+ *
+ * @param <T> The type of the resource that is watched
+ */
+public class ResourceWatcher<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResourceWatcher.class);
+
+	private final String name;
+	private final PageFetcher<T> pageFetcher;
+	private final ResourceDiffer<T> resourceDiffer;
+	private final long minIntervalMillis;
+	private final long maxIntervalMillis;
+	private final ScheduledExecutorService scheduledExecutorService;
+	private final Executor dispatchExecutor;
+
+	private final List<ResourceChangeListener<T>> listeners = new CopyOnWriteArrayList<ResourceChangeListener<T>>();
+
+	// only ever accessed on the scheduler thread
+	private List<T> currentResources = null;
+	private volatile long intervalMillis;
+	private boolean isStarted = false;
+
+	ResourceWatcher(String name, PageFetcher<T> pageFetcher, ResourceDiffer<T> resourceDiffer, long minIntervalMillis, long maxIntervalMillis, ScheduledExecutorService scheduledExecutorService, Executor dispatchExecutor) {
+		this.name = name;
+		this.pageFetcher = pageFetcher;
+		this.resourceDiffer = resourceDiffer;
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxIntervalMillis = maxIntervalMillis;
+		this.intervalMillis = minIntervalMillis;
+		this.scheduledExecutorService = scheduledExecutorService;
+		this.dispatchExecutor = dispatchExecutor;
+	}
+
+	/**
+	 * Get the current interval between polls
+	 * 
+	 * @return the current interval between polls
+	 */
+	public long getIntervalMillis() { return(intervalMillis); }
+
+	/**
+	 * Get the number of listeners on this watch
+	 * 
+	 * @return the number of listeners
+	 */
+	public int getNumListeners() { return(listeners.size()); }
+
+	void addListener(final ResourceChangeListener<T> listener) {
+		scheduledExecutorService.execute(new Runnable() {
+			@Override
+			public void run() {
+				listeners.add(listener);
+				if(null != currentResources) {
+					// bring the new listener up to date with what already exists
+					List<ResourceChange<T>> resourceChanges = new ArrayList<ResourceChange<T>>(currentResources.size());
+					for (T resource : currentResources) {
+						resourceChanges.add(new ResourceChange<T>(ChangeType.ADDED, resourceDiffer.getResourceType(), resourceDiffer.getId(resource), null, resource, Collections.<String>emptySet()));
+					}
+					dispatch(Collections.singletonList(listener), resourceChanges);
+				}
+
+				if(!isStarted) {
+					isStarted = true;
+					poll();
+				}
+			}
+		});
+	}
+
+	void removeListener(ResourceChangeListener<T> listener) {
+		listeners.remove(listener);
+	}
+
+	private void poll() {
+		if(listeners.isEmpty()) {
+			// nobody is listening, so don't poll - and start from scratch when
+			// someone does
+			isStarted = false;
+			currentResources = null;
+			resourceDiffer.reset();
+			intervalMillis = minIntervalMillis;
+			return;
+		}
+
+		long nextIntervalMillis;
+		try {
+			List<T> resources = PageFetchers.fetchAll(pageFetcher, PageFetchers.MAX_NUM_PER_PAGE);
+			List<ResourceChange<T>> resourceChanges = resourceDiffer.diff(resources);
+			currentResources = resources;
+
+			if(resourceChanges.isEmpty()) {
+				nextIntervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+			} else {
+				nextIntervalMillis = minIntervalMillis;
+				dispatch(new ArrayList<ResourceChangeListener<T>>(listeners), resourceChanges);
+			}
+		} catch (ScalewayApiException ex) {
+			nextIntervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+			if(ex.getRetryAfterMillis() > nextIntervalMillis) {
+				nextIntervalMillis = ex.getRetryAfterMillis();
+			}
+			LOGGER.warn("Could not poll the {}, polling again in {}ms, message was: {}", name, nextIntervalMillis, ex.getMessage());
+		} catch (RuntimeException ex) {
+			nextIntervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+			LOGGER.error("Could not poll the {}, polling again in {}ms", name, nextIntervalMillis, ex);
+		}
+
+		intervalMillis = nextIntervalMillis;
+		try {
+			scheduledExecutorService.schedule(new Runnable() {
+				@Override
+				public void run() {
+					poll();
+				}
+			}, nextIntervalMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			// the watcher has been closed
+		}
+	}
+
+	private void dispatch(final List<ResourceChangeListener<T>> toListeners, final List<ResourceChange<T>> resourceChanges) {
+		try {
+			dispatchExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (ResourceChangeListener<T> listener : toListeners) {
+						for (ResourceChange<T> resourceChange : resourceChanges) {
+							try {
+								listener.onResourceChange(resourceChange);
+							} catch (RuntimeException ex) {
+								LOGGER.error("Listener for the {} threw an exception for change {}", name, resourceChange, ex);
+							}
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			// the watcher has been closed
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package synapticloop.scaleway.api.watch;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import synapticloop.scaleway.api.ScalewayApiClient;
+import synapticloop.scaleway.api.diff.ResourceDiffer;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.paging.PageFetchers;
+import synapticloop.scaleway.api.util.NamedThreadFactory;
+
+/**
+ * Informer style watches over the servers, volumes, IPs and security groups, 
+ * so that any number of consumers can be told about changes through a single
+ * polling loop per resource type, rather than each of them polling the API.
+ * 
+ * The watcher leaves the settings of the client alone - turn on conditional
+ * requests for the client, (with 
+ * {@link ScalewayApiClient#setConditionalRequests(boolean)}), so that pages 
+ * which have not changed cost a 304 rather than a full response, where the API
+ * supports it.  Note that the pages are then shared with every other caller of
+ * the client, so must not be modified.
+ * 
+ * The changes are dispatched on a single thread with a bounded queue - once 
+ * the queue is full, the polling thread waits for space, which slows the 
+ * polling down to the speed of the listeners rather than queueing without 
+ * bound (and keeps the changes in order).
+ */
+public class ScalewayWatcher implements Closeable {
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	public static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+	private static final int DISPATCH_QUEUE_SIZE = 1024;
+
+	private final ScheduledExecutorService scheduledExecutorService;
+	private final ThreadPoolExecutor dispatchExecutor;
+
+	private final ResourceWatcher<Server> serverWatcher;
+	private final ResourceWatcher<Volume> volumeWatcher;
+	private final ResourceWatcher<IP> ipWatcher;
+	private final ResourceWatcher<SecurityGroup> securityGroupWatcher;
+
+	/**
+	 * Create a new watcher, polling between every 5 and 60 seconds
+	 * 
+	 * @param scalewayApiClient the client to poll with
+	 */
+	public ScalewayWatcher(ScalewayApiClient scalewayApiClient) {
+		this(scalewayApiClient, DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Create a new watcher
+	 * 
+	 * @param scalewayApiClient the client to poll with
+	 * @param minIntervalMillis the interval between polls while resources are 
+	 *     changing
+	 * @param maxIntervalMillis the longest interval between polls, which is 
+	 *     backed off to while nothing is changing
+	 */
+	public ScalewayWatcher(ScalewayApiClient scalewayApiClient, long minIntervalMillis, long maxIntervalMillis) {
+		if(minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+			throw new IllegalArgumentException("The minimum interval must be positive, and no greater than the maximum interval");
+		}
+
+		this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("scaleway-watch"));
+		this.dispatchExecutor = new ThreadPoolExecutor(1, 1, 
+				0L, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(DISPATCH_QUEUE_SIZE), 
+				new NamedThreadFactory("scaleway-watch-dispatch"), 
+				new RejectedExecutionHandler() {
+					@Override
+					public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+						if(executor.isShutdown()) {
+							throw new RejectedExecutionException("The watcher has been closed");
+						}
+						try {
+							executor.getQueue().put(runnable);
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							throw new RejectedExecutionException("Interrupted whilst waiting to dispatch", ex);
+						}
+					}
+				});
+
+		this.serverWatcher = new ResourceWatcher<Server>("servers", PageFetchers.servers(scalewayApiClient), ResourceDiffer.servers(), minIntervalMillis, maxIntervalMillis, scheduledExecutorService, dispatchExecutor);
+		this.volumeWatcher = new ResourceWatcher<Volume>("volumes", PageFetchers.volumes(scalewayApiClient), ResourceDiffer.volumes(), minIntervalMillis, maxIntervalMillis, scheduledExecutorService, dispatchExecutor);
+		this.ipWatcher = new ResourceWatcher<IP>("IPs", PageFetchers.ips(scalewayApiClient), ResourceDiffer.ips(), minIntervalMillis, maxIntervalMillis, scheduledExecutorService, dispatchExecutor);
+		this.securityGroupWatcher = new ResourceWatcher<SecurityGroup>("security groups", PageFetchers.securityGroups(scalewayApiClient), ResourceDiffer.securityGroups(), minIntervalMillis, maxIntervalMillis, scheduledExecutorService, dispatchExecutor);
+	}
+
+	/**
+	 * Watch the servers for changes
+	 * 
+	 * @param listener the listener to send the changes to
+	 * 
+	 * @return the watch, which can be cancelled
+	 */
+	public Watch<Server> watchServers(ResourceChangeListener<Server> listener) {
+		return(watch(serverWatcher, listener));
+	}
+
+	/**
+	 * Watch the volumes for changes
+	 * 
+	 * @param listener the listener to send the changes to
+	 * 
+	 * @return the watch, which can be cancelled
+	 */
+	public Watch<Volume> watchVolumes(ResourceChangeListener<Volume> listener) {
+		return(watch(volumeWatcher, listener));
+	}
+
+	/**
+	 * Watch the reserved IP addresses for changes
+	 * 
+	 * @param listener the listener to send the changes to
+	 * 
+	 * @return the watch, which can be cancelled
+	 */
+	public Watch<IP> watchIPs(ResourceChangeListener<IP> listener) {
+		return(watch(ipWatcher, listener));
+	}
+
+	/**
+	 * Watch the security groups for changes
+	 * 
+	 * @param listener the listener to send the changes to
+	 * 
+	 * @return the watch, which can be cancelled
+	 */
+	public Watch<SecurityGroup> watchSecurityGroups(ResourceChangeListener<SecurityGroup> listener) {
+		return(watch(securityGroupWatcher, listener));
+	}
+
+	public ResourceWatcher<Server> getServerWatcher() { return(serverWatcher); }
+
+	public ResourceWatcher<Volume> getVolumeWatcher() { return(volumeWatcher); }
+
+	public ResourceWatcher<IP> getIPWatcher() { return(ipWatcher); }
+
+	public ResourceWatcher<SecurityGroup> getSecurityGroupWatcher() { return(securityGroupWatcher); }
+
+	/**
+	 * Stop all polling and dispatching
+	 */
+	@Override
+	public void close() {
+		scheduledExecutorService.shutdownNow();
+		dispatchExecutor.shutdownNow();
+	}
+
+	private static <T> Watch<T> watch(ResourceWatcher<T> resourceWatcher, ResourceChangeListener<T> listener) {
+		resourceWatcher.addListener(listener);
+		return(new Watch<T>(resourceWatcher, listener));
+	}
+}
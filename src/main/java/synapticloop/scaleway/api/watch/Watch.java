@@ -0,0 +1,43 @@
+package synapticloop.scaleway.api.watch;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+/**
+ * A handle on a listener that has been registered with a watch, which is used
+ * to stop the listener from receiving any further changes.
+ *
+ * @param <T> The type of the resource that is watched
+ */
+public class Watch<T> {
+	private final ResourceWatcher<T> resourceWatcher;
+	private final ResourceChangeListener<T> listener;
+
+	Watch(ResourceWatcher<T> resourceWatcher, ResourceChangeListener<T> listener) {
+		this.resourceWatcher = resourceWatcher;
+		this.listener = listener;
+	}
+
+	/**
+	 * Stop the listener from receiving any further changes (changes which have 
+	 * already been queued for dispatch may still be delivered).  Once the last 
+	 * listener for a resource type is cancelled, polling for it stops.
+	 */
+	public void cancel() {
+		resourceWatcher.removeListener(listener);
+	}
+}
@@ -1,11 +1,9 @@
 package synapticloop.scaleway.api;
 
-import java.util.List;
-
 import org.junit.Before;
 
 import synapticloop.scaleway.api.exception.ScalewayApiException;
-import synapticloop.scaleway.api.model.Image;
+import synapticloop.scaleway.api.inventory.ImageCatalog;
 
 /*
  * Copyright (c) 2016 Synapticloop.
@@ -48,14 +46,12 @@ public class BaseTestUtils {
 
 	protected String getUbuntuImage() throws ScalewayApiException {
 		if(null == ubuntuImageId) {
-			for (int i = 1; i < Integer.MAX_VALUE; i++) {
-				List<Image> images = scalewayApiClient.getAllImages(i, 100).getImages();
-				for (Image image : images) {
-					if("Ubuntu Xenial (16.04 latest)".equals(image.getName())) {
-						this.ubuntuImageId = image.getId();
-						return(this.ubuntuImageId);
-					}
-				}
+			ImageCatalog imageCatalog = new ImageCatalog(scalewayApiClient);
+			try {
+				imageCatalog.refresh();
+				this.ubuntuImageId = imageCatalog.resolveImageId("Ubuntu Xenial (16.04 latest)");
+			} finally {
+				imageCatalog.close();
 			}
 		}
 
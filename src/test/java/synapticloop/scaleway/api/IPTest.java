@@ -8,6 +8,7 @@ import org.junit.Test;
 
 import synapticloop.scaleway.api.exception.ScalewayApiException;
 import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.pool.IPPool;
 import synapticloop.scaleway.api.response.IPsResponse;
 
 public class IPTest extends BaseTestUtils {
@@ -20,6 +21,29 @@ public class IPTest extends BaseTestUtils {
 		scalewayApiClient.deleteIP(createIP.getId());
 	}
 
+	@Test
+	public void testIPPool() throws ScalewayApiException {
+		IPPool ipPool = new IPPool(scalewayApiClient, 1);
+		try {
+			IP ip = ipPool.acquire(getOrganizationId());
+			assertNotNull(ip);
+			assertEquals(1, ipPool.getNumMisses());
+
+			// either recycled into the pool, or deleted if the background refill 
+			// has already filled it
+			ipPool.release(getOrganizationId(), ip);
+			assertTrue(ipPool.getSize(getOrganizationId()) <= 1);
+
+			IP pooledIP = ipPool.acquire(getOrganizationId());
+			assertNotNull(pooledIP);
+			assertEquals(2, ipPool.getNumHits() + ipPool.getNumMisses());
+			scalewayApiClient.deleteIP(pooledIP.getId());
+		} finally {
+			ipPool.close();
+			ipPool.drain();
+		}
+	}
+
 	@Test
 	public void testGetAllIPAddresses() throws ScalewayApiException {
 		boolean finished = false;
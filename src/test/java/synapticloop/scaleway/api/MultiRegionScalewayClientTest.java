@@ -0,0 +1,31 @@
+package synapticloop.scaleway.api;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.SecurityGroup;
+
+public class MultiRegionScalewayClientTest extends BaseTestUtils {
+
+	@Test
+	public void testGetAllSecurityGroupsInAllRegions() throws ScalewayApiException, IOException {
+		MultiRegionScalewayClient multiRegionScalewayClient = new MultiRegionScalewayClient(System.getenv(SCALEWAY_API_KEY));
+		try {
+			List<Regional<SecurityGroup>> securityGroups = multiRegionScalewayClient.getAllSecurityGroups();
+			for (Regional<SecurityGroup> securityGroup : securityGroups) {
+				assertNotNull(securityGroup.getRegion());
+				assertEquals(securityGroup.getRegion(), multiRegionScalewayClient.getRegion(ResourceType.SECURITY_GROUP, securityGroup.getResource().getId()));
+
+				Regional<SecurityGroup> securityGroupGet = multiRegionScalewayClient.getSecurityGroup(securityGroup.getResource().getId());
+				assertEquals(securityGroup.getRegion(), securityGroupGet.getRegion());
+			}
+		} finally {
+			multiRegionScalewayClient.close();
+		}
+	}
+}
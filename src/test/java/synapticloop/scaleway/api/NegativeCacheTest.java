@@ -0,0 +1,59 @@
+package synapticloop.scaleway.api;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.NotFoundException;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+public class NegativeCacheTest {
+
+	@Test
+	public void testCachedNotFoundIsStackless() {
+		NegativeCache negativeCache = new NegativeCache(60000L);
+		negativeCache.put(ResourceType.SERVER, "missing", new NotFoundException("not found", 404, "unknown_resource", "Server not found", ScalewayApiException.NO_RETRY_AFTER, true));
+
+		NotFoundException notFoundException = negativeCache.get(ResourceType.SERVER, "missing");
+		assertNotNull(notFoundException);
+		assertEquals(404, notFoundException.getStatusCode());
+		assertEquals("unknown_resource", notFoundException.getErrorType());
+		assertEquals(0, notFoundException.getStackTrace().length);
+		assertSame(notFoundException, negativeCache.get(ResourceType.SERVER, "missing"));
+
+		// the shared instance can not be changed by the callers it is thrown to
+		notFoundException.addSuppressed(new ScalewayApiException("suppressed"));
+		assertEquals(0, notFoundException.getSuppressed().length);
+
+		// the types are kept apart
+		assertNull(negativeCache.get(ResourceType.VOLUME, "missing"));
+
+		negativeCache.remove(ResourceType.SERVER, "missing");
+		assertNull(negativeCache.get(ResourceType.SERVER, "missing"));
+	}
+
+	@Test
+	public void testExpiry() throws InterruptedException {
+		NegativeCache negativeCache = new NegativeCache(1L);
+		negativeCache.put(ResourceType.IP, "missing", new NotFoundException("not found", 404, null, null, ScalewayApiException.NO_RETRY_AFTER, false));
+		Thread.sleep(5L);
+		assertNull(negativeCache.get(ResourceType.IP, "missing"));
+	}
+}
@@ -2,25 +2,26 @@ package synapticloop.scaleway.api;
 
 import static org.junit.Assert.*;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.fleet.ProvisioningResult;
+import synapticloop.scaleway.api.fleet.TeardownReport;
 import synapticloop.scaleway.api.model.Server;
 import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerDefinition;
 import synapticloop.scaleway.api.model.ServerTask;
 import synapticloop.scaleway.api.model.ServerTaskStatus;
 import synapticloop.scaleway.api.model.ServerType;
-import synapticloop.scaleway.api.model.Volume;
+import synapticloop.scaleway.api.pool.ServerPoolKey;
+import synapticloop.scaleway.api.pool.WarmServerPool;
 import synapticloop.scaleway.api.response.ServersResponse;
 
 public class ServerTest extends BaseTestUtils {
-	private static final Logger LOGGER = LoggerFactory.getLogger(ServerTest.class);
 
 	@Test
 	public void testCreateAndDeleteServer() throws ScalewayApiException {
@@ -41,17 +42,73 @@ public class ServerTest extends BaseTestUtils {
 		assertEquals(server.getPublicIP(), returnedServer.getPublicIP());
 		assertEquals(server.getStateDetail(), returnedServer.getStateDetail());
 
-		scalewayApiClient.deleteServer(server.getId());
+		// removes the server along with its volumes
+		TeardownReport teardownReport = scalewayApiClient.teardown(Collections.singletonList(server.getId()));
+		assertTrue(teardownReport.getErrors().toString(), teardownReport.isComplete());
+		assertEquals(server.getVolumes().size(), teardownReport.getRemovedIds(ResourceType.VOLUME).size());
+	}
 
-		Map<String, Volume> volumes = server.getVolumes();
-		Iterator<String> iterator = volumes.keySet().iterator();
-		while (iterator.hasNext()) {
-			String key = (String) iterator.next();
-			Volume volume = volumes.get(key);
-			scalewayApiClient.deleteVolume(volume.getId());
+	@Test
+	public void testCreateServers() throws ScalewayApiException {
+		String organizationId = getOrganizationId();
+		String imageId = getUbuntuImage();
+
+		List<ServerDefinition> serverDefinitions = new ArrayList<ServerDefinition>();
+		for (int i = 0; i < 3; i++) {
+			ServerDefinition serverDefinition = new ServerDefinition();
+			serverDefinition.setName("scaleway-java-api-test-server-" + i);
+			serverDefinition.setImage(imageId);
+			serverDefinition.setOrganization(organizationId);
+			serverDefinition.setDynamicIpRequired(true);
+			serverDefinition.setServerType(ServerType.VC1S);
+			serverDefinitions.add(serverDefinition);
 		}
 
+		ProvisioningResult provisioningResult = scalewayApiClient.createServers(serverDefinitions, 2);
+		assertTrue(provisioningResult.getErrors().toString(), provisioningResult.isAllSucceeded());
+		assertEquals(3, provisioningResult.getResults().size());
+
+		List<String> serverIds = new ArrayList<String>();
+		for (int i = 0; i < serverDefinitions.size(); i++) {
+			Server server = provisioningResult.getResult(i);
+			assertEquals(provisioningResult.getDefinition(i).getName(), server.getName());
+			serverIds.add(server.getId());
+		}
+
+		TeardownReport teardownReport = scalewayApiClient.teardown(serverIds);
+		assertTrue(teardownReport.getErrors().toString(), teardownReport.isComplete());
+		assertEquals(3, teardownReport.getRemovedIds(ResourceType.SERVER).size());
+	}
+
+	@Test
+	public void testWarmServerPool() throws ScalewayApiException, InterruptedException {
+		ServerDefinition template = new ServerDefinition();
+		template.setName("scaleway-java-api-test-pool-server");
+		template.setImage(getUbuntuImage());
+		template.setOrganization(getOrganizationId());
+		template.setDynamicIpRequired(true);
+		template.setServerType(ServerType.VC1S);
+
+		WarmServerPool warmServerPool = new WarmServerPool(scalewayApiClient, "scaleway-java-api-test");
+		try {
+			ServerPoolKey serverPoolKey = warmServerPool.addTemplate(template, 1);
+			for (int i = 0; i < 60 && warmServerPool.getSize(serverPoolKey) == 0; i++) {
+				Thread.sleep(1000);
+			}
+			assertEquals(1, warmServerPool.getSize(serverPoolKey));
+
+			Server server = warmServerPool.acquire(serverPoolKey, "scaleway-java-api-test-server", "scaleway", "java", "api");
+			assertEquals(1, warmServerPool.getNumHits());
+			assertEquals("scaleway-java-api-test-server", server.getName());
+			assertFalse(server.getTags().contains(WarmServerPool.TAG_POOL_PREFIX + "scaleway-java-api-test"));
+
+			assertTrue(scalewayApiClient.teardown(Collections.singletonList(server.getId())).isComplete());
+		} finally {
+			warmServerPool.close();
+			warmServerPool.drain();
+		}
 	}
+
 /*
 	@Test
 	public void testCreateAndUpdateServer() throws ScalewayApiException {
@@ -92,15 +149,8 @@ public class ServerTest extends BaseTestUtils {
 		assertNotNull(serverActions);
 		assertTrue(serverActions.size() >= 1);
 
-		scalewayApiClient.deleteServer(server.getId());
-
-		Map<String, Volume> volumes = server.getVolumes();
-		Iterator<String> iterator = volumes.keySet().iterator();
-		while (iterator.hasNext()) {
-			String key = (String) iterator.next();
-			Volume volume = volumes.get(key);
-			scalewayApiClient.deleteVolume(volume.getId());
-		}
+		TeardownReport teardownReport = scalewayApiClient.teardown(Collections.singletonList(server.getId()));
+		assertTrue(teardownReport.getErrors().toString(), teardownReport.isComplete());
 	}
 
 	@Test
@@ -109,48 +159,14 @@ public class ServerTest extends BaseTestUtils {
 		Server server = scalewayApiClient.createServer("scaleway-java-api-test-server", getUbuntuImage(), organizationId, ServerType.VC1S, new String[] {"scaleway", "java", "api", "server"});
 
 		ServerTask powerOnServerTask = scalewayApiClient.executeServerAction(server.getId(), ServerAction.POWERON);
-
-		boolean isStarted = false;
-		while(!isStarted) {
-			ServerTask taskStatus = scalewayApiClient.getTaskStatus(powerOnServerTask.getId());
-			LOGGER.debug("Server task with id '{}' is in current state '{}' (progress '{}')", 
-					taskStatus.getId(), 
-					taskStatus.getStatus(), 
-					taskStatus.getProgress());
-			try {
-				Thread.sleep(10000);
-			} catch (InterruptedException ex) {
-				LOGGER.warn("The sleeping thread was interrupted, continuing...");
-			}
-			if(taskStatus.getStatus() == ServerTaskStatus.SUCCESS) {
-				isStarted = true;
-			}
-		}
+		assertEquals(ServerTaskStatus.SUCCESS, scalewayApiClient.awaitTask(powerOnServerTask.getId()).join().getStatus());
 
 		ServerTask powerOffServerTask = scalewayApiClient.executeServerAction(server.getId(), ServerAction.POWEROFF);
-		boolean isEnded = false;
-		while(!isEnded) {
-			ServerTask taskStatus = scalewayApiClient.getTaskStatus(powerOffServerTask.getId());
-			LOGGER.debug("Server task with id '{}' is in current state '{}' (progress '{}')", taskStatus.getId(), taskStatus.getStatus(), taskStatus.getProgress());
-			try {
-				Thread.sleep(10000);
-			} catch (InterruptedException ex) {
-				LOGGER.warn("The sleeping thread was interrupted, continuing...");
-			}
-
-			if(taskStatus.getStatus() == ServerTaskStatus.SUCCESS) {
-				isEnded = true;
-			}
-		}
-
-		scalewayApiClient.deleteServer(server.getId());
+		assertEquals(ServerTaskStatus.SUCCESS, scalewayApiClient.awaitTask(powerOffServerTask.getId()).join().getStatus());
 
-		Map<String, Volume> volumes = server.getVolumes();
-		Iterator<String> iterator = volumes.keySet().iterator();
-		while (iterator.hasNext()) {
-			String key = (String) iterator.next();
-			Volume volume = volumes.get(key);
-			scalewayApiClient.deleteVolume(volume.getId());
-		}
+		TeardownReport teardownReport = scalewayApiClient.teardown(Collections.singletonList(server.getId()));
+		assertTrue(teardownReport.getErrors().toString(), teardownReport.isComplete());
+		assertEquals(Collections.singletonList(server.getId()), teardownReport.getRemovedIds(ResourceType.SERVER));
+		assertEquals(server.getVolumes().size(), teardownReport.getRemovedIds(ResourceType.VOLUME).size());
 	}
 }
@@ -0,0 +1,103 @@
+package synapticloop.scaleway.api.diff;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.Server;
+
+public class ResourceDifferTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	@Test
+	public void testAddedModifiedRemoved() throws IOException {
+		ResourceDiffer<Server> resourceDiffer = ResourceDiffer.servers();
+
+		List<ResourceChange<Server>> changes = resourceDiffer.diff(Arrays.asList(
+				server("1", "running", "2016-12-01T10:00:00.000000+00:00", "web"),
+				server("2", "running", "2016-12-01T10:00:00.000000+00:00", "web")));
+		assertEquals(2, changes.size());
+		assertEquals(ChangeType.ADDED, changes.get(0).getChangeType());
+
+		changes = resourceDiffer.diff(Arrays.asList(
+				server("1", "stopped", "2016-12-01T11:00:00.000000+00:00", "db"),
+				server("3", "running", "2016-12-01T11:00:00.000000+00:00", "web")));
+		assertEquals(3, changes.size());
+
+		ResourceChange<Server> modified = changes.get(0);
+		assertEquals(ChangeType.MODIFIED, modified.getChangeType());
+		assertEquals(ResourceType.SERVER, modified.getResourceType());
+		assertEquals("1", modified.getId());
+		assertEquals(new HashSet<String>(Arrays.asList("state", "tags")), modified.getChangedFields());
+		assertEquals("running", modified.getPrevious().getState().name().toLowerCase());
+
+		assertEquals(ChangeType.ADDED, changes.get(1).getChangeType());
+		assertEquals("3", changes.get(1).getId());
+
+		assertEquals(ChangeType.REMOVED, changes.get(2).getChangeType());
+		assertEquals("2", changes.get(2).getId());
+		assertNull(changes.get(2).getCurrent());
+	}
+
+	@Test
+	public void testSameModificationDateIsUnchanged() throws IOException {
+		ResourceDiffer<Server> resourceDiffer = ResourceDiffer.servers();
+		resourceDiffer.diff(Arrays.asList(server("1", "running", "2016-12-01T10:00:00.000000+00:00", "web")));
+
+		// the modification date is trusted, so the fields are not compared
+		assertTrue(resourceDiffer.diff(Arrays.asList(server("1", "stopped", "2016-12-01T10:00:00.000000+00:00", "web"))).isEmpty());
+
+		// a new modification date, but nothing that is compared has changed
+		assertTrue(resourceDiffer.diff(Arrays.asList(server("1", "stopped", "2016-12-01T12:00:00.000000+00:00", "web"))).isEmpty());
+	}
+
+	@Test
+	public void testFieldComparisonWithoutModificationDate() throws IOException {
+		ResourceDiffer<IP> resourceDiffer = ResourceDiffer.ips();
+		resourceDiffer.diff(Arrays.asList(ip("1", "10.1.1.1", null)));
+
+		assertTrue(resourceDiffer.diff(Arrays.asList(ip("1", "10.1.1.1", null))).isEmpty());
+
+		List<ResourceChange<IP>> changes = resourceDiffer.diff(Arrays.asList(ip("1", "10.1.1.1", "server-1")));
+		assertEquals(1, changes.size());
+		assertEquals(Collections.singleton("server"), changes.get(0).getChangedFields());
+	}
+
+	private static Server server(String id, String state, String modificationDate, String tag) throws IOException {
+		return(OBJECT_MAPPER.readValue("{\"id\":\"" + id + "\",\"state\":\"" + state + "\"," + 
+				"\"modification_date\":\"" + modificationDate + "\",\"tags\":[\"" + tag + "\"]}", Server.class));
+	}
+
+	private static IP ip(String id, String address, String serverId) throws IOException {
+		String server = (null == serverId ? "null" : "{\"id\":\"" + serverId + "\"}");
+		return(OBJECT_MAPPER.readValue("{\"id\":\"" + id + "\",\"address\":\"" + address + "\",\"server\":" + server + "}", IP.class));
+	}
+}
@@ -0,0 +1,95 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerDefinition;
+import synapticloop.scaleway.api.request.JsonEntity;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+public class FleetProvisionerTest {
+
+	/**
+	 * Create a new server, with a new identifier, on every call - failing the 
+	 * call numbered failOn
+	 */
+	private static class CountingCreator implements FleetProvisioner.ServerCreator {
+		private final AtomicInteger numCreated = new AtomicInteger();
+		private final int failOn;
+
+		private CountingCreator(int failOn) {
+			this.failOn = failOn;
+		}
+
+		@Override
+		public Server createServer(JsonEntity serverDefinitionEntity) throws ScalewayApiException {
+			int number = numCreated.incrementAndGet();
+			if(number == failOn) {
+				throw new ScalewayApiException("Could not create server " + number);
+			}
+			Server server = new Server();
+			server.setId("server-" + number);
+			return(server);
+		}
+	}
+
+	@Test
+	public void testSameDefinitionIsProvisionedPerPosition() {
+		ServerDefinition serverDefinition = new ServerDefinition();
+		serverDefinition.setName("template");
+
+		FleetProvisioner fleetProvisioner = new FleetProvisioner(null, new CountingCreator(-1), 1, new RateLimiter(1000.0d));
+		ProvisioningResult provisioningResult = fleetProvisioner.createServers(Arrays.asList(serverDefinition, serverDefinition));
+
+		assertTrue(provisioningResult.isAllSucceeded());
+		assertEquals(2, provisioningResult.size());
+		assertEquals(2, provisioningResult.getResults().size());
+		assertSame(serverDefinition, provisioningResult.getDefinition(0));
+		assertSame(serverDefinition, provisioningResult.getDefinition(1));
+
+		Set<String> serverIds = new HashSet<String>();
+		serverIds.add(provisioningResult.getResult(0).getId());
+		serverIds.add(provisioningResult.getResult(1).getId());
+		assertEquals(2, serverIds.size());
+	}
+
+	@Test
+	public void testFailureIsReportedAgainstItsPosition() {
+		ServerDefinition serverDefinition = new ServerDefinition();
+		serverDefinition.setName("template");
+
+		FleetProvisioner fleetProvisioner = new FleetProvisioner(null, new CountingCreator(2), 1, new RateLimiter(1000.0d));
+		ProvisioningResult provisioningResult = fleetProvisioner.createServers(Arrays.asList(serverDefinition, serverDefinition, serverDefinition));
+
+		assertFalse(provisioningResult.isAllSucceeded());
+		assertEquals(1, provisioningResult.getNumFailed());
+		assertNotNull(provisioningResult.getError(1));
+		assertEquals("server-1", provisioningResult.getResult(0).getId());
+		assertEquals("server-3", provisioningResult.getResult(2).getId());
+	}
+}
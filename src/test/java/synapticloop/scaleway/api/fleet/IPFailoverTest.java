@@ -0,0 +1,123 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.task.TaskTracker;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+public class IPFailoverTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static IP ip(String id, String serverId) {
+		try {
+			return(OBJECT_MAPPER.readValue("{\"id\":\"" + id + "\",\"address\":\"10.0.0.1\",\"organization\":\"organization-1\"" + 
+					(null == serverId ? "" : ",\"server\":{\"id\":\"" + serverId + "\"}") + "}", IP.class));
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * The first attach of each IP address hangs, every later attach answers 
+	 * straight away
+	 */
+	private static class SlowFirstAttacher implements IPFailover.IPAttacher {
+		private final AtomicInteger numGets = new AtomicInteger();
+		private final Map<String, AtomicInteger> numAttaches = new ConcurrentHashMap<String, AtomicInteger>();
+
+		@Override
+		public IP getIP(String ipId) throws ScalewayApiException {
+			numGets.incrementAndGet();
+			return(ip(ipId, null));
+		}
+
+		@Override
+		public IP attachIP(String ipId, String organizationId, String ipAddress, String serverId) throws ScalewayApiException {
+			numAttaches.putIfAbsent(ipId, new AtomicInteger());
+			if(numAttaches.get(ipId).incrementAndGet() == 1) {
+				try {
+					Thread.sleep(5000);
+				} catch (InterruptedException ex) {
+					throw new ScalewayApiException(ex);
+				}
+			}
+			return(ip(ipId, serverId));
+		}
+	}
+
+	@Test
+	public void testSlowAttachesAreHedged() {
+		SlowFirstAttacher attacher = new SlowFirstAttacher();
+		IPFailover ipFailover = new IPFailover(null, attacher, new RateLimiter(1000.0d), Executors.newCachedThreadPool(), TaskTracker.getDefaultTimer());
+		ipFailover.setHedgeDelayMillis(50L);
+		ipFailover.addIP(ip("ip-1", "failed-1"));
+
+		Map<String, String> targetServerIds = new LinkedHashMap<String, String>();
+		targetServerIds.put("ip-1", "standby-1");
+		targetServerIds.put("ip-2", "standby-2");
+
+		FailoverResult failoverResult = ipFailover.failover(targetServerIds);
+		assertTrue(failoverResult.getErrors().toString(), failoverResult.isAllSucceeded());
+		assertEquals("standby-1", failoverResult.getResult("ip-1").getServer().getId());
+		assertEquals("standby-2", failoverResult.getResult("ip-2").getServer().getId());
+		assertEquals(2, failoverResult.getNumHedged());
+		assertTrue(failoverResult.getElapsedMillis() < 5000L);
+		assertTrue(failoverResult.getLatencyMillis("ip-1") < 5000L);
+
+		// only the IP address that was not cached was read first
+		assertEquals(1, failoverResult.getNumPreReads());
+	}
+
+	@Test
+	public void testUnverifiedAttachFails() {
+		IPFailover ipFailover = new IPFailover(null, new IPFailover.IPAttacher() {
+			@Override
+			public IP getIP(String ipId) throws ScalewayApiException {
+				return(ip(ipId, null));
+			}
+
+			@Override
+			public IP attachIP(String ipId, String organizationId, String ipAddress, String serverId) throws ScalewayApiException {
+				return(ip(ipId, "some-other-server"));
+			}
+		}, new RateLimiter(1000.0d), Executors.newCachedThreadPool(), TaskTracker.getDefaultTimer());
+		ipFailover.setHedgeDelayMillis(0L);
+
+		Map<String, String> targetServerIds = new LinkedHashMap<String, String>();
+		targetServerIds.put("ip-1", "standby-1");
+
+		FailoverResult failoverResult = ipFailover.failover(targetServerIds);
+		assertEquals(1, failoverResult.getNumFailed());
+		assertNotNull(failoverResult.getLatencyMillis("ip-1"));
+	}
+}
@@ -0,0 +1,127 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+
+public class RollingActionTest {
+	private static final List<String> SERVER_IDS = Arrays.asList("server-1", "server-2", "server-3", "server-4", "server-5", "server-6", "server-7", "server-8");
+
+	/**
+	 * An action runner whose actions finish a little while after they are 
+	 * started, recording how many were in flight at once
+	 */
+	private static class CountingActionRunner implements RollingAction.ActionRunner {
+		private final AtomicInteger numStarted = new AtomicInteger();
+		private final AtomicInteger numInFlight = new AtomicInteger();
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+		private final boolean isFailing;
+
+		private CountingActionRunner(boolean isFailing) {
+			this.isFailing = isFailing;
+		}
+
+		@Override
+		public CompletableFuture<ServerTask> runAction(String serverId, ServerAction serverAction, long taskTimeoutMillis, Executor executor) {
+			numStarted.incrementAndGet();
+			int inFlight = numInFlight.incrementAndGet();
+			while(true) {
+				int max = maxInFlight.get();
+				if(inFlight <= max || maxInFlight.compareAndSet(max, inFlight)) {
+					break;
+				}
+			}
+
+			final CompletableFuture<ServerTask> future = new CompletableFuture<ServerTask>();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(20L);
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+
+					numInFlight.decrementAndGet();
+					if(isFailing) {
+						future.completeExceptionally(new ScalewayApiException("Could not execute the action"));
+					} else {
+						future.complete(new ServerTask());
+					}
+				}
+			});
+			return(future);
+		}
+	}
+
+	@Test
+	public void testWindowSizeIsNeverExceeded() {
+		CountingActionRunner actionRunner = new CountingActionRunner(false);
+		RollingAction rollingAction = new RollingAction(actionRunner, 3);
+		RollingActionResult rollingActionResult = rollingAction.execute(SERVER_IDS, ServerAction.REBOOT);
+
+		assertTrue(rollingActionResult.isAllSucceeded());
+		assertEquals(SERVER_IDS.size(), rollingActionResult.getResults().size());
+		assertEquals(3, actionRunner.maxInFlight.get());
+	}
+
+	@Test
+	public void testAbortsOnceTooManyHaveFailed() {
+		CountingActionRunner actionRunner = new CountingActionRunner(true);
+		RollingAction rollingAction = new RollingAction(actionRunner, 1);
+		// 2 of the 8 servers may fail, the third failure aborts
+		rollingAction.setMaxFailureRatio(0.25d);
+		RollingActionResult rollingActionResult = rollingAction.execute(SERVER_IDS, ServerAction.REBOOT);
+
+		assertTrue(rollingActionResult.isAborted());
+		assertEquals(3, actionRunner.numStarted.get());
+		assertEquals(3, rollingActionResult.getNumFailed());
+		assertEquals(SERVER_IDS.subList(3, SERVER_IDS.size()), rollingActionResult.getSkippedIds());
+	}
+
+	@Test
+	public void testHealthGateTimesOut() {
+		CountingActionRunner actionRunner = new CountingActionRunner(false);
+		RollingAction rollingAction = new RollingAction(actionRunner, 1);
+		rollingAction.setHealthGate(new HealthGate() {
+			@Override
+			public boolean isHealthy(String serverId) throws ScalewayApiException {
+				return(false);
+			}
+		});
+		rollingAction.setGateTimeoutMillis(100L, 10L);
+		RollingActionResult rollingActionResult = rollingAction.execute(SERVER_IDS.subList(0, 2), ServerAction.REBOOT);
+
+		assertTrue(rollingActionResult.isAborted());
+		assertEquals(1, actionRunner.numStarted.get());
+		assertTrue(rollingActionResult.getError("server-1").getMessage().contains("health gate"));
+		assertEquals(Arrays.asList("server-2"), rollingActionResult.getSkippedIds());
+	}
+}
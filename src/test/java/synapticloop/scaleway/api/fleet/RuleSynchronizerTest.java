@@ -0,0 +1,95 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import synapticloop.scaleway.api.RuleAction;
+import synapticloop.scaleway.api.RuleDirection;
+import synapticloop.scaleway.api.RuleProtocol;
+import synapticloop.scaleway.api.diff.ChangeType;
+import synapticloop.scaleway.api.model.Rule;
+import synapticloop.scaleway.api.model.RuleDefinition;
+
+public class RuleSynchronizerTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static Rule rule(String id, int position, String action, String ipRange, Integer destPortFrom) throws IOException {
+		return(OBJECT_MAPPER.readValue("{\"id\":\"" + id + "\",\"position\":" + position + 
+				",\"action\":\"" + action + "\",\"direction\":\"inbound\",\"protocol\":\"TCP\",\"ip_range\":\"" + ipRange + 
+				"\",\"dest_port_from\":" + destPortFrom + ",\"editable\":true}", Rule.class));
+	}
+
+	private static RuleDefinition definition(RuleAction ruleAction, String ipRange, Integer destPortFrom) {
+		return(new RuleDefinition(ruleAction, RuleDirection.INBOUND, ipRange, RuleProtocol.TCP, destPortFrom));
+	}
+
+	@Test
+	public void testUnchangedRulesAreNotTouched() throws IOException {
+		List<Rule> currentRules = Arrays.asList(
+				rule("rule-1", 1, "accept", "0.0.0.0/0", 22), 
+				rule("rule-2", 2, "drop", "0.0.0.0/0", 25));
+		List<RuleDefinition> desiredRules = Arrays.asList(
+				definition(RuleAction.ACCEPT, "0.0.0.0/0", 22), 
+				definition(RuleAction.DROP, "0.0.0.0/0", 25));
+
+		assertTrue(RuleSynchronizer.computeEdits(currentRules, desiredRules).isEmpty());
+	}
+
+	@Test
+	public void testMinimalEdits() throws IOException {
+		List<Rule> currentRules = Arrays.asList(
+				rule("rule-1", 1, "accept", "0.0.0.0/0", 22), 
+				rule("rule-2", 2, "drop", "0.0.0.0/0", 25), 
+				rule("rule-3", 3, "drop", "10.0.0.0/8", 80));
+
+		// changed in the middle, and one less rule
+		List<RuleEdit> ruleEdits = RuleSynchronizer.computeEdits(currentRules, Arrays.asList(
+				definition(RuleAction.ACCEPT, "0.0.0.0/0", 22), 
+				definition(RuleAction.ACCEPT, "0.0.0.0/0", 443)));
+		assertEquals(2, ruleEdits.size());
+		assertEquals(ChangeType.MODIFIED, ruleEdits.get(0).getChangeType());
+		assertEquals("rule-2", ruleEdits.get(0).getRuleId());
+		assertEquals(Integer.valueOf(443), ruleEdits.get(0).getRuleDefinition().getDestPortFrom());
+		assertEquals(ChangeType.REMOVED, ruleEdits.get(1).getChangeType());
+		assertEquals("rule-3", ruleEdits.get(1).getRuleId());
+
+		// appended rules are created, in order
+		List<RuleDefinition> desiredRules = new ArrayList<RuleDefinition>();
+		desiredRules.add(definition(RuleAction.ACCEPT, "0.0.0.0/0", 22));
+		desiredRules.add(definition(RuleAction.DROP, "0.0.0.0/0", 25));
+		desiredRules.add(definition(RuleAction.DROP, "10.0.0.0/8", 80));
+		desiredRules.add(definition(RuleAction.ACCEPT, "10.0.0.0/8", 8080));
+		desiredRules.add(definition(RuleAction.ACCEPT, "10.0.0.0/8", 8443));
+		ruleEdits = RuleSynchronizer.computeEdits(currentRules, desiredRules);
+		assertEquals(2, ruleEdits.size());
+		assertEquals(ChangeType.ADDED, ruleEdits.get(0).getChangeType());
+		assertEquals(3, ruleEdits.get(0).getIndex());
+		assertEquals(ChangeType.ADDED, ruleEdits.get(1).getChangeType());
+		assertEquals(4, ruleEdits.get(1).getIndex());
+	}
+}
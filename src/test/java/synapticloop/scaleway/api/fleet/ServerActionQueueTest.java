@@ -0,0 +1,122 @@
+package synapticloop.scaleway.api.fleet;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import synapticloop.scaleway.api.model.ServerAction;
+import synapticloop.scaleway.api.model.ServerTask;
+
+public class ServerActionQueueTest {
+
+	/**
+	 * An action runner whose actions only finish when the test says so
+	 */
+	private static class RecordingActionRunner implements ServerActionQueue.ActionRunner {
+		private final List<String> started = new ArrayList<String>();
+		private final List<CompletableFuture<ServerTask>> futures = new ArrayList<CompletableFuture<ServerTask>>();
+
+		@Override
+		public synchronized CompletableFuture<ServerTask> runAction(String serverId, ServerAction serverAction) {
+			started.add(serverId + ":" + serverAction);
+			CompletableFuture<ServerTask> future = new CompletableFuture<ServerTask>();
+			futures.add(future);
+			return(future);
+		}
+
+		private synchronized void finish(int index) {
+			futures.get(index).complete(new ServerTask());
+		}
+	}
+
+	@Test
+	public void testActionsAreSerialisedPerServer() {
+		RecordingActionRunner actionRunner = new RecordingActionRunner();
+		ServerActionQueue serverActionQueue = new ServerActionQueue(actionRunner);
+
+		CompletableFuture<ServerTask> first = serverActionQueue.submit("server-1", ServerAction.POWERON);
+		CompletableFuture<ServerTask> second = serverActionQueue.submit("server-1", ServerAction.REBOOT);
+		serverActionQueue.submit("server-2", ServerAction.REBOOT);
+
+		// the second server does not wait for the first
+		assertEquals(2, actionRunner.started.size());
+		assertEquals("server-2:REBOOT", actionRunner.started.get(1));
+
+		actionRunner.finish(0);
+		assertTrue(first.isDone());
+		assertFalse(second.isDone());
+		assertEquals(3, actionRunner.started.size());
+		assertEquals("server-1:REBOOT", actionRunner.started.get(2));
+
+		actionRunner.finish(2);
+		assertTrue(second.isDone());
+	}
+
+	@Test
+	public void testRedundantActionsAreCoalesced() {
+		RecordingActionRunner actionRunner = new RecordingActionRunner();
+		ServerActionQueue serverActionQueue = new ServerActionQueue(actionRunner);
+
+		serverActionQueue.submit("server-1", ServerAction.REBOOT);
+		CompletableFuture<ServerTask> waitingReboot = serverActionQueue.submit("server-1", ServerAction.REBOOT);
+		assertSame(waitingReboot, serverActionQueue.submit("server-1", ServerAction.REBOOT));
+		assertEquals(1, serverActionQueue.getNumCoalesced());
+
+		CompletableFuture<ServerTask> waitingPowerOn = serverActionQueue.submit("server-1", ServerAction.POWERON);
+		CompletableFuture<ServerTask> waitingPowerOff = serverActionQueue.submit("server-1", ServerAction.POWEROFF);
+		assertTrue(waitingPowerOn.isCancelled());
+		assertEquals(1, serverActionQueue.getNumCancelled());
+
+		actionRunner.finish(0);
+		actionRunner.finish(1);
+		actionRunner.finish(2);
+		assertEquals(3, actionRunner.started.size());
+		assertEquals("server-1:POWEROFF", actionRunner.started.get(2));
+		assertTrue(waitingPowerOff.isDone());
+	}
+
+	@Test
+	public void testWaitingActionWithConsumerIsNotCancelled() {
+		RecordingActionRunner actionRunner = new RecordingActionRunner();
+		ServerActionQueue serverActionQueue = new ServerActionQueue(actionRunner);
+
+		serverActionQueue.submit("server-1", ServerAction.REBOOT);
+		CompletableFuture<ServerTask> waitingPowerOn = serverActionQueue.submit("server-1", ServerAction.POWERON);
+		CompletableFuture<ServerTask> consumer = waitingPowerOn.thenApply(new Function<ServerTask, ServerTask>() {
+			@Override
+			public ServerTask apply(ServerTask serverTask) {
+				return(serverTask);
+			}
+		});
+		serverActionQueue.submit("server-1", ServerAction.POWEROFF);
+		assertFalse(waitingPowerOn.isCancelled());
+		assertEquals(0, serverActionQueue.getNumCancelled());
+
+		actionRunner.finish(0);
+		actionRunner.finish(1);
+		assertTrue(consumer.isDone());
+		assertEquals("server-1:POWEROFF", actionRunner.started.get(2));
+	}
+}
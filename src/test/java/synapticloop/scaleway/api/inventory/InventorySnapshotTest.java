@@ -0,0 +1,87 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import synapticloop.scaleway.api.model.IP;
+import synapticloop.scaleway.api.model.SecurityGroup;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+import synapticloop.scaleway.api.model.Volume;
+
+public class InventorySnapshotTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	@Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Server server = OBJECT_MAPPER.readValue("{\"id\":\"server-1\",\"name\":\"web-1\",\"organization\":\"org-a\"," + 
+				"\"state\":\"running\",\"commercial_type\":\"VC1S\",\"tags\":[\"web\"]," + 
+				"\"creation_date\":\"2016-12-01T10:11:12.000000+00:00\"," +
+				"\"image\":{\"id\":\"image-1\",\"name\":\"Ubuntu Xenial\"}," + 
+				"\"volumes\":{\"0\":{\"id\":\"volume-1\",\"size\":50000000000}}," + 
+				"\"public_ip\":{\"id\":\"ip-1\",\"address\":\"10.1.2.3\"}}", Server.class);
+
+		Volume volume = OBJECT_MAPPER.readValue("{\"id\":\"volume-1\",\"name\":\"root\",\"size\":50000000000}", Volume.class);
+		IP ip = OBJECT_MAPPER.readValue("{\"id\":\"ip-1\",\"address\":\"10.1.2.3\"}", IP.class);
+
+		File file = new File(temporaryFolder.getRoot(), "inventory.snapshot");
+		new InventorySnapshot(12345L, Arrays.asList(server), Arrays.asList(volume), Arrays.asList(ip), new ArrayList<SecurityGroup>()).write(file);
+
+		// overwriting an existing snapshot
+		new InventorySnapshot(67890L, Arrays.asList(server), Arrays.asList(volume), Arrays.asList(ip), new ArrayList<SecurityGroup>()).write(file);
+		assertEquals(1, temporaryFolder.getRoot().list().length);
+
+		InventorySnapshot inventorySnapshot = InventorySnapshot.read(file);
+		assertEquals(67890L, inventorySnapshot.getCreatedMillis());
+
+		Server read = inventorySnapshot.getServers().get(0);
+		assertEquals("server-1", read.getId());
+		assertEquals("web-1", read.getName());
+		assertEquals(State.RUNNING, read.getState());
+		assertEquals(ServerType.VC1S, read.getServerType());
+		assertEquals(Arrays.asList("web"), read.getTags());
+		assertEquals("image-1", read.getImage().getId());
+		assertEquals(server.getCreationDate(), read.getCreationDate());
+		assertEquals("volume-1", read.getVolumes().get("0").getId());
+
+		assertEquals(50000000000L, inventorySnapshot.getVolumes().get(0).getSize());
+		assertEquals("10.1.2.3", inventorySnapshot.getIPs().get(0).getIpAddress());
+		assertTrue(inventorySnapshot.getSecurityGroups().isEmpty());
+	}
+
+	@Test
+	public void testMissingFile() throws IOException {
+		assertNull(InventorySnapshot.read(new File(temporaryFolder.getRoot(), "missing.snapshot")));
+	}
+}
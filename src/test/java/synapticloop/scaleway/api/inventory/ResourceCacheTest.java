@@ -0,0 +1,91 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceCacheTest {
+	private static final long MAX_STALENESS = 1000L;
+
+	private ResourceCache<String> resourceCache;
+
+	@Before
+	public void setup() {
+		resourceCache = new ResourceCache<String>();
+	}
+
+	@Test
+	public void testFreshAndStale() {
+		resourceCache.put("id", "one", 100L);
+		assertEquals("one", resourceCache.getFresh("id", MAX_STALENESS, 1100L));
+		assertNull(resourceCache.getFresh("id", MAX_STALENESS, 1101L));
+		assertNull(resourceCache.getFresh("missing", MAX_STALENESS, 100L));
+	}
+
+	@Test
+	public void testOlderStateDoesNotOverwriteNewer() {
+		resourceCache.put("id", "new", 200L);
+		resourceCache.put("id", "old", 100L);
+		assertEquals("new", resourceCache.getFresh("id", MAX_STALENESS, 200L));
+	}
+
+	@Test
+	public void testInvalidateUntilUpdated() {
+		resourceCache.put("id", "one", 100L);
+		resourceCache.invalidate("id", 200L);
+		assertNull(resourceCache.getFresh("id", MAX_STALENESS, 200L));
+		assertEquals(1, resourceCache.values().size());
+
+		resourceCache.put("id", "two", 300L);
+		assertEquals("two", resourceCache.getFresh("id", MAX_STALENESS, 300L));
+	}
+
+	@Test
+	public void testReloadDoesNotResurrectDeleted() {
+		resourceCache.put("id", "one", 100L);
+		resourceCache.delete("id", 300L);
+
+		// a listing started before the delete still contains the resource
+		Map<String, String> listing = new HashMap<String, String>();
+		listing.put("id", "one");
+		resourceCache.reload(listing, 200L);
+
+		assertNull(resourceCache.getFresh("id", MAX_STALENESS, 300L));
+		assertTrue(resourceCache.values().isEmpty());
+	}
+
+	@Test
+	public void testReloadRemovesMissingButKeepsNewer() {
+		resourceCache.put("gone", "gone", 100L);
+		resourceCache.put("created", "created", 300L);
+
+		Map<String, String> listing = new HashMap<String, String>();
+		listing.put("other", "other");
+		resourceCache.reload(listing, 200L);
+
+		assertNull(resourceCache.getFresh("gone", MAX_STALENESS, 300L));
+		assertEquals("created", resourceCache.getFresh("created", MAX_STALENESS, 300L));
+		assertEquals("other", resourceCache.getFresh("other", MAX_STALENESS, 300L));
+	}
+}
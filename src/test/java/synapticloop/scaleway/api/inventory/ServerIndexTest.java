@@ -0,0 +1,103 @@
+package synapticloop.scaleway.api.inventory;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+
+public class ServerIndexTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private ServerIndex serverIndex;
+
+	@Before
+	public void setup() throws IOException {
+		serverIndex = new ServerIndex();
+		serverIndex.put(server("1", "org-a", "running", "VC1S", "image-1", "web", "prod"));
+		serverIndex.put(server("2", "org-a", "running", "VC1M", "image-1", "web"));
+		serverIndex.put(server("3", "org-a", "stopped", "VC1S", "image-2", "web"));
+		serverIndex.put(server("4", "org-b", "running", "VC1S", "image-1", "web"));
+	}
+
+	@Test
+	public void testCompoundQuery() {
+		List<Server> servers = serverIndex.query()
+				.withState(State.RUNNING)
+				.withServerType(ServerType.VC1S)
+				.withTag("web")
+				.withOrganization("org-a")
+				.list();
+
+		assertEquals(1, servers.size());
+		assertEquals("1", servers.get(0).getId());
+
+		assertEquals(3, serverIndex.query().withImageId("image-1").count());
+		assertEquals(1, serverIndex.query().withTag("web").withTag("prod").count());
+		assertEquals(4, serverIndex.query().count());
+		assertEquals(0, serverIndex.query().withTag("unknown").count());
+	}
+
+	@Test
+	public void testIncrementalUpdate() throws IOException {
+		serverIndex.put(server("1", "org-a", "stopped", "VC1S", "image-1", "web"));
+		assertEquals(0, serverIndex.query().withState(State.RUNNING).withServerType(ServerType.VC1S).withOrganization("org-a").count());
+		assertEquals(1, serverIndex.query().withState(State.STOPPED).withServerType(ServerType.VC1S).withImageId("image-1").count());
+		assertEquals(0, serverIndex.query().withTag("prod").count());
+
+		serverIndex.remove("3");
+		assertEquals(3, serverIndex.size());
+		assertEquals(0, serverIndex.query().withImageId("image-2").count());
+
+		// the removed ordinal is re-used
+		serverIndex.put(server("5", "org-c", "starting", "C2S", "image-3", "db"));
+		assertEquals(1, serverIndex.query().withOrganization("org-c").withTag("db").count());
+		assertEquals(4, serverIndex.size());
+	}
+
+	@Test
+	public void testReload() throws IOException {
+		serverIndex.reload(Arrays.asList(server("2", "org-a", "running", "VC1M", "image-1", "web")));
+		assertEquals(1, serverIndex.size());
+		assertEquals(1, serverIndex.query().withTag("web").count());
+	}
+
+	private static Server server(String id, String organization, String state, String serverType, String imageId, String... tags) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"id\":\"").append(id)
+				.append("\",\"organization\":\"").append(organization)
+				.append("\",\"state\":\"").append(state)
+				.append("\",\"commercial_type\":\"").append(serverType)
+				.append("\",\"image\":{\"id\":\"").append(imageId)
+				.append("\"},\"tags\":").append(OBJECT_MAPPER.writeValueAsString(tags))
+				.append("}");
+		return(OBJECT_MAPPER.readValue(json.toString(), Server.class));
+	}
+}
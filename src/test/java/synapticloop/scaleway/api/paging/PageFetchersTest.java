@@ -0,0 +1,109 @@
+package synapticloop.scaleway.api.paging;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+public class PageFetchersTest {
+	private ExecutorService executorService;
+
+	@Before
+	public void setup() {
+		executorService = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void teardown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testParallelFetchAllIsInPageOrder() throws ScalewayApiException {
+		List<Integer> results = PageFetchers.fetchAll(new CountingPageFetcher(95, 95), 10, executorService);
+		assertEquals(95, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(Integer.valueOf(i), results.get(i));
+		}
+	}
+
+	@Test
+	public void testParallelFetchAllContinuesPastAddedPages() throws ScalewayApiException {
+		// the first page reports 25 results, by the time the later pages are 
+		// fetched there are 42
+		List<Integer> results = PageFetchers.fetchAll(new CountingPageFetcher(25, 42), 10, executorService);
+		assertEquals(42, results.size());
+	}
+
+	@Test
+	public void testParallelFetchAllIgnoresMissingNumPages() throws ScalewayApiException {
+		// without the link header the number of pages is unknown
+		List<Integer> results = PageFetchers.fetchAll(new PageFetcher<Integer>() {
+			@Override
+			public Page<Integer> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				Page<Integer> page = new CountingPageFetcher(35, 35).fetchPage(numPage, numPerPage);
+				return(new Page<Integer>(page.getResults(), numPage, Integer.MAX_VALUE, page.getTotalCount()));
+			}
+		}, 10, executorService);
+		assertEquals(35, results.size());
+	}
+
+	@Test(expected = ScalewayApiException.class)
+	public void testParallelFetchAllPropagatesErrors() throws ScalewayApiException {
+		PageFetchers.fetchAll(new PageFetcher<Integer>() {
+			@Override
+			public Page<Integer> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				if(numPage == 3) {
+					throw new ScalewayApiException("page 3");
+				}
+				return(new CountingPageFetcher(50, 50).fetchPage(numPage, numPerPage));
+			}
+		}, 10, executorService);
+	}
+
+	private static class CountingPageFetcher implements PageFetcher<Integer> {
+		private final int firstTotalCount;
+		private final int laterTotalCount;
+
+		private CountingPageFetcher(int firstTotalCount, int laterTotalCount) {
+			this.firstTotalCount = firstTotalCount;
+			this.laterTotalCount = laterTotalCount;
+		}
+
+		@Override
+		public Page<Integer> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+			int totalCount = (numPage == 1 ? firstTotalCount : laterTotalCount);
+			List<Integer> results = new ArrayList<Integer>();
+			for (int i = (numPage - 1) * numPerPage; i < Math.min(numPage * numPerPage, totalCount); i++) {
+				results.add(i);
+			}
+			int numPages = (totalCount + numPerPage - 1) / numPerPage;
+			return(new Page<Integer>(results, numPage, numPages, totalCount));
+		}
+	}
+}
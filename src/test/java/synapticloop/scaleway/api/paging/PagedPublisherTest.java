@@ -0,0 +1,144 @@
+package synapticloop.scaleway.api.paging;
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+
+public class PagedPublisherTest {
+	private static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private List<Integer> fetchedPages;
+	private PageFetcher<Integer> pageFetcher;
+
+	@Before
+	public void setup() {
+		fetchedPages = new ArrayList<Integer>();
+		// 5 results in total, so with 2 per page there are 3 pages
+		pageFetcher = new PageFetcher<Integer>() {
+			@Override
+			public Page<Integer> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				fetchedPages.add(numPage);
+				List<Integer> results = new ArrayList<Integer>();
+				for(int i = (numPage - 1) * numPerPage; i < Math.min(numPage * numPerPage, 5); i++) {
+					results.add(i);
+				}
+				return(new Page<Integer>(results, numPage, 3, 5));
+			}
+		};
+	}
+
+	@Test
+	public void testPagesFetchedOnDemand() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new PagedPublisher<Integer>(pageFetcher, 2, SAME_THREAD_EXECUTOR).subscribe(subscriber);
+
+		assertTrue(fetchedPages.isEmpty());
+
+		subscriber.subscription.request(1);
+		assertEquals(1, fetchedPages.size());
+		assertEquals(1, subscriber.received.size());
+
+		// the second result is already buffered
+		subscriber.subscription.request(1);
+		assertEquals(1, fetchedPages.size());
+		assertEquals(2, subscriber.received.size());
+
+		subscriber.subscription.request(1);
+		assertEquals(2, fetchedPages.size());
+		assertFalse(subscriber.isComplete);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(3, fetchedPages.size());
+		assertEquals(5, subscriber.received.size());
+		assertTrue(subscriber.isComplete);
+		assertNull(subscriber.error);
+	}
+
+	@Test
+	public void testCancelStopsFetching() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new PagedPublisher<Integer>(pageFetcher, 2, SAME_THREAD_EXECUTOR).subscribe(subscriber);
+
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(10);
+
+		assertEquals(1, fetchedPages.size());
+		assertEquals(1, subscriber.received.size());
+		assertFalse(subscriber.isComplete);
+	}
+
+	@Test
+	public void testNonPositiveRequestSignalsError() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new PagedPublisher<Integer>(pageFetcher, 2, SAME_THREAD_EXECUTOR).subscribe(subscriber);
+
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+		assertTrue(fetchedPages.isEmpty());
+	}
+
+	@Test
+	public void testFetchErrorSignalled() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new PagedPublisher<Integer>(new PageFetcher<Integer>() {
+			@Override
+			public Page<Integer> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+				throw new ScalewayApiException("failed");
+			}
+		}, 2, SAME_THREAD_EXECUTOR).subscribe(subscriber);
+
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.error instanceof ScalewayApiException);
+		assertFalse(subscriber.isComplete);
+	}
+
+	private static class RecordingSubscriber implements Subscriber<Integer> {
+		private Subscription subscription;
+		private List<Integer> received = new ArrayList<Integer>();
+		private boolean isComplete = false;
+		private Throwable error = null;
+
+		@Override
+		public void onSubscribe(Subscription subscription) { this.subscription = subscription; }
+
+		@Override
+		public void onNext(Integer item) { received.add(item); }
+
+		@Override
+		public void onError(Throwable throwable) { this.error = throwable; }
+
+		@Override
+		public void onComplete() { this.isComplete = true; }
+	}
+}
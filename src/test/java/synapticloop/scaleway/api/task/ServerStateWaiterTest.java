@@ -0,0 +1,137 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.Server;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.ServerTaskStatus;
+import synapticloop.scaleway.api.model.ServerType;
+import synapticloop.scaleway.api.model.State;
+import synapticloop.scaleway.api.util.HashedWheelTimer;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+public class ServerStateWaiterTest {
+	private static final long MIN_INTERVAL_MILLIS = 5L;
+
+	private ExecutorService executorService;
+	private HashedWheelTimer hashedWheelTimer;
+
+	@Before
+	public void setUp() {
+		executorService = Executors.newFixedThreadPool(2);
+		hashedWheelTimer = new HashedWheelTimer("test-timer", 1, 64, executorService);
+	}
+
+	@After
+	public void tearDown() {
+		hashedWheelTimer.close();
+		executorService.shutdownNow();
+	}
+
+	private static ServerFetcher startingFor(final long startingMillis) {
+		final long startNanos = System.nanoTime();
+		return(new ServerFetcher() {
+			@Override
+			public Server fetchServer(String serverId) throws ScalewayApiException {
+				Server server = new Server();
+				server.setId(serverId);
+				server.setServerType(ServerType.VC1S);
+				server.setState(System.nanoTime() - startNanos < TimeUnit.MILLISECONDS.toNanos(startingMillis) ? State.STARTING : State.RUNNING);
+				return(server);
+			}
+		});
+	}
+
+	private static final TaskFetcher NO_TASKS = new TaskFetcher() {
+		@Override
+		public ServerTask fetchTask(String taskId) throws ScalewayApiException {
+			throw new ScalewayApiException("No tasks");
+		}
+	};
+
+	@Test
+	public void testTransitionHistoryAverages() {
+		TransitionHistory transitionHistory = new TransitionHistory();
+		assertEquals(TimeUnit.SECONDS.toMillis(60), transitionHistory.getExpectedMillis(ServerType.VC1S, State.RUNNING));
+
+		transitionHistory.record(ServerType.VC1S, State.RUNNING, 20000);
+		assertEquals(20000, transitionHistory.getExpectedMillis(ServerType.VC1S, State.RUNNING));
+		// other server types fall back to the transitions for any server type
+		assertEquals(20000, transitionHistory.getExpectedMillis(ServerType.C2L, State.RUNNING));
+
+		transitionHistory.record(ServerType.VC1S, State.RUNNING, 40000);
+		assertEquals(25000, transitionHistory.getExpectedMillis(ServerType.VC1S, State.RUNNING));
+		assertEquals(2, transitionHistory.getNumSamples(ServerType.VC1S, State.RUNNING));
+		assertEquals(0, transitionHistory.getNumSamples(ServerType.C2L, State.RUNNING));
+	}
+
+	@Test
+	public void testPollsDenselyOnlyNearTheExpectedTime() throws Exception {
+		long startingMillis = 400L;
+		TransitionHistory transitionHistory = new TransitionHistory();
+		transitionHistory.record(ServerType.VC1S, State.RUNNING, startingMillis);
+
+		ServerStateWaiter serverStateWaiter = new ServerStateWaiter(startingFor(startingMillis), NO_TASKS, transitionHistory, MIN_INTERVAL_MILLIS, 1000L, hashedWheelTimer, new RateLimiter(10000));
+		ServerStateFuture future = serverStateWaiter.waitForState("server-1", State.RUNNING, State.STOPPED);
+		assertTrue(future.getEstimatedMillisRemaining() != 0L);
+
+		Server server = future.get(5, TimeUnit.SECONDS);
+		assertEquals(State.RUNNING, server.getState());
+		assertEquals(0L, future.getEstimatedMillisRemaining());
+
+		// polling every 5ms would have taken 80 polls
+		assertTrue("Polled " + future.getNumPolls() + " times", future.getNumPolls() <= 16);
+		assertEquals(2, transitionHistory.getNumSamples(ServerType.VC1S, State.RUNNING));
+	}
+
+	@Test
+	public void testWaitWithTaskRecordsTransition() throws Exception {
+		final long startNanos = System.nanoTime();
+		TaskFetcher taskFetcher = new TaskFetcher() {
+			@Override
+			public ServerTask fetchTask(String taskId) throws ScalewayApiException {
+				ServerTask serverTask = new ServerTask();
+				serverTask.setId(taskId);
+				serverTask.setStatus(System.nanoTime() - startNanos < TimeUnit.MILLISECONDS.toNanos(100L) ? ServerTaskStatus.STARTED : ServerTaskStatus.SUCCESS);
+				return(serverTask);
+			}
+		};
+
+		TransitionHistory transitionHistory = new TransitionHistory();
+		transitionHistory.record(ServerType.VC1S, State.RUNNING, 100L);
+		// the server is already running by the time the task has finished
+		ServerStateWaiter serverStateWaiter = new ServerStateWaiter(startingFor(0L), taskFetcher, transitionHistory, MIN_INTERVAL_MILLIS, 1000L, hashedWheelTimer, new RateLimiter(10000));
+
+		ServerTask serverTask = new ServerTask();
+		serverTask.setId("task-1");
+		Server server = serverStateWaiter.waitForState("server-1", serverTask, 5000L, State.RUNNING).get(5, TimeUnit.SECONDS);
+		assertEquals(State.RUNNING, server.getState());
+		assertEquals(2, transitionHistory.getNumSamples(ServerType.VC1S, State.RUNNING));
+	}
+}
@@ -0,0 +1,126 @@
+package synapticloop.scaleway.api.task;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.model.ServerTask;
+import synapticloop.scaleway.api.model.ServerTaskStatus;
+import synapticloop.scaleway.api.util.HashedWheelTimer;
+import synapticloop.scaleway.api.util.RateLimiter;
+
+public class TaskTrackerTest {
+	private ExecutorService executorService;
+	private HashedWheelTimer hashedWheelTimer;
+
+	@Before
+	public void setUp() {
+		executorService = Executors.newFixedThreadPool(2);
+		hashedWheelTimer = new HashedWheelTimer("test-timer", 1, 8, executorService);
+	}
+
+	@After
+	public void tearDown() {
+		hashedWheelTimer.close();
+		executorService.shutdownNow();
+	}
+
+	private TaskTracker newTaskTracker(TaskFetcher taskFetcher) {
+		return(new TaskTracker(taskFetcher, 1, 4, hashedWheelTimer, new RateLimiter(10000)));
+	}
+
+	private static TaskFetcher finishingAfter(final int numPolls, final ServerTaskStatus finalStatus, final AtomicInteger pollCount) {
+		return(new TaskFetcher() {
+			@Override
+			public ServerTask fetchTask(String taskId) throws ScalewayApiException {
+				ServerTask serverTask = new ServerTask();
+				serverTask.setId(taskId);
+				serverTask.setStatus(pollCount.incrementAndGet() < numPolls ? ServerTaskStatus.RUNNING : finalStatus);
+				return(serverTask);
+			}
+		});
+	}
+
+	@Test
+	public void testCompletesWhenTaskSucceeds() throws Exception {
+		AtomicInteger pollCount = new AtomicInteger();
+		TaskTracker taskTracker = newTaskTracker(finishingAfter(3, ServerTaskStatus.SUCCESS, pollCount));
+
+		final List<ServerTaskStatus> transitions = new ArrayList<ServerTaskStatus>();
+		ServerTask serverTask = taskTracker.awaitTask("task-1", 5000, new TaskListener() {
+			@Override
+			public void onTaskStatusChanged(ServerTaskStatus previousStatus, ServerTask serverTask) {
+				transitions.add(serverTask.getStatus());
+			}
+		}).get(5, TimeUnit.SECONDS);
+		assertEquals("task-1", serverTask.getId());
+		assertEquals(ServerTaskStatus.SUCCESS, serverTask.getStatus());
+		assertEquals(3, pollCount.get());
+		assertEquals(2, transitions.size());
+		assertEquals(ServerTaskStatus.RUNNING, transitions.get(0));
+		assertEquals(ServerTaskStatus.SUCCESS, transitions.get(1));
+	}
+
+	@Test
+	public void testCompletesExceptionallyWhenTaskFails() throws Exception {
+		TaskTracker taskTracker = newTaskTracker(finishingAfter(2, ServerTaskStatus.FAILURE, new AtomicInteger()));
+
+		try {
+			taskTracker.awaitTask("task-1").get(5, TimeUnit.SECONDS);
+			fail("Expected the task to fail");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof ScalewayApiException);
+		}
+	}
+
+	@Test
+	public void testTimesOutAndCancelStopsPolling() throws Exception {
+		AtomicInteger pollCount = new AtomicInteger();
+		TaskTracker taskTracker = newTaskTracker(finishingAfter(Integer.MAX_VALUE, ServerTaskStatus.SUCCESS, pollCount));
+
+		try {
+			taskTracker.awaitTask("task-1", 50).get(5, TimeUnit.SECONDS);
+			fail("Expected the wait to time out");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof TimeoutException);
+		}
+
+		CompletableFuture<ServerTask> future = taskTracker.awaitTask("task-2");
+		Thread.sleep(20);
+		assertTrue(future.cancel(true));
+		Thread.sleep(20);
+		int numPolls = pollCount.get();
+		Thread.sleep(50);
+		assertEquals(numPolls, pollCount.get());
+	}
+}
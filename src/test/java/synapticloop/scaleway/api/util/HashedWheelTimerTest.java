@@ -0,0 +1,98 @@
+package synapticloop.scaleway.api.util;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+	private static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private HashedWheelTimer hashedWheelTimer;
+
+	@Before
+	public void setUp() {
+		// a small wheel, so that the longer timeouts go round more than once
+		hashedWheelTimer = new HashedWheelTimer("test-timer", 1, 4, SAME_THREAD_EXECUTOR);
+	}
+
+	@After
+	public void tearDown() {
+		hashedWheelTimer.close();
+	}
+
+	@Test
+	public void testTimeoutsExpireAfterTheirDelay() throws InterruptedException {
+		final int numTimeouts = 1000;
+		final CountDownLatch countDownLatch = new CountDownLatch(numTimeouts);
+		final AtomicInteger numEarly = new AtomicInteger();
+		for (int i = 0; i < numTimeouts; i++) {
+			final long delayMillis = i % 50;
+			final long scheduledNanos = System.nanoTime();
+			hashedWheelTimer.newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					if(System.nanoTime() - scheduledNanos < TimeUnit.MILLISECONDS.toNanos(delayMillis)) {
+						numEarly.incrementAndGet();
+					}
+					countDownLatch.countDown();
+				}
+			}, delayMillis);
+		}
+
+		assertTrue(countDownLatch.await(5, TimeUnit.SECONDS));
+		assertEquals(0, numEarly.get());
+		assertEquals(0, hashedWheelTimer.getNumPendingTimeouts());
+	}
+
+	@Test
+	public void testCancelledTimeoutsDoNotExpire() throws InterruptedException {
+		final AtomicInteger numExpired = new AtomicInteger();
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				numExpired.incrementAndGet();
+			}
+		};
+
+		HashedWheelTimer.Timeout cancelled = hashedWheelTimer.newTimeout(task, 20);
+		HashedWheelTimer.Timeout expired = hashedWheelTimer.newTimeout(task, 10);
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.cancel());
+
+		Thread.sleep(100);
+		assertEquals(1, numExpired.get());
+		assertTrue(cancelled.isCancelled());
+		assertTrue(expired.isExpired());
+		assertFalse(expired.cancel());
+		assertEquals(0, hashedWheelTimer.getNumPendingTimeouts());
+	}
+}
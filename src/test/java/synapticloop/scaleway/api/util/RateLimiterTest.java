@@ -0,0 +1,54 @@
+package synapticloop.scaleway.api.util;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	public void testBurstThenSteadyRate() {
+		RateLimiter rateLimiter = new RateLimiter(10, 0L);
+
+		// one second's worth of permits may be used straight away
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0L, rateLimiter.reserve(0L));
+		}
+
+		// and then one every 100ms
+		assertEquals(0L, rateLimiter.reserve(0L));
+		assertEquals(ONE_SECOND / 10, rateLimiter.reserve(0L));
+		assertEquals(2 * ONE_SECOND / 10, rateLimiter.reserve(0L));
+
+		// the reserved permits are waited for, (the next one is free at 300ms)
+		assertEquals(ONE_SECOND / 10, rateLimiter.reserve(2 * ONE_SECOND / 10));
+
+		// after a long idle period, the burst is available again, but no more
+		long later = 10 * ONE_SECOND;
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0L, rateLimiter.reserve(later));
+		}
+		assertEquals(0L, rateLimiter.reserve(later));
+		assertEquals(ONE_SECOND / 10, rateLimiter.reserve(later));
+	}
+}
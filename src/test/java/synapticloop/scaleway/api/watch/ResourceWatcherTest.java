@@ -0,0 +1,128 @@
+package synapticloop.scaleway.api.watch;
+
+
+/*
+ * Copyright (c) 2016 synapticloop.
+ * 
+ * All rights reserved.
+ * 
+ * This code may contain contributions from other parties which, where 
+ * applicable, will be listed in the default build file for the project 
+ * ~and/or~ in a file named CONTRIBUTORS.txt in the root of the project.
+ * 
+ * This source code and any derived binaries are covered by the terms and 
+ * conditions of the Licence agreement ("the Licence").  You may not use this 
+ * source code or any derived binaries except in compliance with the Licence.  
+ * A copy of the Licence is available in the file named LICENSE.txt shipped with 
+ * this source code or binaries.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import synapticloop.scaleway.api.ResourceType;
+import synapticloop.scaleway.api.diff.ChangeType;
+import synapticloop.scaleway.api.diff.ResourceChange;
+import synapticloop.scaleway.api.diff.ResourceDescriptor;
+import synapticloop.scaleway.api.diff.ResourceDiffer;
+import synapticloop.scaleway.api.exception.ScalewayApiException;
+import synapticloop.scaleway.api.paging.Page;
+import synapticloop.scaleway.api.paging.PageFetcher;
+
+public class ResourceWatcherTest {
+	private static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private static final ResourceDescriptor<String> STRING_DESCRIPTOR = new ResourceDescriptor<String>(ResourceType.SERVER, new ArrayList<ResourceDescriptor.Field<String>>()) {
+		@Override public String getId(String resource) { return(resource); }
+		@Override public Date getModificationDate(String resource) { return(null); }
+	};
+
+	private ScheduledExecutorService scheduledExecutorService;
+	private volatile List<String> listing;
+
+	@Before
+	public void setup() {
+		scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+		listing = new ArrayList<String>();
+		listing.add("one");
+		listing.add("two");
+	}
+
+	@After
+	public void teardown() {
+		scheduledExecutorService.shutdownNow();
+	}
+
+	@Test
+	public void testChangesAndBackOff() throws InterruptedException {
+		ResourceWatcher<String> resourceWatcher = new ResourceWatcher<String>("strings", new ListingPageFetcher(), new ResourceDiffer<String>(STRING_DESCRIPTOR), 10L, 80L, scheduledExecutorService, SAME_THREAD_EXECUTOR);
+
+		final BlockingQueue<ResourceChange<String>> changes = new LinkedBlockingQueue<ResourceChange<String>>();
+		ResourceChangeListener<String> listener = new ResourceChangeListener<String>() {
+			@Override
+			public void onResourceChange(ResourceChange<String> resourceChange) {
+				changes.add(resourceChange);
+			}
+		};
+		Watch<String> watch = new Watch<String>(resourceWatcher, listener);
+		resourceWatcher.addListener(listener);
+
+		assertChange(changes.poll(1, TimeUnit.SECONDS), ChangeType.ADDED, "one");
+		assertChange(changes.poll(1, TimeUnit.SECONDS), ChangeType.ADDED, "two");
+
+		// nothing is changing, so the polling backs off to the maximum
+		Thread.sleep(300L);
+		assertEquals(80L, resourceWatcher.getIntervalMillis());
+		assertTrue(changes.isEmpty());
+
+		List<String> updated = new ArrayList<String>();
+		updated.add("two");
+		listing = updated;
+		assertChange(changes.poll(1, TimeUnit.SECONDS), ChangeType.REMOVED, "one");
+
+		// a late listener is brought up to date
+		final BlockingQueue<ResourceChange<String>> lateChanges = new LinkedBlockingQueue<ResourceChange<String>>();
+		resourceWatcher.addListener(new ResourceChangeListener<String>() {
+			@Override
+			public void onResourceChange(ResourceChange<String> resourceChange) {
+				lateChanges.add(resourceChange);
+			}
+		});
+		assertChange(lateChanges.poll(1, TimeUnit.SECONDS), ChangeType.ADDED, "two");
+
+		watch.cancel();
+		assertEquals(1, resourceWatcher.getNumListeners());
+	}
+
+	private static void assertChange(ResourceChange<String> resourceChange, ChangeType changeType, String id) {
+		assertNotNull(resourceChange);
+		assertEquals(changeType, resourceChange.getChangeType());
+		assertEquals(id, resourceChange.getId());
+	}
+
+	private class ListingPageFetcher implements PageFetcher<String> {
+		@Override
+		public Page<String> fetchPage(int numPage, int numPerPage) throws ScalewayApiException {
+			List<String> current = listing;
+			return(new Page<String>(current, 1, 1, current.size()));
+		}
+	}
+}